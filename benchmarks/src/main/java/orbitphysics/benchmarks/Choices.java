@@ -0,0 +1,103 @@
+package orbitphysics.benchmarks;
+
+import orbitphysics.AdaptiveIntegrator;
+import orbitphysics.BarnesHutSolver;
+import orbitphysics.BlockHermiteIntegrator;
+import orbitphysics.BounceCollisionHandler;
+import orbitphysics.CollisionHandler;
+import orbitphysics.DirectSumSolver;
+import orbitphysics.EulerIntegrator;
+import orbitphysics.FastMultipoleSolver;
+import orbitphysics.ForceSolver;
+import orbitphysics.Integrator;
+import orbitphysics.MergeCollisionHandler;
+import orbitphysics.ParticleMeshSolver;
+import orbitphysics.RungeKuttaIntegrator;
+import orbitphysics.VelocityVerletIntegrator;
+
+/**
+ * The solvers, integrators and collision handlers the benchmarks can be parameterized with,
+ * named so they can be given as JMH parameters
+ */
+public final class Choices {
+
+	public enum Solver {
+
+		DIRECT, DIRECT_VECTOR, BARNES_HUT, FMM, PM, P3M;
+
+		ForceSolver create(double softening) {
+
+			switch (this) {
+			case BARNES_HUT:
+				BarnesHutSolver barnesHutSolver = new BarnesHutSolver();
+				barnesHutSolver.setSoftening(softening);
+				return barnesHutSolver;
+			case FMM:
+				FastMultipoleSolver fastMultipoleSolver = new FastMultipoleSolver();
+				fastMultipoleSolver.setSoftening(softening);
+				return fastMultipoleSolver;
+			case PM:
+			case P3M:
+				ParticleMeshSolver particleMeshSolver = new ParticleMeshSolver();
+				particleMeshSolver.setShortRangeCorrection(this == P3M);
+				particleMeshSolver.setSoftening(softening);
+				return particleMeshSolver;
+			default:
+				DirectSumSolver directSumSolver = new DirectSumSolver();
+				directSumSolver.setSoftening(softening);
+				directSumSolver.setVectorized(this == DIRECT_VECTOR);
+				return directSumSolver;
+			}
+
+		}
+
+	}
+
+	public enum Stepper {
+
+		EULER, VERLET, RK4, ADAPTIVE, HERMITE;
+
+		Integrator create(double softening) {
+
+			switch (this) {
+			case VERLET:
+				return new VelocityVerletIntegrator();
+			case RK4:
+				return new RungeKuttaIntegrator();
+			case ADAPTIVE:
+				return new AdaptiveIntegrator();
+			case HERMITE:
+				BlockHermiteIntegrator blockHermiteIntegrator = new BlockHermiteIntegrator();
+				blockHermiteIntegrator.setSoftening(softening);
+				return blockHermiteIntegrator;
+			default:
+				return new EulerIntegrator();
+			}
+
+		}
+
+	}
+
+	public enum Collisions {
+
+		NONE, MERGE, BOUNCE;
+
+		CollisionHandler create() {
+
+			switch (this) {
+			case MERGE:
+				return new MergeCollisionHandler();
+			case BOUNCE:
+				return new BounceCollisionHandler();
+			default:
+				return null;
+			}
+
+		}
+
+	}
+
+	private Choices() {
+	}
+
+}
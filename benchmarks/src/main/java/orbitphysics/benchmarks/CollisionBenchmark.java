@@ -0,0 +1,72 @@
+package orbitphysics.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import orbitphysics.CollisionDetector;
+import orbitphysics.Scenarios;
+import orbitphysics.Simulation;
+
+/**
+ * Measures finding the overlapping pairs of bodies with the spatial hash, and a whole step
+ * including the resolution of the collisions it finds
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	int bodyCount;
+
+	@Param({ "CLUSTER", "DISK", "UNIFORM" })
+	Scenarios.Distribution distribution;
+
+	@Param({ "NONE", "MERGE", "BOUNCE" })
+	Choices.Collisions collisions;
+
+	Simulation simulation;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		simulation = Scenarios.create(distribution, bodyCount, 42);
+		simulation.setForceSolver(Choices.Solver.BARNES_HUT.create(0));
+		simulation.setCollisionHandler(collisions.create());
+		simulation.setTimeStep(0.01);
+
+	}
+
+	@Benchmark
+	public CollisionDetector detect() {
+		return simulation.detectCollisions();
+	}
+
+	/**
+	 * Merging removes bodies, so the body count of the MERGE runs can drop during the trial
+	 */
+	@Benchmark
+	public Simulation stepWithCollisions() {
+
+		simulation.step();
+
+		return simulation;
+
+	}
+
+}
@@ -0,0 +1,166 @@
+package orbitphysics.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import orbitphysics.FastMultipoleSolver;
+import orbitphysics.ForceSolver;
+import orbitphysics.ParticleMeshSolver;
+import orbitphysics.Scenarios;
+import orbitphysics.Simulation;
+
+/**
+ * Measures one calculation of the accelerations by a force solver, without the rest of the step.
+ *
+ * When the trial ends, the accelerations are checked against direct summation and the RMS and largest
+ * relative errors are printed, so the speed of each solver can be weighed against its accuracy. Direct
+ * summation of every body takes O(n^2) time, so with many bodies only a random sample is checked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForceBenchmark {
+
+	// The most bodies whose accelerations are checked against direct summation
+	private static final int CHECKED_BODIES = 2000;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	int bodyCount;
+
+	@Param({ "CLUSTER", "DISK", "UNIFORM" })
+	Scenarios.Distribution distribution;
+
+	@Param({ "BARNES_HUT", "FMM", "PM" })
+	Choices.Solver solver;
+
+	// The order of the FMM expansions, not used by the other solvers
+	@Param({ "4" })
+	int order;
+
+	// The mesh size of the PM and P3M solvers, not used by the other solvers
+	@Param({ "512" })
+	int gridSize;
+
+	@Param({ "1" })
+	double softening;
+
+	ForceSolver forceSolver;
+
+	int count;
+	double[] x;
+	double[] y;
+	double[] mass;
+	double[] xAcceleration;
+	double[] yAcceleration;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		Simulation simulation = Scenarios.create(distribution, bodyCount, 42);
+
+		count = simulation.getBodyCount();
+		x = new double[count];
+		y = new double[count];
+		mass = new double[count];
+		xAcceleration = new double[count];
+		yAcceleration = new double[count];
+
+		for (int i = 0; i < count; i++) {
+			x[i] = simulation.getX(i);
+			y[i] = simulation.getY(i);
+			mass[i] = simulation.getMass(i);
+		}
+
+		forceSolver = solver.create(softening);
+
+		if (forceSolver instanceof FastMultipoleSolver) {
+			((FastMultipoleSolver) forceSolver).setOrder(order);
+		}
+
+		if (forceSolver instanceof ParticleMeshSolver) {
+			((ParticleMeshSolver) forceSolver).setGridSize(gridSize);
+		}
+
+	}
+
+	@Benchmark
+	public double[] computeAccelerations() {
+
+		forceSolver.computeAccelerations(x, y, mass, count, xAcceleration, yAcceleration);
+
+		return xAcceleration;
+
+	}
+
+	@TearDown(Level.Trial)
+	public void reportError() {
+
+		forceSolver.computeAccelerations(x, y, mass, count, xAcceleration, yAcceleration);
+
+		Random random = new Random(42);
+		int checked = Math.min(count, CHECKED_BODIES);
+		double softeningSquared = softening * softening;
+
+		double errorSquaredSum = 0;
+		double accelerationSquaredSum = 0;
+		double maxError = 0;
+
+		for (int sample = 0; sample < checked; sample++) {
+
+			int i = checked == count ? sample : random.nextInt(count);
+
+			double xSum = 0;
+			double ySum = 0;
+
+			for (int j = 0; j < count; j++) {
+
+				if (j != i) {
+
+					double dx = x[j] - x[i];
+					double dy = y[j] - y[i];
+					double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+					if (distanceSquared > 0) {
+						double scale = Simulation.G * mass[j] / (distanceSquared * Math.sqrt(distanceSquared));
+						xSum += dx * scale;
+						ySum += dy * scale;
+					}
+
+				}
+			}
+
+			double error = Math.hypot(xAcceleration[i] - xSum, yAcceleration[i] - ySum);
+			double acceleration = Math.hypot(xSum, ySum);
+
+			errorSquaredSum += error * error;
+			accelerationSquaredSum += acceleration * acceleration;
+
+			if (acceleration > 0) {
+				maxError = Math.max(maxError, error / acceleration);
+			}
+
+		}
+
+		System.out.printf("%nRelative acceleration error of %d bodies: %.3e RMS, %.3e max%n", checked,
+				Math.sqrt(errorSquaredSum / accelerationSquaredSum), maxError);
+
+	}
+
+}
@@ -0,0 +1,95 @@
+package orbitphysics.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import orbitphysics.Scenarios;
+import orbitphysics.Simulation;
+
+/**
+ * Measures the time one {@link Simulation#step()} takes, without collisions or trails so only the
+ * force solver and integrator are timed. Run with -prof gc to also get the allocation rate.
+ *
+ * The relative energy error over the whole trial is printed when the trial ends. Bodies pass through
+ * each other here, so besides the approximation made by the Barnes-Hut solver the integrator is the only
+ * source of energy error, which shows how accurate each integrator is at the benchmark's time step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StepBenchmark {
+
+	// Direct summation takes minutes per step with 100000 bodies, so bigger runs are left to be asked for with
+	// -p bodyCount=100000 -p solver=BARNES_HUT
+	@Param({ "10", "100", "1000", "10000" })
+	int bodyCount;
+
+	@Param({ "CLUSTER", "DISK", "UNIFORM" })
+	Scenarios.Distribution distribution;
+
+	@Param({ "DIRECT", "BARNES_HUT" })
+	Choices.Solver solver;
+
+	@Param({ "EULER", "VERLET", "RK4", "ADAPTIVE" })
+	Choices.Stepper integrator;
+
+	@Param({ "0.01" })
+	double timeStep;
+
+	// Without softening, close encounters in the cluster make the energy error meaningless. The energy is
+	// calculated with the same softening, so it is the energy the solver should conserve.
+	@Param({ "1" })
+	double softening;
+
+	Simulation simulation;
+
+	double startingEnergy;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		simulation = Scenarios.create(distribution, bodyCount, 42);
+		simulation.setForceSolver(solver.create(softening));
+		simulation.setIntegrator(integrator.create(softening));
+		simulation.setCollisionHandler(null);
+		simulation.setTimeStep(timeStep);
+
+		startingEnergy = simulation.calculateTotalEnergy(softening);
+
+	}
+
+	@Benchmark
+	public Simulation step() {
+
+		simulation.step();
+
+		return simulation;
+
+	}
+
+	@TearDown(Level.Trial)
+	public void reportEnergyError() {
+
+		double energyError = Math.abs((simulation.calculateTotalEnergy(softening) - startingEnergy) / startingEnergy);
+
+		System.out.printf("%nRelative energy error after %d steps: %.3e%n", simulation.getStepCount(), energyError);
+
+	}
+
+}
@@ -0,0 +1,95 @@
+package orbitphysics.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import orbitphysics.Scenarios;
+import orbitphysics.Simulation;
+import orbitphysics.TrailBuffer;
+
+/**
+ * Measures the trail paths of rendering: recording a point in every trail each step, and copying every
+ * trail into the screen coordinate arrays the renderer draws each trail's polyline from. The bodies move
+ * without any forces between them so that the steps are timed with as little besides the trails as possible,
+ * compare against a trailLength of 0 to get the cost of the trails alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrailBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	int bodyCount;
+
+	@Param({ "0", "100", "1000" })
+	int trailLength;
+
+	Simulation simulation;
+
+	double[] xPoints;
+	double[] yPoints;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		simulation = Scenarios.create(Scenarios.Distribution.DISK, bodyCount, 42);
+		simulation.setForceSolver((x, y, mass, count, xAcceleration, yAcceleration) -> {
+			Arrays.fill(xAcceleration, 0, count, 0);
+			Arrays.fill(yAcceleration, 0, count, 0);
+		});
+		simulation.setTimeStep(0.01);
+		simulation.setTrailLength(trailLength);
+
+		// Fill the trails so the copies below always copy whole trails
+		simulation.step(trailLength);
+
+		xPoints = new double[trailLength];
+		yPoints = new double[trailLength];
+
+	}
+
+	@Benchmark
+	public Simulation step() {
+
+		simulation.step();
+
+		return simulation;
+
+	}
+
+	@Benchmark
+	public int copyForDrawing() {
+
+		int points = 0;
+
+		for (int i = 0; i < simulation.getBodyCount(); i++) {
+
+			TrailBuffer trail = simulation.getTrail(i);
+
+			if (trail != null) {
+				points += trail.copyTo(xPoints, yPoints, 400, 300);
+			}
+
+		}
+
+		return points;
+
+	}
+
+}
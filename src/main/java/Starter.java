@@ -1,7 +0,0 @@
-public class Starter {
-    
-    public static void main(final String[] args) {
-        OrbitPhysics.main(args);
-    }
-
-}
\ No newline at end of file
@@ -0,0 +1,254 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * A Velocity Verlet integrator that picks its own step size with global error control.
+ *
+ * Each call to {@link #step(Simulation, double)} still advances the simulation by the requested amount of
+ * time, but it is split into as many substeps as needed. The error of a substep is estimated by step
+ * doubling: the substep is taken once with its full size and once as two half size steps, and the
+ * biggest difference in any body's position is compared against the tolerance. Substeps with too much
+ * error are retried with a smaller size, and the size grows again while the error stays small, so close
+ * encounters get small steps without slowing down the rest of the run.
+ */
+public class AdaptiveIntegrator implements Integrator {
+
+	public static final double DEFAULT_TOLERANCE = 1e-3;
+
+	// Keeps the new step size a bit under the estimate so fewer substeps are rejected
+	private static final double SAFETY = 0.9;
+	private static final double MIN_SCALE = 0.2;
+	private static final double MAX_SCALE = 4;
+
+	// The smallest substep, relative to the requested step, before a substep is accepted regardless of its error
+	private static final double MIN_STEP_FRACTION = 1e-6;
+
+	private final VelocityVerletIntegrator verlet = new VelocityVerletIntegrator();
+
+	// The largest allowed position error of any body in one substep
+	private double tolerance;
+
+	// The size of the next substep, or 0 if one hasn't been picked yet
+	private double substep;
+
+	// The state at the start of a substep, used to retry it
+	private double[] savedX = new double[0];
+	private double[] savedY = new double[0];
+	private double[] savedXVelocity = new double[0];
+	private double[] savedYVelocity = new double[0];
+	private double[] savedXAcceleration = new double[0];
+	private double[] savedYAcceleration = new double[0];
+
+	// The positions after taking a substep at its full size
+	private double[] fullStepX = new double[0];
+	private double[] fullStepY = new double[0];
+
+	public AdaptiveIntegrator() {
+		this(DEFAULT_TOLERANCE);
+	}
+
+	/**
+	 * @param tolerance the largest allowed position error of any body in one substep
+	 */
+	public AdaptiveIntegrator(double tolerance) {
+		setTolerance(tolerance);
+	}
+
+	@Override
+	public void step(Simulation simulation, double timeStep) {
+
+		double remaining = timeStep;
+		double minStep = timeStep * MIN_STEP_FRACTION;
+
+		double size = substep > 0 ? substep : timeStep;
+
+		while (remaining > 0) {
+
+			size = Math.min(size, remaining);
+
+			// A remainder too small for a substep of its own is taken with this one, so the whole step is simulated.
+			// The substep is then accepted whatever its error, since a smaller one would leave the remainder again.
+			boolean last = remaining - size <= minStep;
+			if (last) {
+				size = remaining;
+			}
+
+			double error = trySubstep(simulation, size);
+
+			// A state that has become NaN or infinite won't improve with smaller substeps, so it is accepted as it is
+			boolean finite = Double.isFinite(error);
+
+			// Verlet's local error grows with the cube of the step size
+			double scale = !finite ? 1 : error > 0 ? SAFETY * Math.cbrt(tolerance / error) : MAX_SCALE;
+			scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+
+			if (!finite || error <= tolerance || size <= minStep || last) {
+
+				remaining -= size;
+
+				// Don't let a short substep at the end of the step shrink the next one
+				if (remaining > 0 || scale > 1) {
+					substep = Math.max(size * scale, minStep);
+				}
+
+			} else {
+
+				restore(simulation);
+
+			}
+
+			// Substeps never shrink below minStep, where they are accepted, so the step always finishes
+			size = Math.max(size * scale, minStep);
+
+		}
+
+	}
+
+	/**
+	 * Takes one substep with step doubling, leaving the simulation at the result of the two half steps
+	 * @return the estimated position error of the substep
+	 */
+	private double trySubstep(Simulation simulation, double size) {
+
+		int count = simulation.count;
+		ensureCapacity(count);
+
+		if (!simulation.accelerationsCurrent) {
+			simulation.computeAccelerations();
+		}
+
+		save(simulation);
+
+		verlet.step(simulation, size);
+
+		System.arraycopy(simulation.x, 0, fullStepX, 0, count);
+		System.arraycopy(simulation.y, 0, fullStepY, 0, count);
+
+		restore(simulation);
+
+		verlet.step(simulation, size / 2);
+		verlet.step(simulation, size / 2);
+
+		double maxError = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			double xError = simulation.x[i] - fullStepX[i];
+			double yError = simulation.y[i] - fullStepY[i];
+
+			maxError = Math.max(maxError, xError * xError + yError * yError);
+
+		}
+
+		// Richardson's estimate of the error for a second order method is the difference / (2^2 - 1)
+		return Math.sqrt(maxError) / 3;
+
+	}
+
+	/**
+	 * Copies the state at the start of a substep
+	 */
+	private void save(Simulation simulation) {
+
+		int count = simulation.count;
+
+		System.arraycopy(simulation.x, 0, savedX, 0, count);
+		System.arraycopy(simulation.y, 0, savedY, 0, count);
+		System.arraycopy(simulation.xVelocity, 0, savedXVelocity, 0, count);
+		System.arraycopy(simulation.yVelocity, 0, savedYVelocity, 0, count);
+		System.arraycopy(simulation.xAcceleration, 0, savedXAcceleration, 0, count);
+		System.arraycopy(simulation.yAcceleration, 0, savedYAcceleration, 0, count);
+
+	}
+
+	/**
+	 * Puts the simulation back into the state saved at the start of a substep
+	 */
+	private void restore(Simulation simulation) {
+
+		int count = simulation.count;
+
+		System.arraycopy(savedX, 0, simulation.x, 0, count);
+		System.arraycopy(savedY, 0, simulation.y, 0, count);
+		System.arraycopy(savedXVelocity, 0, simulation.xVelocity, 0, count);
+		System.arraycopy(savedYVelocity, 0, simulation.yVelocity, 0, count);
+		System.arraycopy(savedXAcceleration, 0, simulation.xAcceleration, 0, count);
+		System.arraycopy(savedYAcceleration, 0, simulation.yAcceleration, 0, count);
+
+		simulation.accelerationsCurrent = true;
+
+	}
+
+	/**
+	 * Grows the saved state arrays so they can hold at least a given number of bodies
+	 */
+	private void ensureCapacity(int count) {
+
+		if (savedX.length >= count) {
+			return;
+		}
+
+		int capacity = Math.max(count, savedX.length * 2);
+
+		savedX = Arrays.copyOf(savedX, capacity);
+		savedY = Arrays.copyOf(savedY, capacity);
+		savedXVelocity = Arrays.copyOf(savedXVelocity, capacity);
+		savedYVelocity = Arrays.copyOf(savedYVelocity, capacity);
+		savedXAcceleration = Arrays.copyOf(savedXAcceleration, capacity);
+		savedYAcceleration = Arrays.copyOf(savedYAcceleration, capacity);
+		fullStepX = Arrays.copyOf(fullStepX, capacity);
+		fullStepY = Arrays.copyOf(fullStepY, capacity);
+
+	}
+
+	/**
+	 * @return the largest allowed position error of any body in one substep
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @param tolerance the largest allowed position error of any body in one substep, must be positive
+	 */
+	public void setTolerance(double tolerance) {
+
+		if (!(tolerance > 0)) {
+			throw new IllegalArgumentException("tolerance must be positive: " + tolerance);
+		}
+
+		this.tolerance = tolerance;
+
+	}
+
+	/**
+	 * @return the size of the next substep, or 0 if one hasn't been picked yet
+	 */
+	public double getSubstep() {
+		return substep;
+	}
+
+	@Override
+	public String getName() {
+		return "Adaptive Verlet";
+	}
+
+	@Override
+	public double[] getState() {
+		return new double[] { tolerance, substep };
+	}
+
+	@Override
+	public void setState(double[] state) {
+
+		if (state.length != 2) {
+			throw new IllegalArgumentException("Expected a tolerance and a substep but got " + state.length + " values");
+		}
+
+		setTolerance(state[0]);
+		substep = state[1];
+
+	}
+
+}
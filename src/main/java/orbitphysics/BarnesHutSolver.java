@@ -0,0 +1,524 @@
+package orbitphysics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ForceSolver} that approximates gravity with a Barnes-Hut quadtree, taking O(n log n) time.
+ *
+ * Every step the bodies are sorted into a quadtree, and each node of the tree stores the total mass
+ * and center of mass of the bodies inside of it. When calculating the acceleration of a body, a node
+ * that is small compared to its distance from the body (width / distance less than the opening angle
+ * theta) is treated as a single body at its center of mass instead of visiting the bodies inside it.
+ * An opening angle of 0 visits every body, which gives the same result as direct summation.
+ *
+ * The tree is stored in primitive arrays which are reused between steps, so building it does not
+ * allocate any objects once the arrays are big enough. The bodies are sorted into tree order while it is
+ * built, so the bodies of a node are next to each other in memory, and they walk the tree in that order
+ * so bodies near each other visit the same nodes one after another.
+ *
+ * The tree is always built on the calling thread. If the solver is given a {@link ForkJoinPool},
+ * the tree walks of the bodies are split between the pool's threads. The tree is only read during
+ * the walks and each body is walked by a single thread, so the results don't depend on the number
+ * of threads.
+ *
+ * Test particles aren't inserted into the tree, they only walk it. They walk it after the sources,
+ * ordered by the leaf they fall in.
+ */
+public class BarnesHutSolver implements ForceSolver {
+
+	public static final double DEFAULT_THETA = 0.5;
+
+	// Nodes stop being split at this depth, any bodies that end up in the same node
+	// at this depth(like bodies at the same position) are all kept in that node
+	private static final int MAX_DEPTH = 48;
+
+	private double theta;
+
+	// The Plummer softening length squared, see DirectSumSolver
+	private double softeningSquared;
+
+	// Node arrays, each node's children are stored next to each other starting at firstChild, and
+	// the bodies of a node are the sorted bodies from bodyStart to bodyEnd
+	private int nodeCount;
+	private double[] nodeCenterX = new double[0];
+	private double[] nodeCenterY = new double[0];
+	private double[] nodeHalfSize = new double[0];
+	private double[] nodeMass = new double[0];
+	private double[] nodeMassX = new double[0];
+	private double[] nodeMassY = new double[0];
+	private int[] firstChild = new int[0];
+	private int[] bodyStart = new int[0];
+	private int[] bodyEnd = new int[0];
+
+	// The sources in tree order followed by the test particles, which are ordered by the leaf they fall in
+	private int[] sortedBodies = new int[0];
+	private double[] sortedX = new double[0];
+	private double[] sortedY = new double[0];
+	private double[] sortedMass = new double[0];
+
+	// The leaf each test particle falls in, and the number of test particles before each leaf, used to sort them
+	private int[] particleLeaves = new int[0];
+	private int[] leafOffsets = new int[0];
+
+	// The size of the stack needed to walk the tree, every level can add at most 3 more nodes to it
+	private static final int STACK_SIZE = 3 * MAX_DEPTH + 4;
+
+	// The pool used to walk the tree in parallel, or null to use the calling thread
+	private ForkJoinPool pool;
+
+	// Counts the interactions of the tree walks, each chunk of bodies adds its count once
+	private final LongAdder interactions = new LongAdder();
+	private long interactionCount;
+
+	public BarnesHutSolver() {
+		this(DEFAULT_THETA);
+	}
+
+	/**
+	 * @param theta the opening angle, smaller values are more accurate but slower
+	 */
+	public BarnesHutSolver(double theta) {
+		this(theta, null);
+	}
+
+	/**
+	 * @param theta the opening angle, smaller values are more accurate but slower
+	 * @param pool the pool to walk the tree on, or null to use the calling thread
+	 */
+	public BarnesHutSolver(double theta, ForkJoinPool pool) {
+		setTheta(theta);
+		this.pool = pool;
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration) {
+		computeAccelerations(x, y, mass, count, count, xAcceleration, yAcceleration);
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		if (sourceCount == 0) {
+			Arrays.fill(xAcceleration, 0, count, 0);
+			Arrays.fill(yAcceleration, 0, count, 0);
+			interactionCount = 0;
+			return;
+		}
+
+		// Only the sources are put in the tree, every body walks it
+		buildTree(x, y, mass, sourceCount, count);
+
+		ParallelLoop.forEach(pool, count, (start, end) -> {
+
+			int[] stack = new int[STACK_SIZE];
+			long chunkInteractions = 0;
+
+			for (int i = start; i < end; i++) {
+				chunkInteractions += computeAcceleration(i, xAcceleration, yAcceleration, stack);
+			}
+
+			interactions.add(chunkInteractions);
+
+		});
+
+		interactionCount = interactions.sumThenReset();
+
+	}
+
+	/**
+	 * Sorts the sources into a new quadtree and calculates the mass and center of mass of its nodes, then
+	 * sorts the test particles by the leaf they fall in
+	 * @param sourceCount the number of bodies that go in the tree, which are the first sourceCount bodies
+	 */
+	void buildTree(double[] x, double[] y, double[] mass, int sourceCount, int count) {
+
+		if (sortedBodies.length < count) {
+			int capacity = Math.max(count, sortedBodies.length * 2);
+			sortedBodies = new int[capacity];
+			sortedX = new double[capacity];
+			sortedY = new double[capacity];
+			sortedMass = new double[capacity];
+		}
+
+		// Find the square bounding all of the sources
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < sourceCount; i++) {
+			sortedBodies[i] = i;
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		// Make the root slightly bigger than the bounds so bodies on the edges are inside of it
+		double halfSize = Math.max(maxX - minX, maxY - minY) / 2 * 1.0001 + Double.MIN_NORMAL;
+
+		nodeCount = 0;
+		int root = allocateNode((minX + maxX) / 2, (minY + maxY) / 2, halfSize, 0, sourceCount);
+
+		split(root, 0, x, y);
+
+		sortTestParticles(x, y, sourceCount, count);
+
+		for (int i = 0; i < count; i++) {
+			int body = sortedBodies[i];
+			sortedX[i] = x[body];
+			sortedY[i] = y[body];
+			sortedMass[i] = mass[body];
+		}
+
+		// Children are always allocated after their parent, so going backwards through the
+		// nodes sums up every child before its parent
+		for (int node = nodeCount - 1; node >= 0; node--) {
+
+			double totalMass = 0;
+			double massX = 0;
+			double massY = 0;
+
+			if (firstChild[node] >= 0) {
+
+				for (int child = firstChild[node]; child < firstChild[node] + 4; child++) {
+					totalMass += nodeMass[child];
+					massX += nodeMassX[child] * nodeMass[child];
+					massY += nodeMassY[child] * nodeMass[child];
+				}
+
+			} else {
+
+				for (int i = bodyStart[node]; i < bodyEnd[node]; i++) {
+					totalMass += sortedMass[i];
+					massX += sortedX[i] * sortedMass[i];
+					massY += sortedY[i] * sortedMass[i];
+				}
+
+			}
+
+			nodeMass[node] = totalMass;
+
+			// Store the center of mass(the node's center is used if it is empty or massless)
+			if (totalMass > 0) {
+				nodeMassX[node] = massX / totalMass;
+				nodeMassY[node] = massY / totalMass;
+			} else {
+				nodeMassX[node] = nodeCenterX[node];
+				nodeMassY[node] = nodeCenterY[node];
+			}
+
+		}
+
+	}
+
+	/**
+	 * Splits a node that holds more than one body into four children, and then splits its children
+	 */
+	private void split(int node, int depth, double[] x, double[] y) {
+
+		int start = bodyStart[node];
+		int end = bodyEnd[node];
+
+		if (end - start <= 1 || depth == MAX_DEPTH) {
+			return;
+		}
+
+		double centerX = nodeCenterX[node];
+		double centerY = nodeCenterY[node];
+		double quarterSize = nodeHalfSize[node] / 2;
+
+		// Sort the bodies of the node into its quadrants, first by y and then each half by x
+		int middle = partition(start, end, y, centerY);
+		int lowerMiddle = partition(start, middle, x, centerX);
+		int upperMiddle = partition(middle, end, x, centerX);
+
+		// The children are allocated before any of them are split so they are next to each other
+		int children = allocateNode(centerX - quarterSize, centerY - quarterSize, quarterSize, start, lowerMiddle);
+		allocateNode(centerX + quarterSize, centerY - quarterSize, quarterSize, lowerMiddle, middle);
+		allocateNode(centerX - quarterSize, centerY + quarterSize, quarterSize, middle, upperMiddle);
+		allocateNode(centerX + quarterSize, centerY + quarterSize, quarterSize, upperMiddle, end);
+
+		firstChild[node] = children;
+
+		for (int child = children; child < children + 4; child++) {
+			split(child, depth + 1, x, y);
+		}
+
+	}
+
+	/**
+	 * Moves the sorted bodies from start to end - 1 with a coordinate less than a pivot before the others
+	 * @return the index of the first body whose coordinate isn't less than the pivot
+	 */
+	private int partition(int start, int end, double[] coordinates, double pivot) {
+
+		int low = start;
+		int high = end - 1;
+
+		while (low <= high) {
+
+			if (coordinates[sortedBodies[low]] < pivot) {
+				low++;
+			} else {
+				int body = sortedBodies[low];
+				sortedBodies[low] = sortedBodies[high];
+				sortedBodies[high--] = body;
+			}
+
+		}
+
+		return low;
+
+	}
+
+	/**
+	 * Puts the test particles after the sources, counting sorted by the leaf they fall in
+	 */
+	private void sortTestParticles(double[] x, double[] y, int sourceCount, int count) {
+
+		int particleCount = count - sourceCount;
+
+		if (particleCount == 0) {
+			return;
+		}
+
+		if (particleLeaves.length < particleCount) {
+			particleLeaves = new int[Math.max(particleCount, particleLeaves.length * 2)];
+		}
+		if (leafOffsets.length < nodeCount + 1) {
+			leafOffsets = new int[Math.max(nodeCount + 1, leafOffsets.length * 2)];
+		}
+
+		Arrays.fill(leafOffsets, 0, nodeCount + 1, 0);
+
+		for (int i = 0; i < particleCount; i++) {
+
+			int body = sourceCount + i;
+
+			int node = 0;
+			while (firstChild[node] >= 0) {
+				node = firstChild[node] + quadrantOf(node, x[body], y[body]);
+			}
+
+			particleLeaves[i] = node;
+			leafOffsets[node + 1]++;
+
+		}
+
+		for (int node = 0; node < nodeCount; node++) {
+			leafOffsets[node + 1] += leafOffsets[node];
+		}
+
+		for (int i = 0; i < particleCount; i++) {
+			sortedBodies[sourceCount + leafOffsets[particleLeaves[i]]++] = sourceCount + i;
+		}
+
+	}
+
+	/**
+	 * @return which of a node's four children a point belongs in
+	 */
+	private int quadrantOf(int node, double x, double y) {
+
+		int quadrant = 0;
+		if (x >= nodeCenterX[node]) {
+			quadrant |= 1;
+		}
+		if (y >= nodeCenterY[node]) {
+			quadrant |= 2;
+		}
+
+		return quadrant;
+
+	}
+
+	/**
+	 * Calculates the acceleration of one of the sorted bodies by walking the tree
+	 * @param stack an array to use as the stack of nodes left to visit
+	 * @return the number of bodies and nodes that attracted the body
+	 */
+	private int computeAcceleration(int i, double[] xAcceleration, double[] yAcceleration, int[] stack) {
+
+		double xi = sortedX[i];
+		double yi = sortedY[i];
+
+		double xSum = 0;
+		double ySum = 0;
+
+		double thetaSquared = theta * theta;
+
+		int interactions = 0;
+
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+
+		while (stackSize > 0) {
+
+			int node = stack[--stackSize];
+
+			if (nodeMass[node] == 0) {
+				continue;
+			}
+
+			if (firstChild[node] < 0) {
+
+				// Leaf nodes are summed exactly
+				for (int j = bodyStart[node]; j < bodyEnd[node]; j++) {
+
+					if (j != i) {
+
+						interactions++;
+
+						double dx = sortedX[j] - xi;
+						double dy = sortedY[j] - yi;
+						double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+						if (distanceSquared > 0) {
+							double scale = Simulation.G * sortedMass[j] / (distanceSquared * Math.sqrt(distanceSquared));
+							xSum += dx * scale;
+							ySum += dy * scale;
+						}
+
+					}
+				}
+
+				continue;
+
+			}
+
+			double dx = nodeMassX[node] - xi;
+			double dy = nodeMassY[node] - yi;
+			double distanceSquared = dx * dx + dy * dy;
+
+			double size = nodeHalfSize[node] * 2;
+
+			// Nodes containing the body itself are always opened so it never attracts itself
+			boolean containsBody = Math.abs(xi - nodeCenterX[node]) <= nodeHalfSize[node]
+					&& Math.abs(yi - nodeCenterY[node]) <= nodeHalfSize[node];
+
+			if (!containsBody && size * size < thetaSquared * distanceSquared) {
+
+				// The node is far enough away to be treated as a single body
+				interactions++;
+				distanceSquared += softeningSquared;
+				double scale = Simulation.G * nodeMass[node] / (distanceSquared * Math.sqrt(distanceSquared));
+				xSum += dx * scale;
+				ySum += dy * scale;
+
+			} else {
+
+				for (int child = firstChild[node]; child < firstChild[node] + 4; child++) {
+					stack[stackSize++] = child;
+				}
+
+			}
+
+		}
+
+		xAcceleration[sortedBodies[i]] = xSum;
+		yAcceleration[sortedBodies[i]] = ySum;
+
+		return interactions;
+
+	}
+
+	/**
+	 * Adds a node to the tree, growing the node arrays if needed
+	 * @param start the first of the sorted bodies in the node
+	 * @param end one past the last of the sorted bodies in the node
+	 * @return the index of the new node
+	 */
+	private int allocateNode(double centerX, double centerY, double halfSize, int start, int end) {
+
+		if (nodeCount == firstChild.length) {
+
+			int capacity = Math.max(16, nodeCount * 2);
+
+			nodeCenterX = Arrays.copyOf(nodeCenterX, capacity);
+			nodeCenterY = Arrays.copyOf(nodeCenterY, capacity);
+			nodeHalfSize = Arrays.copyOf(nodeHalfSize, capacity);
+			nodeMass = Arrays.copyOf(nodeMass, capacity);
+			nodeMassX = Arrays.copyOf(nodeMassX, capacity);
+			nodeMassY = Arrays.copyOf(nodeMassY, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			bodyStart = Arrays.copyOf(bodyStart, capacity);
+			bodyEnd = Arrays.copyOf(bodyEnd, capacity);
+
+		}
+
+		int node = nodeCount++;
+
+		nodeCenterX[node] = centerX;
+		nodeCenterY[node] = centerY;
+		nodeHalfSize[node] = halfSize;
+		firstChild[node] = -1;
+		bodyStart[node] = start;
+		bodyEnd[node] = end;
+
+		return node;
+
+	}
+
+	@Override
+	public long getInteractionCount() {
+		return interactionCount;
+	}
+
+	/**
+	 * @return the pool used to walk the tree in parallel, or null if the calling thread is used
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool the pool to walk the tree on, or null to use the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the Plummer softening length
+	 */
+	public double getSoftening() {
+		return Math.sqrt(softeningSquared);
+	}
+
+	/**
+	 * @param softening the new Plummer softening length, or 0 for no softening
+	 */
+	public void setSoftening(double softening) {
+
+		if (softening < 0) {
+			throw new IllegalArgumentException("softening must not be negative: " + softening);
+		}
+
+		this.softeningSquared = softening * softening;
+
+	}
+
+	/**
+	 * @return the opening angle used to decide whether a node is far enough away to approximate
+	 */
+	public double getTheta() {
+		return theta;
+	}
+
+	/**
+	 * @param theta the new opening angle, must not be negative
+	 */
+	public void setTheta(double theta) {
+
+		if (theta < 0) {
+			throw new IllegalArgumentException("theta must not be negative: " + theta);
+		}
+
+		this.theta = theta;
+
+	}
+
+}
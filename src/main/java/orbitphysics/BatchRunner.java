@@ -0,0 +1,767 @@
+package orbitphysics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a scenario from the command line without JavaFX, stepping it as fast as possible. The state of
+ * every body can be written to a CSV file or a binary recording every few steps, and summary statistics and timings are printed
+ * when the run is done. Started with {@code java -jar OrbitPhysics.jar batch [options]}.
+ */
+public class BatchRunner {
+
+	static final long DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+	static final long DEFAULT_METRICS_INTERVAL = 1000;
+
+	static final String METRICS_HEADER = "step,steps,stepMeanNanos,stepP50Nanos,stepP99Nanos,stepMaxNanos,"
+			+ "forceNanos,integrationNanos,collisionNanos,trailNanos,interactions,collisions,allocatedBytes";
+
+	static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: batch [options]",
+			"  --scenario NAME|FILE    earth-rocket, cluster, disk, ring, uniform, or a scenario file (default earth-rocket)",
+			"  --bodies N              the number of bodies in generated scenarios (default 1000)",
+			"  --seed N                the random seed of generated scenarios (default 42)",
+			"  --steps N               the step count to run until, which includes the steps of a resumed checkpoint (default 10000)",
+			"  --time-step DT          the amount of time each step advances the simulation by (default 1)",
+			"  --solver NAME           direct, barnes-hut, fmm or pm (default direct)",
+			"  --theta T               the opening angle of the barnes-hut and fmm solvers (default " + BarnesHutSolver.DEFAULT_THETA + ")",
+			"  --order P               the order of the fmm solver's expansions (default " + FastMultipoleSolver.DEFAULT_ORDER + ")",
+			"  --grid N                the number of mesh points along each side of the pm solver's mesh, a power of two (default " + ParticleMeshSolver.DEFAULT_GRID_SIZE + ")",
+			"  --p3m                   add the short range force of close pairs to the pm solver's mesh force",
+			"  --vector                sum the direct solver's forces with SIMD instructions, if the Vector API is available",
+			"  --softening EPS         the Plummer softening length of the solver (default 0)",
+			"  --integrator NAME       euler, verlet, rk4, adaptive or hermite (default euler)",
+			"  --collisions NAME       none, merge or bounce (default merge)",
+			"  --threads N             the number of threads to calculate forces on, 1 runs on the main thread (default all cores)",
+			"  --snapshots FILE        a CSV file to write the state of every body to",
+			"  --snapshot-every N      the number of steps between snapshots, 0 only writes the first and last (default 0)",
+			"  --record FILE           a binary recording to write the state of every body to",
+			"  --record-every N        the number of steps between recorded frames (default 1)",
+			"  --encoding NAME         double, float or float-delta, how recorded frames are stored (default double)",
+			"  --keyframe-every N      the number of recorded frames between keyframes (default " + RecordingWriter.DEFAULT_KEYFRAME_INTERVAL + ")",
+			"  --checkpoint FILE       a file to save checkpoints of the whole simulation to while it runs",
+			"  --checkpoint-every N    the number of steps between checkpoints (default " + DEFAULT_CHECKPOINT_INTERVAL + ")",
+			"  --resume                continue from the checkpoint file if it exists, instead of starting the scenario, and continue",
+			"                          the snapshot, recording and metrics files after their rows and frames up to the checkpoint",
+			"  --metrics FILE          a CSV file to write the step timings and counters of every interval to",
+			"  --metrics-every N       the number of steps in each interval of the metrics file (default " + DEFAULT_METRICS_INTERVAL + ")",
+			"  --no-metrics            don't measure the phases of each step, which saves a little time on tiny scenarios",
+			"  --no-energy             skip the O(n^2) energy calculation at the start and end of the run",
+			"  --help                  print this message");
+
+	// The options that are followed by a value
+	static final List<String> VALUE_OPTIONS = Arrays.asList("--scenario", "--bodies", "--seed", "--steps", "--time-step",
+			"--solver", "--theta", "--order", "--grid", "--softening", "--integrator", "--collisions", "--threads", "--snapshots", "--snapshot-every",
+			"--record", "--record-every", "--encoding", "--keyframe-every",
+			"--checkpoint", "--checkpoint-every", "--metrics", "--metrics-every");
+
+	// The options of the run
+	String scenario = "earth-rocket";
+	int bodyCount = 1000;
+	long seed = 42;
+	long steps = 10000;
+	double timeStep = 1;
+	String solver = "direct";
+	double theta = BarnesHutSolver.DEFAULT_THETA;
+	int order = FastMultipoleSolver.DEFAULT_ORDER;
+	int gridSize = ParticleMeshSolver.DEFAULT_GRID_SIZE;
+	boolean shortRangeCorrection;
+	boolean vectorized;
+	double softening;
+	String integrator = "euler";
+	String collisions = "merge";
+	int threads = Runtime.getRuntime().availableProcessors();
+	Path snapshotFile;
+	long snapshotInterval;
+	Path recordingFile;
+	long recordingInterval = 1;
+	RecordingFormat.Encoding encoding = RecordingFormat.Encoding.DOUBLE;
+	int keyframeInterval = RecordingWriter.DEFAULT_KEYFRAME_INTERVAL;
+	Path checkpointFile;
+	long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	boolean resume;
+	Path metricsFile;
+	long metricsInterval = DEFAULT_METRICS_INTERVAL;
+	boolean measureSteps = true;
+
+	// Whether the run continued from a checkpoint
+	boolean resumed;
+	boolean calculateEnergy = true;
+
+	// Timings of the finished run, in nanoseconds
+	long stepNanos;
+	long snapshotNanos;
+	long recordingNanos;
+	long checkpointNanos;
+
+	// The step timings and counters of the whole run, or null if steps weren't measured
+	SimulationMetrics metrics;
+
+	public static void main(String[] args) {
+
+		if (Arrays.asList(args).contains("--help")) {
+			System.out.println(USAGE);
+			return;
+		}
+
+		BatchRunner runner;
+
+		try {
+			runner = parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		try {
+			runner.run(System.out);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Batch run failed: " + e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * Reads the options of a batch run from command line arguments
+	 * @param args the command line arguments, not including the "batch" that selects batch mode
+	 * @return a BatchRunner with the given options
+	 * @throws IllegalArgumentException if an argument is not a valid option
+	 */
+	static BatchRunner parse(String[] args) {
+
+		BatchRunner runner = new BatchRunner();
+
+		for (int i = 0; i < args.length; i++) {
+
+			String option = args[i];
+
+			if (option.equals("--no-energy")) {
+				runner.calculateEnergy = false;
+				continue;
+			}
+
+			if (option.equals("--resume")) {
+				runner.resume = true;
+				continue;
+			}
+
+			if (option.equals("--p3m")) {
+				runner.shortRangeCorrection = true;
+				continue;
+			}
+
+			if (option.equals("--vector")) {
+				runner.vectorized = true;
+				continue;
+			}
+
+			if (option.equals("--no-metrics")) {
+				runner.measureSteps = false;
+				continue;
+			}
+
+			if (!VALUE_OPTIONS.contains(option)) {
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + option);
+			}
+
+			String value = args[++i];
+
+			try {
+
+				switch (option) {
+				case "--scenario":
+					runner.scenario = value;
+					break;
+				case "--bodies":
+					runner.bodyCount = Integer.parseInt(value);
+					break;
+				case "--seed":
+					runner.seed = Long.parseLong(value);
+					break;
+				case "--steps":
+					runner.steps = Long.parseLong(value);
+					break;
+				case "--time-step":
+					runner.timeStep = Double.parseDouble(value);
+					break;
+				case "--solver":
+					runner.solver = value;
+					break;
+				case "--theta":
+					runner.theta = Double.parseDouble(value);
+					break;
+				case "--order":
+					runner.order = Integer.parseInt(value);
+					break;
+				case "--grid":
+					runner.gridSize = Integer.parseInt(value);
+					break;
+				case "--softening":
+					runner.softening = Double.parseDouble(value);
+					break;
+				case "--integrator":
+					runner.integrator = value;
+					break;
+				case "--collisions":
+					runner.collisions = value;
+					break;
+				case "--threads":
+					runner.threads = Integer.parseInt(value);
+					break;
+				case "--snapshots":
+					runner.snapshotFile = Paths.get(value);
+					break;
+				case "--snapshot-every":
+					runner.snapshotInterval = Long.parseLong(value);
+					break;
+				case "--record":
+					runner.recordingFile = Paths.get(value);
+					break;
+				case "--record-every":
+					runner.recordingInterval = Long.parseLong(value);
+					break;
+				case "--encoding":
+					runner.encoding = parseEncoding(value);
+					break;
+				case "--keyframe-every":
+					runner.keyframeInterval = Integer.parseInt(value);
+					break;
+				case "--checkpoint":
+					runner.checkpointFile = Paths.get(value);
+					break;
+				case "--checkpoint-every":
+					runner.checkpointInterval = Long.parseLong(value);
+					break;
+				case "--metrics":
+					runner.metricsFile = Paths.get(value);
+					break;
+				case "--metrics-every":
+					runner.metricsInterval = Long.parseLong(value);
+					break;
+				}
+
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number for " + option + ": " + value);
+			}
+
+		}
+
+		if (runner.bodyCount < 0 || runner.steps < 0 || runner.threads < 1 || runner.snapshotInterval < 0) {
+			throw new IllegalArgumentException("--bodies, --steps and --snapshot-every must not be negative, and --threads must be at least 1");
+		}
+
+		if (runner.recordingInterval < 1 || runner.keyframeInterval < 1 || runner.checkpointInterval < 1 || runner.metricsInterval < 1) {
+			throw new IllegalArgumentException("--record-every, --keyframe-every, --checkpoint-every and --metrics-every must be at least 1");
+		}
+
+		if (!runner.measureSteps && runner.metricsFile != null) {
+			throw new IllegalArgumentException("--metrics can't be written with --no-metrics");
+		}
+
+		if (runner.resume && runner.checkpointFile == null) {
+			throw new IllegalArgumentException("--resume needs a --checkpoint file to resume from");
+		}
+
+		return runner;
+
+	}
+
+	private static RecordingFormat.Encoding parseEncoding(String name) {
+
+		switch (name) {
+		case "double":
+			return RecordingFormat.Encoding.DOUBLE;
+		case "float":
+			return RecordingFormat.Encoding.FLOAT;
+		case "float-delta":
+			return RecordingFormat.Encoding.FLOAT_DELTA;
+		default:
+			throw new IllegalArgumentException("Unknown encoding: " + name);
+		}
+
+	}
+
+	/**
+	 * Creates the simulation the run starts with, with the scenario, solver, integrator and collision policy
+	 * chosen by the options. A simulation resumed from a checkpoint keeps its saved integrator and time step.
+	 * @param pool the pool to calculate forces on, or null to use the calling thread
+	 * @return the new simulation
+	 * @throws IOException if the scenario or checkpoint is a file that can't be read
+	 */
+	Simulation createSimulation(ForkJoinPool pool) throws IOException {
+
+		Simulation simulation;
+
+		resumed = resume && Files.exists(checkpointFile);
+
+		if (resumed) {
+
+			simulation = Checkpoint.read(checkpointFile).restore();
+
+			// Pools aren't saved in checkpoints, so a restored integrator gets the run's pool
+			if (simulation.getIntegrator() instanceof BlockHermiteIntegrator) {
+				((BlockHermiteIntegrator) simulation.getIntegrator()).setPool(pool);
+			}
+
+		} else {
+
+			switch (scenario) {
+			case "earth-rocket":
+				simulation = new Simulation();
+				Scenarios.addEarthAndRocket(simulation);
+				break;
+			case "cluster":
+				simulation = Scenarios.create(Scenarios.Distribution.CLUSTER, bodyCount, seed);
+				break;
+			case "disk":
+				simulation = Scenarios.create(Scenarios.Distribution.DISK, bodyCount, seed);
+				break;
+			case "ring":
+				simulation = Scenarios.create(Scenarios.Distribution.RING, bodyCount, seed);
+				break;
+			case "uniform":
+				simulation = Scenarios.create(Scenarios.Distribution.UNIFORM, bodyCount, seed);
+				break;
+			default:
+				simulation = Scenarios.load(Paths.get(scenario));
+				break;
+			}
+
+			simulation.setIntegrator(createIntegrator(integrator, softening, pool));
+			simulation.setTimeStep(timeStep);
+
+		}
+
+		switch (solver) {
+		case "direct":
+			DirectSumSolver directSumSolver = new DirectSumSolver(pool);
+			directSumSolver.setSoftening(softening);
+			directSumSolver.setVectorized(vectorized);
+			simulation.setForceSolver(directSumSolver);
+			break;
+		case "barnes-hut":
+			BarnesHutSolver barnesHutSolver = new BarnesHutSolver(theta, pool);
+			barnesHutSolver.setSoftening(softening);
+			simulation.setForceSolver(barnesHutSolver);
+			break;
+		case "fmm":
+			FastMultipoleSolver fastMultipoleSolver = new FastMultipoleSolver(order, theta, pool);
+			fastMultipoleSolver.setSoftening(softening);
+			simulation.setForceSolver(fastMultipoleSolver);
+			break;
+		case "pm":
+			ParticleMeshSolver particleMeshSolver = new ParticleMeshSolver(gridSize, pool);
+			particleMeshSolver.setShortRangeCorrection(shortRangeCorrection);
+			particleMeshSolver.setSoftening(softening);
+			simulation.setForceSolver(particleMeshSolver);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown solver: " + solver);
+		}
+
+		switch (collisions) {
+		case "none":
+			simulation.setCollisionHandler(null);
+			break;
+		case "merge":
+			simulation.setCollisionHandler(new MergeCollisionHandler());
+			break;
+		case "bounce":
+			simulation.setCollisionHandler(new BounceCollisionHandler());
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown collision policy: " + collisions);
+		}
+
+		return simulation;
+
+	}
+
+	/**
+	 * Creates an integrator from its command line name
+	 * @param name euler, verlet, rk4, adaptive or hermite
+	 * @param softening the Plummer softening length, for the integrators that calculate forces themselves
+	 * @param pool the pool for the integrators that calculate forces themselves, or null to use the calling thread
+	 * @return a new integrator
+	 * @throws IllegalArgumentException if there is no integrator with the name
+	 */
+	static Integrator createIntegrator(String name, double softening, ForkJoinPool pool) {
+
+		switch (name) {
+		case "euler":
+			return new EulerIntegrator();
+		case "verlet":
+			return new VelocityVerletIntegrator();
+		case "rk4":
+			return new RungeKuttaIntegrator();
+		case "adaptive":
+			return new AdaptiveIntegrator();
+		case "hermite":
+			BlockHermiteIntegrator blockHermiteIntegrator = new BlockHermiteIntegrator(pool);
+			blockHermiteIntegrator.setSoftening(softening);
+			return blockHermiteIntegrator;
+		default:
+			throw new IllegalArgumentException("Unknown integrator: " + name);
+		}
+
+	}
+
+	/**
+	 * Runs the simulation for the chosen number of steps, writing the snapshots and printing the summary
+	 * @param out the stream to print the summary to
+	 * @return the simulation at the end of the run
+	 * @throws IOException if the scenario can't be read or the snapshots can't be written
+	 */
+	Simulation run(PrintStream out) throws IOException {
+
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+		try {
+
+			Simulation simulation = createSimulation(pool);
+
+			int startingBodyCount = simulation.getBodyCount();
+			long startingStep = simulation.getStepCount();
+			double startingEnergy = calculateEnergy ? simulation.calculateTotalEnergy(softening) : Double.NaN;
+
+			Checkpointer checkpointer = checkpointFile == null ? null : new Checkpointer(checkpointFile);
+
+			// The simulation's metrics measure the current interval, and are added to the run's metrics at the end of each one
+			SimulationMetrics intervalMetrics = measureSteps ? new SimulationMetrics() : null;
+			metrics = measureSteps ? new SimulationMetrics() : null;
+			simulation.setMetrics(intervalMetrics);
+
+			// A resumed run continues the output files of the run it resumes, after their rows and frames up to the checkpoint
+			long snapshotLines = resumed && snapshotFile != null && Files.exists(snapshotFile) ? truncateRows(snapshotFile, startingStep) : 0;
+			long metricsLines = resumed && metricsFile != null && Files.exists(metricsFile) ? truncateRows(metricsFile, startingStep) : 0;
+			boolean continueRecording = resumed && recordingFile != null && Files.exists(recordingFile);
+
+			try (BufferedWriter snapshots = snapshotFile == null ? null : openRows(snapshotFile, snapshotLines);
+					RecordingWriter recording = recordingFile == null ? null : continueRecording ? new RecordingWriter(recordingFile, startingStep)
+							: new RecordingWriter(recordingFile, encoding, keyframeInterval, simulation.getTimeStep());
+					BufferedWriter metricsWriter = metricsFile == null ? null : openRows(metricsFile, metricsLines)) {
+
+				if (metricsWriter != null && metricsLines == 0) {
+					metricsWriter.write(METRICS_HEADER);
+					metricsWriter.newLine();
+				}
+
+				if (snapshots != null) {
+
+					if (snapshotLines == 0) {
+						snapshots.write("step,time,id,x,y,xVelocity,yVelocity,mass,radius");
+						snapshots.newLine();
+					}
+
+					// A continued file already has the rows of the starting step
+					if (snapshotLines <= 1) {
+						writeSnapshot(snapshots, simulation);
+					}
+
+				}
+
+				if (recording != null && recording.getFrameCount() == 0) {
+					recording.writeFrame(simulation);
+				}
+
+				long start = System.nanoTime();
+
+				// Step numbers count from the start of the scenario, so a resumed run stops at the same step as an uninterrupted one
+				for (long step = startingStep + 1; step <= steps; step++) {
+
+					simulation.step();
+
+					if (intervalMetrics != null && (step == steps || step % metricsInterval == 0)) {
+
+						if (metricsWriter != null) {
+							writeMetrics(metricsWriter, step, intervalMetrics);
+						}
+
+						metrics.add(intervalMetrics);
+						intervalMetrics.reset();
+
+					}
+
+					if (snapshots != null && (step == steps || snapshotInterval > 0 && step % snapshotInterval == 0)) {
+
+						long snapshotStart = System.nanoTime();
+						writeSnapshot(snapshots, simulation);
+						snapshotNanos += System.nanoTime() - snapshotStart;
+
+					}
+
+					if (recording != null && step % recordingInterval == 0) {
+
+						long recordingStart = System.nanoTime();
+						recording.writeFrame(simulation);
+						recordingNanos += System.nanoTime() - recordingStart;
+
+					}
+
+					// Only the copy of the state holds up stepping, the checkpoint is written in the background
+					if (checkpointer != null && step % checkpointInterval == 0) {
+
+						long checkpointStart = System.nanoTime();
+
+						// The rows up to a checkpoint must be in the files before it, so a resumed run can continue them
+						if (snapshots != null) {
+							snapshots.flush();
+						}
+						if (metricsWriter != null) {
+							metricsWriter.flush();
+						}
+
+						checkpointer.checkpoint(simulation);
+						checkpointNanos += System.nanoTime() - checkpointStart;
+
+					}
+
+				}
+
+				stepNanos = System.nanoTime() - start - snapshotNanos - recordingNanos - checkpointNanos;
+
+			} finally {
+
+				if (checkpointer != null) {
+					checkpointer.checkpointAndClose(simulation);
+				}
+
+			}
+
+			printSummary(out, simulation, startingBodyCount, startingEnergy, simulation.getStepCount() - startingStep);
+
+			return simulation;
+
+		} finally {
+
+			if (pool != null) {
+				pool.shutdown();
+			}
+
+		}
+
+	}
+
+	/**
+	 * Opens a CSV file to write rows to
+	 * @param keptLines the number of lines kept from a resumed run, which are appended to, or 0 to replace the file
+	 * @return the writer of the file
+	 * @throws IOException if the file can't be opened
+	 */
+	static BufferedWriter openRows(Path file, long keptLines) throws IOException {
+
+		if (keptLines > 0) {
+			return Files.newBufferedWriter(file, StandardOpenOption.APPEND);
+		}
+
+		return Files.newBufferedWriter(file);
+
+	}
+
+	/**
+	 * Cuts a CSV file whose rows start with a step number off after its last row at or before a step, along with
+	 * a row that was only partly written when a run stopped, so a run resumed from that step can append to it
+	 * @param file the CSV file to cut off
+	 * @param step the step of the last rows to keep
+	 * @return the number of lines kept, including the header
+	 * @throws IOException if the file can't be read or written
+	 */
+	static long truncateRows(Path file, long step) throws IOException {
+
+		long keptLines = 0;
+		long keptLength = 0;
+
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+
+			StringBuilder line = new StringBuilder();
+			long length = 0;
+			int read;
+
+			while ((read = in.read()) >= 0) {
+
+				length++;
+
+				if (read != '\n') {
+					line.append((char) read);
+					continue;
+				}
+
+				// Lines are only kept once their line break has been read, so a partly written row is dropped
+				if (keptLines > 0) {
+
+					int comma = line.indexOf(",");
+
+					try {
+						if (comma < 0 || Long.parseLong(line.substring(0, comma)) > step) {
+							break;
+						}
+					} catch (NumberFormatException e) {
+						break;
+					}
+
+				}
+
+				keptLines++;
+				keptLength = length;
+				line.setLength(0);
+
+			}
+
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(keptLength);
+		}
+
+		return keptLines;
+
+	}
+
+	/**
+	 * Writes the state of every body in the simulation as rows of the snapshot CSV file
+	 * @param writer the writer of the snapshot file
+	 * @param simulation the simulation to write the state of
+	 * @throws IOException if the snapshot can't be written
+	 */
+	static void writeSnapshot(BufferedWriter writer, Simulation simulation) throws IOException {
+
+		String prefix = simulation.getStepCount() + "," + simulation.getTime() + ",";
+
+		for (int i = 0; i < simulation.getBodyCount(); i++) {
+
+			writer.write(prefix);
+			writer.write(simulation.getId(i) + "," + simulation.getX(i) + "," + simulation.getY(i) + ","
+					+ simulation.getxVelocity(i) + "," + simulation.getyVelocity(i) + ","
+					+ simulation.getMass(i) + "," + simulation.getRadius(i));
+			writer.newLine();
+
+		}
+
+	}
+
+	/**
+	 * Writes the timings and counters of an interval of steps as a row of the metrics CSV file
+	 * @param writer the writer of the metrics file
+	 * @param step the step the interval ended at
+	 * @param metrics the metrics of the interval
+	 * @throws IOException if the row can't be written
+	 */
+	static void writeMetrics(BufferedWriter writer, long step, SimulationMetrics metrics) throws IOException {
+
+		LatencyHistogram stepLatency = metrics.getStepLatency();
+
+		writer.write(step + "," + metrics.getStepCount() + "," + Math.round(stepLatency.getMean()) + ","
+				+ stepLatency.getPercentile(50) + "," + stepLatency.getPercentile(99) + "," + stepLatency.getMax());
+
+		for (SimulationMetrics.Phase phase : SimulationMetrics.Phase.values()) {
+			writer.write("," + metrics.getPhaseNanos(phase));
+		}
+
+		writer.write("," + metrics.getInteractionCount() + "," + metrics.getCollisionCount() + "," + metrics.getAllocatedBytes());
+		writer.newLine();
+
+	}
+
+	/**
+	 * Prints the summary statistics and timings of the finished run
+	 */
+	void printSummary(PrintStream out, Simulation simulation, int startingBodyCount, double startingEnergy, long stepsRun) {
+
+		double seconds = stepNanos / 1e9;
+
+		out.printf(Locale.ROOT, "scenario          %s%n", resumed ? "resumed from " + checkpointFile : scenario);
+		String solverName = solver;
+		if (vectorized && solver.equals("direct")) {
+			solverName += DirectSumSolver.isVectorAvailable() ? " (vector)" : " (scalar, the Vector API isn't available)";
+		}
+
+		out.printf(Locale.ROOT, "solver            %s, %s, collisions %s, %d thread(s)%n", solverName, simulation.getIntegrator().getName(), collisions, threads);
+		out.printf(Locale.ROOT, "steps             %d%s%n", simulation.getStepCount(), resumed ? " (" + stepsRun + " since resuming)" : "");
+		out.printf(Locale.ROOT, "simulated time    %g%n", simulation.getTime());
+		out.printf(Locale.ROOT, "bodies            %d at the start, %d at the end%n", startingBodyCount, simulation.getBodyCount());
+		if (simulation.getTestParticleCount() > 0) {
+			out.printf(Locale.ROOT, "test particles    %d at the end%n", simulation.getTestParticleCount());
+		}
+		if (simulation.getIntegrator() instanceof BlockHermiteIntegrator && stepsRun > 0) {
+			BlockHermiteIntegrator blockHermiteIntegrator = (BlockHermiteIntegrator) simulation.getIntegrator();
+			out.printf(Locale.ROOT, "block steps       %.1f per step, %.1f body updates per step%n", (double) blockHermiteIntegrator.getSubstepCount() / stepsRun,
+					(double) blockHermiteIntegrator.getUpdateCount() / stepsRun);
+		}
+
+		if (calculateEnergy) {
+
+			double endingEnergy = simulation.calculateTotalEnergy(softening);
+
+			out.printf(Locale.ROOT, "energy            %g at the start, %g at the end%n", startingEnergy, endingEnergy);
+			out.printf(Locale.ROOT, "energy error      %.3e (relative)%n", Math.abs((endingEnergy - startingEnergy) / startingEnergy));
+
+		}
+
+		out.printf(Locale.ROOT, "stepping time     %.3f s%n", seconds);
+		out.printf(Locale.ROOT, "time per step     %.1f us%n", stepsRun == 0 ? 0 : stepNanos / 1e3 / stepsRun);
+		out.printf(Locale.ROOT, "steps per second  %.1f%n", seconds == 0 ? 0 : stepsRun / seconds);
+
+		if (metrics != null && metrics.getStepCount() > 0) {
+
+			LatencyHistogram stepLatency = metrics.getStepLatency();
+			long measuredSteps = metrics.getStepCount();
+
+			out.printf(Locale.ROOT, "step latency      p50 %.1f us, p99 %.1f us, max %.1f us%n", stepLatency.getPercentile(50) / 1e3,
+					stepLatency.getPercentile(99) / 1e3, stepLatency.getMax() / 1e3);
+
+			for (SimulationMetrics.Phase phase : SimulationMetrics.Phase.values()) {
+				out.printf(Locale.ROOT, "  %-16s%.1f us per step (%.1f%%)%n", phase.getLabel(), metrics.getPhaseNanos(phase) / 1e3 / measuredSteps,
+						stepLatency.getMean() == 0 ? 0 : 100.0 * metrics.getPhaseNanos(phase) / measuredSteps / stepLatency.getMean());
+			}
+
+			if (metrics.getInteractionCount() >= 0) {
+				out.printf(Locale.ROOT, "interactions      %.0f per step%n", (double) metrics.getInteractionCount() / measuredSteps);
+			}
+
+			out.printf(Locale.ROOT, "collisions        %d%n", metrics.getCollisionCount());
+
+			if (metrics.getAllocatedBytes() >= 0) {
+				out.printf(Locale.ROOT, "allocated         %.1f bytes per step on the stepping thread%n", (double) metrics.getAllocatedBytes() / measuredSteps);
+			}
+
+		}
+
+		if (metricsFile != null) {
+			out.printf(Locale.ROOT, "metrics           %s%n", metricsFile);
+		}
+
+		if (snapshotFile != null) {
+			out.printf(Locale.ROOT, "snapshot time     %.3f s (%s)%n", snapshotNanos / 1e9, snapshotFile);
+		}
+
+		if (recordingFile != null) {
+			out.printf(Locale.ROOT, "recording time    %.3f s (%s)%n", recordingNanos / 1e9, recordingFile);
+		}
+
+		if (checkpointFile != null) {
+			out.printf(Locale.ROOT, "checkpoint time   %.3f s of copying (%s)%n", checkpointNanos / 1e9, checkpointFile);
+		}
+
+	}
+
+}
@@ -0,0 +1,507 @@
+package orbitphysics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A fourth order Hermite integrator where every body has its own step size, for systems where a few close
+ * encounters would otherwise force a tiny step on everything.
+ *
+ * The step sizes are powers of two fractions of the requested step(block timesteps), so bodies with the same
+ * step size are due at the same times and are updated together. At each of those times every massive body
+ * is predicted from its last position, velocity, acceleration and jerk, and only the bodies that are due get
+ * their accelerations and jerks recalculated and their positions corrected. Each body then picks its next
+ * step size with Aarseth's criterion, which compares the acceleration and jerk against the higher derivatives
+ * the correction found. A body's step can shrink whenever it is updated, but only doubles at times that are
+ * a multiple of the doubled step, so the blocks stay lined up. Every body is updated at the end of each
+ * requested step, so the simulation is always in sync between steps.
+ *
+ * Hermite needs the jerk(the rate of change of the acceleration) of each body, which the {@link ForceSolver}s
+ * don't calculate, so this sums the attraction of the massive bodies directly. Test particles are only
+ * attracted, so n test particles and m massive bodies take O(m^2 + nm) time per update of every body, and
+ * far less when most of the bodies have long steps.
+ */
+public class BlockHermiteIntegrator implements Integrator {
+
+	public static final double DEFAULT_ACCURACY = 0.02;
+
+	// The deepest level, so the smallest step is the requested step / 2^MAX_LEVEL
+	static final int MAX_LEVEL = 20;
+
+	// The requested step in ticks, the unit the block times are counted in
+	private static final int TICKS = 1 << MAX_LEVEL;
+
+	// The accuracy used to pick the first step sizes, before the higher derivatives are known
+	private static final double STARTING_ACCURACY = 0.01;
+
+	// Active bodies are split into chunks of about this many interactions between threads
+	private static final int INTERACTIONS_PER_CHUNK = 16384;
+
+	// The pool used to update the active bodies in parallel, or null to use the calling thread
+	private ForkJoinPool pool;
+
+	// Aarseth's accuracy parameter eta, the step size scales with its square root
+	private double accuracy;
+
+	// The Plummer softening length squared
+	private double softeningSquared;
+
+	// The number of bodies the levels and jerks are for, or -1 if they have to be calculated again
+	private int stateCount = -1;
+
+	// The step count the simulation will have at the start of the next step if no other integrator ran in between
+	private long nextStepCount;
+
+	// The level of each body, its step is the requested step / 2^level
+	private int[] level = new int[0];
+
+	// The jerk of each body at the time of its last update
+	private double[] xJerk = new double[0];
+	private double[] yJerk = new double[0];
+
+	// The tick each body was last updated at
+	private int[] updateTick = new int[0];
+
+	// The predicted positions and velocities at the current block time
+	private double[] predictedX = new double[0];
+	private double[] predictedY = new double[0];
+	private double[] predictedXVelocity = new double[0];
+	private double[] predictedYVelocity = new double[0];
+
+	// The indices of the bodies updated at the current block time
+	private int[] active = new int[0];
+
+	private long substepCount;
+	private long updateCount;
+
+	public BlockHermiteIntegrator() {
+		this(null);
+	}
+
+	/**
+	 * @param pool the pool to update the bodies on, or null to use the calling thread
+	 */
+	public BlockHermiteIntegrator(ForkJoinPool pool) {
+		this.pool = pool;
+		setAccuracy(DEFAULT_ACCURACY);
+	}
+
+	@Override
+	public void step(Simulation simulation, double timeStep) {
+
+		int count = simulation.count;
+		ensureCapacity(count);
+
+		// Bodies that were added, removed, moved or stepped by another integrator invalidate the saved jerks
+		if (stateCount != count || !simulation.accelerationsCurrent || simulation.stepCount != nextStepCount) {
+			initialize(simulation, timeStep);
+		}
+
+		Arrays.fill(updateTick, 0, count, 0);
+
+		double tickSize = timeStep / TICKS;
+		int tick = 0;
+
+		while (tick < TICKS) {
+
+			int next = TICKS;
+			for (int i = 0; i < count; i++) {
+				next = Math.min(next, updateTick[i] + (TICKS >> level[i]));
+			}
+
+			int activeCount = 0;
+			for (int i = 0; i < count; i++) {
+				if (updateTick[i] + (TICKS >> level[i]) == next) {
+					active[activeCount++] = i;
+				}
+			}
+
+			tick = next;
+
+			// Every massive body attracts the active ones, so they are all predicted to the block time
+			for (int i = 0; i < simulation.massiveCount; i++) {
+				predict(simulation, i, (tick - updateTick[i]) * tickSize);
+			}
+
+			update(simulation, activeCount, tick, timeStep);
+
+			substepCount++;
+			updateCount += activeCount;
+
+		}
+
+		simulation.accelerationsCurrent = true;
+		nextStepCount = simulation.stepCount + 1;
+
+	}
+
+	/**
+	 * Calculates the acceleration and jerk of every body and picks its first step size
+	 */
+	private void initialize(Simulation simulation, double timeStep) {
+
+		int count = simulation.count;
+
+		for (int i = 0; i < count; i++) {
+			predict(simulation, i, 0);
+			active[i] = i;
+		}
+
+		long forcesStart = System.nanoTime();
+
+		ParallelLoop.forEach(pool, count, chunkSize(simulation.massiveCount), (start, end) -> {
+
+			for (int k = start; k < end; k++) {
+
+				int i = active[k];
+
+				computeForce(simulation, i);
+
+				double acceleration = Math.hypot(simulation.xAcceleration[i], simulation.yAcceleration[i]);
+				double jerk = Math.hypot(xJerk[i], yJerk[i]);
+
+				level[i] = jerk > 0 ? levelOf(STARTING_ACCURACY * acceleration / jerk, timeStep) : 0;
+
+			}
+
+		});
+
+		recordForces(simulation, forcesStart, count);
+
+		stateCount = count;
+
+	}
+
+	/**
+	 * Recalculates the accelerations and jerks of the active bodies, corrects their positions and velocities
+	 * and picks their next step sizes
+	 */
+	private void update(Simulation simulation, int activeCount, int tick, double timeStep) {
+
+		double tickSize = timeStep / TICKS;
+		int massiveCount = simulation.massiveCount;
+
+		long forcesStart = System.nanoTime();
+
+		ParallelLoop.forEach(pool, activeCount, chunkSize(massiveCount), (start, end) -> {
+
+			for (int k = start; k < end; k++) {
+
+				int i = active[k];
+				double dt = (tick - updateTick[i]) * tickSize;
+
+				// Massive bodies were already predicted, and test particles are only needed once they are due
+				if (i >= massiveCount) {
+					predict(simulation, i, dt);
+				}
+
+				double oldXAcceleration = simulation.xAcceleration[i];
+				double oldYAcceleration = simulation.yAcceleration[i];
+				double oldXJerk = xJerk[i];
+				double oldYJerk = yJerk[i];
+
+				computeForce(simulation, i);
+
+				double xSnap = hermiteSnap(oldXAcceleration, simulation.xAcceleration[i], oldXJerk, xJerk[i], dt);
+				double ySnap = hermiteSnap(oldYAcceleration, simulation.yAcceleration[i], oldYJerk, yJerk[i], dt);
+				double xCrackle = hermiteCrackle(oldXAcceleration, simulation.xAcceleration[i], oldXJerk, xJerk[i], dt);
+				double yCrackle = hermiteCrackle(oldYAcceleration, simulation.yAcceleration[i], oldYJerk, yJerk[i], dt);
+
+				double dt2 = dt * dt;
+				double dt3 = dt2 * dt;
+
+				simulation.x[i] = predictedX[i] + dt2 * dt2 * (xSnap / 24 + dt * xCrackle / 120);
+				simulation.y[i] = predictedY[i] + dt2 * dt2 * (ySnap / 24 + dt * yCrackle / 120);
+				simulation.xVelocity[i] = predictedXVelocity[i] + dt3 * (xSnap / 6 + dt * xCrackle / 24);
+				simulation.yVelocity[i] = predictedYVelocity[i] + dt3 * (ySnap / 6 + dt * yCrackle / 24);
+
+				updateTick[i] = tick;
+
+				// The snap was found for the start of the step, so it is moved to the end with the crackle
+				double acceleration = Math.hypot(simulation.xAcceleration[i], simulation.yAcceleration[i]);
+				double jerk = Math.hypot(xJerk[i], yJerk[i]);
+				double snap = Math.hypot(xSnap + dt * xCrackle, ySnap + dt * yCrackle);
+				double crackle = Math.hypot(xCrackle, yCrackle);
+
+				double denominator = jerk * crackle + snap * snap;
+				int wanted = denominator > 0 ? levelOf(Math.sqrt(accuracy * (acceleration * snap + jerk * jerk) / denominator), timeStep) : 0;
+
+				if (wanted > level[i]) {
+					level[i] = wanted;
+				} else if (wanted < level[i] && tick % (TICKS >> (level[i] - 1)) == 0) {
+					level[i]--;
+				}
+
+			}
+
+		});
+
+		long interactions = 0;
+		for (int k = 0; k < activeCount; k++) {
+			interactions += active[k] < massiveCount ? massiveCount - 1 : massiveCount;
+		}
+
+		recordForces(simulation, forcesStart, interactions);
+
+	}
+
+	/**
+	 * Predicts a body's position and velocity a given time after its last update from its Taylor series
+	 */
+	private void predict(Simulation simulation, int i, double dt) {
+
+		double xAcceleration = simulation.xAcceleration[i];
+		double yAcceleration = simulation.yAcceleration[i];
+
+		predictedX[i] = simulation.x[i] + dt * (simulation.xVelocity[i] + dt * (xAcceleration / 2 + dt * xJerk[i] / 6));
+		predictedY[i] = simulation.y[i] + dt * (simulation.yVelocity[i] + dt * (yAcceleration / 2 + dt * yJerk[i] / 6));
+		predictedXVelocity[i] = simulation.xVelocity[i] + dt * (xAcceleration + dt * xJerk[i] / 2);
+		predictedYVelocity[i] = simulation.yVelocity[i] + dt * (yAcceleration + dt * yJerk[i] / 2);
+
+	}
+
+	/**
+	 * Sums the acceleration and jerk of a body at its predicted position caused by the massive bodies
+	 */
+	private void computeForce(Simulation simulation, int i) {
+
+		double[] mass = simulation.mass;
+		int massiveCount = simulation.massiveCount;
+		double softeningSquared = this.softeningSquared;
+
+		double xi = predictedX[i];
+		double yi = predictedY[i];
+		double xVelocityi = predictedXVelocity[i];
+		double yVelocityi = predictedYVelocity[i];
+
+		double xAcceleration = 0;
+		double yAcceleration = 0;
+		double xJerkSum = 0;
+		double yJerkSum = 0;
+
+		for (int j = 0; j < massiveCount; j++) {
+
+			if (j == i) {
+				continue;
+			}
+
+			double dx = predictedX[j] - xi;
+			double dy = predictedY[j] - yi;
+			double dvx = predictedXVelocity[j] - xVelocityi;
+			double dvy = predictedYVelocity[j] - yVelocityi;
+			double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+			if (distanceSquared > 0) {
+
+				// G m / r^3, and the rate the distance changes at relative to the distance
+				double scale = Simulation.G * mass[j] / (distanceSquared * Math.sqrt(distanceSquared));
+				double approach = 3 * (dx * dvx + dy * dvy) / distanceSquared;
+
+				xAcceleration += dx * scale;
+				yAcceleration += dy * scale;
+				xJerkSum += (dvx - approach * dx) * scale;
+				yJerkSum += (dvy - approach * dy) * scale;
+
+			}
+		}
+
+		simulation.xAcceleration[i] = xAcceleration;
+		simulation.yAcceleration[i] = yAcceleration;
+		xJerk[i] = xJerkSum;
+		yJerk[i] = yJerkSum;
+
+	}
+
+	/**
+	 * @return the second derivative of the acceleration at the start of a step, from the Hermite interpolation
+	 * of the accelerations and jerks at both ends
+	 */
+	private static double hermiteSnap(double acceleration0, double acceleration1, double jerk0, double jerk1, double dt) {
+		return (-6 * (acceleration0 - acceleration1) - dt * (4 * jerk0 + 2 * jerk1)) / (dt * dt);
+	}
+
+	/**
+	 * @return the third derivative of the acceleration over a step, from the Hermite interpolation
+	 * of the accelerations and jerks at both ends
+	 */
+	private static double hermiteCrackle(double acceleration0, double acceleration1, double jerk0, double jerk1, double dt) {
+		return (12 * (acceleration0 - acceleration1) + 6 * dt * (jerk0 + jerk1)) / (dt * dt * dt);
+	}
+
+	/**
+	 * @return the shallowest level whose step is no longer than a given step size
+	 */
+	private static int levelOf(double stepSize, double timeStep) {
+
+		if (!(stepSize < timeStep)) {
+			return 0;
+		}
+
+		return (int) Math.min(MAX_LEVEL, Math.ceil(Math.log(timeStep / stepSize) / Math.log(2)));
+
+	}
+
+	/**
+	 * @return how many active bodies to update together, so each chunk is worth sending to another thread
+	 */
+	private static int chunkSize(int massiveCount) {
+		return Math.max(1, INTERACTIONS_PER_CHUNK / Math.max(1, massiveCount));
+	}
+
+	private static void recordForces(Simulation simulation, long start, long interactions) {
+
+		SimulationMetrics metrics = simulation.metrics;
+
+		if (metrics != null) {
+			metrics.recordForces(System.nanoTime() - start, interactions);
+		}
+
+	}
+
+	/**
+	 * Grows the per body arrays so they can hold at least a given number of bodies
+	 */
+	private void ensureCapacity(int count) {
+
+		if (level.length >= count) {
+			return;
+		}
+
+		int capacity = Math.max(count, level.length * 2);
+
+		level = Arrays.copyOf(level, capacity);
+		xJerk = Arrays.copyOf(xJerk, capacity);
+		yJerk = Arrays.copyOf(yJerk, capacity);
+		updateTick = Arrays.copyOf(updateTick, capacity);
+		predictedX = Arrays.copyOf(predictedX, capacity);
+		predictedY = Arrays.copyOf(predictedY, capacity);
+		predictedXVelocity = Arrays.copyOf(predictedXVelocity, capacity);
+		predictedYVelocity = Arrays.copyOf(predictedYVelocity, capacity);
+		active = Arrays.copyOf(active, capacity);
+
+	}
+
+	/**
+	 * @return Aarseth's accuracy parameter eta
+	 */
+	public double getAccuracy() {
+		return accuracy;
+	}
+
+	/**
+	 * @param accuracy Aarseth's accuracy parameter eta, must be positive. The step sizes scale with its square
+	 * root, and 0.01 to 0.02 is usual.
+	 */
+	public void setAccuracy(double accuracy) {
+
+		if (!(accuracy > 0)) {
+			throw new IllegalArgumentException("accuracy must be positive: " + accuracy);
+		}
+
+		this.accuracy = accuracy;
+
+	}
+
+	/**
+	 * @return the Plummer softening length
+	 */
+	public double getSoftening() {
+		return Math.sqrt(softeningSquared);
+	}
+
+	/**
+	 * @param softening the Plummer softening length, 0 for exact Newtonian gravity
+	 */
+	public void setSoftening(double softening) {
+
+		if (!(softening >= 0)) {
+			throw new IllegalArgumentException("softening must not be negative: " + softening);
+		}
+
+		softeningSquared = softening * softening;
+		stateCount = -1;
+
+	}
+
+	/**
+	 * @param pool the pool to update the bodies on, or null to use the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the number of block times the bodies have been updated at since this integrator was created
+	 */
+	public long getSubstepCount() {
+		return substepCount;
+	}
+
+	/**
+	 * @return the number of times a body has been updated since this integrator was created
+	 */
+	public long getUpdateCount() {
+		return updateCount;
+	}
+
+	@Override
+	public String getName() {
+		return "Block Hermite";
+	}
+
+	/**
+	 * The state is the accuracy and softening, followed by the level and jerk of every body if they have been
+	 * calculated, so a restored simulation takes the same steps as the original
+	 */
+	@Override
+	public double[] getState() {
+
+		if (stateCount < 0) {
+			return new double[] { accuracy, getSoftening() };
+		}
+
+		double[] state = new double[4 + stateCount * 3];
+		state[0] = accuracy;
+		state[1] = getSoftening();
+		state[2] = nextStepCount;
+		state[3] = stateCount;
+
+		for (int i = 0; i < stateCount; i++) {
+			state[4 + i * 3] = level[i];
+			state[5 + i * 3] = xJerk[i];
+			state[6 + i * 3] = yJerk[i];
+		}
+
+		return state;
+
+	}
+
+	@Override
+	public void setState(double[] state) {
+
+		if (state.length != 2 && (state.length < 4 || state.length != 4 + (int) state[3] * 3)) {
+			throw new IllegalArgumentException("Expected an accuracy, a softening and the state of each body but got " + state.length + " values");
+		}
+
+		setAccuracy(state[0]);
+		setSoftening(state[1]);
+
+		if (state.length == 2) {
+			return;
+		}
+
+		int count = (int) state[3];
+		ensureCapacity(count);
+
+		for (int i = 0; i < count; i++) {
+			level[i] = (int) state[4 + i * 3];
+			xJerk[i] = state[5 + i * 3];
+			yJerk[i] = state[6 + i * 3];
+		}
+
+		nextStepCount = (long) state[2];
+		stateCount = count;
+
+	}
+
+}
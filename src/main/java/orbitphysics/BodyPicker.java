@@ -0,0 +1,411 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * Finds the body of a {@link SimulationSnapshot} under a point or nearest to it, for picking bodies with the mouse
+ * without scanning every body on each mouse move.
+ *
+ * The bodies are kept in a spatial hash of square cells, with the bodies of each bucket in a doubly linked list
+ * indexed by body id. The hash is updated from each new snapshot rather than rebuilt: only the bodies that moved
+ * to another cell are moved to another list, and the bodies that are no longer in the snapshot are unlinked. It is
+ * only rebuilt when the cells no longer suit the spread of the bodies or the table no longer suits their number.
+ *
+ * The cells are sized so a handful of bodies share each one. Bodies bigger than a cell are kept in a separate list
+ * that every query checks, so a query only has to look at the cells around the point, in rings of growing distance.
+ */
+public class BodyPicker {
+
+	// The average number of bodies per cell the cell size is chosen for
+	private static final double BODIES_PER_CELL = 4;
+
+	// The cells are resized once the best size for the bodies is this many times bigger or smaller
+	private static final double RESIZE_FACTOR = 2;
+
+	// Cells are clamped to this many cells from the origin, so bodies that have escaped far away share the
+	// cells at the edge instead of overflowing the cell coordinates
+	private static final int MAX_CELL = 1 << 28;
+
+	// The bucket of bodies bigger than a cell, it is the last head in the table
+	private int largeBucket;
+
+	private double cellSize;
+
+	// The range of cells the bodies smaller than a cell are in, queries don't look at cells outside of it
+	private int minOccupiedX;
+	private int minOccupiedY;
+	private int maxOccupiedX;
+	private int maxOccupiedY;
+
+	// The first body id in each bucket, or -1 for an empty bucket, with the bucket of large bodies at the end
+	private int[] head = new int[0];
+
+	// The list each body id is in, or -1 if it isn't in the hash, and its neighbours in that list
+	private int[] bucketOf = new int[0];
+	private int[] next = new int[0];
+	private int[] previous = new int[0];
+
+	// The cell, position and radius of each body id when it was last updated
+	private int[] cellX = new int[0];
+	private int[] cellY = new int[0];
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+	private double[] radius = new double[0];
+
+	// The update each body id was last seen in, so the ids of removed bodies can be unlinked
+	private long[] seen = new long[0];
+	private long update;
+
+	// The number of body ids the arrays have been used for, every id at or above this is not in the hash
+	private int idLimit;
+
+	// The number of bodies in the hash
+	private int count;
+
+	// The number of bodies moved to another list by the last update
+	private int movedCount;
+
+	// The snapshot state that was last indexed, so a frame that draws the same state doesn't update the hash again
+	private SimulationSnapshot indexedSnapshot;
+	private long indexedStepCount;
+	private double indexedTime;
+
+	/**
+	 * Moves the bodies in the hash to their positions in a snapshot, adding the bodies that are new to it and
+	 * removing the ones that aren't in the snapshot. Nothing is done if the snapshot holds the state last indexed.
+	 * @param snapshot the snapshot to index
+	 */
+	public void update(SimulationSnapshot snapshot) {
+
+		if (snapshot == indexedSnapshot && snapshot.getStepCount() == indexedStepCount && snapshot.getTime() == indexedTime) {
+			return;
+		}
+
+		indexedSnapshot = snapshot;
+		indexedStepCount = snapshot.getStepCount();
+		indexedTime = snapshot.getTime();
+
+		update++;
+		movedCount = 0;
+
+		ensureCapacity(snapshot.nextId);
+
+		double size = chooseCellSize(snapshot);
+
+		// The table has a bucket for every one or two bodies, and is only resized when that is far off
+		int n = Math.max(snapshot.count, 1);
+		boolean resizeTable = n > largeBucket || n * 4 < largeBucket;
+
+		if (cellSize == 0 || size > cellSize * RESIZE_FACTOR || size < cellSize / RESIZE_FACTOR || resizeTable) {
+			clear(size, resizeTable ? Integer.highestOneBit(n) << 1 : largeBucket);
+		}
+
+		minOccupiedX = Integer.MAX_VALUE;
+		minOccupiedY = Integer.MAX_VALUE;
+		maxOccupiedX = Integer.MIN_VALUE;
+		maxOccupiedY = Integer.MIN_VALUE;
+
+		for (int i = 0; i < snapshot.count; i++) {
+
+			int id = snapshot.ids[i];
+
+			x[id] = snapshot.x[i];
+			y[id] = snapshot.y[i];
+			radius[id] = snapshot.radius[i];
+			seen[id] = update;
+
+			int newCellX = cellOf(x[id]);
+			int newCellY = cellOf(y[id]);
+			int bucket = radius[id] > cellSize ? largeBucket : CollisionDetector.hash(newCellX, newCellY) & (largeBucket - 1);
+
+			if (bucket != largeBucket) {
+				minOccupiedX = Math.min(minOccupiedX, newCellX);
+				minOccupiedY = Math.min(minOccupiedY, newCellY);
+				maxOccupiedX = Math.max(maxOccupiedX, newCellX);
+				maxOccupiedY = Math.max(maxOccupiedY, newCellY);
+			}
+
+			if (bucket == bucketOf[id] && newCellX == cellX[id] && newCellY == cellY[id]) {
+				continue;
+			}
+
+			if (bucketOf[id] >= 0) {
+				unlink(id);
+			}
+
+			cellX[id] = newCellX;
+			cellY[id] = newCellY;
+			link(id, bucket);
+
+			movedCount++;
+
+		}
+
+		for (int id = 0; id < idLimit; id++) {
+			if (bucketOf[id] >= 0 && seen[id] != update) {
+				unlink(id);
+			}
+		}
+
+		idLimit = Math.max(idLimit, snapshot.nextId);
+
+	}
+
+	/**
+	 * Finds the body nearest to a point, measured to the edge of its circle so a point inside a body is at
+	 * no distance from it. Bodies the point is inside of are told apart by the distance to their centers.
+	 * @param pointX the x coordinate of the point
+	 * @param pointY the y coordinate of the point
+	 * @param maxDistance the furthest a body can be from the point
+	 * @return the id of the nearest body, or -1 if there are no bodies within maxDistance of the point
+	 */
+	public int findNearest(double pointX, double pointY, double maxDistance) {
+
+		if (count == 0) {
+			return -1;
+		}
+
+		nearestId = -1;
+		nearestDistance = maxDistance;
+		nearestCenterDistance = Double.POSITIVE_INFINITY;
+
+		for (int id = head[largeBucket]; id >= 0; id = next[id]) {
+			consider(id, pointX, pointY);
+		}
+
+		// Every body is in the list of large bodies
+		if (minOccupiedX > maxOccupiedX) {
+			return nearestId;
+		}
+
+		int centerX = cellOf(pointX);
+		int centerY = cellOf(pointY);
+
+		// The rings closer than the occupied cells are empty, and the rings past all of them have nothing left to find
+		long firstRing = Math.max(0, Math.max(Math.max((long) minOccupiedX - centerX, (long) centerX - maxOccupiedX),
+				Math.max((long) minOccupiedY - centerY, (long) centerY - maxOccupiedY)));
+		long lastRing = Math.max(Math.max((long) maxOccupiedX - centerX, (long) centerX - minOccupiedX),
+				Math.max((long) maxOccupiedY - centerY, (long) centerY - minOccupiedY));
+
+		// Bodies in the cells of ring k are at least k - 1 cells from the point, and reach at most one cell towards it
+		lastRing = (long) Math.min(lastRing, Math.ceil(maxDistance / cellSize) + 2);
+
+		// Once the walk would look at more cells than there are bodies, checking every body is quicker
+		long cellsSearched = 0;
+
+		for (long ring = firstRing; ring <= lastRing && (ring - 2) * cellSize <= nearestDistance; ring++) {
+
+			int fromX = (int) Math.max(centerX - ring, minOccupiedX);
+			int toX = (int) Math.min(centerX + ring, maxOccupiedX);
+			int fromY = (int) Math.max(centerY - ring, minOccupiedY);
+			int toY = (int) Math.min(centerY + ring, maxOccupiedY);
+
+			cellsSearched += 2L * (toX - fromX + 1) + 2L * (toY - fromY + 1);
+			if (cellsSearched > count) {
+				searchAll(pointX, pointY);
+				break;
+			}
+
+			for (int cellX = fromX; cellX <= toX; cellX++) {
+
+				if (cellX == centerX - ring || cellX == centerX + ring) {
+
+					// The left and right sides of the ring are walked along
+					for (int cellY = fromY; cellY <= toY; cellY++) {
+						searchCell(cellX, cellY, pointX, pointY);
+					}
+
+				} else {
+
+					// The other columns only have their top and bottom cells in the ring
+					if (centerY - ring >= minOccupiedY) {
+						searchCell(cellX, (int) (centerY - ring), pointX, pointY);
+					}
+					if (ring > 0 && centerY + ring <= maxOccupiedY) {
+						searchCell(cellX, (int) (centerY + ring), pointX, pointY);
+					}
+
+				}
+
+			}
+
+		}
+
+		return nearestId;
+
+	}
+
+	// The best body found so far by a query
+	private int nearestId;
+	private double nearestDistance;
+	private double nearestCenterDistance;
+
+	private void searchAll(double pointX, double pointY) {
+
+		for (int id = 0; id < idLimit; id++) {
+			if (bucketOf[id] >= 0 && bucketOf[id] != largeBucket) {
+				consider(id, pointX, pointY);
+			}
+		}
+
+	}
+
+	private void searchCell(int cellX, int cellY, double pointX, double pointY) {
+
+		int bucket = CollisionDetector.hash(cellX, cellY) & (largeBucket - 1);
+
+		for (int id = head[bucket]; id >= 0; id = next[id]) {
+
+			// Different cells can hash to the same bucket
+			if (this.cellX[id] == cellX && this.cellY[id] == cellY) {
+				consider(id, pointX, pointY);
+			}
+
+		}
+
+	}
+
+	private void consider(int id, double pointX, double pointY) {
+
+		double dx = x[id] - pointX;
+		double dy = y[id] - pointY;
+		double centerDistance = Math.sqrt(dx * dx + dy * dy);
+		double distance = Math.max(0, centerDistance - radius[id]);
+
+		if (distance < nearestDistance || distance == nearestDistance && centerDistance < nearestCenterDistance) {
+			nearestId = id;
+			nearestDistance = distance;
+			nearestCenterDistance = centerDistance;
+		}
+
+	}
+
+	/**
+	 * Picks a cell size that puts about BODIES_PER_CELL bodies in each cell, estimating the area the bodies cover
+	 * from the standard deviations of their positions so a few far away bodies don't make the cells huge
+	 */
+	private double chooseCellSize(SimulationSnapshot snapshot) {
+
+		int n = snapshot.count;
+
+		if (n < 2) {
+			return cellSize > 0 ? cellSize : 1;
+		}
+
+		double meanX = 0;
+		double meanY = 0;
+		for (int i = 0; i < n; i++) {
+			meanX += snapshot.x[i];
+			meanY += snapshot.y[i];
+		}
+		meanX /= n;
+		meanY /= n;
+
+		double varianceX = 0;
+		double varianceY = 0;
+		for (int i = 0; i < n; i++) {
+			varianceX += (snapshot.x[i] - meanX) * (snapshot.x[i] - meanX);
+			varianceY += (snapshot.y[i] - meanY) * (snapshot.y[i] - meanY);
+		}
+
+		// Most of the bodies are within two standard deviations of the mean
+		double area = 16 * Math.sqrt(varianceX / n) * Math.sqrt(varianceY / n);
+		double size = Math.sqrt(area * BODIES_PER_CELL / n);
+
+		// Bodies that are all in a line or in one place still need cells with a size
+		return size > 0 && Double.isFinite(size) ? size : cellSize > 0 ? cellSize : 1;
+
+	}
+
+	/**
+	 * Empties the hash and changes the size of its cells and table
+	 */
+	private void clear(double cellSize, int tableSize) {
+
+		this.cellSize = cellSize;
+		largeBucket = tableSize;
+
+		if (head.length < tableSize + 1) {
+			head = new int[tableSize + 1];
+		}
+		Arrays.fill(head, 0, tableSize + 1, -1);
+		Arrays.fill(bucketOf, 0, idLimit, -1);
+
+		count = 0;
+
+	}
+
+	private void ensureCapacity(int ids) {
+
+		if (bucketOf.length >= ids) {
+			return;
+		}
+
+		int capacity = Math.max(ids, bucketOf.length * 2);
+		int oldCapacity = bucketOf.length;
+
+		bucketOf = Arrays.copyOf(bucketOf, capacity);
+		Arrays.fill(bucketOf, oldCapacity, capacity, -1);
+		next = Arrays.copyOf(next, capacity);
+		previous = Arrays.copyOf(previous, capacity);
+		cellX = Arrays.copyOf(cellX, capacity);
+		cellY = Arrays.copyOf(cellY, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		radius = Arrays.copyOf(radius, capacity);
+		seen = Arrays.copyOf(seen, capacity);
+
+	}
+
+	private void link(int id, int bucket) {
+
+		bucketOf[id] = bucket;
+		previous[id] = -1;
+		next[id] = head[bucket];
+
+		if (head[bucket] >= 0) {
+			previous[head[bucket]] = id;
+		}
+		head[bucket] = id;
+
+		count++;
+
+	}
+
+	private void unlink(int id) {
+
+		if (previous[id] >= 0) {
+			next[previous[id]] = next[id];
+		} else {
+			head[bucketOf[id]] = next[id];
+		}
+
+		if (next[id] >= 0) {
+			previous[next[id]] = previous[id];
+		}
+
+		bucketOf[id] = -1;
+
+		count--;
+
+	}
+
+	private int cellOf(double coordinate) {
+		return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, Math.floor(coordinate / cellSize)));
+	}
+
+	/**
+	 * @return the number of bodies in the hash
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the number of bodies the last update moved to another list, which is all of them after a rebuild
+	 */
+	public int getMovedCount() {
+		return movedCount;
+	}
+
+}
@@ -0,0 +1,126 @@
+package orbitphysics;
+
+/**
+ * A {@link CollisionHandler} that bounces colliding bodies off of each other.
+ *
+ * The velocities of each pair of bodies that are moving towards each other are changed by an impulse along
+ * the line between their centers. The coefficient of restitution is the fraction of the speed they approach
+ * each other with that they move apart with, so 1 is a perfectly elastic bounce and 0 is perfectly inelastic.
+ * The impulses are equal and opposite, so momentum is conserved. The bodies are also pushed apart, in
+ * proportion to the inverse of their masses, so they stop overlapping.
+ *
+ * A massless body is treated as infinitely lighter than a body with mass, so it takes all of the impulse.
+ */
+public class BounceCollisionHandler implements CollisionHandler {
+
+	private double restitution;
+
+	public BounceCollisionHandler() {
+		this(1);
+	}
+
+	/**
+	 * @param restitution the coefficient of restitution, from 0(inelastic) to 1(elastic)
+	 */
+	public BounceCollisionHandler(double restitution) {
+		setRestitution(restitution);
+	}
+
+	@Override
+	public void resolve(Simulation simulation, CollisionDetector collisions) {
+
+		double[] x = simulation.x;
+		double[] y = simulation.y;
+		double[] xVelocity = simulation.xVelocity;
+		double[] yVelocity = simulation.yVelocity;
+		double[] mass = simulation.mass;
+		double[] radius = simulation.radius;
+
+		for (int pair = 0; pair < collisions.getPairCount(); pair++) {
+
+			int first = collisions.getFirst(pair);
+			int second = collisions.getSecond(pair);
+
+			// The unit vector pointing from the first body to the second
+			double dx = x[second] - x[first];
+			double dy = y[second] - y[first];
+			double distance = Math.sqrt(dx * dx + dy * dy);
+
+			double xNormal = 1;
+			double yNormal = 0;
+			if (distance > 0) {
+				xNormal = dx / distance;
+				yNormal = dy / distance;
+			}
+
+			// The fraction of the impulse and of the separation each body takes, which is its inverse mass
+			// divided by the sum of both bodies' inverse masses
+			double firstShare;
+			if (mass[first] > 0 && mass[second] > 0) {
+				firstShare = mass[second] / (mass[first] + mass[second]);
+			} else if (mass[first] > 0) {
+				firstShare = 0;
+			} else if (mass[second] > 0) {
+				firstShare = 1;
+			} else {
+				firstShare = 0.5;
+			}
+			double secondShare = 1 - firstShare;
+
+			// Negative if the bodies are moving towards each other
+			double approachSpeed = (xVelocity[second] - xVelocity[first]) * xNormal + (yVelocity[second] - yVelocity[first]) * yNormal;
+
+			if (approachSpeed < 0) {
+
+				double change = -(1 + restitution) * approachSpeed;
+
+				xVelocity[first] -= firstShare * change * xNormal;
+				yVelocity[first] -= firstShare * change * yNormal;
+				xVelocity[second] += secondShare * change * xNormal;
+				yVelocity[second] += secondShare * change * yNormal;
+
+			}
+
+			double overlap = radius[first] + radius[second] - distance;
+
+			if (overlap > 0) {
+
+				x[first] -= firstShare * overlap * xNormal;
+				y[first] -= firstShare * overlap * yNormal;
+				x[second] += secondShare * overlap * xNormal;
+				y[second] += secondShare * overlap * yNormal;
+
+			}
+
+		}
+
+		simulation.accelerationsCurrent = false;
+
+	}
+
+	/**
+	 * @return the coefficient of restitution
+	 */
+	public double getRestitution() {
+		return restitution;
+	}
+
+	/**
+	 * @param restitution the new coefficient of restitution, from 0(inelastic) to 1(elastic)
+	 */
+	public void setRestitution(double restitution) {
+
+		if (restitution < 0 || restitution > 1) {
+			throw new IllegalArgumentException("restitution must be between 0 and 1: " + restitution);
+		}
+
+		this.restitution = restitution;
+
+	}
+
+	@Override
+	public String getName() {
+		return restitution == 1 ? "Elastic Bounce" : "Inelastic Bounce";
+	}
+
+}
@@ -0,0 +1,409 @@
+package orbitphysics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A complete copy of the state of a {@link Simulation} that it can be restored from: every body's position,
+ * velocity, mass, radius, id, acceleration and trail, which bodies are test particles, along with the step count, time, time step, trail settings
+ * and the integrator and its state. The force solver and collision handler are settings rather than state, so
+ * they aren't saved and have to be set again on the restored simulation.
+ *
+ * Capturing a checkpoint only copies arrays, so it is quick enough to do between steps. Writing it to a file can
+ * then be done on another thread, which {@link Checkpointer} does.
+ *
+ * Checkpoint files are little endian, start with MAGIC and VERSION, and end with a CRC32 checksum of everything
+ * before it so that a damaged file is never restored from.
+ */
+public class Checkpoint {
+
+	// "ORBC"
+	static final int MAGIC = 0x4F524243;
+
+	// The version of the file layout, increased whenever it changes
+	static final short VERSION = 2;
+
+	// Version 1 files are still read, they are from before test particles so every body in them is massive
+	private static final short FIRST_VERSION = 1;
+
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	// Copies of the simulation's state
+	int count;
+	int massiveCount;
+	int nextId;
+	int[] ids;
+	double[] x;
+	double[] y;
+	double[] xVelocity;
+	double[] yVelocity;
+	double[] mass;
+	double[] radius;
+	double[] xAcceleration;
+	double[] yAcceleration;
+	boolean accelerationsCurrent;
+	TrailBuffer[] trails;
+	int trailLength;
+	int trailDecimation;
+	double timeStep;
+	double time;
+	long stepCount;
+	String integratorName;
+	double[] integratorState;
+
+	private Checkpoint() {
+	}
+
+	/**
+	 * Copies the state of a simulation. This should be called from the thread stepping the simulation.
+	 * @param simulation the simulation to copy
+	 * @return the new checkpoint
+	 */
+	public static Checkpoint capture(Simulation simulation) {
+
+		Checkpoint checkpoint = new Checkpoint();
+
+		int count = simulation.count;
+
+		checkpoint.count = count;
+		checkpoint.massiveCount = simulation.massiveCount;
+		checkpoint.nextId = simulation.nextId;
+		checkpoint.ids = Arrays.copyOf(simulation.ids, count);
+		checkpoint.x = Arrays.copyOf(simulation.x, count);
+		checkpoint.y = Arrays.copyOf(simulation.y, count);
+		checkpoint.xVelocity = Arrays.copyOf(simulation.xVelocity, count);
+		checkpoint.yVelocity = Arrays.copyOf(simulation.yVelocity, count);
+		checkpoint.mass = Arrays.copyOf(simulation.mass, count);
+		checkpoint.radius = Arrays.copyOf(simulation.radius, count);
+		checkpoint.xAcceleration = Arrays.copyOf(simulation.xAcceleration, count);
+		checkpoint.yAcceleration = Arrays.copyOf(simulation.yAcceleration, count);
+		checkpoint.accelerationsCurrent = simulation.accelerationsCurrent;
+
+		checkpoint.trails = new TrailBuffer[count];
+		for (int i = 0; i < count; i++) {
+			TrailBuffer trail = simulation.trails[i];
+			if (trail != null) {
+				checkpoint.trails[i] = new TrailBuffer(trail.getCapacity());
+				checkpoint.trails[i].copyFrom(trail);
+			}
+		}
+
+		checkpoint.trailLength = simulation.trailLength;
+		checkpoint.trailDecimation = simulation.trailDecimation;
+		checkpoint.timeStep = simulation.timeStep;
+		checkpoint.time = simulation.time;
+		checkpoint.stepCount = simulation.stepCount;
+		checkpoint.integratorName = simulation.integrator.getName();
+		checkpoint.integratorState = simulation.integrator.getState().clone();
+
+		return checkpoint;
+
+	}
+
+	/**
+	 * Creates a simulation in the saved state, which steps exactly like the original would have
+	 * as long as it is given the same force solver and collision handler
+	 * @return the restored simulation
+	 * @throws IllegalArgumentException if the saved integrator isn't one of the built in integrators
+	 */
+	public Simulation restore() {
+
+		Simulation simulation = new Simulation(count);
+
+		System.arraycopy(ids, 0, simulation.ids, 0, count);
+		System.arraycopy(x, 0, simulation.x, 0, count);
+		System.arraycopy(y, 0, simulation.y, 0, count);
+		System.arraycopy(xVelocity, 0, simulation.xVelocity, 0, count);
+		System.arraycopy(yVelocity, 0, simulation.yVelocity, 0, count);
+		System.arraycopy(mass, 0, simulation.mass, 0, count);
+		System.arraycopy(radius, 0, simulation.radius, 0, count);
+		System.arraycopy(xAcceleration, 0, simulation.xAcceleration, 0, count);
+		System.arraycopy(yAcceleration, 0, simulation.yAcceleration, 0, count);
+		simulation.accelerationsCurrent = accelerationsCurrent;
+		simulation.count = count;
+		simulation.massiveCount = massiveCount;
+
+		for (int i = 0; i < count; i++) {
+			if (trails[i] != null) {
+				simulation.trails[i] = new TrailBuffer(trails[i].getCapacity());
+				simulation.trails[i].copyFrom(trails[i]);
+			}
+		}
+
+		simulation.nextId = nextId;
+		simulation.indexOfId = new int[Math.max(nextId, 1)];
+		Arrays.fill(simulation.indexOfId, -1);
+		for (int i = 0; i < count; i++) {
+			simulation.indexOfId[ids[i]] = i;
+		}
+
+		simulation.trailLength = trailLength;
+		simulation.trailDecimation = trailDecimation;
+		simulation.timeStep = timeStep;
+		simulation.time = time;
+		simulation.stepCount = stepCount;
+
+		Integrator integrator = createIntegrator(integratorName);
+		integrator.setState(integratorState);
+		simulation.integrator = integrator;
+
+		return simulation;
+
+	}
+
+	/**
+	 * Creates one of the built in integrators from its name
+	 * @param name the name returned by the integrator's getName()
+	 * @return a new integrator
+	 * @throws IllegalArgumentException if there is no built in integrator with the name
+	 */
+	static Integrator createIntegrator(String name) {
+
+		switch (name) {
+		case "Euler":
+			return new EulerIntegrator();
+		case "Velocity Verlet":
+			return new VelocityVerletIntegrator();
+		case "RK4":
+			return new RungeKuttaIntegrator();
+		case "Adaptive Verlet":
+			return new AdaptiveIntegrator();
+		case "Block Hermite":
+			return new BlockHermiteIntegrator();
+		default:
+			throw new IllegalArgumentException("Unknown integrator: " + name);
+		}
+
+	}
+
+	/**
+	 * Writes the checkpoint to a file. The checkpoint is written to a temporary file first and then moved over
+	 * the file, so if writing is interrupted the file still holds the previous checkpoint.
+	 * @param file the file to write to
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(Path file) throws IOException {
+
+		byte[] nameBytes = integratorName.getBytes(StandardCharsets.UTF_8);
+
+		long size = Integer.BYTES + Short.BYTES * 2 + Long.BYTES + Double.BYTES * 2 + Integer.BYTES * 5 + 1
+				+ Integer.BYTES + nameBytes.length + Integer.BYTES + (long) Double.BYTES * integratorState.length
+				+ (long) count * (Integer.BYTES + Double.BYTES * 8);
+		for (int i = 0; i < count; i++) {
+			size += Integer.BYTES * 2 + (trails[i] == null ? 0 : (long) trails[i].size() * Double.BYTES * 2);
+		}
+		size += Long.BYTES;
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("The checkpoint is too large to write: " + size + " bytes");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size).order(BYTE_ORDER);
+
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short) 0);
+		buffer.putLong(stepCount);
+		buffer.putDouble(time);
+		buffer.putDouble(timeStep);
+		buffer.putInt(trailLength);
+		buffer.putInt(trailDecimation);
+		buffer.putInt(count);
+		buffer.putInt(massiveCount);
+		buffer.putInt(nextId);
+		buffer.put((byte) (accelerationsCurrent ? 1 : 0));
+
+		buffer.putInt(nameBytes.length);
+		buffer.put(nameBytes);
+		buffer.putInt(integratorState.length);
+		putDoubles(buffer, integratorState, integratorState.length);
+
+		buffer.asIntBuffer().put(ids, 0, count);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+		putDoubles(buffer, x, count);
+		putDoubles(buffer, y, count);
+		putDoubles(buffer, xVelocity, count);
+		putDoubles(buffer, yVelocity, count);
+		putDoubles(buffer, mass, count);
+		putDoubles(buffer, radius, count);
+		putDoubles(buffer, xAcceleration, count);
+		putDoubles(buffer, yAcceleration, count);
+
+		// A size of -1 marks a body without a trail
+		double[] trailX = new double[0];
+		double[] trailY = new double[0];
+		for (int i = 0; i < count; i++) {
+
+			TrailBuffer trail = trails[i];
+
+			if (trail == null) {
+				buffer.putInt(-1);
+				buffer.putInt(0);
+				continue;
+			}
+
+			if (trailX.length < trail.size()) {
+				trailX = new double[trail.getCapacity()];
+				trailY = new double[trail.getCapacity()];
+			}
+
+			int points = trail.copyTo(trailX, trailY, 0, 0);
+
+			buffer.putInt(points);
+			buffer.putInt(trail.getCapacity());
+			putDoubles(buffer, trailX, points);
+			putDoubles(buffer, trailY, points);
+
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putLong(crc.getValue());
+
+		buffer.flip();
+
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+
+			// Make sure the new checkpoint is on disk before it replaces the old one
+			channel.force(true);
+
+		}
+
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+	}
+
+	/**
+	 * Reads a checkpoint from a file
+	 * @param file the file to read
+	 * @return the checkpoint in the file
+	 * @throws IOException if the file can't be read, isn't a checkpoint in a version this can read, or is damaged
+	 */
+	public static Checkpoint read(Path file) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(BYTE_ORDER);
+
+		try {
+
+			if (buffer.remaining() < Integer.BYTES + Short.BYTES + Long.BYTES || buffer.getInt() != MAGIC) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+
+			short version = buffer.getShort();
+			if (version < FIRST_VERSION || version > VERSION) {
+				throw new IOException(file + " is a version " + version + " checkpoint, only versions " + FIRST_VERSION + " to " + VERSION + " can be read");
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), 0, buffer.limit() - Long.BYTES);
+			if (crc.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) {
+				throw new IOException(file + " is damaged, its checksum doesn't match");
+			}
+
+			Checkpoint checkpoint = new Checkpoint();
+
+			buffer.getShort();
+			checkpoint.stepCount = buffer.getLong();
+			checkpoint.time = buffer.getDouble();
+			checkpoint.timeStep = buffer.getDouble();
+			checkpoint.trailLength = buffer.getInt();
+			checkpoint.trailDecimation = buffer.getInt();
+			int count = buffer.getInt();
+			checkpoint.count = count;
+			checkpoint.massiveCount = version == FIRST_VERSION ? count : buffer.getInt();
+			checkpoint.nextId = buffer.getInt();
+			checkpoint.accelerationsCurrent = buffer.get() != 0;
+
+			byte[] nameBytes = new byte[buffer.getInt()];
+			buffer.get(nameBytes);
+			checkpoint.integratorName = new String(nameBytes, StandardCharsets.UTF_8);
+			checkpoint.integratorState = getDoubles(buffer, buffer.getInt());
+
+			checkpoint.ids = new int[count];
+			buffer.asIntBuffer().get(checkpoint.ids);
+			buffer.position(buffer.position() + count * Integer.BYTES);
+			checkpoint.x = getDoubles(buffer, count);
+			checkpoint.y = getDoubles(buffer, count);
+			checkpoint.xVelocity = getDoubles(buffer, count);
+			checkpoint.yVelocity = getDoubles(buffer, count);
+			checkpoint.mass = getDoubles(buffer, count);
+			checkpoint.radius = getDoubles(buffer, count);
+			checkpoint.xAcceleration = getDoubles(buffer, count);
+			checkpoint.yAcceleration = getDoubles(buffer, count);
+
+			checkpoint.trails = new TrailBuffer[count];
+			for (int i = 0; i < count; i++) {
+
+				int points = buffer.getInt();
+				int capacity = buffer.getInt();
+
+				if (points < 0) {
+					continue;
+				}
+
+				double[] trailX = getDoubles(buffer, points);
+				double[] trailY = getDoubles(buffer, points);
+
+				TrailBuffer trail = new TrailBuffer(capacity);
+				for (int point = 0; point < points; point++) {
+					trail.add(trailX[point], trailY[point]);
+				}
+				checkpoint.trails[i] = trail;
+
+			}
+
+			return checkpoint;
+
+		} catch (RuntimeException e) {
+			// The checksum matched, so this is a file that was written wrongly rather than damaged
+			throw new IOException(file + " is not a valid checkpoint", e);
+		}
+
+	}
+
+	private static void putDoubles(ByteBuffer buffer, double[] values, int count) {
+		buffer.asDoubleBuffer().put(values, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+	}
+
+	private static double[] getDoubles(ByteBuffer buffer, int count) {
+
+		double[] values = new double[count];
+
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * Double.BYTES);
+
+		return values;
+
+	}
+
+	/**
+	 * @return the number of steps the saved simulation had taken
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * @return the number of bodies in the saved simulation
+	 */
+	public int getBodyCount() {
+		return count;
+	}
+
+}
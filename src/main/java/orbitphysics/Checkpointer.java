@@ -0,0 +1,144 @@
+package orbitphysics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves checkpoints of a {@link Simulation} to a file without holding up the thread stepping it. The state is
+ * copied on the calling thread, which only takes as long as copying the arrays, and the copy is written to the
+ * file on a background thread while the simulation keeps stepping.
+ *
+ * Only one checkpoint is written at a time. If the previous checkpoint is still being written when another is
+ * requested, the new one is skipped instead of piling up copies in memory.
+ */
+public class Checkpointer implements Closeable {
+
+	private final Path file;
+
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Checkpoint writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final AtomicBoolean writing = new AtomicBoolean();
+
+	// The step count of the newest checkpoint written to the file, or -1 if none has been written
+	private volatile long lastCheckpointStep = -1;
+
+	// The error from the newest checkpoint that failed to be written, or null
+	private volatile IOException lastError;
+
+	/**
+	 * @param file the file to save the checkpoints to, each checkpoint replaces the one before it
+	 */
+	public Checkpointer(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Copies the state of a simulation and starts writing it to the checkpoint file. This should be called
+	 * from the thread stepping the simulation.
+	 * @param simulation the simulation to save
+	 * @return false if the checkpoint was skipped because the previous one is still being written
+	 */
+	public boolean checkpoint(Simulation simulation) {
+
+		if (!writing.compareAndSet(false, true)) {
+			return false;
+		}
+
+		Checkpoint checkpoint = Checkpoint.capture(simulation);
+
+		writer.execute(() -> {
+
+			try {
+				checkpoint.write(file);
+				lastCheckpointStep = checkpoint.getStepCount();
+				lastError = null;
+			} catch (IOException e) {
+				lastError = e;
+			} finally {
+				writing.set(false);
+			}
+
+		});
+
+		return true;
+
+	}
+
+	/**
+	 * @return the file the checkpoints are saved to
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the step count of the newest checkpoint written to the file, or -1 if none has been written yet
+	 */
+	public long getLastCheckpointStep() {
+		return lastCheckpointStep;
+	}
+
+	/**
+	 * @return the error from the newest checkpoint that failed to be written, or null if it was written
+	 */
+	public IOException getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * Saves a final checkpoint of a simulation and closes the checkpointer. Unlike {@link #checkpoint(Simulation)},
+	 * the checkpoint is never skipped: it is written after the checkpoint being written now, if there is one.
+	 * @param simulation the simulation to save, which shouldn't be stepped while this runs
+	 * @throws IOException if the final checkpoint failed to be written
+	 */
+	public void checkpointAndClose(Simulation simulation) throws IOException {
+
+		Checkpoint checkpoint = Checkpoint.capture(simulation);
+
+		writer.execute(() -> {
+
+			try {
+				checkpoint.write(file);
+				lastCheckpointStep = checkpoint.getStepCount();
+				lastError = null;
+			} catch (IOException e) {
+				lastError = e;
+			}
+
+		});
+
+		close();
+
+	}
+
+	/**
+	 * Waits for the checkpoint being written to finish, then stops the writer thread
+	 * @throws IOException if the last checkpoint failed to be written
+	 */
+	@Override
+	public void close() throws IOException {
+
+		writer.shutdown();
+
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (lastError != null) {
+			throw lastError;
+		}
+
+	}
+
+}
@@ -0,0 +1,271 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * Finds every pair of overlapping bodies using a spatial hash as a broad phase.
+ *
+ * The plane is split into a uniform grid of square cells sized from the bodies' radii, and each body is
+ * added to every cell its bounding box overlaps. Only bodies sharing a cell are tested against each other,
+ * and a pair is only tested in the one cell holding the corner of the overlap of their bounding boxes, so
+ * each pair is tested at most once. The exact test compares squared distances, so no square roots are needed.
+ *
+ * The cells are hashed into a table which is sorted with a counting sort, so all of the storage is
+ * primitive arrays that are reused between calls.
+ */
+public class CollisionDetector {
+
+	// Bodies much bigger than the typical body would cover too many cells, so cells are at least this
+	// fraction of the biggest body's diameter
+	private static final int MAX_CELLS_PER_DIAMETER = 16;
+
+	// Cells are clamped to this many cells from the origin, so bodies that have escaped far away share the
+	// cells at the edge instead of overflowing the cell coordinates
+	private static final int MAX_CELL = 1 << 28;
+
+	// The most entries the hash table can hold, so its size still fits in an int
+	private static final long MAX_ENTRIES = 1 << 28;
+
+	private double cellSize;
+
+	// The range of cells each body's bounding box covers
+	private int[] minCellX = new int[0];
+	private int[] minCellY = new int[0];
+	private int[] maxCellX = new int[0];
+	private int[] maxCellY = new int[0];
+
+	// The hash table, the entries of bucket b are from bucketStart[b] to bucketStart[b + 1] - 1
+	private int[] bucketStart = new int[0];
+	private int[] entryBody = new int[0];
+	private int[] entryCellX = new int[0];
+	private int[] entryCellY = new int[0];
+	private int[] entryBucket = new int[0];
+
+	// The colliding pairs, with the lower index in the upper 32 bits
+	private long[] pairs = new long[16];
+	private int pairCount;
+
+	/**
+	 * Finds every pair of bodies whose circles overlap. The pairs can be read with {@link #getFirst(int)}
+	 * and {@link #getSecond(int)}, and are sorted by the index of their first body and then their second.
+	 * @param x the x coordinates of the bodies
+	 * @param y the y coordinates of the bodies
+	 * @param radius the radii of the bodies
+	 * @param count the number of bodies
+	 * @return the number of colliding pairs
+	 */
+	public int detect(double[] x, double[] y, double[] radius, int count) {
+
+		pairCount = 0;
+
+		if (count < 2) {
+			return 0;
+		}
+
+		ensureCapacity(count);
+
+		cellSize = chooseCellSize(radius, count);
+
+		// Find the cells covered by each body and count the total number of entries
+		long entryCount = 0;
+		for (int i = 0; i < count; i++) {
+
+			minCellX[i] = cellOf(x[i] - radius[i]);
+			minCellY[i] = cellOf(y[i] - radius[i]);
+			maxCellX[i] = cellOf(x[i] + radius[i]);
+			maxCellY[i] = cellOf(y[i] + radius[i]);
+
+			entryCount += (long) (maxCellX[i] - minCellX[i] + 1) * (maxCellY[i] - minCellY[i] + 1);
+
+		}
+
+		if (entryCount > MAX_ENTRIES) {
+			throw new IllegalStateException("The bodies cover too many cells to hash: " + entryCount);
+		}
+
+		// Use a power of two table with at least twice as many buckets as entries
+		int tableSize = Integer.highestOneBit((int) Math.max(entryCount, 1)) << 2;
+		int mask = tableSize - 1;
+
+		if (bucketStart.length < tableSize + 1) {
+			bucketStart = new int[tableSize + 1];
+		} else {
+			Arrays.fill(bucketStart, 0, tableSize + 1, 0);
+		}
+		if (entryBody.length < entryCount) {
+			int capacity = (int) Math.max(entryCount, entryBody.length * 2);
+			entryBody = new int[capacity];
+			entryCellX = new int[capacity];
+			entryCellY = new int[capacity];
+			entryBucket = new int[capacity];
+		}
+
+		// Hash every entry, counting the entries in each bucket
+		int entry = 0;
+		for (int i = 0; i < count; i++) {
+			for (int cellX = minCellX[i]; cellX <= maxCellX[i]; cellX++) {
+				for (int cellY = minCellY[i]; cellY <= maxCellY[i]; cellY++) {
+
+					int bucket = hash(cellX, cellY) & mask;
+					entryBucket[entry++] = bucket;
+					bucketStart[bucket + 1]++;
+
+				}
+			}
+		}
+
+		for (int bucket = 0; bucket < tableSize; bucket++) {
+			bucketStart[bucket + 1] += bucketStart[bucket];
+		}
+
+		// Place each entry in its bucket(bucketStart is shifted down one bucket by this and restored after)
+		entry = 0;
+		for (int i = 0; i < count; i++) {
+			for (int cellX = minCellX[i]; cellX <= maxCellX[i]; cellX++) {
+				for (int cellY = minCellY[i]; cellY <= maxCellY[i]; cellY++) {
+
+					int slot = bucketStart[entryBucket[entry++]]++;
+					entryBody[slot] = i;
+					entryCellX[slot] = cellX;
+					entryCellY[slot] = cellY;
+
+				}
+			}
+		}
+
+		for (int bucket = tableSize; bucket > 0; bucket--) {
+			bucketStart[bucket] = bucketStart[bucket - 1];
+		}
+		bucketStart[0] = 0;
+
+		// Test the bodies sharing each bucket
+		for (int bucket = 0; bucket < tableSize; bucket++) {
+
+			int end = bucketStart[bucket + 1];
+
+			for (int a = bucketStart[bucket]; a < end; a++) {
+				for (int b = a + 1; b < end; b++) {
+
+					// Different cells can hash to the same bucket
+					if (entryCellX[a] != entryCellX[b] || entryCellY[a] != entryCellY[b]) {
+						continue;
+					}
+
+					int i = entryBody[a];
+					int j = entryBody[b];
+
+					// Only test the pair in the cell holding the corner of the overlap of their bounding boxes
+					if (Math.max(minCellX[i], minCellX[j]) != entryCellX[a] || Math.max(minCellY[i], minCellY[j]) != entryCellY[a]) {
+						continue;
+					}
+
+					if (isOverlapping(x, y, radius, i, j)) {
+						addPair(Math.min(i, j), Math.max(i, j));
+					}
+
+				}
+			}
+
+		}
+
+		Arrays.sort(pairs, 0, pairCount);
+
+		return pairCount;
+
+	}
+
+	/**
+	 * Tests if the circles of two bodies overlap, by testing if the squared distance between them is
+	 * less than the square of the sum of their radii
+	 */
+	static boolean isOverlapping(double[] x, double[] y, double[] radius, int i, int j) {
+
+		double dx = x[i] - x[j];
+		double dy = y[i] - y[j];
+		double radiusSum = radius[i] + radius[j];
+
+		return dx * dx + dy * dy < radiusSum * radiusSum;
+
+	}
+
+	/**
+	 * Picks a cell size about the size of the average body, but no smaller than the biggest body
+	 * divided by MAX_CELLS_PER_DIAMETER
+	 */
+	private double chooseCellSize(double[] radius, int count) {
+
+		double radiusSum = 0;
+		double maxRadius = 0;
+
+		for (int i = 0; i < count; i++) {
+			radiusSum += radius[i];
+			maxRadius = Math.max(maxRadius, radius[i]);
+		}
+
+		double size = Math.max(2 * radiusSum / count, 2 * maxRadius / MAX_CELLS_PER_DIAMETER);
+
+		// Bodies without a radius can't collide, but the cells still need a size
+		return size > 0 ? size : 1;
+
+	}
+
+	private int cellOf(double coordinate) {
+		return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, Math.floor(coordinate / cellSize)));
+	}
+
+	static int hash(int cellX, int cellY) {
+
+		int hash = cellX * 0x9E3779B1 + cellY * 0x85EBCA77;
+		return hash ^ (hash >>> 15);
+
+	}
+
+	private void addPair(int first, int second) {
+
+		if (pairCount == pairs.length) {
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		}
+
+		pairs[pairCount++] = ((long) first << 32) | second;
+
+	}
+
+	private void ensureCapacity(int count) {
+
+		if (minCellX.length >= count) {
+			return;
+		}
+
+		int capacity = Math.max(count, minCellX.length * 2);
+
+		minCellX = new int[capacity];
+		minCellY = new int[capacity];
+		maxCellX = new int[capacity];
+		maxCellY = new int[capacity];
+
+	}
+
+	/**
+	 * @return the number of colliding pairs found by the last call to detect
+	 */
+	public int getPairCount() {
+		return pairCount;
+	}
+
+	/**
+	 * @param pair the index of a colliding pair
+	 * @return the index of the first body of the pair, which is lower than the index of the second
+	 */
+	public int getFirst(int pair) {
+		return (int) (pairs[pair] >>> 32);
+	}
+
+	/**
+	 * @param pair the index of a colliding pair
+	 * @return the index of the second body of the pair
+	 */
+	public int getSecond(int pair) {
+		return (int) pairs[pair];
+	}
+
+}
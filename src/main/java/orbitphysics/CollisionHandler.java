@@ -0,0 +1,24 @@
+package orbitphysics;
+
+/**
+ * Decides what happens to bodies that collide. A {@link Simulation} with a CollisionHandler finds the
+ * colliding pairs at the end of every step and passes all of them to the handler at once, so the handler
+ * can resolve them as a batch. Handlers can be swapped at runtime with
+ * {@link Simulation#setCollisionHandler(CollisionHandler)}.
+ */
+public interface CollisionHandler {
+
+	/**
+	 * Resolves every collision found at the end of a step. Bodies that should be removed are marked with
+	 * {@link Simulation#markRemoved(int)}, and are removed by the simulation after this returns.
+	 * @param simulation the simulation the collisions happened in
+	 * @param collisions the colliding pairs, as indices into the simulation's state arrays
+	 */
+	void resolve(Simulation simulation, CollisionDetector collisions);
+
+	/**
+	 * @return the name of the collision policy, used when displaying which policy is selected
+	 */
+	String getName();
+
+}
@@ -0,0 +1,26 @@
+package orbitphysics;
+
+/**
+ * The inner loop of {@link DirectSumSolver}, which sums the attraction of a range of source bodies on a range of
+ * bodies. It is an interface so a vectorized version compiled with the vector profile can be loaded when the
+ * runtime supports it, without the rest of the simulation needing a newer Java release.
+ */
+interface DirectSumKernel {
+
+	/**
+	 * Calculates the accelerations of the bodies with indices from start to end - 1 by summing the attraction of
+	 * the first sourceCount bodies on each of them
+	 * @param x the x coordinates of the bodies
+	 * @param y the y coordinates of the bodies
+	 * @param mass the masses of the bodies
+	 * @param sourceCount the number of bodies that attract the others
+	 * @param softeningSquared the Plummer softening length squared
+	 * @param xAcceleration the array to store the x accelerations of the bodies in
+	 * @param yAcceleration the array to store the y accelerations of the bodies in
+	 * @param start the first body to calculate the acceleration of(inclusive)
+	 * @param end the last body to calculate the acceleration of(exclusive)
+	 */
+	void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, double softeningSquared, double[] xAcceleration,
+			double[] yAcceleration, int start, int end);
+
+}
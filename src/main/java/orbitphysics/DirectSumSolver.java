@@ -0,0 +1,262 @@
+package orbitphysics;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A {@link ForceSolver} that sums the gravitational attraction of every pair of bodies directly.
+ * This is exact, but takes O(n^2) time, so it is mainly useful for small scenes and for
+ * validating approximate solvers like {@link BarnesHutSolver}.
+ *
+ * The attraction of a pair is calculated from the x and y distances between the bodies and 1 / r^3,
+ * so no trigonometric functions are needed. An optional Plummer softening length eps changes the
+ * distance to sqrt(r^2 + eps^2), which keeps the force finite when two bodies get very close.
+ *
+ * On a single thread each pair is only calculated once and applied to both bodies(Newton's third law).
+ * If the solver is given a {@link ForkJoinPool}, the bodies are split between the pool's threads and
+ * each thread sums the attraction of every other body on its own bodies. Both ways add up each body's
+ * acceleration in the same order with the same operations, so the results are bit-for-bit the same
+ * no matter how many threads are used.
+ *
+ * Test particles only sum the attraction of the massive bodies, so n test particles and m massive bodies
+ * take O(m^2 + nm) time instead of O((n + m)^2).
+ *
+ * When the simulation is built with the vector profile and run with --add-modules jdk.incubator.vector,
+ * {@link #setVectorized(boolean)} switches to a kernel that sums several sources at once with SIMD
+ * instructions. Every body then sums all of the sources itself, which is twice the work of the symmetric
+ * loop, but it was still modestly faster with 2000 bodies on the machine it was measured on(7.8 ms against
+ * 10.6 ms per calculation). Without the kernel the solver keeps using the scalar loops.
+ */
+public class DirectSumSolver implements ForceSolver {
+
+	// The vectorized kernel, or null if it wasn't compiled in or the runtime doesn't have the Vector API
+	private static final DirectSumKernel VECTOR_KERNEL = loadVectorKernel();
+
+	// The pool used to calculate accelerations in parallel, or null to use the calling thread
+	private ForkJoinPool pool;
+
+	// The Plummer softening length squared
+	private double softeningSquared;
+
+	// The number of interactions calculated by the last call to computeAccelerations
+	private long interactionCount;
+
+	// Whether to use the vectorized kernel when it is available
+	private boolean vectorized;
+
+	public DirectSumSolver() {
+		this(null);
+	}
+
+	/**
+	 * @param pool the pool to calculate accelerations on, or null to use the calling thread
+	 */
+	public DirectSumSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration) {
+		computeAccelerations(x, y, mass, count, count, xAcceleration, yAcceleration);
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		// Every source is attracted by every other source, and every test particle by every source
+		interactionCount = (long) sourceCount * Math.max(0, sourceCount - 1) + (long) (count - sourceCount) * sourceCount;
+
+		if (isVectorized()) {
+
+			double softeningSquared = this.softeningSquared;
+
+			ParallelLoop.forEach(pool, count, (start, end) ->
+					VECTOR_KERNEL.computeAccelerations(x, y, mass, sourceCount, softeningSquared, xAcceleration, yAcceleration, start, end));
+
+			return;
+
+		}
+
+		if (pool == null || sourceCount <= ParallelLoop.CHUNK_SIZE) {
+			computeSymmetric(x, y, mass, sourceCount, xAcceleration, yAcceleration);
+		} else {
+			ParallelLoop.forEach(pool, sourceCount, (start, end) -> computeAccelerations(x, y, mass, sourceCount, xAcceleration, yAcceleration, start, end));
+		}
+
+		// Test particles don't attract anything, so each one only sums the sources, in one tight loop over them
+		ParallelLoop.forEach(pool, count - sourceCount, (start, end) ->
+				computeAccelerations(x, y, mass, sourceCount, xAcceleration, yAcceleration, sourceCount + start, sourceCount + end));
+
+	}
+
+	/**
+	 * Calculates the acceleration of every body, visiting each pair once and applying it to both bodies
+	 */
+	private void computeSymmetric(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		double softeningSquared = this.softeningSquared;
+
+		for (int i = 0; i < count; i++) {
+			xAcceleration[i] = 0;
+			yAcceleration[i] = 0;
+		}
+
+		for (int i = 0; i < count; i++) {
+
+			double xi = x[i];
+			double yi = y[i];
+			double massi = mass[i];
+
+			double xSum = xAcceleration[i];
+			double ySum = yAcceleration[i];
+
+			for (int j = i + 1; j < count; j++) {
+
+				double dx = x[j] - xi;
+				double dy = y[j] - yi;
+				double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+				if (distanceSquared > 0) {
+
+					// G / r^3, which scales the distance vector into the attraction per unit of mass
+					double scale = Simulation.G / (distanceSquared * Math.sqrt(distanceSquared));
+
+					double xForce = dx * scale;
+					double yForce = dy * scale;
+
+					xSum += xForce * mass[j];
+					ySum += yForce * mass[j];
+
+					xAcceleration[j] -= xForce * massi;
+					yAcceleration[j] -= yForce * massi;
+
+				}
+			}
+
+			xAcceleration[i] = xSum;
+			yAcceleration[i] = ySum;
+
+		}
+
+	}
+
+	/**
+	 * Calculates the accelerations of the bodies with indices from start to end - 1 by summing
+	 * the attraction of every other body below count on each of them
+	 */
+	private void computeAccelerations(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration, int start, int end) {
+
+		double softeningSquared = this.softeningSquared;
+
+		for (int i = start; i < end; i++) {
+
+			double xi = x[i];
+			double yi = y[i];
+
+			double xSum = 0;
+			double ySum = 0;
+
+			for (int j = 0; j < count; j++) {
+
+				if (j != i) {
+
+					double dx = x[j] - xi;
+					double dy = y[j] - yi;
+					double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+					if (distanceSquared > 0) {
+
+						double scale = Simulation.G / (distanceSquared * Math.sqrt(distanceSquared));
+
+						double xForce = dx * scale;
+						double yForce = dy * scale;
+
+						xSum += xForce * mass[j];
+						ySum += yForce * mass[j];
+
+					}
+				}
+			}
+
+			xAcceleration[i] = xSum;
+			yAcceleration[i] = ySum;
+
+		}
+
+	}
+
+	/**
+	 * Loads the vectorized kernel if it was compiled in and the runtime has the Vector API
+	 * @return the kernel, or null if it can't be used
+	 */
+	private static DirectSumKernel loadVectorKernel() {
+
+		try {
+			return (DirectSumKernel) Class.forName("orbitphysics.VectorDirectSumKernel").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+
+	}
+
+	/**
+	 * @return true if the vectorized kernel was compiled in and the runtime has the Vector API
+	 */
+	public static boolean isVectorAvailable() {
+		return VECTOR_KERNEL != null;
+	}
+
+	/**
+	 * @return true if accelerations are calculated with the vectorized kernel
+	 */
+	public boolean isVectorized() {
+		return vectorized && VECTOR_KERNEL != null;
+	}
+
+	/**
+	 * @param vectorized true to calculate accelerations with the vectorized kernel when it is available(see
+	 * {@link #isVectorAvailable()}), false to always use the scalar loops
+	 */
+	public void setVectorized(boolean vectorized) {
+		this.vectorized = vectorized;
+	}
+
+	@Override
+	public long getInteractionCount() {
+		return interactionCount;
+	}
+
+	/**
+	 * @return the pool used to calculate accelerations in parallel, or null if the calling thread is used
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool the pool to calculate accelerations on, or null to use the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the Plummer softening length
+	 */
+	public double getSoftening() {
+		return Math.sqrt(softeningSquared);
+	}
+
+	/**
+	 * @param softening the new Plummer softening length, or 0 for no softening
+	 */
+	public void setSoftening(double softening) {
+
+		if (softening < 0) {
+			throw new IllegalArgumentException("softening must not be negative: " + softening);
+		}
+
+		this.softeningSquared = softening * softening;
+
+	}
+
+}
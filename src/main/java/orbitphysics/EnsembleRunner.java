@@ -0,0 +1,433 @@
+package orbitphysics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs many variants of the planet and rocket scenario in one JVM, for Monte Carlo sweeps of the launch
+ * parameters. Each variant draws its rocket speed, launch direction and planet mass uniformly from the given
+ * ranges, and is run as its own small simulation. The variants are spread over a work stealing
+ * {@link ForkJoinPool}, so threads that finish short runs take variants from the ones still busy.
+ *
+ * A run stops as soon as its outcome is known: the rocket hits the planet, escapes(its energy relative to the
+ * planet is positive and it is moving away, so it never comes back), or completes an orbit(it has swept a full
+ * turn around the planet, which takes one period whatever point of the orbit it started at). Runs that haven't
+ * decided by the last step are undecided. Each outcome is written as a CSV line as soon as its run finishes, so
+ * results stream while the rest of the sweep runs. Started with {@code java -jar OrbitPhysics.jar ensemble [options]}.
+ */
+public class EnsembleRunner {
+
+	static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: ensemble [options]",
+			"  --runs N                the number of variants to run (default 1000)",
+			"  --seed N                the random seed the variants are drawn with (default 42)",
+			"  --velocity MIN[:MAX]    the range of the rocket's launch speed (default " + Scenarios.ROCKET_VELOCITY + ")",
+			"  --direction MIN[:MAX]   the range of the launch direction, clockwise from the x axis in degrees (default 0)",
+			"  --planet-mass MIN[:MAX] the range of the planet's mass (default " + Scenarios.PLANET_MASS + ")",
+			"  --steps N               the most steps to run each variant for before calling it undecided (default 100000)",
+			"  --time-step DT          the amount of time each step advances a variant by (default 0.1)",
+			"  --integrator NAME       euler, verlet, rk4, adaptive or hermite (default verlet)",
+			"  --threads N             the number of variants to run at once (default all cores)",
+			"  --results FILE          a CSV file to stream the outcome of each variant to (default the console)",
+			"  --help                  print this message");
+
+	static final String RESULTS_HEADER = "run,rocketVelocity,rocketVelocityDirectionDegrees,planetMass,outcome,steps,time,period,periapsis,apoapsis";
+
+	// The options that are followed by a value
+	static final List<String> VALUE_OPTIONS = Arrays.asList("--runs", "--seed", "--velocity", "--direction", "--planet-mass", "--steps",
+			"--time-step", "--integrator", "--threads", "--results");
+
+	/**
+	 * How a run ended
+	 */
+	public enum Outcome {
+
+		// The rocket hit the planet
+		COLLISION,
+
+		// The rocket is moving away from the planet too fast to ever come back
+		ESCAPE,
+
+		// The rocket went all of the way around the planet
+		ORBIT,
+
+		// None of the others happened before the last step
+		UNDECIDED
+
+	}
+
+	/**
+	 * The parameters and outcome of one run
+	 */
+	public static class Result {
+
+		final int run;
+		final double rocketVelocity;
+		final double rocketVelocityDirectionDegrees;
+		final double planetMass;
+
+		Outcome outcome = Outcome.UNDECIDED;
+		long steps;
+		double time;
+
+		// The time taken to go around the planet once, or NaN if the rocket didn't
+		double period = Double.NaN;
+
+		// The closest and farthest the rocket got from the planet
+		double periapsis = Double.POSITIVE_INFINITY;
+		double apoapsis;
+
+		Result(int run, double rocketVelocity, double rocketVelocityDirectionDegrees, double planetMass) {
+			this.run = run;
+			this.rocketVelocity = rocketVelocity;
+			this.rocketVelocityDirectionDegrees = rocketVelocityDirectionDegrees;
+			this.planetMass = planetMass;
+		}
+
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * @return the time taken to go around the planet once, or NaN if the rocket didn't
+		 */
+		public double getPeriod() {
+			return period;
+		}
+
+		String toCsv() {
+			return String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%d,%s,%s,%s,%s", run, rocketVelocity, rocketVelocityDirectionDegrees, planetMass,
+					outcome.name().toLowerCase(Locale.ROOT), steps, time, period, periapsis, apoapsis);
+		}
+
+	}
+
+	// The options of the sweep
+	int runCount = 1000;
+	long seed = 42;
+	double[] velocityRange = { Scenarios.ROCKET_VELOCITY, Scenarios.ROCKET_VELOCITY };
+	double[] directionRange = { 0, 0 };
+	double[] planetMassRange = { Scenarios.PLANET_MASS, Scenarios.PLANET_MASS };
+	long steps = 100000;
+	double timeStep = 0.1;
+	String integrator = "verlet";
+	int threads = Runtime.getRuntime().availableProcessors();
+	Path resultsFile;
+
+	public static void main(String[] args) {
+
+		if (Arrays.asList(args).contains("--help")) {
+			System.out.println(USAGE);
+			return;
+		}
+
+		EnsembleRunner runner;
+
+		try {
+			runner = parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		try {
+			runner.run(System.out);
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println("Ensemble run failed: " + e.getMessage());
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * Reads the options of an ensemble run from command line arguments
+	 * @param args the command line arguments, not including the "ensemble" that selects ensemble mode
+	 * @return an EnsembleRunner with the given options
+	 * @throws IllegalArgumentException if an argument is not a valid option
+	 */
+	static EnsembleRunner parse(String[] args) {
+
+		EnsembleRunner runner = new EnsembleRunner();
+
+		for (int i = 0; i < args.length; i++) {
+
+			String option = args[i];
+
+			if (!VALUE_OPTIONS.contains(option)) {
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + option);
+			}
+
+			String value = args[++i];
+
+			try {
+
+				switch (option) {
+				case "--runs":
+					runner.runCount = Integer.parseInt(value);
+					break;
+				case "--seed":
+					runner.seed = Long.parseLong(value);
+					break;
+				case "--velocity":
+					runner.velocityRange = parseRange(value);
+					break;
+				case "--direction":
+					runner.directionRange = parseRange(value);
+					break;
+				case "--planet-mass":
+					runner.planetMassRange = parseRange(value);
+					break;
+				case "--steps":
+					runner.steps = Long.parseLong(value);
+					break;
+				case "--time-step":
+					runner.timeStep = Double.parseDouble(value);
+					break;
+				case "--integrator":
+					runner.integrator = value;
+					break;
+				case "--threads":
+					runner.threads = Integer.parseInt(value);
+					break;
+				case "--results":
+					runner.resultsFile = Paths.get(value);
+					break;
+				}
+
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number for " + option + ": " + value);
+			}
+
+		}
+
+		if (runner.runCount < 0 || runner.steps < 0 || runner.threads < 1) {
+			throw new IllegalArgumentException("--runs and --steps must not be negative, and --threads must be at least 1");
+		}
+
+		if (!(runner.planetMassRange[0] > 0)) {
+			throw new IllegalArgumentException("--planet-mass must be positive");
+		}
+
+		// Fails early on an unknown name instead of in every run
+		BatchRunner.createIntegrator(runner.integrator, 0, null);
+
+		return runner;
+
+	}
+
+	/**
+	 * Reads a range given as MIN:MAX, or as one number for a range holding only that number
+	 */
+	private static double[] parseRange(String value) {
+
+		int colon = value.indexOf(':');
+
+		double min = Double.parseDouble(colon < 0 ? value : value.substring(0, colon));
+		double max = colon < 0 ? min : Double.parseDouble(value.substring(colon + 1));
+
+		if (!(min <= max)) {
+			throw new IllegalArgumentException("The start of a range must not be after its end: " + value);
+		}
+
+		return new double[] { min, max };
+
+	}
+
+	/**
+	 * Runs every variant, streaming their outcomes and then printing a summary
+	 * @param out the stream to print the summary to, and the outcomes if there is no results file
+	 * @return the results of the variants, in the order they were drawn
+	 * @throws IOException if the results file can't be written
+	 */
+	Result[] run(PrintStream out) throws IOException {
+
+		// The variants are drawn up front on one thread, so they don't depend on the number of threads
+		Random random = new Random(seed);
+		Result[] results = new Result[runCount];
+
+		for (int i = 0; i < runCount; i++) {
+			results[i] = new Result(i, draw(random, velocityRange), draw(random, directionRange), draw(random, planetMassRange));
+		}
+
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+		// The console isn't closed at the end, only flushed
+		BufferedWriter writer = resultsFile == null ? new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)) : Files.newBufferedWriter(resultsFile);
+
+		try {
+
+			writer.write(RESULTS_HEADER);
+			writer.newLine();
+
+			long start = System.nanoTime();
+
+			// Each variant is its own task, so idle threads steal single variants instead of waiting on long ones
+			ParallelLoop.forEach(pool, runCount, 1, (first, end) -> {
+
+				for (int i = first; i < end; i++) {
+
+					Result result = results[i];
+					run(result);
+
+					synchronized (writer) {
+						try {
+							writer.write(result.toCsv());
+							writer.newLine();
+							writer.flush();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+
+				}
+
+			});
+
+			long nanos = System.nanoTime() - start;
+
+			writer.flush();
+
+			// The outcomes and the summary can share the console, so the summary comes after the last outcome
+			printSummary(out, results, nanos);
+
+		} finally {
+
+			if (resultsFile != null) {
+				writer.close();
+			}
+
+			if (pool != null) {
+				pool.shutdown();
+			}
+
+		}
+
+		return results;
+
+	}
+
+	private static double draw(Random random, double[] range) {
+		return range[0] == range[1] ? range[0] : range[0] + random.nextDouble() * (range[1] - range[0]);
+	}
+
+	/**
+	 * Steps one variant until its outcome is known or it runs out of steps
+	 */
+	void run(Result result) {
+
+		Simulation simulation = new Simulation(2);
+		simulation.setCollisionHandler(null);
+		simulation.setIntegrator(BatchRunner.createIntegrator(integrator, 0, null));
+		simulation.setTimeStep(timeStep);
+
+		int rocket = simulation.indexOf(Scenarios.addEarthAndRocket(simulation, result.planetMass, result.rocketVelocity, result.rocketVelocityDirectionDegrees));
+		int planet = 1 - rocket;
+
+		// The rocket pulls on the planet too, so the orbit is of the pair around their shared center of mass
+		double gravitationalParameter = Simulation.G * (simulation.mass[planet] + simulation.mass[rocket]);
+		double collisionDistance = simulation.radius[planet] + simulation.radius[rocket];
+
+		double lastAngle = Math.atan2(simulation.y[rocket] - simulation.y[planet], simulation.x[rocket] - simulation.x[planet]);
+		double sweptAngle = 0;
+
+		for (long step = 0; step <= steps; step++) {
+
+			if (step > 0) {
+				simulation.step();
+			}
+
+			double dx = simulation.x[rocket] - simulation.x[planet];
+			double dy = simulation.y[rocket] - simulation.y[planet];
+			double dvx = simulation.xVelocity[rocket] - simulation.xVelocity[planet];
+			double dvy = simulation.yVelocity[rocket] - simulation.yVelocity[planet];
+			double distance = Math.sqrt(dx * dx + dy * dy);
+
+			result.steps = step;
+			result.time = simulation.getTime();
+			result.periapsis = Math.min(result.periapsis, distance);
+			result.apoapsis = Math.max(result.apoapsis, distance);
+
+			if (distance < collisionDistance) {
+				result.outcome = Outcome.COLLISION;
+				return;
+			}
+
+			double energy = (dvx * dvx + dvy * dvy) / 2 - gravitationalParameter / distance;
+
+			if (energy >= 0 && dx * dvx + dy * dvy > 0) {
+				result.outcome = Outcome.ESCAPE;
+				return;
+			}
+
+			double angle = Math.atan2(dy, dx);
+			double turn = angle - lastAngle;
+			sweptAngle += turn > Math.PI ? turn - 2 * Math.PI : turn < -Math.PI ? turn + 2 * Math.PI : turn;
+			lastAngle = angle;
+
+			if (Math.abs(sweptAngle) >= 2 * Math.PI) {
+				result.outcome = Outcome.ORBIT;
+				result.period = result.time;
+				return;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Prints how many runs had each outcome and how fast they were run
+	 */
+	void printSummary(PrintStream out, Result[] results, long nanos) {
+
+		int[] outcomeCounts = new int[Outcome.values().length];
+		long totalSteps = 0;
+		double periodSum = 0;
+
+		for (Result result : results) {
+
+			outcomeCounts[result.outcome.ordinal()]++;
+			totalSteps += result.steps;
+
+			if (result.outcome == Outcome.ORBIT) {
+				periodSum += result.period;
+			}
+
+		}
+
+		double seconds = nanos / 1e9;
+
+		out.printf(Locale.ROOT, "runs              %d, %s, %d thread(s)%n", results.length, BatchRunner.createIntegrator(integrator, 0, null).getName(), threads);
+
+		for (Outcome outcome : Outcome.values()) {
+			out.printf(Locale.ROOT, "  %-16s%d%n", outcome.name().toLowerCase(Locale.ROOT), outcomeCounts[outcome.ordinal()]);
+		}
+
+		if (outcomeCounts[Outcome.ORBIT.ordinal()] > 0) {
+			out.printf(Locale.ROOT, "mean period       %g%n", periodSum / outcomeCounts[Outcome.ORBIT.ordinal()]);
+		}
+
+		out.printf(Locale.ROOT, "steps             %d in total, %.1f per run%n", totalSteps, results.length == 0 ? 0 : (double) totalSteps / results.length);
+		out.printf(Locale.ROOT, "running time      %.3f s%n", seconds);
+		out.printf(Locale.ROOT, "runs per second   %.1f%n", seconds == 0 ? 0 : results.length / seconds);
+
+	}
+
+}
@@ -0,0 +1,42 @@
+package orbitphysics;
+
+/**
+ * A semi-implicit(symplectic) Euler integrator. Each body's velocity is updated with its acceleration
+ * first, and then it is moved by its new velocity. This is first order accurate and needs one force
+ * calculation per step.
+ */
+public class EulerIntegrator implements Integrator {
+
+	@Override
+	public void step(Simulation simulation, double timeStep) {
+
+		simulation.computeAccelerations();
+
+		double[] x = simulation.x;
+		double[] y = simulation.y;
+		double[] xVelocity = simulation.xVelocity;
+		double[] yVelocity = simulation.yVelocity;
+		double[] xAcceleration = simulation.xAcceleration;
+		double[] yAcceleration = simulation.yAcceleration;
+
+		for (int i = 0; i < simulation.count; i++) {
+
+			xVelocity[i] += xAcceleration[i] * timeStep;
+			yVelocity[i] += yAcceleration[i] * timeStep;
+
+			x[i] += xVelocity[i] * timeStep;
+			y[i] += yVelocity[i] * timeStep;
+
+		}
+
+		// The stored accelerations are for the old positions
+		simulation.accelerationsCurrent = false;
+
+	}
+
+	@Override
+	public String getName() {
+		return "Euler";
+	}
+
+}
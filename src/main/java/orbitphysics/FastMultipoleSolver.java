@@ -0,0 +1,914 @@
+package orbitphysics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ForceSolver} that approximates gravity with the fast multipole method(FMM), taking O(n) time.
+ *
+ * Like {@link BarnesHutSolver}, the bodies are put into a quadtree. Every node stores a multipole expansion
+ * of the potential of the bodies inside it, about its center of mass. Instead of every body walking the tree,
+ * pairs of nodes interact: when the radii of two nodes add up to less than theta times the distance between
+ * them, the multipole expansion of one is turned into a local(Taylor) expansion about the center of the other,
+ * which is later passed down to its children and evaluated at each of its bodies. Pairs of nodes that are too
+ * close are split, and the bodies of neighbouring leaves are summed directly.
+ *
+ * The expansions are Cartesian Taylor series in x and y up to a configurable order p. The potential of the
+ * 1 / r^2 gravity between the bodies isn't a harmonic function in the plane, so the complex(Laurent series)
+ * expansions of the classic 2D FMM, which are for a force that falls off as 1 / r, can't be used. The error
+ * of each interaction falls roughly as theta^(p + 1), so a higher order or a smaller theta is more accurate
+ * but slower. Plummer softening is included in the expansions as well as in the direct sums, so the results
+ * approach DirectSumSolver's with the same softening as the order grows.
+ *
+ * The tree and the multipole expansions are built on the calling thread. If the solver is given a
+ * {@link ForkJoinPool}, the interactions are split between the pool's threads by target node. Each node's
+ * local expansion and each body's acceleration is only written by one thread, in the same order no matter
+ * how many threads there are, so the results don't depend on the number of threads.
+ *
+ * Test particles are put in the tree so their accelerations can be evaluated from the local expansions, but
+ * they are left out of the multipole expansions and the direct sums, and nodes holding only test particles
+ * are never used as sources.
+ */
+public class FastMultipoleSolver implements ForceSolver {
+
+	public static final int DEFAULT_ORDER = 4;
+
+	public static final double DEFAULT_THETA = 0.5;
+
+	public static final int MAX_ORDER = 16;
+
+	// Nodes with more bodies than this are split
+	private static final int LEAF_SIZE = 16;
+
+	// Nodes stop being split at this depth, so bodies at the same position end up in one leaf
+	private static final int MAX_DEPTH = 48;
+
+	// The tree is split into at least this many target subtrees to share between threads
+	private static final int MIN_TASKS = 256;
+
+	private int order;
+	private double theta;
+
+	// The Plummer softening length squared, see DirectSumSolver
+	private double softeningSquared;
+
+	// The pool used to calculate the interactions in parallel, or null to use the calling thread
+	private ForkJoinPool pool;
+
+	// The number of coefficients in an expansion of the order, and the a! * b! of the x^a * y^b term of each
+	private int terms;
+	private double[] termFactorials;
+
+	// The coefficients combined by each operator, as triples of indices into the expansions. Expansion terms
+	// are ordered by their total power n = a + b, then by the power of y, so x^a * y^b is at n(n + 1) / 2 + b.
+	private int[] multipoleToMultipole;
+	private int[] multipoleToLocal;
+	private int[] localToLocal;
+	private int[] localToBody;
+
+	// Node arrays, the children of a node are stored next to each other from firstChild, and its bodies are
+	// the sorted bodies from bodyStart to bodyEnd
+	private int nodeCount;
+	private double[] nodeCenterX = new double[0];
+	private double[] nodeCenterY = new double[0];
+	private double[] nodeHalfSize = new double[0];
+	private int[] firstChild = new int[0];
+	private int[] childCount = new int[0];
+	private int[] bodyStart = new int[0];
+	private int[] bodyEnd = new int[0];
+
+	// The end of the sources of each leaf, its bodies from sourceEnd to bodyEnd are test particles
+	private int[] sourceEnd = new int[0];
+
+	// The mass of each node, the center its expansions are about, and the distance from the center to its farthest body
+	private double[] nodeMass = new double[0];
+	private double[] nodeX = new double[0];
+	private double[] nodeY = new double[0];
+	private double[] nodeRadius = new double[0];
+
+	// The multipole and local expansion of every node, terms coefficients each
+	private double[] multipoles = new double[0];
+	private double[] locals = new double[0];
+
+	// The bodies in tree order, so the bodies of each node are next to each other
+	private int[] sortedBodies = new int[0];
+	private double[] sortedX = new double[0];
+	private double[] sortedY = new double[0];
+	private double[] sortedMass = new double[0];
+	private double[] sortedXAcceleration = new double[0];
+	private double[] sortedYAcceleration = new double[0];
+
+	// The target nodes that are given to the threads, which between them hold every body
+	private int[] tasks = new int[0];
+
+	// Counts the interactions of the tasks, each task adds its count once
+	private final LongAdder interactions = new LongAdder();
+	private long interactionCount;
+
+	public FastMultipoleSolver() {
+		this(DEFAULT_ORDER, DEFAULT_THETA);
+	}
+
+	/**
+	 * @param order the highest power in the expansions, higher orders are more accurate but slower
+	 * @param theta the opening angle, smaller values are more accurate but slower
+	 */
+	public FastMultipoleSolver(int order, double theta) {
+		this(order, theta, null);
+	}
+
+	/**
+	 * @param order the highest power in the expansions, higher orders are more accurate but slower
+	 * @param theta the opening angle, smaller values are more accurate but slower
+	 * @param pool the pool to calculate the interactions on, or null to use the calling thread
+	 */
+	public FastMultipoleSolver(int order, double theta, ForkJoinPool pool) {
+		setOrder(order);
+		setTheta(theta);
+		this.pool = pool;
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration) {
+		computeAccelerations(x, y, mass, count, count, xAcceleration, yAcceleration);
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		if (sourceCount == 0) {
+			Arrays.fill(xAcceleration, 0, count, 0);
+			Arrays.fill(yAcceleration, 0, count, 0);
+			interactionCount = 0;
+			return;
+		}
+
+		buildTree(x, y, mass, sourceCount, count);
+		computeMultipoles();
+
+		Arrays.fill(locals, 0, nodeCount * terms, 0);
+		Arrays.fill(sortedXAcceleration, 0, count, 0);
+		Arrays.fill(sortedYAcceleration, 0, count, 0);
+
+		int taskCount = findTasks();
+
+		ParallelLoop.forEach(pool, taskCount, 1, (start, end) -> {
+
+			Walk walk = new Walk();
+
+			for (int task = start; task < end; task++) {
+				interact(tasks[task], 0, walk);
+				passDown(tasks[task], walk);
+			}
+
+			interactions.add(walk.interactions);
+
+		});
+
+		interactionCount = interactions.sumThenReset();
+
+		for (int i = 0; i < count; i++) {
+			xAcceleration[sortedBodies[i]] = sortedXAcceleration[i];
+			yAcceleration[sortedBodies[i]] = sortedYAcceleration[i];
+		}
+
+	}
+
+	/**
+	 * Sorts the bodies into a new quadtree, splitting every node with more than LEAF_SIZE bodies
+	 * @param sourceCount the number of bodies that attract the others, which are the first sourceCount bodies
+	 */
+	void buildTree(double[] x, double[] y, double[] mass, int sourceCount, int count) {
+
+		if (sortedBodies.length < count) {
+			int capacity = Math.max(count, sortedBodies.length * 2);
+			sortedBodies = new int[capacity];
+			sortedX = new double[capacity];
+			sortedY = new double[capacity];
+			sortedMass = new double[capacity];
+			sortedXAcceleration = new double[capacity];
+			sortedYAcceleration = new double[capacity];
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < count; i++) {
+			sortedBodies[i] = i;
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		double halfSize = Math.max(maxX - minX, maxY - minY) / 2 * 1.0001 + Double.MIN_NORMAL;
+
+		nodeCount = 0;
+		int root = allocateNode((minX + maxX) / 2, (minY + maxY) / 2, halfSize, 0, count);
+
+		split(root, 0, x, y, sourceCount);
+
+		for (int i = 0; i < count; i++) {
+			int body = sortedBodies[i];
+			sortedX[i] = x[body];
+			sortedY[i] = y[body];
+			sortedMass[i] = mass[body];
+		}
+
+	}
+
+	/**
+	 * Splits a node into the quadrants that have bodies in them if it has too many bodies, and then splits its children.
+	 * The bodies of each leaf are sorted so its sources come before its test particles.
+	 */
+	private void split(int node, int depth, double[] x, double[] y, int sourceCount) {
+
+		int start = bodyStart[node];
+		int end = bodyEnd[node];
+
+		if (end - start <= LEAF_SIZE || depth == MAX_DEPTH) {
+			sourceEnd[node] = partitionSources(start, end, sourceCount);
+			return;
+		}
+
+		double centerX = nodeCenterX[node];
+		double centerY = nodeCenterY[node];
+		double quarterSize = nodeHalfSize[node] / 2;
+
+		// Sort the bodies of the node into its quadrants, first by y and then each half by x
+		int middle = partition(start, end, y, centerY);
+		int lowerMiddle = partition(start, middle, x, centerX);
+		int upperMiddle = partition(middle, end, x, centerX);
+
+		// The children are allocated before any of them are split so they are next to each other
+		int first = nodeCount;
+
+		if (lowerMiddle > start) {
+			allocateNode(centerX - quarterSize, centerY - quarterSize, quarterSize, start, lowerMiddle);
+		}
+		if (middle > lowerMiddle) {
+			allocateNode(centerX + quarterSize, centerY - quarterSize, quarterSize, lowerMiddle, middle);
+		}
+		if (upperMiddle > middle) {
+			allocateNode(centerX - quarterSize, centerY + quarterSize, quarterSize, middle, upperMiddle);
+		}
+		if (end > upperMiddle) {
+			allocateNode(centerX + quarterSize, centerY + quarterSize, quarterSize, upperMiddle, end);
+		}
+
+		firstChild[node] = first;
+		childCount[node] = nodeCount - first;
+
+		for (int child = first; child < first + childCount[node]; child++) {
+			split(child, depth + 1, x, y, sourceCount);
+		}
+
+	}
+
+	/**
+	 * Moves the sorted bodies from start to end - 1 with a coordinate less than a pivot before the others
+	 * @return the index of the first body whose coordinate isn't less than the pivot
+	 */
+	private int partition(int start, int end, double[] coordinates, double pivot) {
+
+		int low = start;
+		int high = end - 1;
+
+		while (low <= high) {
+
+			if (coordinates[sortedBodies[low]] < pivot) {
+				low++;
+			} else {
+				int body = sortedBodies[low];
+				sortedBodies[low] = sortedBodies[high];
+				sortedBodies[high--] = body;
+			}
+
+		}
+
+		return low;
+
+	}
+
+	/**
+	 * Moves the sorted bodies from start to end - 1 that are sources before the test particles
+	 * @return the index of the first test particle
+	 */
+	private int partitionSources(int start, int end, int sourceCount) {
+
+		int low = start;
+		int high = end - 1;
+
+		while (low <= high) {
+
+			if (sortedBodies[low] < sourceCount) {
+				low++;
+			} else {
+				int body = sortedBodies[low];
+				sortedBodies[low] = sortedBodies[high];
+				sortedBodies[high--] = body;
+			}
+
+		}
+
+		return low;
+
+	}
+
+	/**
+	 * Calculates the mass, expansion center, radius and multipole expansion of every node. Children are always
+	 * allocated after their parent, so going backwards through the nodes visits every child before its parent.
+	 */
+	private void computeMultipoles() {
+
+		if (multipoles.length < nodeCount * terms) {
+			multipoles = new double[Math.max(nodeCount * terms, multipoles.length * 2)];
+			locals = new double[multipoles.length];
+		}
+
+		Walk walk = new Walk();
+		double[] powers = walk.powers;
+
+		for (int node = nodeCount - 1; node >= 0; node--) {
+
+			int base = node * terms;
+			Arrays.fill(multipoles, base, base + terms, 0);
+
+			double mass = 0;
+			double massX = 0;
+			double massY = 0;
+
+			if (firstChild[node] < 0) {
+				for (int i = bodyStart[node]; i < sourceEnd[node]; i++) {
+					mass += sortedMass[i];
+					massX += sortedMass[i] * sortedX[i];
+					massY += sortedMass[i] * sortedY[i];
+				}
+			} else {
+				for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+					mass += nodeMass[child];
+					massX += nodeMass[child] * nodeX[child];
+					massY += nodeMass[child] * nodeY[child];
+				}
+			}
+
+			// Nodes without mass don't attract anything, but their center is still needed for their local expansion
+			double centerX = mass > 0 ? massX / mass : nodeCenterX[node];
+			double centerY = mass > 0 ? massY / mass : nodeCenterY[node];
+			double radius = 0;
+
+			if (firstChild[node] < 0) {
+
+				for (int i = bodyStart[node]; i < sourceEnd[node]; i++) {
+
+					computePowers(centerX - sortedX[i], centerY - sortedY[i], walk);
+					for (int term = 0; term < terms; term++) {
+						multipoles[base + term] += sortedMass[i] * powers[term];
+					}
+
+				}
+
+				// The test particles don't add to the expansion, but the local expansion has to reach them
+				for (int i = bodyStart[node]; i < bodyEnd[node]; i++) {
+					double dx = sortedX[i] - centerX;
+					double dy = sortedY[i] - centerY;
+					radius = Math.max(radius, Math.sqrt(dx * dx + dy * dy));
+				}
+
+			} else {
+
+				for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+
+					double dx = nodeX[child] - centerX;
+					double dy = nodeY[child] - centerY;
+
+					// Shift the child's expansion to this node's center
+					computePowers(-dx, -dy, walk);
+					int childBase = child * terms;
+					for (int i = 0; i < multipoleToMultipole.length; i += 3) {
+						multipoles[base + multipoleToMultipole[i]] += powers[multipoleToMultipole[i + 2]] * multipoles[childBase + multipoleToMultipole[i + 1]];
+					}
+
+					radius = Math.max(radius, Math.sqrt(dx * dx + dy * dy) + nodeRadius[child]);
+
+				}
+
+			}
+
+			nodeMass[node] = mass;
+			nodeX[node] = centerX;
+			nodeY[node] = centerY;
+			nodeRadius[node] = radius;
+
+		}
+
+	}
+
+	/**
+	 * Splits the tree into target subtrees for the threads by replacing nodes with their children, a level at a time,
+	 * until there are enough of them
+	 * @return the number of tasks
+	 */
+	private int findTasks() {
+
+		if (tasks.length < nodeCount) {
+			tasks = new int[Math.max(nodeCount, tasks.length * 2)];
+		}
+
+		tasks[0] = 0;
+		int taskCount = 1;
+		boolean split = true;
+
+		while (taskCount < MIN_TASKS && split) {
+
+			split = false;
+
+			// Count the nodes of the next level first, so the level can be rewritten in place from the end
+			int nextCount = 0;
+			for (int task = 0; task < taskCount; task++) {
+				nextCount += firstChild[tasks[task]] < 0 ? 1 : childCount[tasks[task]];
+			}
+
+			int next = nextCount;
+			for (int task = taskCount - 1; task >= 0; task--) {
+
+				int node = tasks[task];
+
+				if (firstChild[node] < 0) {
+					tasks[--next] = node;
+				} else {
+					for (int child = firstChild[node] + childCount[node] - 1; child >= firstChild[node]; child--) {
+						tasks[--next] = child;
+					}
+					split = true;
+				}
+
+			}
+
+			taskCount = nextCount;
+
+		}
+
+		return taskCount;
+
+	}
+
+	/**
+	 * Adds the attraction of the bodies in a source node to the bodies in a target node, either through their
+	 * expansions if they are far enough apart, or by splitting one of them
+	 */
+	private void interact(int target, int source, Walk walk) {
+
+		if (nodeMass[source] == 0) {
+			return;
+		}
+
+		double dx = nodeX[target] - nodeX[source];
+		double dy = nodeY[target] - nodeY[source];
+		double distanceSquared = dx * dx + dy * dy;
+		double radii = nodeRadius[target] + nodeRadius[source];
+
+		if (radii * radii < theta * theta * distanceSquared) {
+			translate(source, target, dx, dy, distanceSquared, walk);
+			return;
+		}
+
+		boolean targetIsLeaf = firstChild[target] < 0;
+		boolean sourceIsLeaf = firstChild[source] < 0;
+
+		if (targetIsLeaf && sourceIsLeaf) {
+			sumDirectly(target, source, walk);
+		} else if (sourceIsLeaf || (!targetIsLeaf && nodeRadius[target] >= nodeRadius[source])) {
+			for (int child = firstChild[target]; child < firstChild[target] + childCount[target]; child++) {
+				interact(child, source, walk);
+			}
+		} else {
+			for (int child = firstChild[source]; child < firstChild[source] + childCount[source]; child++) {
+				interact(target, child, walk);
+			}
+		}
+
+	}
+
+	/**
+	 * Adds the multipole expansion of a source node to the local expansion of a target node
+	 * @param dx the x distance from the source's center to the target's center
+	 * @param dy the y distance from the source's center to the target's center
+	 */
+	private void translate(int source, int target, double dx, double dy, double distanceSquared, Walk walk) {
+
+		double[] derivatives = walk.derivatives;
+		computeDerivatives(dx, dy, distanceSquared + softeningSquared, derivatives);
+
+		int sourceBase = source * terms;
+		int targetBase = target * terms;
+
+		for (int i = 0; i < multipoleToLocal.length; i += 3) {
+			locals[targetBase + multipoleToLocal[i]] += derivatives[multipoleToLocal[i + 2]] * multipoles[sourceBase + multipoleToLocal[i + 1]];
+		}
+
+		walk.interactions++;
+
+	}
+
+	/**
+	 * Sums the attraction of every body of a source leaf on every body of a target leaf
+	 */
+	private void sumDirectly(int target, int source, Walk walk) {
+
+		double softeningSquared = this.softeningSquared;
+
+		for (int i = bodyStart[target]; i < bodyEnd[target]; i++) {
+
+			double xi = sortedX[i];
+			double yi = sortedY[i];
+
+			double xSum = 0;
+			double ySum = 0;
+
+			for (int j = bodyStart[source]; j < sourceEnd[source]; j++) {
+
+				if (j != i) {
+
+					double dx = sortedX[j] - xi;
+					double dy = sortedY[j] - yi;
+					double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+					if (distanceSquared > 0) {
+						double scale = Simulation.G * sortedMass[j] / (distanceSquared * Math.sqrt(distanceSquared));
+						xSum += dx * scale;
+						ySum += dy * scale;
+					}
+
+				}
+			}
+
+			sortedXAcceleration[i] += xSum;
+			sortedYAcceleration[i] += ySum;
+
+		}
+
+		walk.interactions += (long) (bodyEnd[target] - bodyStart[target]) * (sourceEnd[source] - bodyStart[source]);
+
+	}
+
+	/**
+	 * Shifts the local expansion of a node to its children, and evaluates the local expansions of the leaves at their bodies
+	 */
+	private void passDown(int node, Walk walk) {
+
+		double[] powers = walk.powers;
+		int base = node * terms;
+
+		if (firstChild[node] < 0) {
+
+			for (int i = bodyStart[node]; i < bodyEnd[node]; i++) {
+
+				computePowers(sortedX[i] - nodeX[node], sortedY[i] - nodeY[node], walk);
+
+				// The acceleration is the gradient of the expansion, whose terms are the coefficients one power higher
+				double xSum = 0;
+				double ySum = 0;
+
+				for (int j = 0; j < localToBody.length; j += 3) {
+					xSum += locals[base + localToBody[j + 1]] * powers[localToBody[j]];
+					ySum += locals[base + localToBody[j + 2]] * powers[localToBody[j]];
+				}
+
+				sortedXAcceleration[i] += Simulation.G * xSum;
+				sortedYAcceleration[i] += Simulation.G * ySum;
+
+			}
+
+			return;
+
+		}
+
+		for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+
+			computePowers(nodeX[child] - nodeX[node], nodeY[child] - nodeY[node], walk);
+
+			int childBase = child * terms;
+			for (int i = 0; i < localToLocal.length; i += 3) {
+				locals[childBase + localToLocal[i]] += locals[base + localToLocal[i + 1]] * powers[localToLocal[i + 2]];
+			}
+
+			passDown(child, walk);
+
+		}
+
+	}
+
+	/**
+	 * Calculates the x^a * y^b / (a! * b!) term of every power up to the order
+	 */
+	private void computePowers(double x, double y, Walk walk) {
+
+		double[] xPowers = walk.xPowers;
+		double[] yPowers = walk.yPowers;
+
+		xPowers[0] = 1;
+		yPowers[0] = 1;
+
+		for (int power = 1; power <= order; power++) {
+			xPowers[power] = xPowers[power - 1] * x / power;
+			yPowers[power] = yPowers[power - 1] * y / power;
+		}
+
+		int term = 0;
+		for (int n = 0; n <= order; n++) {
+			for (int b = 0; b <= n; b++) {
+				walk.powers[term++] = xPowers[n - b] * yPowers[b];
+			}
+		}
+
+	}
+
+	/**
+	 * Calculates every partial derivative of the softened kernel 1 / sqrt(x^2 + y^2 + eps^2) up to the order, using
+	 * the recurrence n r^2 T(a, b) = -(2n - 1)(x T(a - 1, b) + y T(a, b - 1)) - (n - 1)(T(a - 2, b) + T(a, b - 2))
+	 * for its Taylor coefficients T, where n = a + b and r^2 includes the softening
+	 * @param distanceSquared x^2 + y^2 + eps^2
+	 * @param derivatives the array to store the derivatives in, in the order of the expansion terms
+	 */
+	private void computeDerivatives(double x, double y, double distanceSquared, double[] derivatives) {
+
+		derivatives[0] = 1 / Math.sqrt(distanceSquared);
+
+		int term = 1;
+
+		for (int n = 1; n <= order; n++) {
+
+			// The first term of the two levels below this one
+			int below = (n - 1) * n / 2;
+			int twoBelow = (n - 2) * (n - 1) / 2;
+
+			for (int b = 0; b <= n; b++) {
+
+				int a = n - b;
+
+				double sum = 0;
+				if (a > 0) {
+					sum += x * derivatives[below + b];
+				}
+				if (b > 0) {
+					sum += y * derivatives[below + b - 1];
+				}
+				sum *= -(2 * n - 1);
+
+				if (a > 1) {
+					sum -= (n - 1) * derivatives[twoBelow + b];
+				}
+				if (b > 1) {
+					sum -= (n - 1) * derivatives[twoBelow + b - 2];
+				}
+
+				derivatives[term++] = sum / (n * distanceSquared);
+
+			}
+
+		}
+
+		// Turn the Taylor coefficients into derivatives
+		for (term = 0; term < terms; term++) {
+			derivatives[term] *= termFactorials[term];
+		}
+
+	}
+
+	/**
+	 * Adds a node to the tree, growing the node arrays if needed
+	 * @return the index of the new node
+	 */
+	private int allocateNode(double centerX, double centerY, double halfSize, int start, int end) {
+
+		if (nodeCount == firstChild.length) {
+
+			int capacity = Math.max(16, nodeCount * 2);
+
+			nodeCenterX = Arrays.copyOf(nodeCenterX, capacity);
+			nodeCenterY = Arrays.copyOf(nodeCenterY, capacity);
+			nodeHalfSize = Arrays.copyOf(nodeHalfSize, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			childCount = Arrays.copyOf(childCount, capacity);
+			bodyStart = Arrays.copyOf(bodyStart, capacity);
+			bodyEnd = Arrays.copyOf(bodyEnd, capacity);
+			sourceEnd = Arrays.copyOf(sourceEnd, capacity);
+			nodeMass = Arrays.copyOf(nodeMass, capacity);
+			nodeX = Arrays.copyOf(nodeX, capacity);
+			nodeY = Arrays.copyOf(nodeY, capacity);
+			nodeRadius = Arrays.copyOf(nodeRadius, capacity);
+
+		}
+
+		int node = nodeCount++;
+
+		nodeCenterX[node] = centerX;
+		nodeCenterY[node] = centerY;
+		nodeHalfSize[node] = halfSize;
+		firstChild[node] = -1;
+		childCount[node] = 0;
+		bodyStart[node] = start;
+		bodyEnd[node] = end;
+		sourceEnd[node] = end;
+
+		return node;
+
+	}
+
+	/**
+	 * Builds the tables of which coefficients each operator combines for an order
+	 */
+	private void buildTables() {
+
+		terms = (order + 1) * (order + 2) / 2;
+
+		double[] factorials = new double[order + 1];
+		factorials[0] = 1;
+		for (int i = 1; i <= order; i++) {
+			factorials[i] = factorials[i - 1] * i;
+		}
+
+		termFactorials = new double[terms];
+		for (int n = 0; n <= order; n++) {
+			for (int b = 0; b <= n; b++) {
+				termFactorials[term(n - b, b)] = factorials[n - b] * factorials[b];
+			}
+		}
+
+		IntList multipoleToMultipole = new IntList();
+		IntList multipoleToLocal = new IntList();
+		IntList localToLocal = new IntList();
+		IntList localToBody = new IntList();
+
+		for (int n = 0; n <= order; n++) {
+			for (int b = 0; b <= n; b++) {
+
+				int a = n - b;
+
+				// A multipole coefficient takes every child coefficient with lower powers, times the shift to the rest of the power
+				for (int childA = 0; childA <= a; childA++) {
+					for (int childB = 0; childB <= b; childB++) {
+						multipoleToMultipole.add(term(a, b), term(childA, childB), term(a - childA, b - childB));
+					}
+				}
+
+				// A local coefficient takes every multipole coefficient times the derivative of the total power, and
+				// every parent coefficient of a higher power times the shift of the difference
+				for (int m = 0; m <= order - n; m++) {
+					for (int otherB = 0; otherB <= m; otherB++) {
+						int otherA = m - otherB;
+						multipoleToLocal.add(term(a, b), term(otherA, otherB), term(a + otherA, b + otherB));
+						localToLocal.add(term(a, b), term(a + otherA, b + otherB), term(otherA, otherB));
+					}
+				}
+
+				if (n < order) {
+					localToBody.add(term(a, b), term(a + 1, b), term(a, b + 1));
+				}
+
+			}
+		}
+
+		this.multipoleToMultipole = multipoleToMultipole.toArray();
+		this.multipoleToLocal = multipoleToLocal.toArray();
+		this.localToLocal = localToLocal.toArray();
+		this.localToBody = localToBody.toArray();
+
+	}
+
+	/**
+	 * @return the index of the x^a * y^b term in an expansion
+	 */
+	private static int term(int a, int b) {
+		int n = a + b;
+		return n * (n + 1) / 2 + b;
+	}
+
+	@Override
+	public long getInteractionCount() {
+		return interactionCount;
+	}
+
+	/**
+	 * @return the pool used to calculate the interactions in parallel, or null if the calling thread is used
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool the pool to calculate the interactions on, or null to use the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the Plummer softening length
+	 */
+	public double getSoftening() {
+		return Math.sqrt(softeningSquared);
+	}
+
+	/**
+	 * @param softening the new Plummer softening length, or 0 for no softening
+	 */
+	public void setSoftening(double softening) {
+
+		if (softening < 0) {
+			throw new IllegalArgumentException("softening must not be negative: " + softening);
+		}
+
+		this.softeningSquared = softening * softening;
+
+	}
+
+	/**
+	 * @return the highest power in the expansions
+	 */
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 * @param order the highest power in the expansions, from 1 to MAX_ORDER
+	 */
+	public void setOrder(int order) {
+
+		if (order < 1 || order > MAX_ORDER) {
+			throw new IllegalArgumentException("order must be from 1 to " + MAX_ORDER + ": " + order);
+		}
+
+		this.order = order;
+		buildTables();
+
+		// The expansions are reallocated for the new number of terms on the next calculation
+		multipoles = new double[0];
+
+	}
+
+	/**
+	 * @return the opening angle used to decide whether two nodes are far enough apart to use their expansions
+	 */
+	public double getTheta() {
+		return theta;
+	}
+
+	/**
+	 * @param theta the new opening angle, at least 0 and less than 1. 0 sums every pair directly.
+	 */
+	public void setTheta(double theta) {
+
+		if (!(theta >= 0 && theta < 1)) {
+			throw new IllegalArgumentException("theta must be at least 0 and less than 1: " + theta);
+		}
+
+		this.theta = theta;
+
+	}
+
+	/**
+	 * The scratch arrays and interaction count of one thread's share of the work
+	 */
+	private class Walk {
+
+		final double[] derivatives = new double[terms];
+		final double[] powers = new double[terms];
+		final double[] xPowers = new double[order + 1];
+		final double[] yPowers = new double[order + 1];
+
+		long interactions;
+
+	}
+
+	/**
+	 * A growable list of ints, used to build the operator tables
+	 */
+	private static class IntList {
+
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int first, int second, int third) {
+
+			if (size + 3 > values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+
+			values[size++] = first;
+			values[size++] = second;
+			values[size++] = third;
+
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+	}
+
+}
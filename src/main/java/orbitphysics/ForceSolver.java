@@ -0,0 +1,47 @@
+package orbitphysics;
+
+/**
+ * Calculates the gravitational accelerations of the bodies in a {@link Simulation}.
+ * Implementations only read the position and mass arrays and write the acceleration
+ * arrays, so they can be swapped at runtime with {@link Simulation#setForceSolver(ForceSolver)}.
+ */
+public interface ForceSolver {
+
+	/**
+	 * Calculates the gravitational acceleration of every body caused by all of the other bodies
+	 * @param x the x coordinates of the bodies
+	 * @param y the y coordinates of the bodies
+	 * @param mass the masses of the bodies
+	 * @param count the number of bodies, only the first count elements of each array are used
+	 * @param xAcceleration the array to store the x accelerations of the bodies in
+	 * @param yAcceleration the array to store the y accelerations of the bodies in
+	 */
+	void computeAccelerations(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration);
+
+	/**
+	 * Calculates the gravitational acceleration of every body caused by the first sourceCount bodies. The bodies
+	 * after them are massless test particles(see {@link Simulation#addTestParticle}), which are attracted but
+	 * don't attract anything, so solvers can skip them as sources. The default implementation includes them,
+	 * which gives the same result because their mass is 0, but takes just as long as if they had mass.
+	 * @param x the x coordinates of the bodies
+	 * @param y the y coordinates of the bodies
+	 * @param mass the masses of the bodies
+	 * @param sourceCount the number of bodies that attract the others, which are the first sourceCount bodies
+	 * @param count the number of bodies to calculate the accelerations of, including the sources
+	 * @param xAcceleration the array to store the x accelerations of the bodies in
+	 * @param yAcceleration the array to store the y accelerations of the bodies in
+	 */
+	default void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, int count, double[] xAcceleration, double[] yAcceleration) {
+		computeAccelerations(x, y, mass, count, xAcceleration, yAcceleration);
+	}
+
+	/**
+	 * Gets the amount of work done by the last call to computeAccelerations, for {@link SimulationMetrics}
+	 * @return the number of times a body's acceleration was changed by another body or by a group of bodies,
+	 * or -1 if the solver doesn't count them
+	 */
+	default long getInteractionCount() {
+		return -1;
+	}
+
+}
@@ -0,0 +1,111 @@
+package orbitphysics;
+
+/**
+ * An in-place radix-2 fast Fourier transform of complex sequences whose length is a power of two, used by
+ * {@link ParticleMeshSolver}. The twiddle factors and bit reversal table are calculated once, so transforms
+ * don't allocate, and one FourierTransform can be used by many threads at once on different sequences.
+ */
+public class FourierTransform {
+
+	private final int size;
+
+	// The index each index is swapped with before the butterflies
+	private final int[] bitReversed;
+
+	// cos(2 pi k / size) and sin(2 pi k / size) for the first half of the circle
+	private final double[] cos;
+	private final double[] sin;
+
+	/**
+	 * @param size the length of the sequences to transform, a power of two
+	 */
+	public FourierTransform(int size) {
+
+		if (size < 1 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("size must be a power of two: " + size);
+		}
+
+		this.size = size;
+
+		int bits = Integer.numberOfTrailingZeros(size);
+		bitReversed = new int[size];
+		for (int i = 0; i < size; i++) {
+			bitReversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		}
+
+		cos = new double[size / 2];
+		sin = new double[size / 2];
+		for (int k = 0; k < size / 2; k++) {
+			cos[k] = Math.cos(2 * Math.PI * k / size);
+			sin[k] = Math.sin(2 * Math.PI * k / size);
+		}
+
+	}
+
+	/**
+	 * Transforms a sequence in place. Neither direction is divided by the size, so a forward transform
+	 * followed by an inverse one multiplies the sequence by the size.
+	 * @param real the real parts of the sequence
+	 * @param imaginary the imaginary parts of the sequence
+	 * @param offset the index of the first element of the sequence in the arrays
+	 * @param inverse false for the forward transform(with exp(-2 pi i jk / size)), true for the inverse
+	 */
+	public void transform(double[] real, double[] imaginary, int offset, boolean inverse) {
+
+		for (int i = 0; i < size; i++) {
+
+			int j = bitReversed[i];
+
+			if (j > i) {
+
+				double swap = real[offset + i];
+				real[offset + i] = real[offset + j];
+				real[offset + j] = swap;
+
+				swap = imaginary[offset + i];
+				imaginary[offset + i] = imaginary[offset + j];
+				imaginary[offset + j] = swap;
+
+			}
+
+		}
+
+		double direction = inverse ? 1 : -1;
+
+		for (int length = 2; length <= size; length <<= 1) {
+
+			int half = length / 2;
+			int step = size / length;
+
+			for (int start = offset; start < offset + size; start += length) {
+				for (int k = 0; k < half; k++) {
+
+					double twiddleReal = cos[k * step];
+					double twiddleImaginary = direction * sin[k * step];
+
+					int a = start + k;
+					int b = a + half;
+
+					double productReal = real[b] * twiddleReal - imaginary[b] * twiddleImaginary;
+					double productImaginary = real[b] * twiddleImaginary + imaginary[b] * twiddleReal;
+
+					real[b] = real[a] - productReal;
+					imaginary[b] = imaginary[a] - productImaginary;
+					real[a] += productReal;
+					imaginary[a] += productImaginary;
+
+				}
+			}
+
+		}
+
+	}
+
+	/**
+	 * @return the length of the sequences this transforms
+	 */
+	public int getSize() {
+		return size;
+	}
+
+}
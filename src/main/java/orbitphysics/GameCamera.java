@@ -0,0 +1,135 @@
+package orbitphysics;
+
+public class GameCamera
+{
+   private float xOffset, yOffset, screenWidth, screenHeight;
+   
+   // The number of pixels per unit of distance, the offsets are the world coordinates of the top left corner
+   private float zoom = 1;
+   public GameCamera(float screenWidth, float screenHeight, float xOffset, float yOffset)
+   {
+      this.xOffset = xOffset;
+      this.yOffset = yOffset;
+      this.screenWidth = screenWidth;
+      this.screenHeight = screenHeight;
+   }
+   
+   public void move(float xAmount, float yAmount)
+   {
+      xOffset += xAmount;
+      yOffset += yAmount;
+   }
+   
+   public void centerOn(SpaceObject spaceObject)
+   {
+      xOffset = ((float)spaceObject.getCenterX() - screenWidth / 2 / zoom );
+      yOffset = ((float)spaceObject.getCenterY() - screenHeight / 2 / zoom );
+   }
+   
+   public void centerOn(float x, float y)
+   {
+      xOffset = (x - screenWidth / 2 / zoom );
+      yOffset = (y - screenHeight / 2 / zoom );
+   }
+   
+   /**
+    * @param x an x coordinate in the simulation
+    * @return the x coordinate on the screen
+    */
+   public double toScreenX(double x)
+   {
+      return (x - xOffset) * zoom;
+   }
+   
+   /**
+    * @param y a y coordinate in the simulation
+    * @return the y coordinate on the screen
+    */
+   public double toScreenY(double y)
+   {
+      return (y - yOffset) * zoom;
+   }
+   
+   /**
+    * @param screenX an x coordinate on the screen
+    * @return the x coordinate in the simulation
+    */
+   public double toWorldX(double screenX)
+   {
+      return screenX / zoom + xOffset;
+   }
+   
+   /**
+    * @param screenY a y coordinate on the screen
+    * @return the y coordinate in the simulation
+    */
+   public double toWorldY(double screenY)
+   {
+      return screenY / zoom + yOffset;
+   }
+   
+   /**
+    * Tests if a rectangle in screen coordinates overlaps the screen
+    * @param minX the left edge of the rectangle
+    * @param minY the top edge of the rectangle
+    * @param maxX the right edge of the rectangle
+    * @param maxY the bottom edge of the rectangle
+    * @return true if any part of the rectangle is on the screen
+    */
+   public boolean isOnScreen(double minX, double minY, double maxX, double maxY)
+   {
+      return maxX >= 0 && maxY >= 0 && minX <= screenWidth && minY <= screenHeight;
+   }
+   
+   public float getScreenWidth()
+   {
+      return screenWidth;
+   }
+   
+   public float getScreenHeight()
+   {
+      return screenHeight;
+   }
+   
+   public float getxOffset()
+   {
+      return xOffset;
+   }
+   
+   public float getyOffset()
+   {
+      return yOffset;
+   }
+   
+   public void setxOffset(float n)
+   {
+      xOffset = n;
+   }
+   
+   public void setyOffset(float n)
+   {
+      yOffset = n;
+   }
+   
+   /**
+    * @return the number of pixels per unit of distance in the simulation
+    */
+   public float getZoom()
+   {
+      return zoom;
+   }
+   
+   /**
+    * @param zoom the number of pixels per unit of distance in the simulation, must be positive
+    */
+   public void setZoom(float zoom)
+   {
+      if (!(zoom > 0))
+      {
+         throw new IllegalArgumentException("zoom must be positive: " + zoom);
+      }
+      
+      this.zoom = zoom;
+   }
+   
+}
\ No newline at end of file
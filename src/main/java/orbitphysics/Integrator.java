@@ -0,0 +1,35 @@
+package orbitphysics;
+
+/**
+ * Moves the bodies of a {@link Simulation} forward in time using the accelerations calculated by its
+ * {@link ForceSolver}. Integrators can be swapped at runtime with {@link Simulation#setIntegrator(Integrator)}.
+ */
+public interface Integrator {
+
+	/**
+	 * Advances the positions and velocities of every body in a simulation by an amount of time
+	 * @param simulation the simulation to advance
+	 * @param timeStep the amount of time to advance the simulation by
+	 */
+	void step(Simulation simulation, double timeStep);
+
+	/**
+	 * @return the name of the integration method, used when displaying which integrator is selected
+	 */
+	String getName();
+
+	/**
+	 * @return the values the integrator carries over from one step to the next, which are saved in checkpoints
+	 */
+	default double[] getState() {
+		return new double[0];
+	}
+
+	/**
+	 * Restores the values returned by {@link #getState()}, when a simulation is restored from a checkpoint
+	 * @param state the saved values
+	 */
+	default void setState(double[] state) {
+	}
+
+}
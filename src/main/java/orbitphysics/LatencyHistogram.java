@@ -0,0 +1,193 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * Counts durations(or any non-negative values) in buckets that grow with the value, so percentiles like the
+ * median and the 99th percentile can be read without keeping every value. Every power of two is split into
+ * SUB_BUCKETS buckets, so a percentile is off by at most half a bucket, about 6% of the value.
+ *
+ * Recording a value is a few bit operations and an array increment with no allocation, so it can be done
+ * on every step. Histograms are not thread safe.
+ */
+public class LatencyHistogram {
+
+	// Each power of two is split into 2^SUB_BUCKET_BITS buckets
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Enough buckets for every positive long
+	private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKET_COUNT];
+
+	private long count;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	/**
+	 * Adds a value to the histogram
+	 * @param value the value to add, negative values are counted as 0
+	 */
+	public void record(long value) {
+
+		value = Math.max(0, value);
+
+		counts[bucketOf(value)]++;
+
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+
+	}
+
+	/**
+	 * Values below SUB_BUCKETS get a bucket each, larger values are bucketed by their highest bit and the
+	 * SUB_BUCKET_BITS bits after it
+	 */
+	private static int bucketOf(long value) {
+
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+
+	}
+
+	/**
+	 * @return the smallest value that falls in a bucket
+	 */
+	private static long lowestValueOf(int bucket) {
+
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int highestBit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+
+		return (SUB_BUCKETS + subBucket) << (highestBit - SUB_BUCKET_BITS);
+
+	}
+
+	/**
+	 * Estimates the value that a percentage of the recorded values are less than or equal to
+	 * @param percentile the percentage, from 0 to 100(50 is the median)
+	 * @return the middle of the bucket holding the percentile, clamped to the smallest and largest values
+	 * recorded, or 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile) {
+
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be from 0 to 100: " + percentile);
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		// The rank of the value, counting from 1
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+
+		long seen = 0;
+
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+
+			seen += counts[bucket];
+
+			if (seen >= rank) {
+
+				long low = lowestValueOf(bucket);
+				long high = bucket + 1 < BUCKET_COUNT ? lowestValueOf(bucket + 1) - 1 : Long.MAX_VALUE;
+
+				return Math.max(min, Math.min(max, low + (high - low) / 2));
+
+			}
+
+		}
+
+		return max;
+
+	}
+
+	/**
+	 * Adds every value recorded by another histogram to this one
+	 * @param other the histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			counts[bucket] += other.counts[bucket];
+		}
+
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+
+	}
+
+	/**
+	 * Makes this histogram hold the same values as another
+	 * @param other the histogram to copy
+	 */
+	public void copyFrom(LatencyHistogram other) {
+
+		System.arraycopy(other.counts, 0, counts, 0, BUCKET_COUNT);
+
+		count = other.count;
+		sum = other.sum;
+		min = other.min;
+		max = other.max;
+
+	}
+
+	/**
+	 * Removes every recorded value
+	 */
+	public void reset() {
+
+		Arrays.fill(counts, 0);
+
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the recorded values, or 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * @return the smallest value recorded, or 0 if nothing has been recorded
+	 */
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * @return the largest value recorded
+	 */
+	public long getMax() {
+		return max;
+	}
+
+}
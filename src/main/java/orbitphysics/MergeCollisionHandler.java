@@ -0,0 +1,203 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * A {@link CollisionHandler} that perfectly merges colliding bodies.
+ *
+ * Bodies that touch each other directly or through a chain of other colliding bodies are all merged into
+ * the most massive body of the group, which keeps its id. The merged body has the total mass of the group,
+ * is placed at the group's center of mass and moves with the group's total momentum, so mass and momentum
+ * are conserved. Its radius is picked so its area is the total area of the group.
+ */
+public class MergeCollisionHandler implements CollisionHandler {
+
+	// A union-find forest of the bodies, used to group bodies that are colliding through a chain.
+	// Bodies that aren't in a collision have a parent of -1
+	private int[] parent = new int[0];
+
+	// The bodies in at least one collision, in order of their index
+	private int[] involved = new int[0];
+
+	// Sums over each group, stored at the group's root
+	private double[] totalMass = new double[0];
+	private double[] massX = new double[0];
+	private double[] massY = new double[0];
+	private double[] momentumX = new double[0];
+	private double[] momentumY = new double[0];
+	private double[] area = new double[0];
+	private int[] members = new int[0];
+
+	// The body that the group is merged into
+	private int[] survivor = new int[0];
+
+	@Override
+	public void resolve(Simulation simulation, CollisionDetector collisions) {
+
+		int pairCount = collisions.getPairCount();
+
+		if (pairCount == 0) {
+			return;
+		}
+
+		int count = simulation.count;
+		ensureCapacity(count);
+
+		// Make every body in a collision the root of its own group
+		int involvedCount = 0;
+		for (int pair = 0; pair < pairCount; pair++) {
+			for (int side = 0; side < 2; side++) {
+
+				int body = side == 0 ? collisions.getFirst(pair) : collisions.getSecond(pair);
+
+				if (parent[body] < 0) {
+					parent[body] = body;
+					involved[involvedCount++] = body;
+				}
+
+			}
+		}
+
+		// Visiting the bodies in index order keeps the sums the same no matter what order the pairs are in
+		Arrays.sort(involved, 0, involvedCount);
+
+		for (int pair = 0; pair < pairCount; pair++) {
+			union(collisions.getFirst(pair), collisions.getSecond(pair));
+		}
+
+		double[] x = simulation.x;
+		double[] y = simulation.y;
+		double[] xVelocity = simulation.xVelocity;
+		double[] yVelocity = simulation.yVelocity;
+		double[] mass = simulation.mass;
+		double[] radius = simulation.radius;
+
+		for (int k = 0; k < involvedCount; k++) {
+
+			int body = involved[k];
+			int root = find(body);
+
+			// The most massive body survives, or the lowest index one if there is a tie
+			if (members[root] == 0 || mass[body] > mass[survivor[root]]) {
+				survivor[root] = body;
+			}
+
+			members[root]++;
+			totalMass[root] += mass[body];
+			massX[root] += mass[body] * x[body];
+			massY[root] += mass[body] * y[body];
+			momentumX[root] += mass[body] * xVelocity[body];
+			momentumY[root] += mass[body] * yVelocity[body];
+			area[root] += radius[body] * radius[body];
+
+		}
+
+		for (int k = 0; k < involvedCount; k++) {
+
+			int root = involved[k];
+
+			if (parent[root] != root) {
+				continue;
+			}
+
+			int merged = survivor[root];
+
+			// Massless groups have no center of mass or momentum, so the survivor keeps its position and velocity
+			if (totalMass[root] > 0) {
+
+				x[merged] = massX[root] / totalMass[root];
+				y[merged] = massY[root] / totalMass[root];
+				xVelocity[merged] = momentumX[root] / totalMass[root];
+				yVelocity[merged] = momentumY[root] / totalMass[root];
+
+			}
+
+			mass[merged] = totalMass[root];
+			radius[merged] = Math.sqrt(area[root]);
+
+		}
+
+		// Every body other than the survivor of its group is removed
+		for (int k = 0; k < involvedCount; k++) {
+
+			int body = involved[k];
+
+			if (body != survivor[find(body)]) {
+				simulation.markRemoved(body);
+			}
+
+		}
+
+		for (int k = 0; k < involvedCount; k++) {
+
+			int body = involved[k];
+
+			parent[body] = -1;
+			members[body] = 0;
+			totalMass[body] = 0;
+			massX[body] = 0;
+			massY[body] = 0;
+			momentumX[body] = 0;
+			momentumY[body] = 0;
+			area[body] = 0;
+
+		}
+
+	}
+
+	private int find(int body) {
+
+		while (parent[body] != body) {
+			parent[body] = parent[parent[body]];
+			body = parent[body];
+		}
+
+		return body;
+
+	}
+
+	/**
+	 * Joins the groups of two bodies, always keeping the lower root so the result doesn't depend on pair order
+	 */
+	private void union(int first, int second) {
+
+		int firstRoot = find(first);
+		int secondRoot = find(second);
+
+		if (firstRoot < secondRoot) {
+			parent[secondRoot] = firstRoot;
+		} else if (secondRoot < firstRoot) {
+			parent[firstRoot] = secondRoot;
+		}
+
+	}
+
+	private void ensureCapacity(int count) {
+
+		if (parent.length >= count) {
+			return;
+		}
+
+		int capacity = Math.max(count, parent.length * 2);
+
+		parent = new int[capacity];
+		Arrays.fill(parent, -1);
+		involved = new int[capacity];
+
+		totalMass = new double[capacity];
+		massX = new double[capacity];
+		massY = new double[capacity];
+		momentumX = new double[capacity];
+		momentumY = new double[capacity];
+		area = new double[capacity];
+		members = new int[capacity];
+		survivor = new int[capacity];
+
+	}
+
+	@Override
+	public String getName() {
+		return "Merge";
+	}
+
+}
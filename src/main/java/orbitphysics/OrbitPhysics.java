@@ -0,0 +1,1138 @@
+package orbitphysics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+import javafx.geometry.Point2D;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.stage.Stage;
+
+public class OrbitPhysics extends Application {
+
+	// Window Dimensions
+	int WIDTH = 700;
+	int HEIGHT = 700;
+
+	// Useful global variables
+	Group root; // Stores objects to be drawn on the screen
+	Canvas canvas;
+	GraphicsContext gc; // Drawing object
+	AnimationTimer animator; // Allows for animation to occur via a continuously updated handle method
+	GameCamera gameCamera = new GameCamera(WIDTH, HEIGHT, 0, 0);
+	Renderer renderer = new Renderer(); // Draws the SpaceObjects and their trails on the canvas
+	RasterRenderer rasterRenderer = new RasterRenderer(ForkJoinPool.commonPool()); // Draws big scenes into an image
+	
+	/**
+	 * Which renderer draws the scene, AUTO uses the RasterRenderer once there are too many bodies for the canvas
+	 */
+	enum RenderMode {
+		AUTO, CANVAS, RASTER
+	}
+	
+	// Scenes with more bodies than this are drawn by the RasterRenderer in the AUTO mode
+	static final int RASTER_BODY_COUNT = 2000;
+	
+	RenderMode renderMode = RenderMode.AUTO;
+	
+	// Whether the last frame was drawn by the RasterRenderer
+	boolean rasterized = false;
+	
+	// The number of past positions drawn behind each SpaceObject
+	static final int TRAIL_LENGTH = 175;
+	
+	double rocketVelocity = 10;
+	double rocketVelocityDirectionDegrees = 0;
+		
+	// Stores the physical state of every body, the SpaceObjects are views of its bodies
+	Simulation simulation = new Simulation();
+	
+	// Steps the simulation on its own thread, once it is started the simulation should only be
+	// changed by submitting commands to it
+	SimulationThread simulationThread;
+	
+	// The newest state of the simulation, used for drawing
+	SimulationSnapshot snapshot;
+	
+	// Plays back a recording instead of running the simulation, or null when the simulation is running
+	ReplayPlayer replayPlayer;
+	
+	// The number of steps between checkpoints when the simulation is being checkpointed
+	static final long CHECKPOINT_INTERVAL = 3600;
+	
+	// The height of the bar at the top of the window that shows how far the replay has played, clicking it seeks
+	static final int REPLAY_BAR_HEIGHT = 12;
+	
+	// Whether the step and frame timings are drawn over the scene, the simulation is only measured while they are
+	boolean showMetrics = false;
+	
+	// The time taken to draw each frame since the timings were last shown
+	LatencyHistogram frameTimes = new LatencyHistogram();
+	
+	// The simulation settings last chosen with the keyboard
+	ForceSolver forceSolver = new DirectSumSolver(ForkJoinPool.commonPool());
+	Integrator integrator = new EulerIntegrator();
+	CollisionHandler collisionHandler = new MergeCollisionHandler();
+	
+	// Used to find the colliding SpaceObjects to mark when there is no collision policy
+	CollisionDetector collisionDetector = new CollisionDetector();
+	
+	ArrayList<SpaceObject> spaceObjects = new ArrayList<SpaceObject>();
+	
+	// The SpaceObject that is a view of each Simulation body, indexed by body id
+	ArrayList<SpaceObject> spaceObjectsById = new ArrayList<SpaceObject>();
+	SpaceObject planet;
+	SpaceObject rocket;
+	
+	double planetMass = 20000;
+	double rocketmass = 200; // making this smaller decreases the rocket's gravitational pull on the planet
+	
+	int focusBodyIndex = 0; // The index of object to focus on of the spaceObjects ArrayList
+	
+	// The id of the body picked with the mouse to focus on, or -1 to focus on focusBodyIndex instead
+	int focusId = -1;
+	
+	// Whether the camera follows the focused body, it stops when the camera is panned
+	boolean following = true;
+	
+	// Finds the bodies under the cursor
+	BodyPicker bodyPicker = new BodyPicker();
+	
+	// How many pixels from the cursor a body can be picked from, so bodies smaller than a pixel can be picked
+	static final double PICK_DISTANCE = 8;
+	
+	// How much each notch of the mouse wheel zooms by, and how far the camera can zoom
+	static final double ZOOM_FACTOR = 1.25;
+	static final double MIN_ZOOM = 1e-4;
+	static final double MAX_ZOOM = 1e3;
+	
+	MouseHandler mouseHandler;
+	
+	public static void main(String[] args) {
+		launch(args);
+	}
+
+	public void start(Stage gameStage) throws Exception {
+		
+		Stage theStage = gameStage;
+		theStage.setTitle("OrbitPhysics");
+
+		root = new Group();
+
+		Scene gameScene = new Scene(root, WIDTH, HEIGHT);
+
+		theStage.setWidth(WIDTH);
+		theStage.setHeight(HEIGHT);
+
+		canvas = new Canvas(theStage.getWidth(), theStage.getHeight());
+
+		root.getChildren().add(canvas);
+
+		gc = canvas.getGraphicsContext2D();
+		
+		addMouseHandling(gameScene);
+		addKeyboardhandling(gameScene);
+		
+		// "replay <file>" plays back a recording instead of running a simulation
+		List<String> parameters = getParameters().getRaw();
+		
+		if (parameters.size() >= 2 && parameters.get(0).equals("replay")) {
+			
+			replayPlayer = new ReplayPlayer(Paths.get(parameters.get(1)), TRAIL_LENGTH);
+			theStage.setTitle("OrbitPhysics - " + parameters.get(1));
+			
+		} else {
+			
+			// "checkpoint <file>" saves the simulation to the file as it runs, and continues from it if it already exists
+			Path checkpointFile = parameters.size() >= 2 && parameters.get(0).equals("checkpoint") ? Paths.get(parameters.get(1)) : null;
+			
+			if (checkpointFile != null && Files.exists(checkpointFile)) {
+				
+				simulation = Checkpoint.read(checkpointFile).restore();
+				integrator = simulation.getIntegrator();
+				
+				// Names and colors aren't saved in checkpoints
+				for (int i = 0; i < simulation.getBodyCount(); i++) {
+					int id = simulation.getId(i);
+					addSpaceObject(new SpaceObject(simulation, id, "Body " + id, Color.GRAY));
+				}
+				
+			} else {
+				
+				simulation.setIntegrator(integrator);
+				simulation.setTrailLength(TRAIL_LENGTH);
+				
+				planet = new SpaceObject(simulation, "Earth", Color.BLUE, getWidth() / 2, getHeight() / 2, 10, planetMass);
+				
+				rocket = new SpaceObject(simulation, "Rocket", Color.GREEN, planet.getCenterX(), planet.getCenterY() / 2, 5, rocketmass, rocketVelocity, rocketVelocityDirectionDegrees);
+				
+				addSpaceObject(planet);
+				addSpaceObject(rocket);
+				
+			}
+			
+			simulation.setForceSolver(forceSolver);
+			simulation.setCollisionHandler(collisionHandler);
+			
+			simulationThread = new SimulationThread(simulation);
+			
+			if (checkpointFile != null) {
+				simulationThread.setCheckpointer(new Checkpointer(checkpointFile), CHECKPOINT_INTERVAL);
+			}
+			
+			simulationThread.start();
+			
+		}
+		
+		animator = new AnimationTimer() {
+			@Override
+			public void handle(long arg0) {
+				
+				if (replayPlayer != null) {
+					drawReplay();
+					return;
+				}
+				
+				snapshot = simulationThread.getSnapshot();
+				
+				removeDeadSpaceObjects();
+				
+				double alpha = snapshot.getAlpha(System.nanoTime());
+				
+				bodyPicker.update(snapshot);
+				
+				followFocus(alpha);
+				
+				long renderStart = System.nanoTime();
+				
+				render(alpha);
+				
+				frameTimes.record(System.nanoTime() - renderStart);
+				
+				mouseHandler.drawHover(gc, alpha);
+				mouseHandler.drawPlacement(gc);
+				
+				if (showMetrics && snapshot.getMetrics() != null) {
+					drawMetrics(snapshot.getMetrics());
+				}
+				
+				// Without a collision policy, colliding SpaceObjects are only marked
+				if (collisionHandler == null) {
+					
+					collisionDetector.detect(snapshot.x, snapshot.y, snapshot.radius, snapshot.count);
+					
+					for (int pair = 0; pair < collisionDetector.getPairCount(); pair++) {
+
+						SpaceObject currentObject = getSpaceObject(snapshot.getId(collisionDetector.getFirst(pair)));
+						SpaceObject otherObject = getSpaceObject(snapshot.getId(collisionDetector.getSecond(pair)));
+
+						if (currentObject != null && otherObject != null) {
+							currentObject.setColor(Color.BROWN);
+							otherObject.setColor(Color.BROWN);
+						}
+
+					}
+				}
+			}
+				
+		};
+		animator.start();
+		
+		theStage.setScene(gameScene);
+		theStage.show();
+	}
+	
+	@Override
+	public void stop() throws IOException {
+		
+		if (simulationThread != null) {
+			simulationThread.stop();
+		}
+		
+		if (mouseHandler != null) {
+			mouseHandler.stop();
+		}
+		
+		if (replayPlayer != null) {
+			replayPlayer.close();
+		}
+		
+	}
+	
+	/**
+	 * Centers the camera on the focused body, unless the camera has been panned away from it
+	 * @param alpha how far between the snapshot's previous and current positions the bodies are drawn, from 0 to 1
+	 */
+	void followFocus(double alpha) {
+		
+		if (!following) {
+			return;
+		}
+		
+		int focusIndex;
+		
+		if (focusId >= 0) {
+			focusIndex = snapshot.indexOf(focusId);
+		} else if (replayPlayer != null) {
+			// Without SpaceObjects to focus on, the focus index cycles through the bodies of the frame
+			focusIndex = snapshot.getBodyCount() > 0 ? Math.floorMod(focusBodyIndex, snapshot.getBodyCount()) : -1;
+		} else if (!spaceObjects.isEmpty()) {
+			focusIndex = snapshot.indexOf(spaceObjects.get(Math.floorMod(focusBodyIndex, spaceObjects.size())).getId());
+		} else {
+			focusIndex = -1;
+		}
+		
+		if (focusIndex >= 0) {
+			gameCamera.centerOn((float) snapshot.getX(focusIndex, alpha), (float) snapshot.getY(focusIndex, alpha));
+		}
+		
+	}
+	
+	/**
+	 * Focuses the camera on the next or previous SpaceObject, or body of the recording, instead of a picked body
+	 * @param change the number of bodies to move the focus by
+	 */
+	void cycleFocus(int change) {
+		
+		if (replayPlayer != null) {
+			focusBodyIndex += change;
+		} else if (!spaceObjects.isEmpty()) {
+			focusBodyIndex = getValidIndex(focusBodyIndex + change, spaceObjects.size());
+		}
+		
+		focusId = -1;
+		following = true;
+		
+	}
+	
+	/**
+	 * Zooms the camera in or out, keeping the point under the cursor where it is on the screen
+	 * @param screenX the x coordinate of the cursor on the screen
+	 * @param screenY the y coordinate of the cursor on the screen
+	 * @param factor the amount to multiply the zoom by
+	 */
+	void zoomAt(double screenX, double screenY, double factor) {
+		
+		double worldX = gameCamera.toWorldX(screenX);
+		double worldY = gameCamera.toWorldY(screenY);
+		
+		gameCamera.setZoom((float) Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, gameCamera.getZoom() * factor)));
+		
+		gameCamera.setxOffset((float) (worldX - screenX / gameCamera.getZoom()));
+		gameCamera.setyOffset((float) (worldY - screenY / gameCamera.getZoom()));
+		
+	}
+	
+	/**
+	 * Draws the snapshot with the renderer picked by the render mode
+	 * @param alpha how far between the snapshot's previous and current positions to draw the bodies, from 0 to 1
+	 */
+	void render(double alpha) {
+		
+		rasterized = renderMode == RenderMode.RASTER || renderMode == RenderMode.AUTO && snapshot.getBodyCount() > RASTER_BODY_COUNT;
+		
+		if (rasterized) {
+			rasterRenderer.render(gc, gameCamera, snapshot, alpha, spaceObjectsById);
+		} else {
+			renderer.render(gc, gameCamera, snapshot, alpha, spaceObjectsById);
+		}
+		
+	}
+	
+	/**
+	 * Switches to the next render mode
+	 */
+	void cycleRenderMode() {
+		renderMode = RenderMode.values()[(renderMode.ordinal() + 1) % RenderMode.values().length];
+		frameTimes.reset();
+	}
+	
+	/**
+	 * Draws the step timings, counters and frame timings in the top left corner of the window
+	 * @param metrics the metrics of the simulation to draw
+	 */
+	public void drawMetrics(SimulationMetrics metrics) {
+		
+		LatencyHistogram stepLatency = metrics.getStepLatency();
+		
+		List<String> lines = new ArrayList<String>();
+		
+		lines.add(String.format("step         p50 %.1f us   p99 %.1f us   max %.1f us", stepLatency.getPercentile(50) / 1e3,
+				stepLatency.getPercentile(99) / 1e3, stepLatency.getMax() / 1e3));
+		
+		for (SimulationMetrics.Phase phase : SimulationMetrics.Phase.values()) {
+			lines.add(String.format("%-12s %.1f us", phase.getLabel(), metrics.getAveragePhaseNanos(phase) / 1e3));
+		}
+		
+		lines.add(String.format("interactions %,d per step", metrics.getLastInteractionCount()));
+		lines.add(String.format("collisions   %,d", metrics.getCollisionCount()));
+		lines.add(String.format("allocated    %,d bytes per step", metrics.getLastAllocatedBytes()));
+		if (rasterized) {
+			lines.add(String.format("render       p50 %.2f ms   p99 %.2f ms   raster, %s", frameTimes.getPercentile(50) / 1e6,
+					frameTimes.getPercentile(99) / 1e6, rasterRenderer.getLevelOfDetail().toString().toLowerCase()));
+		} else {
+			lines.add(String.format("render       p50 %.2f ms   p99 %.2f ms   %d draw calls", frameTimes.getPercentile(50) / 1e6,
+					frameTimes.getPercentile(99) / 1e6, renderer.getDrawCalls()));
+		}
+		lines.add(String.format("%,d steps measured", metrics.getStepCount()));
+		
+		gc.setFill(Color.rgb(0, 0, 0, 0.6));
+		gc.fillRect(0, 0, 340, lines.size() * 15 + 8);
+		
+		gc.setFill(Color.WHITE);
+		for (int i = 0; i < lines.size(); i++) {
+			gc.fillText(lines.get(i), 5, 15 * (i + 1));
+		}
+		
+	}
+	
+	/**
+	 * Draws the frame of the recording being replayed, along with a bar showing how far through
+	 * the recording it is and the state of playback
+	 */
+	public void drawReplay() {
+		
+		try {
+			snapshot = replayPlayer.update(System.nanoTime());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		double alpha = snapshot.getAlpha(System.nanoTime());
+		
+		bodyPicker.update(snapshot);
+		
+		followFocus(alpha);
+		
+		render(alpha);
+		
+		mouseHandler.drawHover(gc, alpha);
+		
+		double progress = replayPlayer.getFrameCount() > 1 ? (double) replayPlayer.getFrame() / (replayPlayer.getFrameCount() - 1) : 1;
+		
+		gc.setFill(Color.DIMGRAY);
+		gc.fillRect(0, 0, WIDTH, REPLAY_BAR_HEIGHT);
+		gc.setFill(Color.LIGHTGRAY);
+		gc.fillRect(0, 0, WIDTH * progress, REPLAY_BAR_HEIGHT);
+		
+		gc.setFill(Color.BLACK);
+		gc.fillText(String.format("frame %d/%d   step %d   time %.1f   speed x%s%s", replayPlayer.getFrame() + 1, replayPlayer.getFrameCount(),
+				snapshot.getStepCount(), snapshot.getTime(), replayPlayer.getSpeed(), replayPlayer.isPaused() ? "   paused" : ""), 5, REPLAY_BAR_HEIGHT + 15);
+		
+	}
+	
+	/**
+	 * Handles a key press while a recording is being replayed: SPACE pauses, + and - change the speed,
+	 * LEFT and RIGHT step one frame, HOME and END jump to the start and end, the number keys jump to
+	 * that tenth of the recording, UP and DOWN change which body is focused on, and R changes the renderer
+	 * @param code the code of the key that was pressed
+	 * @throws IOException if the frames can't be read from the recording
+	 */
+	void handleReplayKey(KeyCode code) throws IOException {
+		
+		switch (code) {
+		case SPACE:
+			replayPlayer.setPaused(!replayPlayer.isPaused());
+			break;
+		case EQUALS:
+		case ADD:
+			replayPlayer.setSpeed(replayPlayer.getSpeed() * 2);
+			break;
+		case MINUS:
+		case SUBTRACT:
+			replayPlayer.setSpeed(replayPlayer.getSpeed() / 2);
+			break;
+		case RIGHT:
+			replayPlayer.setPaused(true);
+			replayPlayer.step(1);
+			break;
+		case LEFT:
+			replayPlayer.setPaused(true);
+			replayPlayer.step(-1);
+			break;
+		case HOME:
+			replayPlayer.seek(0);
+			break;
+		case END:
+			replayPlayer.seek(replayPlayer.getFrameCount() - 1);
+			break;
+		case UP:
+			cycleFocus(1);
+			break;
+		case DOWN:
+			cycleFocus(-1);
+			break;
+		case R:
+			cycleRenderMode();
+			break;
+		default:
+			if (code.isDigitKey()) {
+				int tenths = code.getName().charAt(code.getName().length() - 1) - '0';
+				replayPlayer.seek((int) ((long) (replayPlayer.getFrameCount() - 1) * tenths / 10));
+			}
+			break;
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Adds mouse event(ex. clicks/presses) handling to a scene
+	 * @param scene scene to add mouse event handling to
+	 */
+	public void addMouseHandling(Scene scene) {
+		
+		// adds mouse event handling to the given scene
+		mouseHandler = new MouseHandler();
+		scene.setOnMouseEntered(mouseHandler);
+		scene.setOnMouseMoved(mouseHandler);
+		scene.setOnMouseDragged(mouseHandler);
+		scene.setOnMousePressed(mouseHandler);
+		scene.setOnMouseClicked(mouseHandler);
+		scene.setOnMouseReleased(mouseHandler);
+		scene.setOnMouseExited(mouseHandler);
+		
+		// Each notch of the mouse wheel zooms in or out around the cursor
+		scene.setOnScroll(event -> {
+			if (event.getDeltaY() != 0) {
+				zoomAt(event.getX(), event.getY(), event.getDeltaY() > 0 ? ZOOM_FACTOR : 1 / ZOOM_FACTOR);
+			}
+		});
+		
+	}
+	
+	/**
+	 * Adds keyboard event(ex. key press) handling to a scene
+	 * @param scene scene to add keyboard event handling to
+	 */
+	public void addKeyboardhandling(Scene scene) {
+		
+		KeyboardHandler keyboardHandler = new KeyboardHandler();
+		scene.setOnKeyPressed(keyboardHandler);
+		scene.setOnKeyReleased(keyboardHandler);
+	}
+	
+	/**
+	 * Removes the SpaceObjects whose bodies were removed from the Simulation(for example by merging
+	 * into another body), keeping the focused SpaceObject in focus if it is still alive
+	 */
+	public void removeDeadSpaceObjects() {
+		
+		// A checkpoint or scenario can start without any SpaceObjects
+		SpaceObject focusedObject = spaceObjects.isEmpty() ? null : spaceObjects.get(Math.floorMod(focusBodyIndex, spaceObjects.size()));
+		
+		boolean removedAny = false;
+		
+		for (int i = spaceObjects.size() - 1; i >= 0; i--) {
+			
+			int id = spaceObjects.get(i).getId();
+			
+			if (snapshot.isRemoved(id)) {
+				spaceObjects.remove(i);
+				spaceObjectsById.set(id, null);
+				removedAny = true;
+			}
+			
+		}
+		
+		if (removedAny) {
+			int newFocusIndex = spaceObjects.indexOf(focusedObject);
+			focusBodyIndex = newFocusIndex >= 0 ? newFocusIndex : 0;
+		}
+		
+	}
+	
+	/**
+	 * Adds a SpaceObject to the list of SpaceObjects to draw
+	 * @param spaceObject the SpaceObject to add
+	 */
+	public void addSpaceObject(SpaceObject spaceObject) {
+		
+		spaceObjects.add(spaceObject);
+		
+		while (spaceObjectsById.size() <= spaceObject.getId()) {
+			spaceObjectsById.add(null);
+		}
+		spaceObjectsById.set(spaceObject.getId(), spaceObject);
+		
+	}
+	
+	/**
+	 * Finds the SpaceObject that is a view of one of the Simulation's bodies
+	 * @param id the id of the body
+	 * @return the SpaceObject for the body, or null if there isn't one
+	 */
+	public SpaceObject getSpaceObject(int id) {
+		return id < spaceObjectsById.size() ? spaceObjectsById.get(id) : null;
+	}
+	
+	/**
+	 * @return the width of the window
+	 */
+	public int getWidth() {
+		return WIDTH;
+	}
+
+	/**
+	 * @return the height of the window
+	 */
+	public int getHeight() {
+		return HEIGHT;
+	}
+
+	/**
+	 * Turns the requestedIndex of an indexed list(Array, ArrayList, etc.) into
+	 * a valid index of that list. The valid index returned depends on whether the
+	 * requested index was a valid index. The requested index is invalid if it is 
+	 * less than 0 or greater than the length of the list - 1 (both of those cases
+	 * would result in an OutOfBoundsException if the requestedIndex was used). 
+	 * 
+	 * If requestedIndex was invalid and less than 0, the valid index is the 
+	 * requestedIndex plus the requestedIndex. For example, getValidIndex(-1, 5)
+	 * would calculate and return a valid index of (5 + -1) = 4.
+	 * 
+	 * If requestedIndex was invalid and greater than the last valid index of the array
+	 * (length - 1), then the valid index is requestedIndex - the length of the list. If
+	 * that index is still too big for the list(validIndex > length - 1), then the 
+	 * getValidIndex method will be used again on that index. For example, getValidIndex(7, 3) 
+	 * would calculate a valid index of (7 - 3) = 4, which is still too big for the list,
+	 * so getValidIndex(4, 3) will be used, which would return 1. 
+	 * 
+	 * @param requestedIndex
+	 * @param length
+	 * @return
+	 */
+	public int getValidIndex(int requestedIndex, int length) {
+		// converts a requested index to one that is in the bounds of an array with a
+		// given length
+		// ex. getValidIndex(-1, 6) returns 5
+
+		int validIndex;
+		int finalIndex = length - 1;
+		if (requestedIndex < 0) {
+			
+			validIndex = length + requestedIndex;
+			
+		} else if (requestedIndex > finalIndex) {
+			
+			validIndex = requestedIndex - length;
+			
+			if (validIndex > finalIndex) {
+				
+				getValidIndex(validIndex, length);
+				
+			}
+			
+		} else {
+			// if the index was valid to begin with, don't change it
+			validIndex = requestedIndex;
+			
+		}
+
+		return validIndex;
+	}
+	
+	/**
+	 * A class for handling keyboard input
+	 *
+	 */
+	private class KeyboardHandler implements EventHandler<KeyEvent> {
+
+		KeyboardHandler() {
+		}
+
+		public void handle(KeyEvent arg0) {
+			if (arg0.getEventType() == KeyEvent.KEY_PRESSED && replayPlayer != null) {
+				try {
+					handleReplayKey(arg0.getCode());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return;
+			}
+			if (arg0.getEventType() == KeyEvent.KEY_PRESSED) {
+				String code = arg0.getCode().toString().toUpperCase();
+				if (code.equals("UP")) {
+					cycleFocus(1);
+				}
+				if (code.equals("DOWN")) {
+					cycleFocus(-1);
+				}
+				if (code.equals("SPACE")) {
+					simulationThread.setPaused(!simulationThread.isPaused());
+				}
+				if (code.equals("EQUALS") || code.equals("ADD")) {
+					// Speed up the simulation
+					simulationThread.setTimeWarp(simulationThread.getTimeWarp() * 2);
+				}
+				if (code.equals("MINUS") || code.equals("SUBTRACT")) {
+					// Slow down the simulation
+					simulationThread.setTimeWarp(simulationThread.getTimeWarp() / 2);
+				}
+				if (code.equals("I")) {
+					// Cycle through the integration methods
+					if (integrator instanceof EulerIntegrator) {
+						integrator = new VelocityVerletIntegrator();
+					} else if (integrator instanceof VelocityVerletIntegrator) {
+						integrator = new RungeKuttaIntegrator();
+					} else if (integrator instanceof RungeKuttaIntegrator) {
+						integrator = new AdaptiveIntegrator();
+					} else if (integrator instanceof AdaptiveIntegrator) {
+						integrator = new BlockHermiteIntegrator(ForkJoinPool.commonPool());
+					} else {
+						integrator = new EulerIntegrator();
+					}
+					Integrator newIntegrator = integrator;
+					simulationThread.submit(simulation -> simulation.setIntegrator(newIntegrator));
+				}
+				if (code.equals("C")) {
+					// Cycle through the collision policies
+					if (collisionHandler == null) {
+						collisionHandler = new MergeCollisionHandler();
+					} else if (collisionHandler instanceof MergeCollisionHandler) {
+						collisionHandler = new BounceCollisionHandler(1);
+					} else if (((BounceCollisionHandler) collisionHandler).getRestitution() == 1) {
+						collisionHandler = new BounceCollisionHandler(0.5);
+					} else {
+						collisionHandler = null;
+					}
+					CollisionHandler newCollisionHandler = collisionHandler;
+					simulationThread.submit(simulation -> simulation.setCollisionHandler(newCollisionHandler));
+				}
+				if (code.equals("R")) {
+					// Cycle through drawing automatically, always on the canvas and always into an image
+					cycleRenderMode();
+				}
+				if (code.equals("M")) {
+					// Show or hide the timings, measuring the simulation only while they are shown
+					showMetrics = !showMetrics;
+					frameTimes.reset();
+					SimulationMetrics metrics = showMetrics ? new SimulationMetrics() : null;
+					simulationThread.submit(simulation -> simulation.setMetrics(metrics));
+				}
+				if (code.equals("B")) {
+					// Cycle through the exact direct summation, the Barnes-Hut approximation, the fast multipole method
+					// and the particle mesh, with the short range correction so close encounters look right
+					if (forceSolver instanceof DirectSumSolver) {
+						forceSolver = new BarnesHutSolver(BarnesHutSolver.DEFAULT_THETA, ForkJoinPool.commonPool());
+					} else if (forceSolver instanceof BarnesHutSolver) {
+						forceSolver = new FastMultipoleSolver(FastMultipoleSolver.DEFAULT_ORDER, FastMultipoleSolver.DEFAULT_THETA, ForkJoinPool.commonPool());
+					} else if (forceSolver instanceof FastMultipoleSolver) {
+						ParticleMeshSolver particleMeshSolver = new ParticleMeshSolver(ParticleMeshSolver.DEFAULT_GRID_SIZE, ForkJoinPool.commonPool());
+						particleMeshSolver.setShortRangeCorrection(true);
+						forceSolver = particleMeshSolver;
+					} else {
+						forceSolver = new DirectSumSolver(ForkJoinPool.commonPool());
+					}
+					ForceSolver newForceSolver = forceSolver;
+					simulationThread.submit(simulation -> simulation.setForceSolver(newForceSolver));
+				}
+				
+			} 
+		}
+
+	}
+	
+	/**
+	 * A class for handling mouse events
+	 */
+	private class MouseHandler implements EventHandler<MouseEvent> {
+		
+		private Point2D mouseStartPoint;
+				
+		private boolean isSettingVelocity = false;
+		
+		// The position and radius of the SpaceObject being placed, which isn't added to the
+		// Simulation until its velocity is set
+		private boolean isPlacing = false;
+		private double tempX;
+		private double tempY;
+		private double tempRadius;
+		
+		private Line velocityLine = new Line();
+		
+		// Predicts where the SpaceObject being placed will go while its velocity is being set
+		private TrajectoryPredictor trajectoryPredictor = new TrajectoryPredictor();
+		
+		// Reused arrays holding the screen coordinates of the predicted path
+		private double[] predictionX = new double[0];
+		private double[] predictionY = new double[0];
+		
+		// Where the cursor is, so the body nearest to it can be highlighted
+		private boolean isMouseInside = false;
+		private double cursorX;
+		private double cursorY;
+		
+		// Where the right button was pressed and last dragged to, and whether it has moved far enough to pan the camera
+		// rather than pick the body under the cursor
+		private Point2D panStartPoint;
+		private Point2D panLastPoint;
+		private boolean isPanning = false;
+		
+		MouseHandler() {
+			
+			// Add the velocityLine to the root group 
+			// Its start and end points will be set while the user
+			// sets the velocity of the SpaceObject
+			root.getChildren().add(velocityLine); 
+			
+		}
+
+		public void handle(MouseEvent arg0) {
+			
+			if (arg0.getEventType().equals(MouseEvent.MOUSE_EXITED)) {
+				isMouseInside = false;
+			} else {
+				isMouseInside = true;
+				cursorX = arg0.getX();
+				cursorY = arg0.getY();
+			}
+			
+			// The right button moves the camera, while replaying too
+			if (arg0.getButton() == MouseButton.SECONDARY || arg0.getEventType().equals(MouseEvent.MOUSE_DRAGGED) && panStartPoint != null) {
+				handleCamera(arg0);
+				return;
+			}
+			
+			// While replaying, bodies can't be placed but the replay bar can be clicked or dragged to seek
+			if (replayPlayer != null) {
+				
+				boolean seeking = arg0.getEventType().equals(MouseEvent.MOUSE_PRESSED) || arg0.getEventType().equals(MouseEvent.MOUSE_DRAGGED);
+				
+				if (seeking && arg0.getY() <= REPLAY_BAR_HEIGHT) {
+					try {
+						replayPlayer.seek((int) Math.round(arg0.getX() / WIDTH * (replayPlayer.getFrameCount() - 1)));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				
+				return;
+			}
+			
+			if (arg0.getEventType().equals(MouseEvent.MOUSE_PRESSED)) {
+				
+				// if the left click button is pressed
+				if (arg0.getButton() == MouseButton.PRIMARY) {
+					
+					// If the user isn't updating the velocity of the spaceObject
+					// (they will press again when they set the velocity, but
+					// that should not create a new SpaceObject, as is done
+					// in the below if-block)
+					if (!isSettingVelocity) {
+						
+						// Pause the updating of spaceObjects, and copy the bodies the placed SpaceObject's path is predicted through
+						simulationThread.setPaused(true);
+						simulationThread.submit(simulation -> trajectoryPredictor.setSources(simulation));
+						
+						// register the current mouse click point as the start click point
+						mouseStartPoint = new Point2D(arg0.getX(), arg0.getY());
+						
+						
+						// Start placing the SpaceObject centered on the click position
+						isPlacing = true;
+						tempX = gameCamera.toWorldX(mouseStartPoint.getX());
+						tempY = gameCamera.toWorldY(mouseStartPoint.getY());
+						tempRadius = 0;
+						
+					}
+				}
+			}
+			
+			// Set the radius of the new SpaceObject to the drag distance
+			if (arg0.getEventType().equals(MouseEvent.MOUSE_DRAGGED) && isPlacing) {
+
+				isSettingVelocity = false;
+
+				Point2D mouseCurrentPoint = new Point2D(arg0.getX(), arg0.getY());
+
+				double dragDistance = calculateDistance(mouseStartPoint, mouseCurrentPoint);
+
+				tempRadius = dragDistance / gameCamera.getZoom();
+				tempX = gameCamera.toWorldX(mouseStartPoint.getX());
+				tempY = gameCamera.toWorldY(mouseStartPoint.getY());
+								
+			}
+			
+			if (isSettingVelocity) {
+
+				// If the user is moving the mouse around after setting the initial
+				// and radius of the SpaceObject, draw a line from the SpaceObject's
+				// center to the mouse position. The user uses this line to set the velocity
+				// of the SpaceObject: a longer line indicates a greater magnitude,
+				// and the direction of the line will be used as the direction of the 
+				// SpaceObject's velocity. When the user presses(and then releases)
+				// the mouse, these calculations for the SpaceObject's velocities
+				// will be made
+				
+				
+				// Draw the velocity line from the SpaceObject's center to the 
+				// mouse position
+				if (!arg0.getEventType().equals(MouseEvent.MOUSE_EXITED)) {
+
+					Point2D mouseCurrentPoint = new Point2D(arg0.getX(), arg0.getY());
+					velocityLine.setStartX(gameCamera.toScreenX(tempX));
+					velocityLine.setStartY(gameCamera.toScreenY(tempY));
+					velocityLine.setEndX(mouseCurrentPoint.getX());
+					velocityLine.setEndY(mouseCurrentPoint.getY());
+					
+					// Start predicting the path the SpaceObject would take with this velocity
+					double velocity = calculateDistance(mouseStartPoint, mouseCurrentPoint) / 10 / gameCamera.getZoom();
+					double direction = calculateAngleBetween(mouseCurrentPoint, mouseStartPoint);
+					trajectoryPredictor.predict(tempX, tempY, velocity * Math.cos(direction), velocity * Math.sin(direction) * -1, tempRadius);
+
+				}
+				
+				// If the user releases the mouse(after pressing it),
+				// use the velocity line to set the velocity and
+				// direction of the SpaceObject
+				if (arg0.getEventType().equals(MouseEvent.MOUSE_RELEASED)) {
+
+					Point2D currentPoint = new Point2D(arg0.getX(), arg0.getY());
+
+					// Calculate velocity and direction of the SpaceObject
+					double velocity = calculateDistance(mouseStartPoint, currentPoint) / 10 / gameCamera.getZoom();
+					double direction = calculateAngleBetween(currentPoint, mouseStartPoint);
+
+					// Add the SpaceObject to the Simulation on the simulation thread, then
+					// add it to the list of SpaceObjects to draw back on this thread
+					double x = tempX;
+					double y = tempY;
+					double radius = tempRadius;
+					double xVelocity = velocity * Math.cos(direction);
+					double yVelocity = velocity * Math.sin(direction) * -1;
+					
+					// Placed bodies have no mass, so they are added as test particles that only feel gravity
+					simulationThread.submit(simulation -> {
+						
+						int id = simulation.addTestParticle(x, y, xVelocity, yVelocity, radius);
+						SpaceObject newObject = new SpaceObject(simulation, id, null, Color.RED);
+						
+						Platform.runLater(() -> addSpaceObject(newObject));
+						
+					});
+
+					// Resume updating of SpaceObjects and reset this process
+					// by setting isSettingVelocity to false
+					simulationThread.setPaused(false);
+					isSettingVelocity = false;
+					isPlacing = false;
+					
+					velocityLine.setVisible(false);
+					trajectoryPredictor.clear();
+
+				}
+				
+			} else {
+				// if the user released the mouse but wasn't setting the velocity,
+				// they were setting the initial radius and position of the
+				// SpaceObject. In that case, make the velocity line visible,
+				// and set isSettingVelocity to true so the user can set
+				// the SpaceObject's velocity
+				if (arg0.getEventType().equals(MouseEvent.MOUSE_RELEASED) && isPlacing) {
+
+					velocityLine.setVisible(true);
+					isSettingVelocity = true;
+
+				}
+			}
+
+		}
+		
+		/**
+		 * Draws the SpaceObject that is being placed, if there is one
+		 * @param gc the {@link GraphicsContext} of the canvas
+		 */
+		void drawPlacement(GraphicsContext gc) {
+			
+			if (!isPlacing) {
+				return;
+			}
+			
+			gc.setFill(Color.RED);
+			double screenRadius = tempRadius * gameCamera.getZoom();
+			gc.fillOval(gameCamera.toScreenX(tempX) - screenRadius, gameCamera.toScreenY(tempY) - screenRadius, screenRadius * 2, screenRadius * 2);
+			
+			TrajectoryPredictor.Prediction prediction = trajectoryPredictor.getPrediction();
+			
+			if (!isSettingVelocity || prediction == null || prediction.getCount() < 2) {
+				return;
+			}
+			
+			if (predictionX.length < prediction.getCount()) {
+				predictionX = new double[prediction.getCount()];
+				predictionY = new double[prediction.getCount()];
+			}
+			
+			for (int i = 0; i < prediction.getCount(); i++) {
+				predictionX[i] = gameCamera.toScreenX(prediction.getX(i));
+				predictionY[i] = gameCamera.toScreenY(prediction.getY(i));
+			}
+			
+			// The path is drawn dashed, and ends in a cross if the SpaceObject would hit something
+			gc.setStroke(Color.rgb(255, 80, 80, 0.8));
+			gc.setLineDashes(4, 4);
+			gc.strokePolyline(predictionX, predictionY, prediction.getCount());
+			gc.setLineDashes(null);
+			
+			if (prediction.hasCollided()) {
+				double endX = predictionX[prediction.getCount() - 1];
+				double endY = predictionY[prediction.getCount() - 1];
+				gc.strokeLine(endX - 4, endY - 4, endX + 4, endY + 4);
+				gc.strokeLine(endX - 4, endY + 4, endX + 4, endY - 4);
+			}
+			
+			gc.setStroke(Color.BLACK);
+			
+		}
+		
+		/**
+		 * Pans the camera while the right button is dragged, or focuses on the body under the cursor when it is clicked
+		 */
+		private void handleCamera(MouseEvent arg0) {
+			
+			Point2D point = new Point2D(arg0.getX(), arg0.getY());
+			
+			if (arg0.getEventType().equals(MouseEvent.MOUSE_PRESSED)) {
+				panStartPoint = point;
+				panLastPoint = point;
+				isPanning = false;
+			}
+			
+			if (arg0.getEventType().equals(MouseEvent.MOUSE_DRAGGED) && panStartPoint != null) {
+				
+				// Small movements during a click don't count as panning
+				if (!isPanning && calculateDistance(panStartPoint, point) > PICK_DISTANCE / 2) {
+					isPanning = true;
+					following = false;
+				}
+				
+				if (isPanning) {
+					float zoom = gameCamera.getZoom();
+					gameCamera.move((float) ((panLastPoint.getX() - point.getX()) / zoom), (float) ((panLastPoint.getY() - point.getY()) / zoom));
+					panLastPoint = point;
+				}
+				
+			}
+			
+			if (arg0.getEventType().equals(MouseEvent.MOUSE_RELEASED) && panStartPoint != null) {
+				
+				if (!isPanning) {
+					
+					int id = bodyPicker.findNearest(gameCamera.toWorldX(point.getX()), gameCamera.toWorldY(point.getY()), PICK_DISTANCE / gameCamera.getZoom());
+					
+					if (id >= 0) {
+						focusId = id;
+						following = true;
+					}
+					
+				}
+				
+				panStartPoint = null;
+				isPanning = false;
+				
+			}
+			
+		}
+		
+		/**
+		 * Circles the body nearest to the cursor, and writes its name if it has one
+		 * @param gc the {@link GraphicsContext} of the canvas
+		 * @param alpha how far between the snapshot's previous and current positions the bodies are drawn, from 0 to 1
+		 */
+		void drawHover(GraphicsContext gc, double alpha) {
+			
+			if (!isMouseInside || isPlacing || isPanning) {
+				return;
+			}
+			
+			int id = bodyPicker.findNearest(gameCamera.toWorldX(cursorX), gameCamera.toWorldY(cursorY), PICK_DISTANCE / gameCamera.getZoom());
+			int index = id >= 0 ? snapshot.indexOf(id) : -1;
+			
+			if (index < 0) {
+				return;
+			}
+			
+			double x = gameCamera.toScreenX(snapshot.getX(index, alpha));
+			double y = gameCamera.toScreenY(snapshot.getY(index, alpha));
+			double radius = snapshot.getRadius(index) * gameCamera.getZoom() + 3;
+			
+			gc.setStroke(Color.DODGERBLUE);
+			gc.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
+			gc.setStroke(Color.BLACK);
+			
+			SpaceObject object = getSpaceObject(id);
+			if (object != null && object.getName() != null) {
+				gc.setFill(Color.DODGERBLUE);
+				gc.fillText(object.getName(), x + radius + 2, y - radius);
+			}
+			
+		}
+		
+		/**
+		 * Stops predicting the paths of placed SpaceObjects
+		 */
+		void stop() {
+			trajectoryPredictor.shutdown();
+		}
+		
+		/**
+		 * Calculates the distance between two points using the Pythagorean theorem
+		 * @param startPoint one of the points to calculate the distance between
+		 * @param endPoint the other point to calculate distance between
+		 * @return the distance between two points
+		 */
+		double calculateDistance(Point2D startPoint, Point2D endPoint) {
+			
+			double xDistance = endPoint.getX() - startPoint.getX();
+			double yDistance = endPoint.getY() - startPoint.getY();
+			
+			double distance = Math.sqrt((xDistance * xDistance) + (yDistance * yDistance));
+			
+			return distance;
+			
+		}
+		
+		/**
+		 * Calculates the angle between two points and returns that angle in radians
+		 * @param point1 one of the points to calculate the angle between
+		 * @param point2 one of the points to calculate the angle between
+		 * @return the angle between the two points in radians
+		 */
+		public double calculateAngleBetween(Point2D point1, Point2D point2) {
+			
+			double angle;
+			
+			double xDiff = point1.getX() - point2.getX();
+			double yDiff = point1.getY() - point2.getY();
+			
+			angle = Math.atan2(xDiff, yDiff);
+			// Subtract Pi/2 to translate the angle(this way 0 degrees is on the right of the planet, 90 degrees is directly above, etc.)
+			angle -= Math.PI / 2;
+			
+			return angle;
+			
+		}
+		
+	}
+
+}
\ No newline at end of file
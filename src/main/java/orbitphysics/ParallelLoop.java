@@ -0,0 +1,104 @@
+package orbitphysics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a loop over the bodies of a simulation into chunks that are run on a {@link ForkJoinPool}.
+ *
+ * The chunks are split from the range the same way no matter how many threads the pool has, and every
+ * chunk only writes to the elements in its own range. As long as the work done for one index doesn't
+ * depend on the work done for another, the results are bit-for-bit the same as running the loop on a
+ * single thread.
+ */
+public class ParallelLoop {
+
+	// Ranges smaller than this are run on the calling thread instead of being split further
+	static final int CHUNK_SIZE = 256;
+
+	/**
+	 * The body of a loop, run once for every chunk of indices
+	 */
+	public interface RangeTask {
+
+		/**
+		 * @param start the first index of the chunk(inclusive)
+		 * @param end the last index of the chunk(exclusive)
+		 */
+		void run(int start, int end);
+
+	}
+
+	private ParallelLoop() {
+	}
+
+	/**
+	 * Runs a task over the indices from 0 to count - 1, splitting them across a pool's threads
+	 * @param pool the pool to run the chunks on, or null to run the whole range on the calling thread
+	 * @param count the number of indices
+	 * @param task the task to run for each chunk of indices
+	 */
+	public static void forEach(ForkJoinPool pool, int count, RangeTask task) {
+		forEach(pool, count, CHUNK_SIZE, task);
+	}
+
+	/**
+	 * Runs a task over the indices from 0 to count - 1 in chunks of a given size, for loops where each
+	 * index is a lot of work(like a whole subtree) so fewer indices should be run together
+	 * @param pool the pool to run the chunks on, or null to run the whole range on the calling thread
+	 * @param count the number of indices
+	 * @param chunkSize ranges with this many indices or fewer are run without being split further
+	 * @param task the task to run for each chunk of indices
+	 */
+	public static void forEach(ForkJoinPool pool, int count, int chunkSize, RangeTask task) {
+
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+		}
+
+		if (pool == null || count <= chunkSize) {
+			task.run(0, count);
+		} else {
+			pool.invoke(new Chunk(task, 0, count, chunkSize));
+		}
+
+	}
+
+	/**
+	 * A chunk of a loop which splits itself in half until it is small enough to run
+	 */
+	private static class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final RangeTask task;
+		private final int start;
+		private final int end;
+		private final int chunkSize;
+
+		Chunk(RangeTask task, int start, int end, int chunkSize) {
+			this.task = task;
+			this.start = start;
+			this.end = end;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start <= chunkSize) {
+
+				task.run(start, end);
+
+			} else {
+
+				int middle = (start + end) >>> 1;
+				invokeAll(new Chunk(task, start, middle, chunkSize), new Chunk(task, middle, end, chunkSize));
+
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,731 @@
+package orbitphysics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ForceSolver} that calculates gravity on a mesh with fast Fourier transforms, taking O(n + m log m)
+ * time for n bodies and m mesh points, so it can handle millions of bodies.
+ *
+ * Each step a square mesh of gridSize x gridSize points is laid over the bodies. The mass of every body is
+ * spread over the four nearest mesh points(cloud in cell), the potential at every mesh point is found by
+ * convolving the masses with a Green's function using FFTs, the field is the gradient of the potential, and
+ * it is interpolated back to the bodies with the same four weights. The bodies are attracted with the 1 / r^2
+ * gravity of 3D space, whose potential in the plane isn't a solution of the 2D Poisson equation, so instead of
+ * dividing by k^2 in Fourier space the Green's function is the 1 / r potential itself, sampled on a mesh twice
+ * as large and zero padded so the bodies don't feel copies of themselves(isolated boundaries).
+ *
+ * The mesh can't resolve anything smaller than a few mesh spacings, so the Green's function is the potential
+ * of a Gaussian cloud rather than a point, which is smooth on the scale of the mesh. With the short range
+ * correction(P3M) turned on, the difference between that and the exact, softened force is added directly for
+ * every pair of bodies closer than about seven mesh spacings, found with a grid of cells. Without it, close
+ * encounters are smoothed out over a couple of mesh spacings and the softening isn't used. The correction is
+ * as accurate as the mesh but gets slow when many bodies are packed into a few mesh cells.
+ *
+ * The mesh covers the bounding square of the bodies, so one body far from the others makes the mesh coarse.
+ * Its spacing is rounded up to a power of SPACING_STEP, so the transformed Green's function only has to be
+ * recalculated when the bodies spread out or pull together noticeably.
+ *
+ * If the solver is given a {@link ForkJoinPool}, the rows and columns of the mesh and the bodies are split
+ * between the pool's threads. Every mesh point and body is only written by one thread, in the same order no
+ * matter how many threads there are, so the results don't depend on the number of threads.
+ *
+ * Test particles are covered by the mesh and given its field, but aren't spread on it or used as sources of
+ * the short range correction.
+ */
+public class ParticleMeshSolver implements ForceSolver {
+
+	public static final int DEFAULT_GRID_SIZE = 256;
+
+	public static final int MIN_GRID_SIZE = 16;
+
+	public static final int MAX_GRID_SIZE = 2048;
+
+	// The number of mesh points left around the bodies, enough for the gradient at every point a body touches
+	private static final int MARGIN = 4;
+
+	// The mesh spacing is rounded up to a power of this
+	private static final double SPACING_STEP = Math.pow(2, 1.0 / 8);
+
+	// The radius of the Gaussian cloud in the Green's function, in mesh spacings
+	private static final double SPLIT_SCALE = 1.25;
+
+	// Pairs further apart than this many cloud radii are left to the mesh, where the short range force is under 0.2%
+	private static final double CUTOFF = 4.5;
+
+	// Mesh rows or columns given to a thread at a time
+	private static final int ROWS_PER_CHUNK = 4;
+
+	private static final double SQRT_PI = Math.sqrt(Math.PI);
+
+	// The long range force between two bodies at distance r divided by G * m * r and multiplied by the cloud
+	// radius cubed, as a function of u = r / (2 * cloud radius) from 0 to CUTOFF / 2
+	private static final int TABLE_SIZE = 4096;
+	private static final double[] LONG_RANGE_TABLE = buildLongRangeTable();
+
+	private int gridSize;
+
+	// The size of the zero padded mesh the convolution is done on
+	private int paddedSize;
+
+	private boolean shortRangeCorrection;
+
+	// The Plummer softening length squared, see DirectSumSolver
+	private double softeningSquared;
+
+	// The pool used to share the work between threads, or null to use the calling thread
+	private ForkJoinPool pool;
+
+	private FourierTransform transform;
+
+	// The padded mesh, row by row. It holds the masses, then their transform, and then the potential.
+	private double[] real;
+	private double[] imaginary;
+
+	// The transform of the Green's function for the current spacing, divided by paddedSize^2 to normalise the
+	// inverse transform
+	private double[] greenTransform;
+	private double greenSpacing = Double.NaN;
+
+	// Scratch space for transforming the columns of the mesh, one column for each block of ROWS_PER_CHUNK columns
+	// so the blocks can be transformed in parallel without sharing or allocating
+	private double[] columnReal;
+	private double[] columnImaginary;
+
+	// The acceleration at every point of the unpadded mesh
+	private double[] xField;
+	private double[] yField;
+
+	// The position of the mesh point(0, 0) and the distance between mesh points
+	private double originX;
+	private double originY;
+	private double spacing;
+
+	// The bodies sorted by the mesh row below them, the bodies of row r are from rowStart[r] to rowStart[r + 1]
+	private int[] rowStart;
+	private int[] rowBodies = new int[0];
+
+	// The positions and masses of the sources sorted into the cells of the short range correction, the sources of
+	// cell c are from cellStart[c] to cellStart[c + 1]
+	private int[] cellStart = new int[0];
+	private double[] cellX = new double[0];
+	private double[] cellY = new double[0];
+	private double[] cellMass = new double[0];
+
+	// Counts the pairs of the short range correction, each chunk adds its count once
+	private final LongAdder pairs = new LongAdder();
+	private long interactionCount;
+
+	public ParticleMeshSolver() {
+		this(DEFAULT_GRID_SIZE);
+	}
+
+	/**
+	 * @param gridSize the number of mesh points along each side of the mesh, a power of two
+	 */
+	public ParticleMeshSolver(int gridSize) {
+		this(gridSize, null);
+	}
+
+	/**
+	 * @param gridSize the number of mesh points along each side of the mesh, a power of two
+	 * @param pool the pool to share the work between, or null to use the calling thread
+	 */
+	public ParticleMeshSolver(int gridSize, ForkJoinPool pool) {
+		setGridSize(gridSize);
+		this.pool = pool;
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int count, double[] xAcceleration, double[] yAcceleration) {
+		computeAccelerations(x, y, mass, count, count, xAcceleration, yAcceleration);
+	}
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		if (count == 0) {
+			interactionCount = 0;
+			return;
+		}
+
+		// The mesh has to cover the test particles to interpolate their accelerations, but only the sources are spread on it
+		placeMesh(x, y, count);
+		deposit(x, y, mass, sourceCount);
+		solvePotential();
+		computeField();
+		interpolate(x, y, count, xAcceleration, yAcceleration);
+
+		interactionCount = count;
+
+		if (shortRangeCorrection) {
+			interactionCount += addShortRangeForces(x, y, mass, sourceCount, count, xAcceleration, yAcceleration);
+		}
+
+	}
+
+	/**
+	 * Chooses the spacing and position of the mesh so it covers every body with MARGIN points to spare, and
+	 * recalculates the transformed Green's function if the spacing changed
+	 */
+	private void placeMesh(double[] x, double[] y, int count) {
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < count; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		double extent = Math.max(maxX - minX, maxY - minY) * 1.0001;
+
+		spacing = 1;
+		if (extent > 0) {
+			double exactSpacing = extent / (gridSize - 2 * MARGIN);
+			spacing = Math.pow(SPACING_STEP, Math.ceil(Math.log(exactSpacing) / Math.log(SPACING_STEP)));
+		}
+
+		originX = (minX + maxX) / 2 - gridSize / 2 * spacing;
+		originY = (minY + maxY) / 2 - gridSize / 2 * spacing;
+
+		if (spacing != greenSpacing) {
+			computeGreenTransform();
+			greenSpacing = spacing;
+		}
+
+	}
+
+	/**
+	 * Samples the potential of a unit mass Gaussian cloud on the padded mesh, with distances wrapped around
+	 * the edges so the convolution is centered on each mesh point, and transforms it
+	 */
+	private void computeGreenTransform() {
+
+		double cloudRadius = SPLIT_SCALE * spacing;
+		double normalisation = 1.0 / ((double) paddedSize * paddedSize);
+
+		ParallelLoop.forEach(pool, paddedSize, ROWS_PER_CHUNK, (start, end) -> {
+
+			for (int row = start; row < end; row++) {
+
+				int base = row * paddedSize;
+				int dy = Math.min(row, paddedSize - row);
+
+				for (int column = 0; column < paddedSize; column++) {
+
+					int dx = Math.min(column, paddedSize - column);
+					double distance = spacing * Math.sqrt((double) dx * dx + (double) dy * dy);
+
+					if (distance == 0) {
+						real[base + column] = -Simulation.G / (cloudRadius * SQRT_PI);
+					} else {
+						real[base + column] = -Simulation.G * erf(distance / (2 * cloudRadius)) / distance;
+					}
+
+				}
+
+				Arrays.fill(imaginary, base, base + paddedSize, 0);
+				transform.transform(real, imaginary, base, false);
+
+			}
+
+		});
+
+		ParallelLoop.forEach(pool, columnBlockCount(), 1, (startBlock, endBlock) -> {
+			for (int block = startBlock; block < endBlock; block++) {
+
+				// Each block of columns has its own part of the column scratch space
+				int offset = block * paddedSize;
+
+				for (int column = block * ROWS_PER_CHUNK; column < Math.min(paddedSize, (block + 1) * ROWS_PER_CHUNK); column++) {
+
+					for (int row = 0; row < paddedSize; row++) {
+						columnReal[offset + row] = real[row * paddedSize + column];
+						columnImaginary[offset + row] = imaginary[row * paddedSize + column];
+					}
+
+					transform.transform(columnReal, columnImaginary, offset, false);
+
+					// The Green's function is real and even, so its transform is real
+					for (int row = 0; row < paddedSize; row++) {
+						greenTransform[row * paddedSize + column] = columnReal[offset + row] * normalisation;
+					}
+
+				}
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Clears the padded mesh and spreads the mass of the first count bodies over the four mesh points around each.
+	 * The bodies are sorted by row first, so each row can be filled by one thread from the bodies just below and above it.
+	 */
+	private void deposit(double[] x, double[] y, double[] mass, int count) {
+
+		if (rowBodies.length < count) {
+			rowBodies = new int[Math.max(count, rowBodies.length * 2)];
+		}
+
+		Arrays.fill(rowStart, 0);
+		for (int i = 0; i < count; i++) {
+			rowStart[(int) ((y[i] - originY) / spacing) + 1]++;
+		}
+		for (int row = 0; row < gridSize; row++) {
+			rowStart[row + 1] += rowStart[row];
+		}
+
+		// Place the bodies using the row starts as cursors, which leaves each holding the start of the next row
+		for (int i = 0; i < count; i++) {
+			rowBodies[rowStart[(int) ((y[i] - originY) / spacing)]++] = i;
+		}
+		for (int row = gridSize; row > 0; row--) {
+			rowStart[row] = rowStart[row - 1];
+		}
+		rowStart[0] = 0;
+
+		ParallelLoop.forEach(pool, paddedSize, ROWS_PER_CHUNK, (start, end) -> {
+
+			for (int row = start; row < end; row++) {
+
+				int base = row * paddedSize;
+
+				Arrays.fill(real, base, base + paddedSize, 0);
+				Arrays.fill(imaginary, base, base + paddedSize, 0);
+
+				if (row >= gridSize) {
+					continue;
+				}
+
+				// The bodies in the cell above the row put 1 - dy of their mass on it, those in the cell below put dy
+				for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+					int body = rowBodies[k];
+					double dy = (y[body] - originY) / spacing - row;
+					depositInRow(base, x[body], mass[body] * (1 - dy));
+				}
+
+				if (row > 0) {
+					for (int k = rowStart[row - 1]; k < rowStart[row]; k++) {
+						int body = rowBodies[k];
+						double dy = (y[body] - originY) / spacing - (row - 1);
+						depositInRow(base, x[body], mass[body] * dy);
+					}
+				}
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Splits a mass between the two mesh points of a row on either side of an x coordinate
+	 */
+	private void depositInRow(int base, double x, double mass) {
+
+		double position = (x - originX) / spacing;
+		int column = (int) position;
+		double dx = position - column;
+
+		real[base + column] += mass * (1 - dx);
+		real[base + column + 1] += mass * dx;
+
+	}
+
+	/**
+	 * Convolves the masses with the Green's function by transforming them, multiplying them by the transformed
+	 * Green's function and transforming them back, leaving the potential in the real part of the first gridSize
+	 * rows and columns
+	 */
+	private void solvePotential() {
+
+		// Only the first gridSize rows have any mass
+		ParallelLoop.forEach(pool, gridSize, ROWS_PER_CHUNK, (start, end) -> {
+			for (int row = start; row < end; row++) {
+				transform.transform(real, imaginary, row * paddedSize, false);
+			}
+		});
+
+		// Each column is transformed, multiplied and transformed back while it is copied out
+		ParallelLoop.forEach(pool, columnBlockCount(), 1, (startBlock, endBlock) -> {
+			for (int block = startBlock; block < endBlock; block++) {
+
+				int offset = block * paddedSize;
+
+				for (int column = block * ROWS_PER_CHUNK; column < Math.min(paddedSize, (block + 1) * ROWS_PER_CHUNK); column++) {
+
+					for (int row = 0; row < paddedSize; row++) {
+						columnReal[offset + row] = real[row * paddedSize + column];
+						columnImaginary[offset + row] = imaginary[row * paddedSize + column];
+					}
+
+					transform.transform(columnReal, columnImaginary, offset, false);
+
+					for (int row = 0; row < paddedSize; row++) {
+						double green = greenTransform[row * paddedSize + column];
+						columnReal[offset + row] *= green;
+						columnImaginary[offset + row] *= green;
+					}
+
+					transform.transform(columnReal, columnImaginary, offset, true);
+
+					// The padding rows of the potential are never read
+					for (int row = 0; row < gridSize; row++) {
+						real[row * paddedSize + column] = columnReal[offset + row];
+						imaginary[row * paddedSize + column] = columnImaginary[offset + row];
+					}
+
+				}
+
+			}
+
+		});
+
+		ParallelLoop.forEach(pool, gridSize, ROWS_PER_CHUNK, (start, end) -> {
+			for (int row = start; row < end; row++) {
+				transform.transform(real, imaginary, row * paddedSize, true);
+			}
+		});
+
+	}
+
+	/**
+	 * Calculates the acceleration at every mesh point inside the margin from the fourth order central
+	 * difference of the potential
+	 */
+	private void computeField() {
+
+		double factor = 1 / (12 * spacing);
+
+		ParallelLoop.forEach(pool, gridSize - 4, ROWS_PER_CHUNK, (start, end) -> {
+
+			for (int row = start + 2; row < end + 2; row++) {
+
+				int base = row * paddedSize;
+
+				for (int column = 2; column < gridSize - 2; column++) {
+
+					int point = base + column;
+
+					xField[row * gridSize + column] = (real[point + 2] - 8 * real[point + 1] + 8 * real[point - 1] - real[point - 2]) * factor;
+					yField[row * gridSize + column] = (real[point + 2 * paddedSize] - 8 * real[point + paddedSize]
+							+ 8 * real[point - paddedSize] - real[point - 2 * paddedSize]) * factor;
+
+				}
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Sets the acceleration of every body to the field at its position, weighted like its mass was spread
+	 */
+	private void interpolate(double[] x, double[] y, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		ParallelLoop.forEach(pool, count, (start, end) -> {
+
+			for (int i = start; i < end; i++) {
+
+				double positionX = (x[i] - originX) / spacing;
+				double positionY = (y[i] - originY) / spacing;
+				int column = (int) positionX;
+				int row = (int) positionY;
+				double dx = positionX - column;
+				double dy = positionY - row;
+
+				int point = row * gridSize + column;
+
+				double lowerWeight = 1 - dy;
+				double leftWeight = 1 - dx;
+
+				xAcceleration[i] = lowerWeight * (leftWeight * xField[point] + dx * xField[point + 1])
+						+ dy * (leftWeight * xField[point + gridSize] + dx * xField[point + gridSize + 1]);
+				yAcceleration[i] = lowerWeight * (leftWeight * yField[point] + dx * yField[point + 1])
+						+ dy * (leftWeight * yField[point + gridSize] + dx * yField[point + gridSize + 1]);
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Adds the short range force of every source closer than the cutoff to every body, the softened force minus the
+	 * part the mesh already calculated. The sources are sorted into square cells at least as large as the
+	 * cutoff, so each body only has to look at its own cell and the eight around it.
+	 * @return the number of pairs added
+	 */
+	private long addShortRangeForces(double[] x, double[] y, double[] mass, int sourceCount, int count, double[] xAcceleration, double[] yAcceleration) {
+
+		double cloudRadius = SPLIT_SCALE * spacing;
+		double cutoff = CUTOFF * cloudRadius;
+		double cutoffSquared = cutoff * cutoff;
+
+		int cells = Math.max(1, (int) (gridSize * spacing / cutoff));
+		double cellSize = gridSize * spacing / cells;
+
+		if (cellStart.length < cells * cells + 1) {
+			cellStart = new int[cells * cells + 1];
+		}
+		if (cellX.length < sourceCount) {
+			int capacity = Math.max(sourceCount, cellX.length * 2);
+			cellX = new double[capacity];
+			cellY = new double[capacity];
+			cellMass = new double[capacity];
+		}
+
+		Arrays.fill(cellStart, 0, cells * cells + 1, 0);
+		for (int i = 0; i < sourceCount; i++) {
+			cellStart[cellOf(x[i], y[i], cells, cellSize) + 1]++;
+		}
+		for (int cell = 0; cell < cells * cells; cell++) {
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		for (int i = 0; i < sourceCount; i++) {
+			int k = cellStart[cellOf(x[i], y[i], cells, cellSize)]++;
+			cellX[k] = x[i];
+			cellY[k] = y[i];
+			cellMass[k] = mass[i];
+		}
+		for (int cell = cells * cells; cell > 0; cell--) {
+			cellStart[cell] = cellStart[cell - 1];
+		}
+		cellStart[0] = 0;
+
+		double softeningSquared = this.softeningSquared;
+		double tableScale = (TABLE_SIZE - 1) / (CUTOFF / 2);
+		double cloudRadiusCubed = cloudRadius * cloudRadius * cloudRadius;
+
+		ParallelLoop.forEach(pool, count, (start, end) -> {
+
+			long chunkPairs = 0;
+
+			for (int i = start; i < end; i++) {
+
+				double xi = x[i];
+				double yi = y[i];
+
+				int cellColumn = Math.min(cells - 1, (int) ((xi - originX) / cellSize));
+				int cellRow = Math.min(cells - 1, (int) ((yi - originY) / cellSize));
+
+				double xSum = 0;
+				double ySum = 0;
+
+				for (int row = Math.max(0, cellRow - 1); row <= Math.min(cells - 1, cellRow + 1); row++) {
+					for (int column = Math.max(0, cellColumn - 1); column <= Math.min(cells - 1, cellColumn + 1); column++) {
+
+						int cell = row * cells + column;
+
+						for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+
+							double dx = cellX[j] - xi;
+							double dy = cellY[j] - yi;
+							double distanceSquared = dx * dx + dy * dy;
+
+							if (distanceSquared > 0 && distanceSquared < cutoffSquared) {
+
+								// Linearly interpolate the long range force from the table
+								double position = Math.sqrt(distanceSquared) / (2 * cloudRadius) * tableScale;
+								int index = (int) position;
+								double fraction = position - index;
+								double longRange = (LONG_RANGE_TABLE[index] + fraction * (LONG_RANGE_TABLE[index + 1] - LONG_RANGE_TABLE[index])) / cloudRadiusCubed;
+
+								double softenedSquared = distanceSquared + softeningSquared;
+								double scale = Simulation.G * cellMass[j] * (1 / (softenedSquared * Math.sqrt(softenedSquared)) - longRange);
+
+								xSum += dx * scale;
+								ySum += dy * scale;
+								chunkPairs++;
+
+							}
+
+						}
+
+					}
+				}
+
+				xAcceleration[i] += xSum;
+				yAcceleration[i] += ySum;
+
+			}
+
+			pairs.add(chunkPairs);
+
+		});
+
+		return pairs.sumThenReset();
+
+	}
+
+	/**
+	 * @return the index of the short range cell holding a position
+	 */
+	private int cellOf(double x, double y, int cells, double cellSize) {
+		int column = Math.min(cells - 1, (int) ((x - originX) / cellSize));
+		int row = Math.min(cells - 1, (int) ((y - originY) / cellSize));
+		return row * cells + column;
+	}
+
+	/**
+	 * Tabulates F(u) = (erf(u) - 2 / sqrt(pi) * u * exp(-u^2)) / (8 * u^3), so the long range force between two
+	 * bodies at distance r is G * m * r * F(r / (2 * s)) / s^3 for a cloud radius s
+	 */
+	private static double[] buildLongRangeTable() {
+
+		double[] table = new double[TABLE_SIZE];
+
+		for (int i = 0; i < TABLE_SIZE; i++) {
+
+			double u = i * (CUTOFF / 2) / (TABLE_SIZE - 1);
+
+			if (u < 0.1) {
+				// Most of the difference cancels for small u, so use its Taylor series instead
+				double u2 = u * u;
+				table[i] = 2 / SQRT_PI / 8 * (2.0 / 3 - u2 * (2.0 / 5 - u2 * (1.0 / 7 - u2 / 27)));
+			} else {
+				table[i] = (erf(u) - 2 / SQRT_PI * u * Math.exp(-u * u)) / (8 * u * u * u);
+			}
+
+		}
+
+		return table;
+
+	}
+
+	/**
+	 * The error function, from the series 2 / sqrt(pi) * exp(-x^2) * (sum of 2^n * x^(2n + 1) / (1 * 3 * ... * (2n + 1))),
+	 * whose terms are all positive so nothing cancels
+	 */
+	static double erf(double x) {
+
+		if (x < 0) {
+			return -erf(-x);
+		}
+
+		// erf(6) is 1 to double precision
+		if (x > 6) {
+			return 1;
+		}
+
+		double term = x;
+		double sum = x;
+
+		for (int n = 1; term > sum * 1e-17; n++) {
+			term *= 2 * x * x / (2 * n + 1);
+			sum += term;
+		}
+
+		return 2 / SQRT_PI * Math.exp(-x * x) * sum;
+
+	}
+
+	@Override
+	public long getInteractionCount() {
+		return interactionCount;
+	}
+
+	/**
+	 * @return the pool used to share the work between threads, or null if the calling thread is used
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool the pool to share the work between, or null to use the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the Plummer softening length used by the short range correction
+	 */
+	public double getSoftening() {
+		return Math.sqrt(softeningSquared);
+	}
+
+	/**
+	 * The mesh already smooths the force over a couple of mesh spacings, so the softening is only used by the
+	 * short range correction
+	 * @param softening the new Plummer softening length, or 0 for no softening
+	 */
+	public void setSoftening(double softening) {
+
+		if (softening < 0) {
+			throw new IllegalArgumentException("softening must not be negative: " + softening);
+		}
+
+		this.softeningSquared = softening * softening;
+
+	}
+
+	/**
+	 * @return the number of mesh points along each side of the mesh
+	 */
+	public int getGridSize() {
+		return gridSize;
+	}
+
+	/**
+	 * The padded mesh holds 4 * gridSize^2 complex numbers, so the largest meshes take a few hundred megabytes
+	 * @param gridSize the number of mesh points along each side of the mesh, a power of two from MIN_GRID_SIZE
+	 * to MAX_GRID_SIZE
+	 */
+	public void setGridSize(int gridSize) {
+
+		if (gridSize < MIN_GRID_SIZE || gridSize > MAX_GRID_SIZE || Integer.bitCount(gridSize) != 1) {
+			throw new IllegalArgumentException("gridSize must be a power of two from " + MIN_GRID_SIZE + " to " + MAX_GRID_SIZE + ": " + gridSize);
+		}
+
+		this.gridSize = gridSize;
+		paddedSize = 2 * gridSize;
+
+		transform = new FourierTransform(paddedSize);
+		real = new double[paddedSize * paddedSize];
+		imaginary = new double[paddedSize * paddedSize];
+		greenTransform = new double[paddedSize * paddedSize];
+		greenSpacing = Double.NaN;
+
+		columnReal = new double[columnBlockCount() * paddedSize];
+		columnImaginary = new double[columnBlockCount() * paddedSize];
+
+		xField = new double[gridSize * gridSize];
+		yField = new double[gridSize * gridSize];
+		rowStart = new int[gridSize + 1];
+
+	}
+
+	/**
+	 * @return the number of blocks of ROWS_PER_CHUNK columns the columns of the padded mesh are transformed in
+	 */
+	private int columnBlockCount() {
+		return (paddedSize + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+	}
+
+	/**
+	 * @return true if the short range force of close pairs is added to the mesh force(P3M)
+	 */
+	public boolean isShortRangeCorrection() {
+		return shortRangeCorrection;
+	}
+
+	/**
+	 * @param shortRangeCorrection true to add the short range force of close pairs to the mesh force(P3M), which
+	 * makes close encounters accurate but costs more the more bodies there are per mesh cell
+	 */
+	public void setShortRangeCorrection(boolean shortRangeCorrection) {
+		this.shortRangeCorrection = shortRangeCorrection;
+	}
+
+}
@@ -0,0 +1,584 @@
+package orbitphysics;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws the bodies of a {@link SimulationSnapshot} and their trails by writing pixels straight into an int array
+ * that backs a {@link WritableImage}, so the whole frame is one drawImage call however many bodies there are.
+ * This is for scenes too big for {@link Renderer}, whose canvas commands become the bottleneck at around 100k bodies.
+ *
+ * The screen is split into horizontal bands and the bands are drawn in parallel. Each body is first sorted into
+ * the bands it covers, and every band task only writes its own rows, so no locks are needed.
+ *
+ * The level of detail is picked every frame from the zoom of the {@link GameCamera} and the number of bodies on
+ * the screen. When the bodies are big enough to see, they are drawn as circles over their trails, like Renderer
+ * draws them. When there are a lot of them per pixel or they are mostly smaller than a pixel, each body is instead
+ * added to the density of the pixel it is in, and each pixel is tinted from the background towards the average
+ * color of its bodies by how many there are, which shows the structure of a crowded scene that would otherwise
+ * be a solid blob. Trails are left out at that level, since they would cover everything.
+ */
+public class RasterRenderer {
+
+	/**
+	 * The ways bodies can be drawn
+	 */
+	public enum LevelOfDetail {
+
+		// Filled circles over their trails
+		CIRCLES,
+
+		// The number of bodies in each pixel, tinted with their average color
+		DENSITY
+
+	}
+
+	// Scenes with fewer bodies on the screen than this are always drawn as circles
+	static final int MIN_DENSITY_BODIES = 1000;
+
+	// More bodies than this per pixel on the screen are drawn as a density
+	static final double DENSITY_BODIES_PER_PIXEL = 1.0 / 64;
+
+	// Bodies that are smaller than this many pixels across on average are drawn as a density
+	static final double DENSITY_DIAMETER = 1.5;
+
+	// How fast a pixel's tint saturates with the number of bodies in it
+	static final double DENSITY_GAIN = 0.6;
+
+	// The height of the bands the screen is split into for drawing in parallel
+	static final int BAND_HEIGHT = 16;
+
+	private static final int BACKGROUND = 0xFFFFFFFF;
+	private static final int TRAIL_COLOR = 0xFF000000;
+
+	// The color of bodies that don't have a SpaceObject
+	private static final Color DEFAULT_COLOR = Color.GRAY;
+
+	// The pool the bands are drawn on, or null to draw them on the calling thread
+	private final ForkJoinPool pool;
+
+	// The pixels of the frame, in the premultiplied ARGB format of the pixel buffer
+	private int width;
+	private int height;
+	private int[] pixels = new int[0];
+	private PixelBuffer<IntBuffer> pixelBuffer;
+	private WritableImage image;
+
+	// The number of bodies in each pixel and the sums of their color channels, for the density level
+	private float[] density = new float[0];
+	private float[] redSum = new float[0];
+	private float[] greenSum = new float[0];
+	private float[] blueSum = new float[0];
+
+	// The screen positions, radii and colors of the bodies on the screen
+	private int visibleCount;
+	private double[] bodyX = new double[0];
+	private double[] bodyY = new double[0];
+	private double[] bodyRadius = new double[0];
+	private int[] bodyColor = new int[0];
+
+	// The visible bodies sorted into bands, the bodies of band b are bandBodies[bandStart[b]] to bandBodies[bandStart[b + 1] - 1]
+	private int[] bandStart = new int[1];
+	private int[] bandBodies = new int[0];
+
+	// The screen coordinates of the visible trails one after another, trail t is trailStart[t] to trailStart[t + 1] - 1
+	private int trailCount;
+	private int[] trailStart = new int[1];
+	private double[] trailMinY = new double[0];
+	private double[] trailMaxY = new double[0];
+	private double[] trailPointX = new double[0];
+	private double[] trailPointY = new double[0];
+
+	private LevelOfDetail levelOfDetail = LevelOfDetail.CIRCLES;
+
+	// The level of detail to always draw at, or null to pick it automatically
+	private LevelOfDetail fixedLevelOfDetail;
+
+	public RasterRenderer() {
+		this(null);
+	}
+
+	/**
+	 * @param pool the pool to draw the bands of the screen on, or null to draw them on the calling thread
+	 */
+	public RasterRenderer(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Draws the trails and bodies that are inside the camera's view, covering the whole canvas
+	 * @param gc the {@link GraphicsContext} of the canvas
+	 * @param gameCamera the GameCamera which stores the drawing offsets, zoom and screen size
+	 * @param snapshot the snapshot of the simulation to draw
+	 * @param alpha how far between the snapshot's previous and current positions to draw the bodies, from 0 to 1
+	 * @param spaceObjectsById the SpaceObjects of the bodies, indexed by body id(null for bodies without one)
+	 */
+	public void render(GraphicsContext gc, GameCamera gameCamera, SimulationSnapshot snapshot, double alpha, List<SpaceObject> spaceObjectsById) {
+
+		resize((int) Math.ceil(gameCamera.getScreenWidth()), (int) Math.ceil(gameCamera.getScreenHeight()));
+
+		double diameterSum = collectBodies(gameCamera, snapshot, alpha, spaceObjectsById);
+
+		if (fixedLevelOfDetail != null) {
+			levelOfDetail = fixedLevelOfDetail;
+		} else if (visibleCount >= MIN_DENSITY_BODIES
+				&& (visibleCount > (double) width * height * DENSITY_BODIES_PER_PIXEL || diameterSum / visibleCount < DENSITY_DIAMETER)) {
+			levelOfDetail = LevelOfDetail.DENSITY;
+		} else {
+			levelOfDetail = LevelOfDetail.CIRCLES;
+		}
+
+		trailCount = 0;
+		if (levelOfDetail == LevelOfDetail.CIRCLES) {
+			collectTrails(gameCamera, snapshot);
+		}
+
+		sortIntoBands();
+
+		int bandCount = bandCount();
+
+		ParallelLoop.forEach(pool, bandCount, 1, (start, end) -> {
+			for (int band = start; band < end; band++) {
+				if (levelOfDetail == LevelOfDetail.CIRCLES) {
+					drawCircles(band);
+				} else {
+					drawDensity(band);
+				}
+			}
+		});
+
+		pixelBuffer.updateBuffer(buffer -> null);
+		gc.drawImage(image, 0, 0);
+
+	}
+
+	/**
+	 * Makes the pixel arrays and image match the size of the screen
+	 */
+	private void resize(int width, int height) {
+
+		if (width == this.width && height == this.height && image != null) {
+			return;
+		}
+
+		this.width = Math.max(1, width);
+		this.height = Math.max(1, height);
+
+		int size = this.width * this.height;
+
+		pixels = new int[size];
+		density = new float[size];
+		redSum = new float[size];
+		greenSum = new float[size];
+		blueSum = new float[size];
+
+		pixelBuffer = new PixelBuffer<>(this.width, this.height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance());
+		image = new WritableImage(pixelBuffer);
+
+		bandStart = new int[bandCount() + 1];
+
+	}
+
+	private int bandCount() {
+		return (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+	}
+
+	/**
+	 * Finds the screen positions, radii and colors of the bodies that are on the screen
+	 * @return the sum of their diameters in pixels
+	 */
+	private double collectBodies(GameCamera gameCamera, SimulationSnapshot snapshot, double alpha, List<SpaceObject> spaceObjectsById) {
+
+		int count = snapshot.getBodyCount();
+
+		if (bodyX.length < count) {
+			int capacity = Math.max(count, bodyX.length * 2);
+			bodyX = new double[capacity];
+			bodyY = new double[capacity];
+			bodyRadius = new double[capacity];
+			bodyColor = new int[capacity];
+		}
+
+		double zoom = gameCamera.getZoom();
+		double diameterSum = 0;
+
+		Color lastColor = null;
+		int lastArgb = 0;
+
+		visibleCount = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			double radius = snapshot.getRadius(i) * zoom;
+			double x = gameCamera.toScreenX(snapshot.getX(i, alpha));
+			double y = gameCamera.toScreenY(snapshot.getY(i, alpha));
+
+			if (!gameCamera.isOnScreen(x - radius, y - radius, x + radius, y + radius)) {
+				continue;
+			}
+
+			int id = snapshot.getId(i);
+			SpaceObject object = id < spaceObjectsById.size() ? spaceObjectsById.get(id) : null;
+			Color color = object != null ? object.getColor() : DEFAULT_COLOR;
+
+			// Neighbouring bodies usually share a color, so the conversion is skipped for them
+			if (color != lastColor) {
+				lastColor = color;
+				lastArgb = toArgb(color);
+			}
+
+			bodyX[visibleCount] = x;
+			bodyY[visibleCount] = y;
+			bodyRadius[visibleCount] = radius;
+			bodyColor[visibleCount] = lastArgb;
+			visibleCount++;
+
+			diameterSum += radius * 2;
+
+		}
+
+		return diameterSum;
+
+	}
+
+	/**
+	 * Copies the screen coordinates of the trails that are on the screen one after another
+	 */
+	private void collectTrails(GameCamera gameCamera, SimulationSnapshot snapshot) {
+
+		double zoom = gameCamera.getZoom();
+		double xOffset = gameCamera.getxOffset();
+		double yOffset = gameCamera.getyOffset();
+
+		int pointCount = 0;
+
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+
+			TrailBuffer trail = snapshot.getTrail(i);
+
+			if (trail == null || trail.size() < 2) {
+				continue;
+			}
+
+			if (trailPointX.length < pointCount + trail.size()) {
+				int capacity = Math.max(pointCount + trail.getCapacity(), trailPointX.length * 2);
+				trailPointX = Arrays.copyOf(trailPointX, capacity);
+				trailPointY = Arrays.copyOf(trailPointY, capacity);
+			}
+
+			if (trailStart.length < trailCount + 2) {
+				int capacity = Math.max(trailCount + 2, trailStart.length * 2);
+				trailStart = Arrays.copyOf(trailStart, capacity);
+				trailMinY = Arrays.copyOf(trailMinY, capacity);
+				trailMaxY = Arrays.copyOf(trailMaxY, capacity);
+			}
+
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+
+			for (int k = 0; k < trail.size(); k++) {
+
+				double x = (trail.getX(k) - xOffset) * zoom;
+				double y = (trail.getY(k) - yOffset) * zoom;
+
+				trailPointX[pointCount + k] = x;
+				trailPointY[pointCount + k] = y;
+
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, y);
+				maxX = Math.max(maxX, x);
+				maxY = Math.max(maxY, y);
+
+			}
+
+			// Trails that are off the screen are dropped by not moving past their points
+			if (gameCamera.isOnScreen(minX, minY, maxX, maxY)) {
+				trailStart[trailCount] = pointCount;
+				trailMinY[trailCount] = minY;
+				trailMaxY[trailCount] = maxY;
+				trailCount++;
+				pointCount += trail.size();
+			}
+
+		}
+
+		trailStart[trailCount] = pointCount;
+
+	}
+
+	/**
+	 * Sorts the visible bodies into the bands they cover with a counting sort, keeping them in the order they were found
+	 */
+	private void sortIntoBands() {
+
+		int bandCount = bandCount();
+
+		Arrays.fill(bandStart, 0, bandCount + 1, 0);
+
+		for (int i = 0; i < visibleCount; i++) {
+			for (int band = firstBand(i); band <= lastBand(i); band++) {
+				bandStart[band + 1]++;
+			}
+		}
+
+		for (int band = 0; band < bandCount; band++) {
+			bandStart[band + 1] += bandStart[band];
+		}
+
+		if (bandBodies.length < bandStart[bandCount]) {
+			bandBodies = new int[Math.max(bandStart[bandCount], bandBodies.length * 2)];
+		}
+
+		// bandStart[b + 1] is used as the next free slot of band b while filling, which leaves it at the start of band b + 1
+		for (int band = bandCount; band > 0; band--) {
+			bandStart[band] = bandStart[band - 1];
+		}
+
+		for (int i = 0; i < visibleCount; i++) {
+			for (int band = firstBand(i); band <= lastBand(i); band++) {
+				bandBodies[bandStart[band + 1]++] = i;
+			}
+		}
+
+		bandStart[0] = 0;
+
+	}
+
+	private int firstBand(int i) {
+
+		double top = levelOfDetail == LevelOfDetail.DENSITY ? bodyY[i] : bodyY[i] - bodyRadius[i];
+
+		return Math.max(0, Math.min(bandCount() - 1, (int) Math.floor(top) / BAND_HEIGHT));
+
+	}
+
+	private int lastBand(int i) {
+
+		double bottom = levelOfDetail == LevelOfDetail.DENSITY ? bodyY[i] : bodyY[i] + bodyRadius[i];
+
+		return Math.max(0, Math.min(bandCount() - 1, (int) Math.floor(bottom) / BAND_HEIGHT));
+
+	}
+
+	/**
+	 * Draws the trails and then the bodies of a band as circles, bodies smaller than a pixel as single pixels
+	 */
+	private void drawCircles(int band) {
+
+		int top = band * BAND_HEIGHT;
+		int bottom = Math.min(height, top + BAND_HEIGHT);
+
+		Arrays.fill(pixels, top * width, bottom * width, BACKGROUND);
+
+		for (int t = 0; t < trailCount; t++) {
+
+			if (trailMaxY[t] < top || trailMinY[t] >= bottom) {
+				continue;
+			}
+
+			for (int k = trailStart[t]; k + 1 < trailStart[t + 1]; k++) {
+				drawLine(trailPointX[k], trailPointY[k], trailPointX[k + 1], trailPointY[k + 1], top, bottom);
+			}
+
+		}
+
+		for (int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+
+			int i = bandBodies[k];
+
+			double x = bodyX[i];
+			double y = bodyY[i];
+			double radius = bodyRadius[i];
+			int color = bodyColor[i];
+
+			if (radius < 0.5) {
+
+				int px = (int) Math.floor(x);
+				int py = (int) Math.floor(y);
+
+				if (px >= 0 && px < width && py >= top && py < bottom) {
+					pixels[py * width + px] = color;
+				}
+
+				continue;
+
+			}
+
+			// Each row covered by the circle is filled between the edges at the row's center
+			int firstRow = Math.max(top, (int) Math.ceil(y - radius - 0.5));
+			int lastRow = Math.min(bottom - 1, (int) Math.floor(y + radius - 0.5));
+
+			for (int row = firstRow; row <= lastRow; row++) {
+
+				double dy = row + 0.5 - y;
+				double halfWidth = Math.sqrt(Math.max(0, radius * radius - dy * dy));
+
+				int firstColumn = Math.max(0, (int) Math.ceil(x - halfWidth - 0.5));
+				int lastColumn = Math.min(width - 1, (int) Math.floor(x + halfWidth - 0.5));
+
+				if (firstColumn <= lastColumn) {
+					Arrays.fill(pixels, row * width + firstColumn, row * width + lastColumn + 1, color);
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Draws the part of a one pixel wide line between two points that is inside the rows of a band
+	 */
+	private void drawLine(double x0, double y0, double x1, double y1, int top, int bottom) {
+
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+
+		// Clip the line to the band and the width of the screen, as a range of distances along it from 0 to 1
+		double start = 0;
+		double end = 1;
+
+		if (dy != 0) {
+			double enter = (top - y0) / dy;
+			double exit = (bottom - y0) / dy;
+			start = Math.max(start, Math.min(enter, exit));
+			end = Math.min(end, Math.max(enter, exit));
+		} else if (y0 < top || y0 >= bottom) {
+			return;
+		}
+
+		if (dx != 0) {
+			double enter = -x0 / dx;
+			double exit = (width - x0) / dx;
+			start = Math.max(start, Math.min(enter, exit));
+			end = Math.min(end, Math.max(enter, exit));
+		} else if (x0 < 0 || x0 >= width) {
+			return;
+		}
+
+		if (start > end) {
+			return;
+		}
+
+		int steps = (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy)) * (end - start));
+
+		for (int k = 0; k <= steps; k++) {
+
+			double t = steps == 0 ? start : start + (end - start) * k / steps;
+
+			int px = (int) Math.floor(x0 + dx * t);
+			int py = (int) Math.floor(y0 + dy * t);
+
+			if (px >= 0 && px < width && py >= top && py < bottom) {
+				pixels[py * width + px] = TRAIL_COLOR;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Adds the bodies of a band to the densities of their pixels, then tints each pixel of the band by its density
+	 */
+	private void drawDensity(int band) {
+
+		int top = band * BAND_HEIGHT;
+		int bottom = Math.min(height, top + BAND_HEIGHT);
+
+		int first = top * width;
+		int last = bottom * width;
+
+		Arrays.fill(density, first, last, 0);
+		Arrays.fill(redSum, first, last, 0);
+		Arrays.fill(greenSum, first, last, 0);
+		Arrays.fill(blueSum, first, last, 0);
+
+		for (int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+
+			int i = bandBodies[k];
+
+			int px = (int) Math.floor(bodyX[i]);
+			int py = (int) Math.floor(bodyY[i]);
+
+			if (px < 0 || px >= width || py < top || py >= bottom) {
+				continue;
+			}
+
+			int pixel = py * width + px;
+			int color = bodyColor[i];
+
+			density[pixel]++;
+			redSum[pixel] += (color >> 16) & 0xFF;
+			greenSum[pixel] += (color >> 8) & 0xFF;
+			blueSum[pixel] += color & 0xFF;
+
+		}
+
+		int backgroundRed = (BACKGROUND >> 16) & 0xFF;
+		int backgroundGreen = (BACKGROUND >> 8) & 0xFF;
+		int backgroundBlue = BACKGROUND & 0xFF;
+
+		for (int pixel = first; pixel < last; pixel++) {
+
+			float count = density[pixel];
+
+			if (count == 0) {
+				pixels[pixel] = BACKGROUND;
+				continue;
+			}
+
+			double coverage = 1 - Math.exp(-DENSITY_GAIN * count);
+
+			int red = (int) (backgroundRed + (redSum[pixel] / count - backgroundRed) * coverage);
+			int green = (int) (backgroundGreen + (greenSum[pixel] / count - backgroundGreen) * coverage);
+			int blue = (int) (backgroundBlue + (blueSum[pixel] / count - backgroundBlue) * coverage);
+
+			pixels[pixel] = 0xFF000000 | red << 16 | green << 8 | blue;
+
+		}
+
+	}
+
+	private static int toArgb(Color color) {
+
+		// Bodies are drawn opaque, so their colors are the same premultiplied or not
+		int red = (int) Math.round(color.getRed() * 255);
+		int green = (int) Math.round(color.getGreen() * 255);
+		int blue = (int) Math.round(color.getBlue() * 255);
+
+		return 0xFF000000 | red << 16 | green << 8 | blue;
+
+	}
+
+	/**
+	 * @return the level of detail the last frame was drawn at
+	 */
+	public LevelOfDetail getLevelOfDetail() {
+		return levelOfDetail;
+	}
+
+	/**
+	 * @param levelOfDetail the level of detail to always draw at, or null to pick it from the zoom and the number of bodies
+	 */
+	public void setFixedLevelOfDetail(LevelOfDetail levelOfDetail) {
+		this.fixedLevelOfDetail = levelOfDetail;
+	}
+
+	/**
+	 * @return the number of bodies drawn in the last frame
+	 */
+	public int getVisibleCount() {
+		return visibleCount;
+	}
+
+}
@@ -0,0 +1,107 @@
+package orbitphysics;
+
+import java.nio.ByteOrder;
+
+/**
+ * The layout of the binary recording files written by {@link RecordingWriter} and read by {@link RecordingReader}.
+ * A recording holds the state of every body at a series of steps(frames), and a recording with a single frame
+ * can be used to store the starting bodies of a scenario. All values are little endian.
+ *
+ * <pre>
+ * header, HEADER_SIZE bytes
+ *   int    MAGIC
+ *   short  VERSION
+ *   byte   encoding, the ordinal of an {@link Encoding}
+ *   byte   unused
+ *   int    keyframe interval
+ *   int    unused
+ *   double time step of the recorded simulation
+ *   long   number of frames, 0 until the recording is closed
+ *   long   offset of the frame index, 0 until the recording is closed
+ *   unused up to HEADER_SIZE
+ *
+ * frames, one after another
+ *   int    length of the frame in bytes, including this int
+ *   byte   KEYFRAME or DELTA_FRAME
+ *   long   step count
+ *   double time
+ *   int    number of bodies
+ *   keyframes only: int[] ids, then x, y, x velocity, y velocity, mass and radius columns
+ *   delta frames only: x, y, x velocity and y velocity columns
+ *
+ * frame index, written when the recording is closed
+ *   long[] offset of every frame
+ * </pre>
+ *
+ * Columns hold doubles with the DOUBLE encoding, and floats with the others. With FLOAT_DELTA, the position
+ * and velocity columns of a delta frame hold the change since the previous frame instead, which keeps more
+ * precision than a plain float. Delta frames are only written when the previous frame has the same bodies
+ * with the same masses and radii, so they don't need those columns.
+ *
+ * If a recording was never closed(for example because the program was killed), the frames can still be
+ * found by following the frame lengths from the end of the header.
+ */
+public final class RecordingFormat {
+
+	/**
+	 * How the columns of body state are stored
+	 */
+	public enum Encoding {
+
+		// Every value as a double, the exact state of the simulation
+		DOUBLE(Double.BYTES),
+
+		// Every value as a float, half the size
+		FLOAT(Float.BYTES),
+
+		// Floats, storing the change in position and velocity since the previous frame when possible
+		FLOAT_DELTA(Float.BYTES);
+
+		final int valueSize;
+
+		Encoding(int valueSize) {
+			this.valueSize = valueSize;
+		}
+
+	}
+
+	// "ORBP"
+	static final int MAGIC = 0x4F524250;
+
+	// The version of the format, increased whenever the layout changes
+	static final short VERSION = 1;
+
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int HEADER_SIZE = 64;
+
+	// The positions of the header values that are filled in when the recording is closed
+	static final int FRAME_COUNT_POSITION = 24;
+	static final int INDEX_OFFSET_POSITION = 32;
+
+	// The size of the values at the start of every frame
+	static final int FRAME_HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES + Double.BYTES + Integer.BYTES;
+
+	static final byte KEYFRAME = 0;
+	static final byte DELTA_FRAME = 1;
+
+	private RecordingFormat() {
+	}
+
+	/**
+	 * @param encoding the encoding of the recording
+	 * @param kind KEYFRAME or DELTA_FRAME
+	 * @param count the number of bodies in the frame
+	 * @return the length in bytes of a frame
+	 */
+	static long frameLength(Encoding encoding, byte kind, int count) {
+
+		if (kind == KEYFRAME) {
+			return FRAME_HEADER_SIZE + (long) count * (Integer.BYTES + 6 * encoding.valueSize);
+		}
+
+		return FRAME_HEADER_SIZE + (long) count * 4 * encoding.valueSize;
+
+	}
+
+}
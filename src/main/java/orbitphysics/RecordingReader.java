@@ -0,0 +1,477 @@
+package orbitphysics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import orbitphysics.RecordingFormat.Encoding;
+
+/**
+ * Reads a recording written by {@link RecordingWriter}. The reader holds the state of one frame at a time,
+ * and can jump to any frame with {@link #seek(int)}, decoding forward from the keyframe before it when the
+ * frame is a delta frame. The file is read through memory mapped regions.
+ */
+public class RecordingReader implements Closeable {
+
+	private final FileChannel channel;
+	private final long fileSize;
+
+	private final Encoding encoding;
+	private final int keyframeInterval;
+	private final double timeStep;
+
+	// The offset in the file of every frame
+	private final long[] frameOffsets;
+
+	// The mapped region of the file holding the frame being read, and where it starts in the file
+	private MappedByteBuffer region;
+	private long regionStart;
+	private long regionEnd;
+
+	private final ByteBuffer kindBuffer = ByteBuffer.allocate(1);
+
+	// The frame whose state is held by the reader, or -1 before the first frame is read
+	private int frame = -1;
+
+	// The state of the bodies in the current frame
+	long stepCount;
+	double time;
+	int count;
+	int[] ids = new int[0];
+	double[] x = new double[0];
+	double[] y = new double[0];
+	double[] xVelocity = new double[0];
+	double[] yVelocity = new double[0];
+	double[] mass = new double[0];
+	double[] radius = new double[0];
+
+	/**
+	 * Opens a recording
+	 * @param file the recording to open
+	 * @throws IOException if the file can't be read, or isn't a recording in a version this reader understands
+	 */
+	public RecordingReader(Path file) throws IOException {
+
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		try {
+
+			fileSize = channel.size();
+
+			if (fileSize < RecordingFormat.HEADER_SIZE) {
+				throw new IOException(file + " is not a recording");
+			}
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, RecordingFormat.HEADER_SIZE).order(RecordingFormat.BYTE_ORDER);
+
+			if (header.getInt() != RecordingFormat.MAGIC) {
+				throw new IOException(file + " is not a recording");
+			}
+
+			short version = header.getShort();
+			if (version != RecordingFormat.VERSION) {
+				throw new IOException(file + " is a version " + version + " recording, only version " + RecordingFormat.VERSION + " can be read");
+			}
+
+			int encodingOrdinal = header.get();
+			if (encodingOrdinal < 0 || encodingOrdinal >= Encoding.values().length) {
+				throw new IOException(file + " has an unknown encoding: " + encodingOrdinal);
+			}
+			encoding = Encoding.values()[encodingOrdinal];
+
+			header.get();
+			keyframeInterval = header.getInt();
+			header.getInt();
+			timeStep = header.getDouble();
+			long frameCount = header.getLong();
+			long indexOffset = header.getLong();
+
+			if (indexOffset > 0) {
+				frameOffsets = readIndex(indexOffset, frameCount);
+			} else {
+				frameOffsets = findFrames();
+			}
+
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Checks whether a file starts like a recording, without opening it
+	 * @param file the file to check
+	 * @return whether the file starts with the recording magic number
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean isRecording(Path file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(RecordingFormat.BYTE_ORDER);
+
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+			}
+
+			return !magic.hasRemaining() && magic.getInt(0) == RecordingFormat.MAGIC;
+
+		}
+
+	}
+
+	private long[] readIndex(long indexOffset, long frameCount) throws IOException {
+
+		ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, frameCount * Long.BYTES).order(RecordingFormat.BYTE_ORDER);
+
+		long[] offsets = new long[(int) frameCount];
+		index.asLongBuffer().get(offsets);
+
+		return offsets;
+
+	}
+
+	/**
+	 * Finds the frames of a recording that was never closed by following the frame lengths, stopping at
+	 * the first frame that wasn't completely written
+	 */
+	private long[] findFrames() throws IOException {
+
+		long[] offsets = new long[64];
+		int frameCount = 0;
+
+		long offset = RecordingFormat.HEADER_SIZE;
+		ByteBuffer frameHeader = ByteBuffer.allocate(RecordingFormat.FRAME_HEADER_SIZE).order(RecordingFormat.BYTE_ORDER);
+
+		while (offset + RecordingFormat.FRAME_HEADER_SIZE <= fileSize) {
+
+			frameHeader.clear();
+			while (frameHeader.hasRemaining() && channel.read(frameHeader, offset + frameHeader.position()) >= 0) {
+			}
+
+			int length = frameHeader.getInt(0);
+			byte kind = frameHeader.get(Integer.BYTES);
+			int bodyCount = frameHeader.getInt(RecordingFormat.FRAME_HEADER_SIZE - Integer.BYTES);
+
+			// Unwritten space in the last mapped region is zeros, which is never a valid frame
+			if (length <= 0 || bodyCount < 0 || (kind != RecordingFormat.KEYFRAME && kind != RecordingFormat.DELTA_FRAME)
+					|| length != RecordingFormat.frameLength(encoding, kind, bodyCount) || offset + length > fileSize) {
+				break;
+			}
+
+			if (frameCount == offsets.length) {
+				offsets = Arrays.copyOf(offsets, frameCount * 2);
+			}
+			offsets[frameCount++] = offset;
+
+			offset += length;
+
+		}
+
+		return Arrays.copyOf(offsets, frameCount);
+
+	}
+
+	/**
+	 * Makes a frame the current frame of the reader
+	 * @param frame the index of the frame to read
+	 * @throws IOException if the frame can't be read
+	 * @throws IndexOutOfBoundsException if there is no such frame
+	 */
+	public void seek(int frame) throws IOException {
+
+		if (frame < 0 || frame >= frameOffsets.length) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " is not in the recording of " + frameOffsets.length + " frames");
+		}
+
+		if (frame == this.frame) {
+			return;
+		}
+
+		// Delta frames are decoded from the frame before them, so go back to a keyframe or to the frame after the current one
+		int start = frame;
+		while (start > 0 && start != this.frame + 1 && getKind(start) != RecordingFormat.KEYFRAME) {
+			start--;
+		}
+
+		for (int i = start; i <= frame; i++) {
+			readFrame(i);
+		}
+
+	}
+
+	/**
+	 * Reads the frame after the current frame
+	 * @return false if the current frame was the last frame
+	 * @throws IOException if the frame can't be read
+	 */
+	public boolean next() throws IOException {
+
+		if (frame + 1 >= frameOffsets.length) {
+			return false;
+		}
+
+		seek(frame + 1);
+
+		return true;
+
+	}
+
+	/**
+	 * Reads whether a frame is a keyframe or a delta frame, without mapping the region around it since
+	 * seeking looks at the frames from the target back to its keyframe
+	 */
+	private byte getKind(int frame) throws IOException {
+
+		kindBuffer.clear();
+		channel.read(kindBuffer, frameOffsets[frame] + Integer.BYTES);
+
+		return kindBuffer.get(0);
+
+	}
+
+	/**
+	 * Reads the step count of a frame without decoding it
+	 */
+	long getFrameStep(int frame) throws IOException {
+
+		ByteBuffer step = ByteBuffer.allocate(Long.BYTES).order(RecordingFormat.BYTE_ORDER);
+		long position = frameOffsets[frame] + Integer.BYTES + 1;
+
+		while (step.hasRemaining() && channel.read(step, position + step.position()) >= 0) {
+		}
+
+		return step.getLong(0);
+
+	}
+
+	/**
+	 * @param frame the index of a frame, or the frame count for the end of the last frame
+	 * @return the offset in the file where the frame starts
+	 */
+	long getFrameOffset(int frame) throws IOException {
+
+		if (frame < frameOffsets.length) {
+			return frameOffsets[frame];
+		}
+
+		if (frame == 0) {
+			return RecordingFormat.HEADER_SIZE;
+		}
+
+		ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(RecordingFormat.BYTE_ORDER);
+		long offset = frameOffsets[frame - 1];
+
+		while (length.hasRemaining() && channel.read(length, offset + length.position()) >= 0) {
+		}
+
+		return offset + length.getInt(0);
+
+	}
+
+	/**
+	 * Maps the region of the file holding a frame if it isn't mapped already
+	 * @return the mapped region, positioned at the start of the frame
+	 */
+	private ByteBuffer mapFrame(int frame) throws IOException {
+
+		long offset = frameOffsets[frame];
+		long end = frame + 1 < frameOffsets.length ? frameOffsets[frame + 1] : fileSize;
+
+		if (region == null || offset < regionStart || end > regionEnd) {
+
+			regionStart = offset;
+			regionEnd = Math.min(fileSize, offset + Math.max(RecordingWriter.REGION_SIZE, end - offset));
+
+			region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart);
+			region.order(RecordingFormat.BYTE_ORDER);
+
+		}
+
+		region.position((int) (offset - regionStart));
+
+		return region;
+
+	}
+
+	private void readFrame(int frame) throws IOException {
+
+		ByteBuffer buffer = mapFrame(frame);
+
+		buffer.getInt();
+		byte kind = buffer.get();
+		stepCount = buffer.getLong();
+		time = buffer.getDouble();
+		int frameCount = buffer.getInt();
+
+		if (kind == RecordingFormat.KEYFRAME) {
+
+			count = frameCount;
+
+			if (ids.length < count) {
+				int capacity = Math.max(count, ids.length * 2);
+				ids = new int[capacity];
+				x = new double[capacity];
+				y = new double[capacity];
+				xVelocity = new double[capacity];
+				yVelocity = new double[capacity];
+				mass = new double[capacity];
+				radius = new double[capacity];
+			}
+
+			buffer.asIntBuffer().get(ids, 0, count);
+			buffer.position(buffer.position() + count * Integer.BYTES);
+
+			getColumn(buffer, x);
+			getColumn(buffer, y);
+			getColumn(buffer, xVelocity);
+			getColumn(buffer, yVelocity);
+			getColumn(buffer, mass);
+			getColumn(buffer, radius);
+
+		} else {
+
+			if (frameCount != count) {
+				throw new IOException("Delta frame " + frame + " has " + frameCount + " bodies but the frame before it has " + count);
+			}
+
+			getDeltaColumn(buffer, x);
+			getDeltaColumn(buffer, y);
+			getDeltaColumn(buffer, xVelocity);
+			getDeltaColumn(buffer, yVelocity);
+
+		}
+
+		this.frame = frame;
+
+	}
+
+	private void getColumn(ByteBuffer buffer, double[] values) {
+
+		if (encoding == Encoding.DOUBLE) {
+
+			buffer.asDoubleBuffer().get(values, 0, count);
+			buffer.position(buffer.position() + count * Double.BYTES);
+
+		} else {
+
+			for (int i = 0; i < count; i++) {
+				values[i] = buffer.getFloat();
+			}
+
+		}
+
+	}
+
+	private void getDeltaColumn(ByteBuffer buffer, double[] values) {
+
+		for (int i = 0; i < count; i++) {
+			values[i] += buffer.getFloat();
+		}
+
+	}
+
+	/**
+	 * Creates a simulation holding the bodies of the current frame, with the recording's time step. The bodies
+	 * are given new ids in the order they appear in the frame, and bodies without mass are added as test particles.
+	 * @return the new simulation
+	 */
+	public Simulation toSimulation() {
+
+		Simulation simulation = new Simulation(count);
+
+		for (int i = 0; i < count; i++) {
+			if (mass[i] == 0) {
+				simulation.addTestParticle(x[i], y[i], xVelocity[i], yVelocity[i], radius[i]);
+			} else {
+				simulation.addBody(x[i], y[i], xVelocity[i], yVelocity[i], mass[i], radius[i]);
+			}
+		}
+
+		simulation.setTimeStep(timeStep);
+
+		return simulation;
+
+	}
+
+	/**
+	 * @return the number of frames in the recording
+	 */
+	public int getFrameCount() {
+		return frameOffsets.length;
+	}
+
+	/**
+	 * @return the index of the current frame, or -1 if no frame has been read yet
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	public Encoding getEncoding() {
+		return encoding;
+	}
+
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * @return the time step of the recorded simulation
+	 */
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	public int getBodyCount() {
+		return count;
+	}
+
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	public double getX(int index) {
+		return x[index];
+	}
+
+	public double getY(int index) {
+		return y[index];
+	}
+
+	public double getxVelocity(int index) {
+		return xVelocity[index];
+	}
+
+	public double getyVelocity(int index) {
+		return yVelocity[index];
+	}
+
+	public double getMass(int index) {
+		return mass[index];
+	}
+
+	public double getRadius(int index) {
+		return radius[index];
+	}
+
+	@Override
+	public void close() throws IOException {
+		region = null;
+		channel.close();
+	}
+
+}
@@ -0,0 +1,340 @@
+package orbitphysics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import orbitphysics.RecordingFormat.Encoding;
+
+/**
+ * Records the state of a {@link Simulation} to a binary file in the {@link RecordingFormat}. Frames are written
+ * straight into memory mapped regions of the file, so recording a frame is only a copy into memory and the
+ * operating system writes it to disk in the background.
+ */
+public class RecordingWriter implements Closeable {
+
+	// The size of each region of the file that is mapped at once
+	static final long REGION_SIZE = 64L * 1024 * 1024;
+
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+	private final FileChannel channel;
+	private final Encoding encoding;
+	private final int keyframeInterval;
+
+	// The mapped region of the file that frames are being written into, and where it starts in the file
+	private MappedByteBuffer region;
+	private long regionStart;
+
+	// The offset in the file of every frame written so far
+	private long[] frameOffsets = new long[64];
+	private int frameCount;
+
+	// The state the reader will have after reading the previous frame, delta frames store the changes from it
+	private int previousCount = -1;
+	private int[] previousIds = new int[0];
+	private double[] previousX = new double[0];
+	private double[] previousY = new double[0];
+	private double[] previousXVelocity = new double[0];
+	private double[] previousYVelocity = new double[0];
+	private double[] previousMass = new double[0];
+	private double[] previousRadius = new double[0];
+
+	private boolean closed;
+
+	/**
+	 * Creates a new recording, replacing the file if it already exists
+	 * @param file the file to record to
+	 * @param encoding how the state of the bodies is stored
+	 * @param keyframeInterval the number of frames between keyframes, which the reader can seek to directly
+	 * @param timeStep the time step of the simulation being recorded
+	 * @throws IOException if the file can't be created
+	 */
+	public RecordingWriter(Path file, Encoding encoding, int keyframeInterval, double timeStep) throws IOException {
+
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("keyframeInterval must be at least 1: " + keyframeInterval);
+		}
+
+		this.encoding = encoding;
+		this.keyframeInterval = keyframeInterval;
+
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		map(0, RecordingFormat.HEADER_SIZE);
+
+		region.putInt(RecordingFormat.MAGIC);
+		region.putShort(RecordingFormat.VERSION);
+		region.put((byte) encoding.ordinal());
+		region.put((byte) 0);
+		region.putInt(keyframeInterval);
+		region.putInt(0);
+		region.putDouble(timeStep);
+		region.putLong(0);
+		region.putLong(0);
+		region.position(RecordingFormat.HEADER_SIZE);
+
+	}
+
+	/**
+	 * Continues an existing recording, like when a run is resumed from a checkpoint. The frames after a step
+	 * are dropped so they aren't recorded twice, and the recording keeps its own encoding and keyframe interval.
+	 * @param file the recording to continue, which doesn't need to have been closed
+	 * @param stepCount the step count of the last frame to keep
+	 * @throws IOException if the file can't be read or isn't a recording
+	 */
+	public RecordingWriter(Path file, long stepCount) throws IOException {
+
+		int keptCount;
+		long end;
+
+		try (RecordingReader reader = new RecordingReader(file)) {
+
+			encoding = reader.getEncoding();
+			keyframeInterval = reader.getKeyframeInterval();
+
+			keptCount = reader.getFrameCount();
+			while (keptCount > 0 && reader.getFrameStep(keptCount - 1) > stepCount) {
+				keptCount--;
+			}
+
+			frameOffsets = new long[Math.max(64, keptCount)];
+			for (int frame = 0; frame < keptCount; frame++) {
+				frameOffsets[frame] = reader.getFrameOffset(frame);
+			}
+			frameCount = keptCount;
+
+			end = reader.getFrameOffset(keptCount);
+
+		}
+
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try {
+
+			// Drop the frames after the step and the index of the old frames, which is written again on close
+			channel.truncate(end);
+
+			ByteBuffer header = ByteBuffer.allocate(2 * Long.BYTES);
+			writeFully(header, RecordingFormat.FRAME_COUNT_POSITION);
+
+			// The state the previous frame was decoded to isn't known, so the next frame is always a keyframe
+			map(end, 0);
+
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Writes a recording holding only the current state of a simulation, which can be loaded as a scenario
+	 * @param simulation the simulation to save
+	 * @param file the file to save it to
+	 * @throws IOException if the file can't be written
+	 */
+	public static void save(Simulation simulation, Path file) throws IOException {
+
+		try (RecordingWriter writer = new RecordingWriter(file, Encoding.DOUBLE, 1, simulation.timeStep)) {
+			writer.writeFrame(simulation);
+		}
+
+	}
+
+	/**
+	 * Records the current state of a simulation as the next frame
+	 * @param simulation the simulation to record
+	 * @throws IOException if the file can't be extended to fit the frame
+	 */
+	public void writeFrame(Simulation simulation) throws IOException {
+
+		if (closed) {
+			throw new IllegalStateException("The recording has been closed");
+		}
+
+		int count = simulation.count;
+
+		byte kind = isDeltaPossible(simulation) ? RecordingFormat.DELTA_FRAME : RecordingFormat.KEYFRAME;
+		long length = RecordingFormat.frameLength(encoding, kind, count);
+
+		if (region.remaining() < length) {
+			map(regionStart + region.position(), Math.max(REGION_SIZE, length));
+		}
+
+		if (frameCount == frameOffsets.length) {
+			frameOffsets = Arrays.copyOf(frameOffsets, frameCount * 2);
+		}
+		frameOffsets[frameCount++] = regionStart + region.position();
+
+		region.putInt((int) length);
+		region.put(kind);
+		region.putLong(simulation.stepCount);
+		region.putDouble(simulation.time);
+		region.putInt(count);
+
+		if (previousIds.length < count) {
+			int capacity = Math.max(count, previousIds.length * 2);
+			previousIds = new int[capacity];
+			previousX = new double[capacity];
+			previousY = new double[capacity];
+			previousXVelocity = new double[capacity];
+			previousYVelocity = new double[capacity];
+			previousMass = new double[capacity];
+			previousRadius = new double[capacity];
+		}
+
+		if (kind == RecordingFormat.KEYFRAME) {
+
+			region.asIntBuffer().put(simulation.ids, 0, count);
+			region.position(region.position() + count * Integer.BYTES);
+			System.arraycopy(simulation.ids, 0, previousIds, 0, count);
+
+			putColumn(simulation.x, previousX, count);
+			putColumn(simulation.y, previousY, count);
+			putColumn(simulation.xVelocity, previousXVelocity, count);
+			putColumn(simulation.yVelocity, previousYVelocity, count);
+			putColumn(simulation.mass, previousMass, count);
+			putColumn(simulation.radius, previousRadius, count);
+
+		} else {
+
+			putDeltaColumn(simulation.x, previousX, count);
+			putDeltaColumn(simulation.y, previousY, count);
+			putDeltaColumn(simulation.xVelocity, previousXVelocity, count);
+			putDeltaColumn(simulation.yVelocity, previousYVelocity, count);
+
+		}
+
+		previousCount = count;
+
+	}
+
+	/**
+	 * A delta frame can be written when deltas are enabled, a keyframe isn't due, and the previous frame
+	 * has the same bodies in the same order with the same masses and radii
+	 */
+	private boolean isDeltaPossible(Simulation simulation) {
+
+		if (encoding != Encoding.FLOAT_DELTA || frameCount % keyframeInterval == 0 || simulation.count != previousCount) {
+			return false;
+		}
+
+		for (int i = 0; i < previousCount; i++) {
+			if (simulation.ids[i] != previousIds[i] || (float) simulation.mass[i] != (float) previousMass[i]
+					|| (float) simulation.radius[i] != (float) previousRadius[i]) {
+				return false;
+			}
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Writes a column of values in the recording's encoding, keeping the values the reader will get
+	 */
+	private void putColumn(double[] values, double[] read, int count) {
+
+		if (encoding == Encoding.DOUBLE) {
+
+			region.asDoubleBuffer().put(values, 0, count);
+			region.position(region.position() + count * Double.BYTES);
+			System.arraycopy(values, 0, read, 0, count);
+
+		} else {
+
+			for (int i = 0; i < count; i++) {
+				float value = (float) values[i];
+				region.putFloat(value);
+				read[i] = value;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Writes the changes of a column of values since the previous frame. The changes are taken from the values
+	 * the reader will have, not the exact previous values, so rounding errors don't build up from frame to frame.
+	 */
+	private void putDeltaColumn(double[] values, double[] read, int count) {
+
+		for (int i = 0; i < count; i++) {
+			float delta = (float) (values[i] - read[i]);
+			region.putFloat(delta);
+			read[i] += delta;
+		}
+
+	}
+
+	/**
+	 * Maps the next region of the file to write into, which makes the file at least that long. The previous
+	 * region isn't forced, its pages are written back by the OS like any other file write.
+	 */
+	private void map(long start, long size) throws IOException {
+
+		region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+		region.order(RecordingFormat.BYTE_ORDER);
+		regionStart = start;
+
+	}
+
+	/**
+	 * @return the number of frames written so far
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Writes the frame index and the number of frames, and cuts off the unused end of the last mapped region
+	 * @throws IOException if the file can't be written
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+
+			long end = regionStart + region.position();
+			region.force();
+			region = null;
+
+			channel.truncate(end);
+
+			ByteBuffer index = ByteBuffer.allocate(frameCount * Long.BYTES).order(RecordingFormat.BYTE_ORDER);
+			index.asLongBuffer().put(frameOffsets, 0, frameCount);
+			writeFully(index, end);
+
+			ByteBuffer header = ByteBuffer.allocate(2 * Long.BYTES).order(RecordingFormat.BYTE_ORDER);
+			header.putLong(frameCount);
+			header.putLong(end);
+			header.flip();
+			writeFully(header, RecordingFormat.FRAME_COUNT_POSITION);
+
+		} finally {
+			channel.close();
+		}
+
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+
+	}
+
+}
@@ -0,0 +1,178 @@
+package orbitphysics;
+
+import java.util.List;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws the bodies of a {@link SimulationSnapshot} and their trails on a canvas while keeping the number
+ * of draw calls low. Bodies are drawn in the color of their SpaceObject, interpolated between the
+ * snapshot's previous and current positions.
+ *
+ * Each trail is drawn with a single strokePolyline call from coordinate arrays that are reused between frames,
+ * and bodies and trails outside of the {@link GameCamera}'s view are skipped. Bodies smaller than a pixel are
+ * drawn as single pixel squares, and neighbouring ones of the same color are filled together in one path.
+ * The fill color is only changed when it differs from the last one used, so no save/restore calls are needed.
+ */
+public class Renderer {
+
+	// Bodies with a diameter smaller than this many pixels are drawn as points
+	private static final double POINT_SIZE = 1;
+
+	// The color of bodies that don't have a SpaceObject
+	private static final Color DEFAULT_COLOR = Color.GRAY;
+
+	// Reused arrays holding the screen coordinates of a trail
+	private double[] trailX = new double[0];
+	private double[] trailY = new double[0];
+
+	// The number of draw calls made during the last frame, useful for seeing the effect of culling
+	private int drawCalls;
+
+	/**
+	 * Clears the canvas and draws the trails and bodies that are inside the camera's view
+	 * @param gc the {@link GraphicsContext} of the canvas
+	 * @param gameCamera the GameCamera which stores the drawing offsets and screen size
+	 * @param snapshot the snapshot of the simulation to draw
+	 * @param alpha how far between the snapshot's previous and current positions to draw the bodies, from 0 to 1
+	 * @param spaceObjectsById the SpaceObjects of the bodies, indexed by body id(null for bodies without one)
+	 */
+	public void render(GraphicsContext gc, GameCamera gameCamera, SimulationSnapshot snapshot, double alpha, List<SpaceObject> spaceObjectsById) {
+
+		drawCalls = 0;
+
+		gc.clearRect(0, 0, gameCamera.getScreenWidth(), gameCamera.getScreenHeight());
+
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+			drawTrail(gc, gameCamera, snapshot.getTrail(i));
+		}
+
+		drawBodies(gc, gameCamera, snapshot, alpha, spaceObjectsById);
+
+	}
+
+	/**
+	 * Draws a trail as one polyline if any part of it is inside the camera's view
+	 */
+	private void drawTrail(GraphicsContext gc, GameCamera gameCamera, TrailBuffer trail) {
+
+		if (trail == null || trail.size() < 2) {
+			return;
+		}
+
+		if (trailX.length < trail.size()) {
+			trailX = new double[trail.getCapacity()];
+			trailY = new double[trail.getCapacity()];
+		}
+
+		int numPoints = trail.copyTo(trailX, trailY, gameCamera.getxOffset(), gameCamera.getyOffset());
+
+		double zoom = gameCamera.getZoom();
+		if (zoom != 1) {
+			for (int i = 0; i < numPoints; i++) {
+				trailX[i] *= zoom;
+				trailY[i] *= zoom;
+			}
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < numPoints; i++) {
+			minX = Math.min(minX, trailX[i]);
+			minY = Math.min(minY, trailY[i]);
+			maxX = Math.max(maxX, trailX[i]);
+			maxY = Math.max(maxY, trailY[i]);
+		}
+
+		if (gameCamera.isOnScreen(minX, minY, maxX, maxY)) {
+			gc.strokePolyline(trailX, trailY, numPoints);
+			drawCalls++;
+		}
+
+	}
+
+	/**
+	 * Draws the bodies inside the camera's view, filling the ones smaller than a pixel as points
+	 */
+	private void drawBodies(GraphicsContext gc, GameCamera gameCamera, SimulationSnapshot snapshot, double alpha, List<SpaceObject> spaceObjectsById) {
+
+		Color fill = null;
+
+		// The color of the path of points currently being built, or null if there isn't one
+		Color pointColor = null;
+
+		for (int i = 0; i < snapshot.getBodyCount(); i++) {
+
+			double radius = snapshot.getRadius(i) * gameCamera.getZoom();
+			double x = gameCamera.toScreenX(snapshot.getX(i, alpha));
+			double y = gameCamera.toScreenY(snapshot.getY(i, alpha));
+
+			if (!gameCamera.isOnScreen(x - radius, y - radius, x + radius, y + radius)) {
+				continue;
+			}
+
+			int id = snapshot.getId(i);
+			SpaceObject object = id < spaceObjectsById.size() ? spaceObjectsById.get(id) : null;
+			Color color = object != null ? object.getColor() : DEFAULT_COLOR;
+
+			if (radius * 2 < POINT_SIZE) {
+
+				if (color != pointColor) {
+
+					if (pointColor != null) {
+						gc.fill();
+						drawCalls++;
+					}
+
+					if (color != fill) {
+						gc.setFill(color);
+						fill = color;
+					}
+
+					gc.beginPath();
+					pointColor = color;
+
+				}
+
+				gc.rect(x - POINT_SIZE / 2, y - POINT_SIZE / 2, POINT_SIZE, POINT_SIZE);
+
+			} else {
+
+				// Finish any points before the fill color changes
+				if (pointColor != null) {
+					gc.fill();
+					drawCalls++;
+					pointColor = null;
+				}
+
+				if (color != fill) {
+					gc.setFill(color);
+					fill = color;
+				}
+
+				gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+				drawCalls++;
+
+			}
+
+		}
+
+		if (pointColor != null) {
+			gc.fill();
+			drawCalls++;
+		}
+
+	}
+
+	/**
+	 * @return the number of draw calls made during the last frame
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+}
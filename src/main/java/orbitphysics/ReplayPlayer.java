@@ -0,0 +1,316 @@
+package orbitphysics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Plays back a recording written by {@link RecordingWriter}, turning its frames into {@link SimulationSnapshot}s
+ * that can be drawn the same way as a running simulation. Playback can be paused, stepped a frame at a time,
+ * sped up or slowed down, and moved to any frame.
+ *
+ * Frames are read from the recording as they are needed, so opening a recording of any length only reads its
+ * frame index. Trails aren't stored in recordings, so they are rebuilt from the frames as they play and start
+ * over after every jump.
+ */
+public class ReplayPlayer implements Closeable {
+
+	// The number of frames played each second at a speed of 1
+	public static final double DEFAULT_FRAMES_PER_SECOND = 60;
+
+	// The most frames that are played one by one to catch up in a single update, more than this are skipped
+	private static final int MAX_CATCH_UP_FRAMES = 8;
+
+	private final RecordingReader reader;
+
+	private final SimulationSnapshot snapshot = new SimulationSnapshot();
+
+	private double speed = 1;
+	private boolean paused;
+
+	// How far playback is through the current frame, in frames
+	private double frameProgress;
+
+	// When the last update happened, from System.nanoTime()
+	private long lastUpdateNanos;
+
+	// The number of points kept in each trail, or 0 to not rebuild trails
+	private int trailLength;
+
+	// The trail of each body, indexed by body id
+	private TrailBuffer[] trailsById = new TrailBuffer[0];
+
+	// The trails and previous positions of the bodies in the current frame, indexed like the frame
+	private TrailBuffer[] trails = new TrailBuffer[0];
+	private double[] previousX = new double[0];
+	private double[] previousY = new double[0];
+
+	// The bodies of the frame before the current one, to find the previous position of each body
+	private int[] previousIds = new int[0];
+	private double[] lastX = new double[0];
+	private double[] lastY = new double[0];
+	private int previousCount;
+
+	// Greater than every id in the recording so far
+	private int nextId;
+
+	/**
+	 * Opens a recording and shows its first frame
+	 * @param file the recording to play
+	 * @param trailLength the number of points kept in the rebuilt trails, or 0 to not show trails
+	 * @throws IOException if the recording can't be read or has no frames
+	 */
+	public ReplayPlayer(Path file, int trailLength) throws IOException {
+
+		reader = new RecordingReader(file);
+
+		if (reader.getFrameCount() == 0) {
+			reader.close();
+			throw new IOException(file + " is an empty recording");
+		}
+
+		this.trailLength = trailLength;
+
+		seek(0);
+		lastUpdateNanos = System.nanoTime();
+
+	}
+
+	/**
+	 * Moves playback forward by the amount of real time since the last update
+	 * @param nowNanos the current time from System.nanoTime()
+	 * @return the snapshot of the frame being shown, which is reused by later updates
+	 * @throws IOException if a frame can't be read
+	 */
+	public SimulationSnapshot update(long nowNanos) throws IOException {
+
+		if (!paused) {
+
+			frameProgress += (nowNanos - lastUpdateNanos) / 1e9 * DEFAULT_FRAMES_PER_SECOND * speed;
+
+			int frames = (int) frameProgress;
+
+			if (frames > 0) {
+
+				frameProgress -= frames;
+
+				int lastFrame = reader.getFrameCount() - 1;
+				int target = (int) Math.min(lastFrame, (long) reader.getFrame() + frames);
+
+				// Play the frames one by one so the trails have every point, unless there are too many to catch up on
+				if (target - reader.getFrame() > MAX_CATCH_UP_FRAMES) {
+					seek(target - MAX_CATCH_UP_FRAMES);
+				}
+				while (reader.getFrame() < target) {
+					advance();
+				}
+
+				if (reader.getFrame() == lastFrame) {
+					paused = true;
+					frameProgress = 0;
+				}
+
+			}
+
+		}
+
+		lastUpdateNanos = nowNanos;
+
+		publish(nowNanos);
+
+		return snapshot;
+
+	}
+
+	/**
+	 * Jumps to a frame of the recording, clearing the trails
+	 * @param frame the index of the frame to show, clamped to the frames of the recording
+	 * @throws IOException if the frame can't be read
+	 */
+	public void seek(int frame) throws IOException {
+
+		frame = Math.max(0, Math.min(reader.getFrameCount() - 1, frame));
+
+		reader.seek(frame);
+
+		for (TrailBuffer trail : trailsById) {
+			if (trail != null) {
+				trail.clear();
+			}
+		}
+
+		// Nothing to interpolate from after a jump
+		savePreviousPositions();
+		loadFrame();
+
+		frameProgress = 0;
+		publish(System.nanoTime());
+
+	}
+
+	/**
+	 * Moves a number of frames forward or backward
+	 * @param frames the number of frames to move, negative to move backward
+	 * @throws IOException if a frame can't be read
+	 */
+	public void step(int frames) throws IOException {
+
+		if (frames == 1 && reader.getFrame() + 1 < reader.getFrameCount()) {
+			advance();
+			frameProgress = 0;
+			publish(System.nanoTime());
+		} else {
+			seek(reader.getFrame() + frames);
+		}
+
+	}
+
+	/**
+	 * Reads the frame after the current one, adding to the trails
+	 */
+	private void advance() throws IOException {
+
+		savePreviousPositions();
+		reader.next();
+		loadFrame();
+
+	}
+
+	private void savePreviousPositions() {
+
+		int count = reader.count;
+
+		if (lastX.length < count) {
+			int capacity = Math.max(count, lastX.length * 2);
+			lastX = new double[capacity];
+			lastY = new double[capacity];
+			previousIds = new int[capacity];
+		}
+
+		System.arraycopy(reader.x, 0, lastX, 0, count);
+		System.arraycopy(reader.y, 0, lastY, 0, count);
+		System.arraycopy(reader.ids, 0, previousIds, 0, count);
+		previousCount = count;
+
+	}
+
+	/**
+	 * Finds the previous position of every body in the new current frame and adds it to the trails
+	 */
+	private void loadFrame() {
+
+		int count = reader.count;
+
+		if (previousX.length < count) {
+			int capacity = Math.max(count, previousX.length * 2);
+			previousX = new double[capacity];
+			previousY = new double[capacity];
+			trails = new TrailBuffer[capacity];
+		}
+
+		for (int i = 0; i < count; i++) {
+
+			int id = reader.ids[i];
+
+			// Bodies are only interpolated when they are at the same index as in the last frame, like SimulationThread
+			if (i < previousCount && previousIds[i] == id) {
+				previousX[i] = lastX[i];
+				previousY[i] = lastY[i];
+			} else {
+				previousX[i] = reader.x[i];
+				previousY[i] = reader.y[i];
+			}
+
+			if (id >= nextId) {
+				nextId = id + 1;
+			}
+
+			if (trailLength > 0) {
+
+				if (id >= trailsById.length) {
+					trailsById = Arrays.copyOf(trailsById, Math.max(id + 1, trailsById.length * 2));
+				}
+				if (trailsById[id] == null) {
+					trailsById[id] = new TrailBuffer(trailLength);
+				}
+
+				trailsById[id].add(reader.x[i], reader.y[i]);
+				trails[i] = trailsById[id];
+
+			}
+
+		}
+
+	}
+
+	private void publish(long nowNanos) {
+
+		snapshot.copyFrom(reader.count, reader.ids, reader.x, reader.y, previousX, previousY, reader.radius, reader.mass,
+				trails, nextId, reader.getStepCount(), reader.getTime());
+
+		// Backdate the snapshot by the progress through the current frame, so it interpolates as far as playback has got
+		snapshot.stepNanos = paused ? 0 : (long) (1e9 / (DEFAULT_FRAMES_PER_SECOND * speed));
+		snapshot.publishNanos = nowNanos - (long) (frameProgress * snapshot.stepNanos);
+
+	}
+
+	/**
+	 * @return the index of the frame being shown
+	 */
+	public int getFrame() {
+		return reader.getFrame();
+	}
+
+	/**
+	 * @return the number of frames in the recording
+	 */
+	public int getFrameCount() {
+		return reader.getFrameCount();
+	}
+
+	/**
+	 * @return how many times faster than DEFAULT_FRAMES_PER_SECOND frames are played
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * @param speed how many times faster than DEFAULT_FRAMES_PER_SECOND frames should be played
+	 */
+	public void setSpeed(double speed) {
+
+		if (!(speed > 0)) {
+			throw new IllegalArgumentException("speed must be positive: " + speed);
+		}
+
+		this.speed = speed;
+
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Pauses or resumes playback, resuming from the start if the last frame is being shown
+	 * @param paused whether playback should be paused
+	 * @throws IOException if the first frame can't be read
+	 */
+	public void setPaused(boolean paused) throws IOException {
+
+		if (!paused && reader.getFrame() == reader.getFrameCount() - 1) {
+			seek(0);
+		}
+
+		this.paused = paused;
+
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,108 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * A classic fourth order Runge-Kutta(RK4) integrator. Each step calculates the accelerations at the start,
+ * twice at the midpoint and once at the end of the step, and combines them in a weighted average.
+ *
+ * This is fourth order accurate, so much larger steps can be taken than with {@link EulerIntegrator}
+ * for the same accuracy, but it needs four force calculations per step and is not symplectic.
+ */
+public class RungeKuttaIntegrator implements Integrator {
+
+	// Positions used to calculate the accelerations partway through a step
+	private double[] xTemp = new double[0];
+	private double[] yTemp = new double[0];
+
+	// The velocities and accelerations at each of the four stages(the stage 1 velocities are the starting velocities)
+	private double[][] xVelocities = new double[4][0];
+	private double[][] yVelocities = new double[4][0];
+	private double[][] xAccelerations = new double[4][0];
+	private double[][] yAccelerations = new double[4][0];
+
+	@Override
+	public void step(Simulation simulation, double timeStep) {
+
+		int count = simulation.count;
+		ensureCapacity(count);
+
+		double[] x = simulation.x;
+		double[] y = simulation.y;
+		double[] xVelocity = simulation.xVelocity;
+		double[] yVelocity = simulation.yVelocity;
+
+		System.arraycopy(xVelocity, 0, xVelocities[0], 0, count);
+		System.arraycopy(yVelocity, 0, yVelocities[0], 0, count);
+
+		simulation.computeAccelerations(x, y, xAccelerations[0], yAccelerations[0]);
+
+		// Stages 2 and 3 are evaluated at the midpoint of the step, stage 4 at the end of it
+		for (int stage = 1; stage < 4; stage++) {
+
+			double stageStep = stage == 3 ? timeStep : timeStep / 2;
+
+			double[] previousXVelocity = xVelocities[stage - 1];
+			double[] previousYVelocity = yVelocities[stage - 1];
+			double[] previousXAcceleration = xAccelerations[stage - 1];
+			double[] previousYAcceleration = yAccelerations[stage - 1];
+
+			for (int i = 0; i < count; i++) {
+
+				xTemp[i] = x[i] + previousXVelocity[i] * stageStep;
+				yTemp[i] = y[i] + previousYVelocity[i] * stageStep;
+
+				xVelocities[stage][i] = xVelocity[i] + previousXAcceleration[i] * stageStep;
+				yVelocities[stage][i] = yVelocity[i] + previousYAcceleration[i] * stageStep;
+
+			}
+
+			simulation.computeAccelerations(xTemp, yTemp, xAccelerations[stage], yAccelerations[stage]);
+
+		}
+
+		double sixthStep = timeStep / 6;
+
+		for (int i = 0; i < count; i++) {
+
+			x[i] += sixthStep * (xVelocities[0][i] + 2 * xVelocities[1][i] + 2 * xVelocities[2][i] + xVelocities[3][i]);
+			y[i] += sixthStep * (yVelocities[0][i] + 2 * yVelocities[1][i] + 2 * yVelocities[2][i] + yVelocities[3][i]);
+
+			xVelocity[i] += sixthStep * (xAccelerations[0][i] + 2 * xAccelerations[1][i] + 2 * xAccelerations[2][i] + xAccelerations[3][i]);
+			yVelocity[i] += sixthStep * (yAccelerations[0][i] + 2 * yAccelerations[1][i] + 2 * yAccelerations[2][i] + yAccelerations[3][i]);
+
+		}
+
+		simulation.accelerationsCurrent = false;
+
+	}
+
+	/**
+	 * Grows the temporary arrays so they can hold at least a given number of bodies
+	 */
+	private void ensureCapacity(int count) {
+
+		if (xTemp.length >= count) {
+			return;
+		}
+
+		int capacity = Math.max(count, xTemp.length * 2);
+
+		xTemp = Arrays.copyOf(xTemp, capacity);
+		yTemp = Arrays.copyOf(yTemp, capacity);
+
+		for (int stage = 0; stage < 4; stage++) {
+			xVelocities[stage] = new double[capacity];
+			yVelocities[stage] = new double[capacity];
+			xAccelerations[stage] = new double[capacity];
+			yAccelerations[stage] = new double[capacity];
+		}
+
+	}
+
+	@Override
+	public String getName() {
+		return "RK4";
+	}
+
+}
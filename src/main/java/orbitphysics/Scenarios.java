@@ -0,0 +1,280 @@
+package orbitphysics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates the starting bodies of simulations with different distributions of bodies, for example
+ * to benchmark the simulation or to run it without a window. Scenarios can also be loaded from text
+ * files that list one body per line.
+ */
+public class Scenarios {
+
+	/**
+	 * The ways bodies can be spread out in a generated scenario
+	 */
+	public enum Distribution {
+
+		// Bodies spread evenly over a square, all starting at rest
+		UNIFORM,
+
+		// A round clump of bodies that are more crowded towards its center, moving in random directions
+		CLUSTER,
+
+		// Light bodies in circular orbits around one heavy central body
+		DISK,
+
+		// A heavy planet with two moons and a ring of test particles between them
+		RING
+
+	}
+
+	// The width of the area the bodies are generated in
+	static final double SIZE = 1000;
+
+	static final double BODY_MASS = 1;
+	static final double BODY_RADIUS = 1;
+
+	static final double DISK_CENTRAL_MASS = 100000;
+	static final double DISK_CENTRAL_RADIUS = 20;
+	static final double DISK_BODY_MASS = 0.01;
+
+	// The moons of the ring scenario orbit just inside and outside the ring
+	static final double RING_INNER_RADIUS = SIZE / 5;
+	static final double RING_OUTER_RADIUS = SIZE * 2 / 5;
+	static final double MOON_MASS = 100;
+	static final double MOON_RADIUS = 4;
+
+	// The planet and rocket the viewer starts with
+	static final double PLANET_X = 350;
+	static final double PLANET_Y = 350;
+	static final double PLANET_RADIUS = 10;
+	static final double PLANET_MASS = 20000;
+	static final double ROCKET_Y = 175;
+	static final double ROCKET_RADIUS = 5;
+	static final double ROCKET_MASS = 200;
+	static final double ROCKET_VELOCITY = 10;
+
+	private Scenarios() {
+	}
+
+	/**
+	 * Adds the planet and the rocket orbiting it that the viewer starts with to a simulation
+	 * @param simulation the simulation to add the bodies to
+	 */
+	public static void addEarthAndRocket(Simulation simulation) {
+		addEarthAndRocket(simulation, PLANET_MASS, ROCKET_VELOCITY, 0);
+	}
+
+	/**
+	 * Adds the planet and rocket the viewer starts with to a simulation, with a different planet mass and launch velocity
+	 * @param simulation the simulation to add the bodies to
+	 * @param planetMass the mass of the planet
+	 * @param rocketVelocity the speed of the rocket
+	 * @param rocketVelocityDirectionDegrees the direction of the rocket's velocity, clockwise from the x axis in degrees
+	 * @return the id of the rocket, the planet is the body added before it
+	 */
+	public static int addEarthAndRocket(Simulation simulation, double planetMass, double rocketVelocity, double rocketVelocityDirectionDegrees) {
+
+		double direction = Math.toRadians(rocketVelocityDirectionDegrees);
+
+		simulation.addBody(PLANET_X, PLANET_Y, 0, 0, planetMass, PLANET_RADIUS);
+
+		return simulation.addBody(PLANET_X, ROCKET_Y, rocketVelocity * Math.cos(direction), rocketVelocity * Math.sin(direction), ROCKET_MASS, ROCKET_RADIUS);
+
+	}
+
+	/**
+	 * Loads the bodies of a scenario from a file. The file is either a recording(see {@link RecordingFormat}), whose
+	 * first frame is loaded, or a text file. Each line of a text file holds one body as six numbers separated by
+	 * whitespace: x, y, x velocity, y velocity, mass and radius. Blank lines and everything after a # are ignored.
+	 * Bodies with a mass of 0 are added as test particles.
+	 * @param file the file to load
+	 * @return a new simulation holding the bodies in the file
+	 * @throws IOException if the file can't be read
+	 * @throws IllegalArgumentException if a line of a text file isn't a valid body
+	 */
+	public static Simulation load(Path file) throws IOException {
+
+		if (RecordingReader.isRecording(file)) {
+
+			try (RecordingReader reader = new RecordingReader(file)) {
+
+				if (reader.getFrameCount() == 0) {
+					throw new IOException(file + " is an empty recording");
+				}
+
+				reader.seek(0);
+
+				return reader.toSimulation();
+
+			}
+
+		}
+
+		Simulation simulation = new Simulation();
+
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+
+			String line;
+			int lineNumber = 0;
+
+			while ((line = reader.readLine()) != null) {
+
+				lineNumber++;
+
+				int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				String[] values = line.split("\\s+");
+				if (values.length != 6) {
+					throw new IllegalArgumentException(file + ":" + lineNumber + ": expected 6 values but found " + values.length);
+				}
+
+				double[] body = new double[6];
+
+				for (int i = 0; i < 6; i++) {
+					try {
+						body[i] = Double.parseDouble(values[i]);
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException(file + ":" + lineNumber + ": not a number: " + values[i]);
+					}
+				}
+
+				if (body[4] == 0) {
+					simulation.addTestParticle(body[0], body[1], body[2], body[3], body[5]);
+				} else {
+					simulation.addBody(body[0], body[1], body[2], body[3], body[4], body[5]);
+				}
+
+			}
+
+		}
+
+		return simulation;
+
+	}
+
+	/**
+	 * Creates a simulation holding a generated set of bodies
+	 * @param distribution how the bodies are spread out
+	 * @param bodyCount the number of bodies to generate
+	 * @param seed the seed of the random numbers used, the same seed always gives the same bodies
+	 * @return the new simulation
+	 */
+	public static Simulation create(Distribution distribution, int bodyCount, long seed) {
+
+		Simulation simulation = new Simulation(bodyCount);
+
+		populate(simulation, distribution, bodyCount, new Random(seed));
+
+		return simulation;
+
+	}
+
+	/**
+	 * Adds a generated set of bodies to a simulation
+	 * @param simulation the simulation to add the bodies to
+	 * @param distribution how the bodies are spread out
+	 * @param bodyCount the number of bodies to add
+	 * @param random the source of random numbers
+	 */
+	public static void populate(Simulation simulation, Distribution distribution, int bodyCount, Random random) {
+
+		switch (distribution) {
+
+		case UNIFORM:
+
+			for (int i = 0; i < bodyCount; i++) {
+
+				double x = (random.nextDouble() - 0.5) * SIZE;
+				double y = (random.nextDouble() - 0.5) * SIZE;
+
+				simulation.addBody(x, y, 0, 0, BODY_MASS, BODY_RADIUS);
+
+			}
+			break;
+
+		case CLUSTER:
+
+			// Speeds around what the cluster needs to keep from collapsing straight away
+			double radius = SIZE / 10;
+			double speed = 0.5 * Math.sqrt(Simulation.G * BODY_MASS * bodyCount / radius);
+
+			for (int i = 0; i < bodyCount; i++) {
+
+				double x = random.nextGaussian() * radius;
+				double y = random.nextGaussian() * radius;
+
+				simulation.addBody(x, y, random.nextGaussian() * speed, random.nextGaussian() * speed, BODY_MASS, BODY_RADIUS);
+
+			}
+			break;
+
+		case DISK:
+
+			simulation.addBody(0, 0, 0, 0, DISK_CENTRAL_MASS, DISK_CENTRAL_RADIUS);
+
+			for (int i = 1; i < bodyCount; i++) {
+
+				double orbitRadius = SIZE / 10 + random.nextDouble() * (SIZE / 2 - SIZE / 10);
+				double angle = random.nextDouble() * 2 * Math.PI;
+
+				// The speed of a circular orbit around the central body
+				double orbitSpeed = Math.sqrt(Simulation.G * DISK_CENTRAL_MASS / orbitRadius);
+
+				double x = orbitRadius * Math.cos(angle);
+				double y = orbitRadius * Math.sin(angle);
+
+				simulation.addBody(x, y, -orbitSpeed * Math.sin(angle), orbitSpeed * Math.cos(angle), DISK_BODY_MASS, BODY_RADIUS / 2);
+
+			}
+			break;
+
+		case RING:
+
+			simulation.addBody(0, 0, 0, 0, DISK_CENTRAL_MASS, DISK_CENTRAL_RADIUS);
+
+			for (int i = 1; i < bodyCount; i++) {
+
+				double angle = random.nextDouble() * 2 * Math.PI;
+
+				// The first two bodies after the planet are the moons, the rest are the ring
+				double orbitRadius;
+				if (i <= 2) {
+					orbitRadius = i == 1 ? RING_INNER_RADIUS * 0.8 : RING_OUTER_RADIUS * 1.2;
+				} else {
+					orbitRadius = RING_INNER_RADIUS + random.nextDouble() * (RING_OUTER_RADIUS - RING_INNER_RADIUS);
+				}
+
+				double orbitSpeed = Math.sqrt(Simulation.G * DISK_CENTRAL_MASS / orbitRadius);
+
+				double x = orbitRadius * Math.cos(angle);
+				double y = orbitRadius * Math.sin(angle);
+				double xVelocity = -orbitSpeed * Math.sin(angle);
+				double yVelocity = orbitSpeed * Math.cos(angle);
+
+				if (i <= 2) {
+					simulation.addBody(x, y, xVelocity, yVelocity, MOON_MASS, MOON_RADIUS);
+				} else {
+					simulation.addTestParticle(x, y, xVelocity, yVelocity, BODY_RADIUS / 4);
+				}
+
+			}
+			break;
+
+		}
+
+	}
+
+}
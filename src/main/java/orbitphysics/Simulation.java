@@ -0,0 +1,803 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * A headless simulation of gravitationally attracting bodies. The state of every body is
+ * stored in primitive arrays (x, y, x velocity, y velocity, mass and radius) instead of in
+ * JavaFX nodes, so the physics can run without the FX toolkit and without property overhead.
+ *
+ * Each body is given a stable id when it is added. The index of a body in the state arrays
+ * can change when other bodies are added or removed, so anything holding on to a body(like a
+ * {@link SpaceObject}) should keep its id and look up its index with {@link #indexOf(int)}.
+ *
+ * Bodies can also be added as test particles, which are massless: they are attracted by the other bodies
+ * but don't attract anything, like probes or the grains of a ring. The massive bodies are kept at the start
+ * of the state arrays and the test particles after them, so force solvers can use the first massiveCount
+ * bodies as the sources and calculate the accelerations of the test particles in one compact range.
+ */
+public class Simulation {
+
+	// The gravitational constant used in Newton's equation for universal gravitation
+	public static final double G = 1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Body state arrays, only the first count elements of each are in use
+	double[] x;
+	double[] y;
+	double[] xVelocity;
+	double[] yVelocity;
+	double[] mass;
+	double[] radius;
+	int[] ids;
+
+	// The accelerations calculated by the force solver during the last step
+	double[] xAcceleration;
+	double[] yAcceleration;
+
+	// Whether the acceleration arrays hold the accelerations at the current positions, integrators
+	// that need the accelerations at the start of a step can reuse them instead of recalculating
+	boolean accelerationsCurrent;
+
+	int count;
+
+	// The number of massive bodies, which come before the test particles in the state arrays
+	int massiveCount;
+
+	// The past positions of each body, or null for bodies that haven't recorded a trail yet
+	TrailBuffer[] trails;
+
+	// The number of points kept in each trail(0 turns trails off), and how many steps pass between points
+	int trailLength;
+	int trailDecimation = 1;
+
+	// The bodies marked to be removed by removeMarked()
+	boolean[] removed;
+	int removedCount;
+
+	// Maps a body id to its index in the state arrays, or -1 if the body has been removed
+	int[] indexOfId;
+	int nextId;
+
+	// Calculates the gravitational accelerations of the bodies each step
+	ForceSolver forceSolver = new DirectSumSolver();
+
+	// Finds the pairs of bodies that are overlapping
+	CollisionDetector collisionDetector = new CollisionDetector();
+
+	// Resolves the collisions at the end of each step, or null to let bodies pass through each other
+	CollisionHandler collisionHandler;
+
+	// Moves the bodies forward in time each step
+	Integrator integrator = new EulerIntegrator();
+
+	// Measures the time and work of each step, or null to not measure anything
+	SimulationMetrics metrics;
+
+	// The amount of time each call to step() advances the simulation by
+	double timeStep = 1;
+
+	// The amount of time that has been simulated, and the number of steps taken so far
+	double time;
+	long stepCount;
+
+	public Simulation() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty Simulation with room for a given number of bodies before
+	 * its state arrays have to grow
+	 * @param initialCapacity the number of bodies to allocate room for
+	 */
+	public Simulation(int initialCapacity) {
+
+		int capacity = Math.max(initialCapacity, 1);
+
+		x = new double[capacity];
+		y = new double[capacity];
+		xVelocity = new double[capacity];
+		yVelocity = new double[capacity];
+		mass = new double[capacity];
+		radius = new double[capacity];
+		ids = new int[capacity];
+		xAcceleration = new double[capacity];
+		yAcceleration = new double[capacity];
+		removed = new boolean[capacity];
+		trails = new TrailBuffer[capacity];
+
+		indexOfId = new int[capacity];
+
+	}
+
+	/**
+	 * Adds a body to the simulation. Massive bodies are kept before the test particles, so if there are test
+	 * particles the first one is moved to the end of the state arrays to make room.
+	 * @param x the x coordinate of the body's center
+	 * @param y the y coordinate of the body's center
+	 * @param xVelocity the initial x velocity of the body
+	 * @param yVelocity the initial y velocity of the body
+	 * @param mass the mass of the body
+	 * @param radius the radius of the body
+	 * @return the id of the new body
+	 */
+	public int addBody(double x, double y, double xVelocity, double yVelocity, double mass, double radius) {
+
+		int index = massiveCount++;
+
+		if (index < count) {
+			ensureCapacity(count + 1);
+			moveBody(index, count);
+		}
+
+		count++;
+
+		return initializeBody(index, x, y, xVelocity, yVelocity, mass, radius);
+
+	}
+
+	/**
+	 * Adds a massless test particle to the simulation, which is attracted by the massive bodies but doesn't attract
+	 * anything. Test particles only cost as much as a body's share of the force calculation, instead of every other
+	 * body's too, so scenes made mostly of them can have many more bodies.
+	 * @param x the x coordinate of the particle's center
+	 * @param y the y coordinate of the particle's center
+	 * @param xVelocity the initial x velocity of the particle
+	 * @param yVelocity the initial y velocity of the particle
+	 * @param radius the radius of the particle, used for collisions
+	 * @return the id of the new particle
+	 */
+	public int addTestParticle(double x, double y, double xVelocity, double yVelocity, double radius) {
+		return initializeBody(count++, x, y, xVelocity, yVelocity, 0, radius);
+	}
+
+	/**
+	 * Gives the body at an index a new id and its starting state
+	 * @return the id of the body
+	 */
+	private int initializeBody(int index, double x, double y, double xVelocity, double yVelocity, double mass, double radius) {
+
+		ensureCapacity(index + 1);
+
+		int id = nextId++;
+		if (id >= indexOfId.length) {
+			indexOfId = Arrays.copyOf(indexOfId, Math.max(indexOfId.length * 2, id + 1));
+		}
+
+		this.x[index] = x;
+		this.y[index] = y;
+		this.xVelocity[index] = xVelocity;
+		this.yVelocity[index] = yVelocity;
+		this.mass[index] = mass;
+		this.radius[index] = radius;
+		ids[index] = id;
+		trails[index] = null;
+
+		indexOfId[id] = index;
+
+		accelerationsCurrent = false;
+
+		return id;
+
+	}
+
+	/**
+	 * Moves the state of a body to another index, overwriting the body that was there
+	 */
+	private void moveBody(int from, int to) {
+
+		x[to] = x[from];
+		y[to] = y[from];
+		xVelocity[to] = xVelocity[from];
+		yVelocity[to] = yVelocity[from];
+		mass[to] = mass[from];
+		radius[to] = radius[from];
+		ids[to] = ids[from];
+		xAcceleration[to] = xAcceleration[from];
+		yAcceleration[to] = yAcceleration[from];
+		removed[to] = removed[from];
+		trails[to] = trails[from];
+
+		indexOfId[ids[to]] = to;
+
+	}
+
+	/**
+	 * Removes a body from the simulation. The bodies after it in the state arrays
+	 * are shifted down, so the relative order of the remaining bodies is kept.
+	 * @param id the id of the body to remove
+	 * @return true if the body was removed, false if it was not in the simulation
+	 */
+	public boolean removeBody(int id) {
+
+		int index = indexOf(id);
+
+		if (index < 0) {
+			return false;
+		}
+
+		markRemoved(index);
+		removeMarked();
+
+		return true;
+
+	}
+
+	/**
+	 * Marks a body to be removed by the next call to {@link #removeMarked()}. This lets many bodies be
+	 * removed at once without shifting the state arrays for each of them.
+	 * @param index the index of the body to remove
+	 */
+	public void markRemoved(int index) {
+
+		if (!removed[index]) {
+			removed[index] = true;
+			removedCount++;
+		}
+
+	}
+
+	/**
+	 * Removes every body marked with {@link #markRemoved(int)}, compacting the state arrays in one pass.
+	 * The relative order of the remaining bodies is kept.
+	 * @return the number of bodies removed
+	 */
+	public int removeMarked() {
+
+		if (removedCount == 0) {
+			return 0;
+		}
+
+		int kept = 0;
+		int keptMassive = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			if (removed[i]) {
+
+				indexOfId[ids[i]] = -1;
+				removed[i] = false;
+
+			} else {
+
+				if (kept != i) {
+					moveBody(i, kept);
+				}
+
+				kept++;
+
+				if (i < massiveCount) {
+					keptMassive++;
+				}
+
+			}
+		}
+
+		int numRemoved = count - kept;
+
+		// Let go of the trails of the removed bodies
+		Arrays.fill(trails, kept, count, null);
+
+		count = kept;
+		massiveCount = keptMassive;
+		removedCount = 0;
+		accelerationsCurrent = false;
+
+		return numRemoved;
+
+	}
+
+	/**
+	 * Advances the simulation by one time step using its {@link Integrator}. If the simulation has a
+	 * {@link CollisionHandler}, all of the collisions at the end of the step are then resolved at once.
+	 */
+	public void step() {
+
+		SimulationMetrics metrics = this.metrics;
+
+		if (metrics != null) {
+			metrics.beginStep();
+		}
+
+		integrator.step(this, timeStep);
+
+		if (metrics != null) {
+			metrics.endPhase(SimulationMetrics.Phase.INTEGRATION);
+		}
+
+		if (collisionHandler != null) {
+
+			CollisionDetector collisions = detectCollisions();
+			collisionHandler.resolve(this, collisions);
+			removeMarked();
+
+			if (metrics != null) {
+				metrics.recordCollisions(collisions.getPairCount());
+				metrics.endPhase(SimulationMetrics.Phase.COLLISIONS);
+			}
+
+		}
+
+		time += timeStep;
+		stepCount++;
+
+		if (trailLength > 0 && stepCount % trailDecimation == 0) {
+
+			recordTrails();
+
+			if (metrics != null) {
+				metrics.endPhase(SimulationMetrics.Phase.TRAILS);
+			}
+
+		}
+
+		if (metrics != null) {
+			metrics.endStep(this);
+		}
+
+	}
+
+	/**
+	 * Adds the current position of every body to the end of its trail
+	 */
+	void recordTrails() {
+
+		for (int i = 0; i < count; i++) {
+
+			if (trails[i] == null) {
+				trails[i] = new TrailBuffer(trailLength);
+			}
+
+			trails[i].add(x[i], y[i]);
+
+		}
+
+	}
+
+	/**
+	 * Runs a number of steps of the simulation
+	 * @param numSteps the number of steps to run
+	 */
+	public void step(int numSteps) {
+
+		for (int i = 0; i < numSteps; i++) {
+			step();
+		}
+
+	}
+
+	/**
+	 * Calculates the accelerations of the bodies at their current positions and stores them
+	 * in the simulation's acceleration arrays
+	 */
+	void computeAccelerations() {
+
+		computeAccelerations(x, y, xAcceleration, yAcceleration);
+
+		accelerationsCurrent = true;
+
+	}
+
+	/**
+	 * Calculates the accelerations the bodies would have at a given set of positions. Integrators
+	 * use this to evaluate the forces partway through a step.
+	 * @param x the x coordinates to use for the bodies
+	 * @param y the y coordinates to use for the bodies
+	 * @param xAcceleration the array to store the x accelerations in
+	 * @param yAcceleration the array to store the y accelerations in
+	 */
+	void computeAccelerations(double[] x, double[] y, double[] xAcceleration, double[] yAcceleration) {
+
+		SimulationMetrics metrics = this.metrics;
+
+		if (metrics == null) {
+			forceSolver.computeAccelerations(x, y, mass, massiveCount, count, xAcceleration, yAcceleration);
+			return;
+		}
+
+		long start = System.nanoTime();
+		forceSolver.computeAccelerations(x, y, mass, massiveCount, count, xAcceleration, yAcceleration);
+		metrics.recordForces(System.nanoTime() - start, forceSolver.getInteractionCount());
+
+	}
+
+	/**
+	 * Finds every pair of bodies that are currently overlapping
+	 * @return the CollisionDetector holding the indices of the colliding pairs
+	 */
+	public CollisionDetector detectCollisions() {
+
+		collisionDetector.detect(x, y, radius, count);
+
+		return collisionDetector;
+
+	}
+
+	/**
+	 * Tests if the circles of two bodies overlap
+	 * @param index1 the index of one of the bodies
+	 * @param index2 the index of the other body
+	 * @return true if the distance between the bodies is less than the sum of their radii
+	 */
+	public boolean isOverlapping(int index1, int index2) {
+		return CollisionDetector.isOverlapping(x, y, radius, index1, index2);
+	}
+
+	/**
+	 * Calculates the distance between the centers of two bodies using the Pythagorean Theorem
+	 * @param index1 the index of one of the bodies
+	 * @param index2 the index of the other body
+	 * @return the distance between the two bodies
+	 */
+	public double calculateDistance(int index1, int index2) {
+
+		double xDistance = x[index1] - x[index2];
+		double yDistance = y[index1] - y[index2];
+
+		return Math.sqrt((xDistance * xDistance) + (yDistance * yDistance));
+
+	}
+
+	/**
+	 * @return the total kinetic energy of the bodies
+	 */
+	public double calculateKineticEnergy() {
+
+		double energy = 0;
+
+		for (int i = 0; i < count; i++) {
+			energy += 0.5 * mass[i] * (xVelocity[i] * xVelocity[i] + yVelocity[i] * yVelocity[i]);
+		}
+
+		return energy;
+
+	}
+
+	/**
+	 * Calculates the total gravitational potential energy of the bodies by summing over every pair,
+	 * so this takes O(n^2) time
+	 * @return the total potential energy of the bodies
+	 */
+	public double calculatePotentialEnergy() {
+		return calculatePotentialEnergy(0);
+	}
+
+	/**
+	 * Calculates the total gravitational potential energy of the bodies with Plummer softening, which is the
+	 * energy a force solver with the same softening length conserves. This takes O(n^2) time in the number of
+	 * massive bodies, test particles have no potential energy.
+	 * @param softening the Plummer softening length
+	 * @return the total potential energy of the bodies
+	 */
+	public double calculatePotentialEnergy(double softening) {
+
+		double softeningSquared = softening * softening;
+		double energy = 0;
+
+		for (int i = 0; i < massiveCount; i++) {
+			for (int j = i + 1; j < massiveCount; j++) {
+
+				double dx = x[j] - x[i];
+				double dy = y[j] - y[i];
+				double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+				if (distanceSquared > 0) {
+					energy -= G * mass[i] * mass[j] / Math.sqrt(distanceSquared);
+				}
+
+			}
+		}
+
+		return energy;
+
+	}
+
+	/**
+	 * Calculates the total energy of the bodies, which stays constant in an exact simulation without collisions,
+	 * so its change over a run is a measure of the integration error. This takes O(n^2) time.
+	 * @return the total kinetic and potential energy of the bodies
+	 */
+	public double calculateTotalEnergy() {
+		return calculateKineticEnergy() + calculatePotentialEnergy();
+	}
+
+	/**
+	 * @param softening the Plummer softening length of the force solver
+	 * @return the total kinetic and softened potential energy of the bodies
+	 * @see #calculatePotentialEnergy(double)
+	 */
+	public double calculateTotalEnergy(double softening) {
+		return calculateKineticEnergy() + calculatePotentialEnergy(softening);
+	}
+
+	/**
+	 * Grows the state arrays so that they can hold at least a given number of bodies
+	 * @param capacity the number of bodies the arrays must be able to hold
+	 */
+	void ensureCapacity(int capacity) {
+
+		if (capacity <= x.length) {
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, x.length * 2);
+
+		x = Arrays.copyOf(x, newCapacity);
+		y = Arrays.copyOf(y, newCapacity);
+		xVelocity = Arrays.copyOf(xVelocity, newCapacity);
+		yVelocity = Arrays.copyOf(yVelocity, newCapacity);
+		mass = Arrays.copyOf(mass, newCapacity);
+		radius = Arrays.copyOf(radius, newCapacity);
+		ids = Arrays.copyOf(ids, newCapacity);
+		xAcceleration = Arrays.copyOf(xAcceleration, newCapacity);
+		yAcceleration = Arrays.copyOf(yAcceleration, newCapacity);
+		removed = Arrays.copyOf(removed, newCapacity);
+		trails = Arrays.copyOf(trails, newCapacity);
+
+	}
+
+	/**
+	 * Gets the current index of a body in the state arrays
+	 * @param id the id of the body
+	 * @return the index of the body, or -1 if it is no longer in the simulation
+	 */
+	public int indexOf(int id) {
+
+		if (id < 0 || id >= nextId) {
+			return -1;
+		}
+
+		return indexOfId[id];
+
+	}
+
+	/**
+	 * @param id the id of a body
+	 * @return true if the body is in the simulation, false if it was removed
+	 */
+	public boolean contains(int id) {
+		return indexOf(id) >= 0;
+	}
+
+	/**
+	 * @return the number of bodies in the simulation
+	 */
+	public int getBodyCount() {
+		return count;
+	}
+
+	/**
+	 * @return the number of massive bodies, which are the bodies with indices from 0 to massiveCount - 1
+	 */
+	public int getMassiveCount() {
+		return massiveCount;
+	}
+
+	/**
+	 * @return the number of test particles, which are the bodies with indices from massiveCount to count - 1
+	 */
+	public int getTestParticleCount() {
+		return count - massiveCount;
+	}
+
+	/**
+	 * @param index the index of a body
+	 * @return true if the body is a massless test particle
+	 */
+	public boolean isTestParticle(int index) {
+		return index >= massiveCount;
+	}
+
+	/**
+	 * @param index the index of a body
+	 * @return the id of the body at that index
+	 */
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	public double getX(int index) {
+		return x[index];
+	}
+
+	public void setX(int index, double x) {
+		this.x[index] = x;
+		accelerationsCurrent = false;
+	}
+
+	public double getY(int index) {
+		return y[index];
+	}
+
+	public void setY(int index, double y) {
+		this.y[index] = y;
+		accelerationsCurrent = false;
+	}
+
+	public double getxVelocity(int index) {
+		return xVelocity[index];
+	}
+
+	public void setxVelocity(int index, double xVelocity) {
+		this.xVelocity[index] = xVelocity;
+	}
+
+	public double getyVelocity(int index) {
+		return yVelocity[index];
+	}
+
+	public void setyVelocity(int index, double yVelocity) {
+		this.yVelocity[index] = yVelocity;
+	}
+
+	public double getMass(int index) {
+		return mass[index];
+	}
+
+	/**
+	 * @param index the index of a body
+	 * @param mass the new mass of the body, which must be 0 for a test particle
+	 */
+	public void setMass(int index, double mass) {
+
+		if (mass != 0 && isTestParticle(index)) {
+			throw new IllegalArgumentException("Test particles are massless, can't set the mass of body " + index + " to " + mass);
+		}
+
+		this.mass[index] = mass;
+		accelerationsCurrent = false;
+
+	}
+
+	public double getRadius(int index) {
+		return radius[index];
+	}
+
+	public void setRadius(int index, double radius) {
+		this.radius[index] = radius;
+	}
+
+	/**
+	 * @return the ForceSolver used to calculate the gravitational accelerations of the bodies
+	 */
+	public ForceSolver getForceSolver() {
+		return forceSolver;
+	}
+
+	/**
+	 * Sets the ForceSolver used to calculate gravitational accelerations, which takes effect on the next step
+	 * @param forceSolver the new ForceSolver
+	 */
+	public void setForceSolver(ForceSolver forceSolver) {
+		this.forceSolver = forceSolver;
+		accelerationsCurrent = false;
+	}
+
+	/**
+	 * @return the CollisionHandler used to resolve collisions, or null if bodies pass through each other
+	 */
+	public CollisionHandler getCollisionHandler() {
+		return collisionHandler;
+	}
+
+	/**
+	 * @param collisionHandler the CollisionHandler to resolve collisions with, or null to let bodies pass through each other
+	 */
+	public void setCollisionHandler(CollisionHandler collisionHandler) {
+		this.collisionHandler = collisionHandler;
+	}
+
+	/**
+	 * @return the Integrator used to move the bodies forward in time
+	 */
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Sets the Integrator used to move the bodies forward in time, which takes effect on the next step
+	 * @param integrator the new Integrator
+	 */
+	public void setIntegrator(Integrator integrator) {
+		this.integrator = integrator;
+	}
+
+	/**
+	 * @return the metrics measuring each step, or null if steps aren't measured
+	 */
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param metrics the metrics to measure each step with, or null to stop measuring steps
+	 */
+	public void setMetrics(SimulationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param index the index of a body
+	 * @return the trail of past positions of the body, or null if it hasn't recorded one yet
+	 */
+	public TrailBuffer getTrail(int index) {
+		return trails[index];
+	}
+
+	/**
+	 * @return the number of points kept in each body's trail
+	 */
+	public int getTrailLength() {
+		return trailLength;
+	}
+
+	/**
+	 * Sets the number of points kept in each body's trail, resizing the trails that have already been recorded
+	 * @param trailLength the number of points to keep, or 0 to stop recording trails
+	 */
+	public void setTrailLength(int trailLength) {
+
+		if (trailLength < 0) {
+			throw new IllegalArgumentException("trailLength must not be negative: " + trailLength);
+		}
+
+		this.trailLength = trailLength;
+
+		for (int i = 0; i < count; i++) {
+			if (trails[i] != null) {
+				trails[i].setCapacity(trailLength);
+			}
+		}
+
+	}
+
+	/**
+	 * @return the number of steps between each point recorded in the trails
+	 */
+	public int getTrailDecimation() {
+		return trailDecimation;
+	}
+
+	/**
+	 * @param trailDecimation the number of steps between each point recorded in the trails(1 records every step)
+	 */
+	public void setTrailDecimation(int trailDecimation) {
+
+		if (trailDecimation < 1) {
+			throw new IllegalArgumentException("trailDecimation must be at least 1: " + trailDecimation);
+		}
+
+		this.trailDecimation = trailDecimation;
+
+	}
+
+	/**
+	 * @return the amount of time each step advances the simulation by
+	 */
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * @param timeStep the amount of time each step should advance the simulation by
+	 */
+	public void setTimeStep(double timeStep) {
+		this.timeStep = timeStep;
+	}
+
+	/**
+	 * @return the amount of time that has been simulated
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the number of steps the simulation has taken
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+}
@@ -0,0 +1,405 @@
+package orbitphysics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Measures where the time of each step of a {@link Simulation} goes. Given to a simulation with
+ * {@link Simulation#setMetrics(SimulationMetrics)}, it times each phase of every step, keeps a histogram
+ * of the step times, and counts the force interactions, the collisions and the memory allocated.
+ *
+ * Measuring a step costs a handful of System.nanoTime() calls and no allocation, and a simulation without
+ * metrics doesn't measure anything. A {@link StepListener} can be given the measurements of every step as
+ * it ends, to export them to a monitoring system or a profiler.
+ *
+ * Metrics belong to the thread stepping the simulation. Other threads should read a copy made with
+ * {@link #copyFrom(SimulationMetrics)}, like the one {@link SimulationThread} puts in every snapshot.
+ */
+public class SimulationMetrics {
+
+	/**
+	 * The parts of a step that are timed separately
+	 */
+	public enum Phase {
+
+		// Calculating the accelerations with the force solver
+		FORCES("forces"),
+
+		// The rest of the integrator's work, moving the bodies with the accelerations
+		INTEGRATION("integration"),
+
+		// Finding, resolving and removing collisions
+		COLLISIONS("collisions"),
+
+		// Adding points to the trails
+		TRAILS("trails");
+
+		private final String label;
+
+		Phase(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+	}
+
+	/**
+	 * Receives the measurements of each step as soon as the step ends
+	 */
+	public interface StepListener {
+
+		/**
+		 * Called on the thread stepping the simulation after every measured step, so it should return quickly
+		 * @param simulation the simulation that took the step
+		 * @param metrics the metrics holding the measurements of the step(see the getLast methods)
+		 */
+		void stepMeasured(Simulation simulation, SimulationMetrics metrics);
+
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+
+	// How much each step moves the average phase times towards its own times
+	private static final double AVERAGE_WEIGHT = 0.05;
+
+	// Reads the memory allocated by a thread, or null if the JVM can't
+	private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = findAllocationBean();
+
+	// The step times since the metrics were created or reset
+	final LatencyHistogram stepLatency = new LatencyHistogram();
+
+	// The total time spent in each phase, the time spent in the last step, and an exponential moving average
+	final long[] phaseNanos = new long[PHASES.length];
+	final long[] lastPhaseNanos = new long[PHASES.length];
+	final double[] averagePhaseNanos = new double[PHASES.length];
+
+	long steps;
+	long lastStepNanos;
+	long interactions;
+	long lastInteractions;
+	long collisions;
+	int lastCollisions;
+	long allocatedBytes;
+	long lastAllocatedBytes;
+
+	// Is given the measurements of every step, or null
+	private StepListener stepListener;
+
+	// The state of the step being measured
+	private long stepStartNanos;
+	private long phaseStartNanos;
+	private long stepStartAllocatedBytes;
+
+	private static com.sun.management.ThreadMXBean findAllocationBean() {
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+
+			if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+				return allocationBean;
+			}
+
+		}
+
+		return null;
+
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or -1 if the JVM can't measure it
+	 */
+	private static long currentAllocatedBytes() {
+		return ALLOCATION_BEAN == null ? -1 : ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Starts measuring a step, and its first phase
+	 */
+	void beginStep() {
+
+		Arrays.fill(lastPhaseNanos, 0);
+		lastInteractions = 0;
+		lastCollisions = 0;
+
+		stepStartAllocatedBytes = currentAllocatedBytes();
+
+		stepStartNanos = System.nanoTime();
+		phaseStartNanos = stepStartNanos;
+
+	}
+
+	/**
+	 * Records one calculation of the accelerations during the step being measured. The time is counted as
+	 * part of FORCES instead of the phase it happened in.
+	 * @param nanos the time the force solver took
+	 * @param interactions the interactions the force solver calculated, or -1 if it doesn't count them
+	 */
+	void recordForces(long nanos, long interactions) {
+
+		lastPhaseNanos[Phase.FORCES.ordinal()] += nanos;
+
+		if (interactions < 0 || lastInteractions < 0) {
+			lastInteractions = -1;
+		} else {
+			lastInteractions += interactions;
+		}
+
+	}
+
+	/**
+	 * @param pairs the number of colliding pairs resolved during the step being measured
+	 */
+	void recordCollisions(int pairs) {
+		lastCollisions += pairs;
+	}
+
+	/**
+	 * Ends the current phase of the step being measured and starts the next one
+	 * @param phase the phase that just ended
+	 */
+	void endPhase(Phase phase) {
+
+		long now = System.nanoTime();
+		long elapsed = now - phaseStartNanos;
+
+		// The force calculations made during the phase have already been counted
+		if (phase == Phase.INTEGRATION) {
+			elapsed -= lastPhaseNanos[Phase.FORCES.ordinal()];
+		}
+
+		lastPhaseNanos[phase.ordinal()] += Math.max(0, elapsed);
+		phaseStartNanos = now;
+
+	}
+
+	/**
+	 * Finishes measuring a step, adding it to the totals and the histogram
+	 * @param simulation the simulation that took the step
+	 */
+	void endStep(Simulation simulation) {
+
+		lastStepNanos = System.nanoTime() - stepStartNanos;
+
+		lastAllocatedBytes = stepStartAllocatedBytes < 0 ? -1 : currentAllocatedBytes() - stepStartAllocatedBytes;
+
+		stepLatency.record(lastStepNanos);
+
+		for (int phase = 0; phase < PHASES.length; phase++) {
+
+			phaseNanos[phase] += lastPhaseNanos[phase];
+
+			if (steps == 0) {
+				averagePhaseNanos[phase] = lastPhaseNanos[phase];
+			} else {
+				averagePhaseNanos[phase] += (lastPhaseNanos[phase] - averagePhaseNanos[phase]) * AVERAGE_WEIGHT;
+			}
+
+		}
+
+		if (lastInteractions < 0 || interactions < 0) {
+			interactions = -1;
+		} else {
+			interactions += lastInteractions;
+		}
+
+		if (lastAllocatedBytes < 0 || allocatedBytes < 0) {
+			allocatedBytes = -1;
+		} else {
+			allocatedBytes += lastAllocatedBytes;
+		}
+
+		collisions += lastCollisions;
+		steps++;
+
+		if (stepListener != null) {
+			stepListener.stepMeasured(simulation, this);
+		}
+
+	}
+
+	/**
+	 * Clears every measurement, starting the totals and histogram over
+	 */
+	public void reset() {
+
+		stepLatency.reset();
+
+		Arrays.fill(phaseNanos, 0);
+		Arrays.fill(lastPhaseNanos, 0);
+		Arrays.fill(averagePhaseNanos, 0);
+
+		steps = 0;
+		lastStepNanos = 0;
+		interactions = 0;
+		lastInteractions = 0;
+		collisions = 0;
+		lastCollisions = 0;
+		allocatedBytes = 0;
+		lastAllocatedBytes = 0;
+
+	}
+
+	/**
+	 * Makes these metrics hold the same measurements as another
+	 * @param other the metrics to copy
+	 */
+	public void copyFrom(SimulationMetrics other) {
+
+		stepLatency.copyFrom(other.stepLatency);
+
+		System.arraycopy(other.phaseNanos, 0, phaseNanos, 0, PHASES.length);
+		System.arraycopy(other.lastPhaseNanos, 0, lastPhaseNanos, 0, PHASES.length);
+		System.arraycopy(other.averagePhaseNanos, 0, averagePhaseNanos, 0, PHASES.length);
+
+		steps = other.steps;
+		lastStepNanos = other.lastStepNanos;
+		interactions = other.interactions;
+		lastInteractions = other.lastInteractions;
+		collisions = other.collisions;
+		lastCollisions = other.lastCollisions;
+		allocatedBytes = other.allocatedBytes;
+		lastAllocatedBytes = other.lastAllocatedBytes;
+
+	}
+
+	/**
+	 * Adds the totals and histogram of another set of metrics to these, for example to keep the totals of a
+	 * whole run while the other metrics are reset every interval. The measurements of the last step and the
+	 * moving averages become the other metrics'.
+	 * @param other the metrics to add
+	 */
+	public void add(SimulationMetrics other) {
+
+		stepLatency.add(other.stepLatency);
+
+		for (int phase = 0; phase < PHASES.length; phase++) {
+			phaseNanos[phase] += other.phaseNanos[phase];
+		}
+		System.arraycopy(other.lastPhaseNanos, 0, lastPhaseNanos, 0, PHASES.length);
+		System.arraycopy(other.averagePhaseNanos, 0, averagePhaseNanos, 0, PHASES.length);
+
+		steps += other.steps;
+		lastStepNanos = other.lastStepNanos;
+		interactions = interactions < 0 || other.interactions < 0 ? -1 : interactions + other.interactions;
+		lastInteractions = other.lastInteractions;
+		collisions += other.collisions;
+		lastCollisions = other.lastCollisions;
+		allocatedBytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+		lastAllocatedBytes = other.lastAllocatedBytes;
+
+	}
+
+	/**
+	 * @return the listener given the measurements of every step, or null if there isn't one
+	 */
+	public StepListener getStepListener() {
+		return stepListener;
+	}
+
+	/**
+	 * Sets the listener given the measurements of every step. Listeners aren't copied by
+	 * {@link #copyFrom(SimulationMetrics)} or {@link #add(SimulationMetrics)}.
+	 * @param stepListener the listener, or null to stop reporting steps
+	 */
+	public void setStepListener(StepListener stepListener) {
+		this.stepListener = stepListener;
+	}
+
+	/**
+	 * @return the histogram of step times in nanoseconds
+	 */
+	public LatencyHistogram getStepLatency() {
+		return stepLatency;
+	}
+
+	/**
+	 * @return the number of steps measured
+	 */
+	public long getStepCount() {
+		return steps;
+	}
+
+	/**
+	 * @return the time the last step took in nanoseconds
+	 */
+	public long getLastStepNanos() {
+		return lastStepNanos;
+	}
+
+	/**
+	 * @param phase a phase of the step
+	 * @return the total time spent in the phase in nanoseconds
+	 */
+	public long getPhaseNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @param phase a phase of the step
+	 * @return the time spent in the phase during the last step in nanoseconds
+	 */
+	public long getLastPhaseNanos(Phase phase) {
+		return lastPhaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @param phase a phase of the step
+	 * @return a moving average of the time spent in the phase each step in nanoseconds, which follows
+	 * changes over the last few dozen steps
+	 */
+	public double getAveragePhaseNanos(Phase phase) {
+		return averagePhaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return the total number of interactions calculated by the force solver, or -1 if it doesn't count them
+	 */
+	public long getInteractionCount() {
+		return interactions;
+	}
+
+	/**
+	 * @return the number of interactions calculated during the last step, or -1 if the force solver doesn't count them
+	 */
+	public long getLastInteractionCount() {
+		return lastInteractions;
+	}
+
+	/**
+	 * @return the total number of colliding pairs resolved
+	 */
+	public long getCollisionCount() {
+		return collisions;
+	}
+
+	/**
+	 * @return the number of colliding pairs resolved during the last step
+	 */
+	public int getLastCollisionCount() {
+		return lastCollisions;
+	}
+
+	/**
+	 * Allocations are only measured on the thread stepping the simulation, so memory allocated by the threads of
+	 * a parallel force solver isn't included
+	 * @return the total bytes allocated during the steps, or -1 if the JVM can't measure allocations
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return the bytes allocated during the last step, or -1 if the JVM can't measure allocations
+	 */
+	public long getLastAllocatedBytes() {
+		return lastAllocatedBytes;
+	}
+
+}
@@ -0,0 +1,227 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * A copy of the state of a {@link Simulation} that can be read by another thread while the simulation
+ * keeps stepping. Along with the current positions it keeps the positions from before the last step,
+ * so a renderer can interpolate between the two states.
+ *
+ * Snapshots are reused: {@link SimulationThread} fills them with {@link #copyFrom(Simulation, double[], double[])}
+ * and hands them to the reader through a lock-free exchange, so the arrays are only allocated when the
+ * number of bodies grows. A {@link ReplayPlayer} fills them from a recording instead.
+ */
+public class SimulationSnapshot {
+
+	int count;
+	int[] ids = new int[0];
+	double[] x = new double[0];
+	double[] y = new double[0];
+	double[] previousX = new double[0];
+	double[] previousY = new double[0];
+	double[] radius = new double[0];
+	double[] mass = new double[0];
+	TrailBuffer[] trails = new TrailBuffer[0];
+
+	// Maps a body id to its index in this snapshot, or -1 if it isn't in it
+	int[] indexOfId = new int[0];
+
+	// Every id below this had been given out when the snapshot was taken
+	int nextId;
+
+	long stepCount;
+	double time;
+
+	// A copy of the simulation's metrics, or null if its steps aren't measured
+	SimulationMetrics metrics;
+
+	// When the snapshot was published(from System.nanoTime()) and how long each step is meant to take
+	long publishNanos;
+	long stepNanos;
+
+	// Set by the writer when the snapshot holds a state the reader hasn't seen yet
+	volatile boolean fresh;
+
+	/**
+	 * Copies the state of a simulation into this snapshot
+	 * @param simulation the simulation to copy
+	 * @param previousX the x coordinates of the bodies before the last step
+	 * @param previousY the y coordinates of the bodies before the last step
+	 */
+	void copyFrom(Simulation simulation, double[] previousX, double[] previousY) {
+
+		copyFrom(simulation.count, simulation.ids, simulation.x, simulation.y, previousX, previousY, simulation.radius,
+				simulation.mass, simulation.trails, simulation.nextId, simulation.stepCount, simulation.time);
+
+		if (simulation.metrics == null) {
+			metrics = null;
+		} else {
+			if (metrics == null) {
+				metrics = new SimulationMetrics();
+			}
+			metrics.copyFrom(simulation.metrics);
+		}
+
+	}
+
+	/**
+	 * Copies a state of the bodies into this snapshot, from a simulation or from a recording being replayed
+	 * @param count the number of bodies
+	 * @param ids the ids of the bodies
+	 * @param x the x coordinates of the bodies
+	 * @param y the y coordinates of the bodies
+	 * @param previousX the x coordinates of the bodies before the last step
+	 * @param previousY the y coordinates of the bodies before the last step
+	 * @param radius the radii of the bodies
+	 * @param mass the masses of the bodies
+	 * @param trails the trails of the bodies, with null for bodies without one
+	 * @param nextId a number greater than every id that has been given out
+	 * @param stepCount the number of steps taken
+	 * @param time the amount of time simulated
+	 */
+	void copyFrom(int count, int[] ids, double[] x, double[] y, double[] previousX, double[] previousY, double[] radius,
+			double[] mass, TrailBuffer[] trails, int nextId, long stepCount, double time) {
+
+		this.count = count;
+
+		if (this.x.length < count) {
+
+			int capacity = Math.max(count, this.x.length * 2);
+
+			this.ids = new int[capacity];
+			this.x = new double[capacity];
+			this.y = new double[capacity];
+			this.previousX = new double[capacity];
+			this.previousY = new double[capacity];
+			this.radius = new double[capacity];
+			this.mass = new double[capacity];
+			this.trails = Arrays.copyOf(this.trails, capacity);
+
+		}
+
+		System.arraycopy(ids, 0, this.ids, 0, count);
+		System.arraycopy(x, 0, this.x, 0, count);
+		System.arraycopy(y, 0, this.y, 0, count);
+		System.arraycopy(previousX, 0, this.previousX, 0, count);
+		System.arraycopy(previousY, 0, this.previousY, 0, count);
+		System.arraycopy(radius, 0, this.radius, 0, count);
+		System.arraycopy(mass, 0, this.mass, 0, count);
+
+		for (int i = 0; i < count; i++) {
+
+			TrailBuffer trail = trails[i];
+
+			if (trail == null) {
+				this.trails[i] = null;
+			} else {
+				if (this.trails[i] == null) {
+					this.trails[i] = new TrailBuffer(trail.getCapacity());
+				}
+				this.trails[i].copyFrom(trail);
+			}
+
+		}
+
+		this.nextId = nextId;
+
+		if (indexOfId.length < nextId) {
+			indexOfId = new int[Math.max(nextId, indexOfId.length * 2)];
+		}
+		Arrays.fill(indexOfId, 0, nextId, -1);
+		for (int i = 0; i < count; i++) {
+			indexOfId[ids[i]] = i;
+		}
+
+		this.stepCount = stepCount;
+		this.time = time;
+
+	}
+
+	/**
+	 * @param id the id of a body
+	 * @return the index of the body in this snapshot, or -1 if it isn't in it
+	 */
+	public int indexOf(int id) {
+		return id >= 0 && id < nextId ? indexOfId[id] : -1;
+	}
+
+	/**
+	 * Tests if a body was removed from the simulation before the snapshot was taken. Bodies added after
+	 * the snapshot was taken are not in it either, but haven't been removed.
+	 * @param id the id of a body
+	 * @return true if the body had been removed when the snapshot was taken
+	 */
+	public boolean isRemoved(int id) {
+		return id < nextId && indexOfId[id] < 0;
+	}
+
+	/**
+	 * @param index the index of a body in the snapshot
+	 * @param alpha how far between the previous and current state to interpolate, from 0 to 1
+	 * @return the interpolated x coordinate of the body
+	 */
+	public double getX(int index, double alpha) {
+		return previousX[index] + (x[index] - previousX[index]) * alpha;
+	}
+
+	/**
+	 * @param index the index of a body in the snapshot
+	 * @param alpha how far between the previous and current state to interpolate, from 0 to 1
+	 * @return the interpolated y coordinate of the body
+	 */
+	public double getY(int index, double alpha) {
+		return previousY[index] + (y[index] - previousY[index]) * alpha;
+	}
+
+	/**
+	 * Calculates how far to interpolate between the previous and current state at a point in time,
+	 * based on how long ago the snapshot was published and how long a step is meant to take
+	 * @param nowNanos the current time from System.nanoTime()
+	 * @return the interpolation amount, from 0 to 1
+	 */
+	public double getAlpha(long nowNanos) {
+
+		if (stepNanos <= 0) {
+			return 1;
+		}
+
+		return Math.max(0, Math.min(1, (double) (nowNanos - publishNanos) / stepNanos));
+
+	}
+
+	public int getBodyCount() {
+		return count;
+	}
+
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	public double getRadius(int index) {
+		return radius[index];
+	}
+
+	public double getMass(int index) {
+		return mass[index];
+	}
+
+	public TrailBuffer getTrail(int index) {
+		return trails[index];
+	}
+
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return a copy of the simulation's metrics when the snapshot was taken, or null if its steps aren't measured
+	 */
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+}
@@ -0,0 +1,389 @@
+package orbitphysics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Steps a {@link Simulation} on its own thread with a fixed time step, independently of how often the
+ * screen is drawn.
+ *
+ * The thread takes stepsPerSecond * timeWarp steps for every second of real time. If the steps can't keep up,
+ * the backlog is capped so the simulation slows down instead of falling further and further behind.
+ *
+ * After each batch of steps the state is copied into a {@link SimulationSnapshot} and published for readers
+ * (like the JavaFX thread) without any locks. Three snapshots are rotated: the writer fills one, the reader
+ * holds one, and the newest finished one is swapped between them through an {@link AtomicReference}, so
+ * neither side ever waits for the other or sees a snapshot being written.
+ *
+ * Only this thread touches the Simulation while it runs. Other threads change it by submitting commands,
+ * which are run between steps.
+ */
+public class SimulationThread implements Runnable {
+
+	public static final double DEFAULT_STEPS_PER_SECOND = 60;
+
+	// Snapshots aren't published more often than this, so fast time warps don't spend their time copying state
+	private static final long PUBLISH_INTERVAL_NANOS = 1_000_000_000L / 120;
+
+	// The most real time worth of steps that can be waiting to be run
+	private static final double MAX_BACKLOG_SECONDS = 0.25;
+
+	private final Simulation simulation;
+
+	private final ConcurrentLinkedQueue<Consumer<Simulation>> commands = new ConcurrentLinkedQueue<>();
+
+	private volatile double stepsPerSecond = DEFAULT_STEPS_PER_SECOND;
+	private volatile double timeWarp = 1;
+	private volatile boolean paused;
+	private volatile boolean running;
+
+	private volatile Thread thread;
+
+	// Saves a checkpoint every checkpointInterval steps, or null to not save checkpoints
+	private volatile Checkpointer checkpointer;
+	private volatile long checkpointInterval;
+	private long nextCheckpointStep;
+
+	// The snapshot being written, the newest published snapshot, and the snapshot held by the reader
+	private SimulationSnapshot back = new SimulationSnapshot();
+	private final AtomicReference<SimulationSnapshot> middle = new AtomicReference<>(new SimulationSnapshot());
+	private SimulationSnapshot front = new SimulationSnapshot();
+
+	// The positions and ids of the bodies before the last step of a batch, for interpolation
+	private double[] previousX = new double[0];
+	private double[] previousY = new double[0];
+	private int[] previousIds = new int[0];
+	private int previousCount;
+
+	/**
+	 * @param simulation the simulation to step, which shouldn't be used by other threads once this is started
+	 */
+	public SimulationThread(Simulation simulation) {
+
+		this.simulation = simulation;
+
+		// Publish the starting state so there is something to read before the first step
+		savePreviousPositions();
+		publish(System.nanoTime());
+
+	}
+
+	/**
+	 * Starts stepping the simulation on a new daemon thread
+	 */
+	public synchronized void start() {
+
+		if (thread != null) {
+			return;
+		}
+
+		running = true;
+
+		thread = new Thread(this, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/**
+	 * Stops the thread after its current batch of steps and waits for it to finish
+	 */
+	public synchronized void stop() {
+
+		running = false;
+
+		if (thread == null) {
+			return;
+		}
+
+		LockSupport.unpark(thread);
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		thread = null;
+
+		// The thread has finished, so the simulation can be saved from here
+		Checkpointer finalCheckpointer = checkpointer;
+		if (finalCheckpointer != null) {
+
+			checkpointer = null;
+
+			try {
+				finalCheckpointer.checkpointAndClose(simulation);
+			} catch (IOException e) {
+				System.err.println("The final checkpoint failed to be written: " + e.getMessage());
+			}
+
+		}
+
+	}
+
+	@Override
+	public void run() {
+
+		long lastNanos = System.nanoTime();
+		long lastPublishNanos = lastNanos;
+
+		// The number of steps that are due but haven't been run
+		double dueSteps = 0;
+
+		while (running) {
+
+			boolean changed = runCommands();
+
+			long now = System.nanoTime();
+			double stepRate = stepsPerSecond * timeWarp;
+
+			if (paused) {
+				// Steps that were due but not yet run are dropped, so nothing moves once the simulation is paused
+				dueSteps = 0;
+			} else {
+				dueSteps = Math.min(dueSteps + (now - lastNanos) * stepRate / 1e9, Math.max(1, stepRate * MAX_BACKLOG_SECONDS));
+			}
+			lastNanos = now;
+
+			int steps = (int) dueSteps;
+
+			if (steps > 0 && now - lastPublishNanos >= PUBLISH_INTERVAL_NANOS) {
+
+				for (int i = 0; i < steps; i++) {
+
+					if (i == steps - 1) {
+						savePreviousPositions();
+					}
+
+					simulation.step();
+
+				}
+
+				dueSteps -= steps;
+
+				checkpointIfDue();
+
+				lastPublishNanos = System.nanoTime();
+				publish(lastPublishNanos);
+
+			} else if (changed) {
+
+				savePreviousPositions();
+
+				lastPublishNanos = System.nanoTime();
+				publish(lastPublishNanos);
+
+			} else {
+
+				// Sleep until the next step is due or the next snapshot can be published
+				long untilStep = paused || stepRate <= 0 ? PUBLISH_INTERVAL_NANOS : (long) ((1 - (dueSteps - steps)) / stepRate * 1e9);
+				long untilPublish = lastPublishNanos + PUBLISH_INTERVAL_NANOS - now;
+
+				LockSupport.parkNanos(Math.max(untilStep, untilPublish));
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Starts saving a checkpoint if enough steps have been taken since the last one. Only copying the state
+	 * happens on this thread, the checkpoint is written to its file in the background.
+	 */
+	private void checkpointIfDue() {
+
+		Checkpointer checkpointer = this.checkpointer;
+
+		if (checkpointer != null && simulation.stepCount >= nextCheckpointStep) {
+			checkpointer.checkpoint(simulation);
+			nextCheckpointStep = simulation.stepCount + checkpointInterval;
+		}
+
+	}
+
+	/**
+	 * Saves checkpoints of the simulation while it runs, and a final checkpoint when the thread is stopped
+	 * @param checkpointer the checkpointer to save checkpoints with, or null to stop saving them
+	 * @param checkpointInterval the number of steps between checkpoints
+	 */
+	public void setCheckpointer(Checkpointer checkpointer, long checkpointInterval) {
+
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("checkpointInterval must be at least 1: " + checkpointInterval);
+		}
+
+		this.checkpointInterval = checkpointInterval;
+		this.checkpointer = checkpointer;
+
+		submit(simulation -> nextCheckpointStep = simulation.stepCount + checkpointInterval);
+
+	}
+
+	/**
+	 * Runs every submitted command
+	 * @return true if any commands were run
+	 */
+	private boolean runCommands() {
+
+		boolean ranCommand = false;
+
+		Consumer<Simulation> command;
+		while ((command = commands.poll()) != null) {
+			command.accept(simulation);
+			ranCommand = true;
+		}
+
+		return ranCommand;
+
+	}
+
+	private void savePreviousPositions() {
+
+		int count = simulation.count;
+
+		if (previousX.length < count) {
+			int capacity = Math.max(count, previousX.length * 2);
+			previousX = new double[capacity];
+			previousY = new double[capacity];
+			previousIds = new int[capacity];
+		}
+
+		System.arraycopy(simulation.x, 0, previousX, 0, count);
+		System.arraycopy(simulation.y, 0, previousY, 0, count);
+		System.arraycopy(simulation.ids, 0, previousIds, 0, count);
+		previousCount = count;
+
+	}
+
+	/**
+	 * Copies the simulation into the back snapshot and swaps it with the middle one
+	 */
+	private void publish(long nowNanos) {
+
+		int count = simulation.count;
+
+		if (previousX.length < count) {
+			previousX = Arrays.copyOf(previousX, count);
+			previousY = Arrays.copyOf(previousY, count);
+			previousIds = Arrays.copyOf(previousIds, count);
+		}
+
+		// Bodies that were added or moved to a new index by a removal during the last step don't have
+		// a previous position, so they aren't interpolated
+		for (int i = 0; i < count; i++) {
+			if (i >= previousCount || previousIds[i] != simulation.ids[i]) {
+				previousX[i] = simulation.x[i];
+				previousY[i] = simulation.y[i];
+			}
+		}
+
+		back.copyFrom(simulation, previousX, previousY);
+		back.publishNanos = nowNanos;
+		back.stepNanos = paused ? 0 : (long) (1e9 / (stepsPerSecond * timeWarp));
+		back.fresh = true;
+
+		back = middle.getAndSet(back);
+
+	}
+
+	/**
+	 * Gets the newest published snapshot. The snapshot returned belongs to the caller until the next call,
+	 * so this should only be called from one thread(usually the JavaFX thread).
+	 * @return the newest snapshot of the simulation
+	 */
+	public SimulationSnapshot getSnapshot() {
+
+		if (middle.get().fresh) {
+			front.fresh = false;
+			front = middle.getAndSet(front);
+		}
+
+		return front;
+
+	}
+
+	/**
+	 * Runs a command on the simulation thread before its next step. This is the only safe way for
+	 * other threads to change the simulation while the thread is running.
+	 * @param command the command to run
+	 */
+	public void submit(Consumer<Simulation> command) {
+
+		commands.add(command);
+
+		Thread current = thread;
+		if (current != null) {
+			LockSupport.unpark(current);
+		}
+
+	}
+
+	/**
+	 * @return the simulation stepped by this thread
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
+	/**
+	 * @return the number of steps taken for every second of real time, before time warp
+	 */
+	public double getStepsPerSecond() {
+		return stepsPerSecond;
+	}
+
+	/**
+	 * @param stepsPerSecond the number of steps to take for every second of real time, before time warp
+	 */
+	public void setStepsPerSecond(double stepsPerSecond) {
+
+		if (!(stepsPerSecond > 0)) {
+			throw new IllegalArgumentException("stepsPerSecond must be positive: " + stepsPerSecond);
+		}
+
+		this.stepsPerSecond = stepsPerSecond;
+
+	}
+
+	/**
+	 * @return the multiplier applied to the number of steps taken per second
+	 */
+	public double getTimeWarp() {
+		return timeWarp;
+	}
+
+	/**
+	 * @param timeWarp the multiplier to apply to the number of steps taken per second
+	 */
+	public void setTimeWarp(double timeWarp) {
+
+		if (!(timeWarp > 0)) {
+			throw new IllegalArgumentException("timeWarp must be positive: " + timeWarp);
+		}
+
+		this.timeWarp = timeWarp;
+
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * @param paused true to stop stepping the simulation, commands are still run while paused
+	 */
+	public void setPaused(boolean paused) {
+
+		this.paused = paused;
+
+		submit(simulation -> { });
+
+	}
+
+}
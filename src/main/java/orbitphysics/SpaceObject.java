@@ -0,0 +1,297 @@
+package orbitphysics;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * A class for storing information for objects used in the OrbitPhysics program
+ * 
+ * The physical state of a SpaceObject(position, velocity, mass and radius) is stored in a
+ * {@link Simulation}, so a SpaceObject is only a view of one of the Simulation's bodies that
+ * adds the information needed to display it, like its name and color.
+ * 
+ * The getters and setters of the physical state read and write the Simulation directly, so while a
+ * {@link SimulationThread} is stepping the Simulation they should only be used from commands submitted to it.
+ */
+public class SpaceObject {
+	
+	String name;
+	
+	Color color;
+	
+	// The Simulation storing this SpaceObject's physical state, and the id of its body in that Simulation
+	Simulation simulation;
+	int id;
+	
+	
+	/**
+	 * Creates a SpaceObject with no mass, radius or velocity at (0, 0) and adds it to a Simulation
+	 * @param simulation the Simulation to add the SpaceObject's body to
+	 */
+	public SpaceObject(Simulation simulation) {
+		
+		this.simulation = simulation;
+		this.id = simulation.addBody(0, 0, 0, 0, 0, 0);
+		
+	}
+	
+	/**
+	 * Creates a named SpaceObject with a specified color for a body that is already in a Simulation,
+	 * for example one restored from a {@link Checkpoint}
+	 * @param simulation the Simulation storing the body
+	 * @param id the id of the body
+	 */
+	public SpaceObject(Simulation simulation, int id, String name, Color color) {
+		
+		this.name = name;
+		
+		this.color = color;
+		
+		this.simulation = simulation;
+		this.id = id;
+		
+	}
+	
+	/**
+	 * Creates a named SpaceObject with a specified color centered on (x, y) with a given radius and mass 
+	 * and an initial velocity of 0
+	 * @param simulation the Simulation to add the SpaceObject's body to
+	 * @param x the center x coordinate of the SpaceObject
+	 * @param y the center y coordinate of the SpaceObject
+	 * @param radius the radius of the SpaceObject
+	 * @param mass the mass of the SpaceObject
+	 */
+	public SpaceObject(Simulation simulation, String name, Color color, double x, double y, double radius, double mass) {
+		
+		this(simulation, name, color, x, y, radius, mass, 0, 0);
+		
+	}
+	
+	/**
+	 * Creates a named SpaceObject with a specified color centered on (x, y) with a given radius and mass
+	 * The x and y velocities of the SpaceObject are computed based on the velocity given and its direction
+	 * @param simulation the Simulation to add the SpaceObject's body to
+	 * @param x the center x coordinate of the SpaceObject
+	 * @param y the center y coordinate of the SpaceObject
+	 * @param radius the radius of the SpaceObject
+	 * @param mass the mass of the SpaceObject
+	 * @param velocity the initial magnitude of the SpaceObject's velocity
+	 * @param direction the initial direction of the SpaceObject's velocity(in degrees)
+	 */
+	public SpaceObject(Simulation simulation, String name, Color color, double x, double y, double radius, double mass, double velocity, double direction) {
+		
+		this.name = name;
+		
+		this.color = color;
+		
+		double directionInRadians = Math.toRadians(direction);
+		double xVelocity = velocity * Math.cos(directionInRadians);
+		double yVelocity = velocity * Math.sin(directionInRadians);
+		
+		this.simulation = simulation;
+		this.id = simulation.addBody(x, y, xVelocity, yVelocity, mass, radius);
+		
+	}
+	
+	/**
+	 * Draws a circle at the SpaceObject's (x, y) coordinates
+	 * The color and radius of the circle are determined by their local variables in the SpaceObject
+	 * @param gc the {@link GraphicsContext2D} object of the canvas
+	 * @param gameCamera the GameCamera instance for the game which stores x and y drawing offsets
+	 */
+	public void draw(GraphicsContext gc, GameCamera gameCamera) {
+		
+		// Store x and y draw offsets
+		double xOffset = gameCamera.getxOffset();
+		double yOffset = gameCamera.getyOffset();
+		
+		double radius = getRadius();
+		
+		// Fill the SpaceObject's circle, centered around its (x, y) coordinates
+		
+		gc.save();
+		
+		gc.setFill(color);
+		
+		gc.fillOval(getCenterX() - radius - xOffset, getCenterY() - radius - yOffset, radius * 2, radius * 2);
+		
+		gc.restore();
+	}
+	
+	/**
+	 * Tests if this SpaceObject is colliding with another SpaceObject by testing
+	 * if the distance between them is less than the sum of their radii.
+	 * If this method is used to check for a collision of a SpaceObject with itself,
+	 * it will return false.
+	 * @param otherObject the other SpaceObject to check for a collision with
+	 * @return true if there is a collision between the two SpaceObjects, false otherwise
+	 */
+	public boolean isCollisionPresent(SpaceObject otherObject) {
+		
+		if (otherObject != this) {
+			
+			return simulation.isOverlapping(getIndex(), otherObject.getIndex());
+			
+		} else {
+			
+			return false;
+			
+		}
+		
+	}
+	
+	/**
+	 * @return the index of the SpaceObject's body in the Simulation's state arrays
+	 */
+	int getIndex() {
+		return simulation.indexOf(id);
+	}
+	
+	/**
+	 * @return the id of the SpaceObject's body in its Simulation
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * @return the Simulation storing the SpaceObject's physical state
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+	
+	/**
+	 * @return true if the SpaceObject's body is still part of its Simulation
+	 */
+	public boolean isAlive() {
+		return simulation.contains(id);
+	}
+	
+	/**
+	 * Gets the name associated with the SpaceObject(like "Earth" or "Moon")
+	 * @return the name of the SpaceObject
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sets the name of the SpaceObject
+	 * @param name the new name of the SpaceObject
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the SpaceObject's color
+	 * @return the color of the SpaceObject
+	 */
+	public Color getColor() {
+		return color;
+	}
+
+	/**
+	 * Sets a new color to be used when drawing the SpaceObject
+	 * @param color the new color for the SpaceObject
+	 */
+	public void setColor(Color color) {
+		this.color = color;
+	}
+	
+	/**
+	 * @return the x coordinate of the SpaceObject's center
+	 */
+	public double getCenterX() {
+		return simulation.getX(getIndex());
+	}
+	
+	/**
+	 * @param x the new x coordinate of the SpaceObject's center
+	 */
+	public void setCenterX(double x) {
+		simulation.setX(getIndex(), x);
+	}
+	
+	/**
+	 * @return the y coordinate of the SpaceObject's center
+	 */
+	public double getCenterY() {
+		return simulation.getY(getIndex());
+	}
+	
+	/**
+	 * @param y the new y coordinate of the SpaceObject's center
+	 */
+	public void setCenterY(double y) {
+		simulation.setY(getIndex(), y);
+	}
+	
+	/**
+	 * @return the radius of the SpaceObject
+	 */
+	public double getRadius() {
+		return simulation.getRadius(getIndex());
+	}
+	
+	/**
+	 * @param radius the new radius of the SpaceObject
+	 */
+	public void setRadius(double radius) {
+		simulation.setRadius(getIndex(), radius);
+	}
+
+	/**
+	 * Gets the x velocity of the SpaceObject
+	 * @return the x velocity of the SpaceObject
+	 */
+	public double getxVelocity() {
+		return simulation.getxVelocity(getIndex());
+	}
+
+	/**
+	 * @param xVelocity the new x velocity
+	 */
+	public void setxVelocity(double xVelocity) {
+		simulation.setxVelocity(getIndex(), xVelocity);
+	}
+
+	/**
+	 * @return the y velocity of the SpaceObject
+	 */
+	public double getyVelocity() {
+		return simulation.getyVelocity(getIndex());
+	}
+
+	/**
+	 * @param yVelocity the new y velocity
+	 */
+	public void setyVelocity(double yVelocity) {
+		simulation.setyVelocity(getIndex(), yVelocity);
+	}
+
+	/**
+	 * @return the mass of the SpaceObject
+	 */
+	public double getMass() {
+		return simulation.getMass(getIndex());
+	}
+
+	/**
+	 * @param mass the new mass of the SpaceObject
+	 */
+	public void setMass(double mass) {
+		simulation.setMass(getIndex(), mass);
+	}
+
+	/**
+	 * Gets the trail of preceding (x, y) coordinates the SpaceObject has been at
+	 * The length of the trail is set by {@link Simulation#setTrailLength(int)}
+	 * @return the SpaceObject's {@link TrailBuffer}, or null if it hasn't recorded a trail yet
+	 */
+	public TrailBuffer getTrail() {
+		return simulation.getTrail(getIndex());
+	}
+
+}
@@ -0,0 +1,21 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+public class Starter {
+    
+    public static void main(final String[] args) {
+        
+        // "batch" runs a scenario from the command line without starting JavaFX
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+        } else if (args.length > 0 && args[0].equals("ensemble")) {
+            // "ensemble" runs many variants of the planet and rocket scenario at once
+            EnsembleRunner.main(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            OrbitPhysics.main(args);
+        }
+        
+    }
+
+}
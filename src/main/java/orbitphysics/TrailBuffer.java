@@ -0,0 +1,205 @@
+package orbitphysics;
+
+/**
+ * A fixed-capacity ring buffer of the past (x, y) positions of a body, stored in primitive arrays.
+ * Once the buffer is full, adding a point overwrites the oldest one, so no objects are allocated and
+ * nothing is shifted as the trail moves.
+ */
+public class TrailBuffer {
+
+	/**
+	 * Receives the points of a trail, see {@link TrailBuffer#forEach(PointConsumer)}
+	 */
+	public interface PointConsumer {
+		void accept(double x, double y);
+	}
+
+	private double[] xs;
+	private double[] ys;
+
+	// The index of the oldest point and the number of points stored
+	private int start;
+	private int size;
+
+	/**
+	 * @param capacity the maximum number of points the trail holds
+	 */
+	public TrailBuffer(int capacity) {
+
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+		}
+
+		xs = new double[capacity];
+		ys = new double[capacity];
+
+	}
+
+	/**
+	 * Adds a point to the end of the trail, replacing the oldest point if the trail is full
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 */
+	public void add(double x, double y) {
+
+		int capacity = xs.length;
+
+		if (capacity == 0) {
+			return;
+		}
+
+		int end = start + size;
+		if (end >= capacity) {
+			end -= capacity;
+		}
+
+		xs[end] = x;
+		ys[end] = y;
+
+		if (size < capacity) {
+			size++;
+		} else {
+			start = start + 1 == capacity ? 0 : start + 1;
+		}
+
+	}
+
+	/**
+	 * @param i the index of a point, where 0 is the oldest point
+	 * @return the x coordinate of the point
+	 */
+	public double getX(int i) {
+		return xs[physicalIndex(i)];
+	}
+
+	/**
+	 * @param i the index of a point, where 0 is the oldest point
+	 * @return the y coordinate of the point
+	 */
+	public double getY(int i) {
+		return ys[physicalIndex(i)];
+	}
+
+	/**
+	 * Passes every point of the trail to a consumer, from the oldest to the newest
+	 * @param consumer the consumer to pass the points to
+	 */
+	public void forEach(PointConsumer consumer) {
+
+		int capacity = xs.length;
+
+		for (int i = 0, index = start; i < size; i++) {
+
+			consumer.accept(xs[index], ys[index]);
+
+			index = index + 1 == capacity ? 0 : index + 1;
+
+		}
+
+	}
+
+	/**
+	 * Copies the points of the trail into arrays, from the oldest to the newest, shifting them by an offset
+	 * @param x the array to copy the x coordinates into
+	 * @param y the array to copy the y coordinates into
+	 * @param xOffset the amount to subtract from each x coordinate
+	 * @param yOffset the amount to subtract from each y coordinate
+	 * @return the number of points copied
+	 */
+	public int copyTo(double[] x, double[] y, double xOffset, double yOffset) {
+
+		int capacity = xs.length;
+
+		for (int i = 0, index = start; i < size; i++) {
+
+			x[i] = xs[index] - xOffset;
+			y[i] = ys[index] - yOffset;
+
+			index = index + 1 == capacity ? 0 : index + 1;
+
+		}
+
+		return size;
+
+	}
+
+	/**
+	 * Makes this trail a copy of another trail, reusing this trail's arrays if they are big enough
+	 * @param other the trail to copy
+	 */
+	public void copyFrom(TrailBuffer other) {
+
+		if (xs.length != other.xs.length) {
+			xs = new double[other.xs.length];
+			ys = new double[other.ys.length];
+		}
+
+		System.arraycopy(other.xs, 0, xs, 0, xs.length);
+		System.arraycopy(other.ys, 0, ys, 0, ys.length);
+
+		start = other.start;
+		size = other.size;
+
+	}
+
+	/**
+	 * Changes the maximum number of points the trail holds, keeping the newest points that still fit
+	 * @param capacity the new capacity
+	 */
+	public void setCapacity(int capacity) {
+
+		if (capacity == xs.length) {
+			return;
+		}
+
+		int newSize = Math.min(size, capacity);
+
+		double[] newXs = new double[capacity];
+		double[] newYs = new double[capacity];
+
+		for (int i = 0; i < newSize; i++) {
+			newXs[i] = getX(size - newSize + i);
+			newYs[i] = getY(size - newSize + i);
+		}
+
+		xs = newXs;
+		ys = newYs;
+		start = 0;
+		size = newSize;
+
+	}
+
+	/**
+	 * Removes every point from the trail
+	 */
+	public void clear() {
+		start = 0;
+		size = 0;
+	}
+
+	/**
+	 * @return the number of points in the trail
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of points the trail holds
+	 */
+	public int getCapacity() {
+		return xs.length;
+	}
+
+	private int physicalIndex(int i) {
+
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index " + i + " out of bounds for trail of size " + size);
+		}
+
+		int index = start + i;
+		return index >= xs.length ? index - xs.length : index;
+
+	}
+
+}
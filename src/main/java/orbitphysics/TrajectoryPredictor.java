@@ -0,0 +1,483 @@
+package orbitphysics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Predicts the path of a test particle that is about to be placed, on a background thread, so the viewer can
+ * show where a body will go while its velocity is still being chosen.
+ *
+ * The massive bodies are copied from the simulation once when placing starts. Since test particles don't pull on
+ * anything, the paths of the massive bodies don't depend on the body being placed, so they are stepped once and
+ * kept as an ephemeris that every later prediction reuses. It is only extended when a prediction needs to look
+ * further ahead than any before it. Each prediction then only steps one particle through the stored positions,
+ * which takes O(m) time per step instead of O(m^2).
+ *
+ * Every request bumps a generation counter. A prediction checks the counter between steps and stops as soon as
+ * a newer request has been made, so moving the mouse never waits for stale work. Its points are published every
+ * few steps, so the start of a long path appears straight away.
+ *
+ * Paths are stepped with Velocity Verlet at the simulation's time step, and only the most massive bodies are
+ * used as sources in scenes with a lot of them, so the prediction is the physical path and can drift from
+ * what a low order integrator like Euler will actually do.
+ */
+public class TrajectoryPredictor {
+
+	public static final int DEFAULT_LENGTH = 2000;
+
+	// Only the heaviest bodies pull on the prediction, so placing in a huge scene doesn't step all of it
+	static final int MAX_SOURCES = 256;
+
+	// The number of steps between publishing the points of a prediction
+	private static final int PUBLISH_STEPS = 50;
+
+	/**
+	 * The points of a predicted path, which only grows while it is being calculated
+	 */
+	public static class Prediction {
+
+		private final double[] x;
+		private final double[] y;
+		private final int count;
+		private final boolean collided;
+
+		Prediction(double[] x, double[] y, int count, boolean collided) {
+			this.x = x;
+			this.y = y;
+			this.count = count;
+			this.collided = collided;
+		}
+
+		/**
+		 * @return the number of points in the path, the first is where the body is placed
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		public double getX(int index) {
+			return x[index];
+		}
+
+		public double getY(int index) {
+			return y[index];
+		}
+
+		/**
+		 * @return true if the path ends because the body hit one of the sources
+		 */
+		public boolean hasCollided() {
+			return collided;
+		}
+
+	}
+
+	/**
+	 * The starting state of a requested prediction
+	 */
+	private static class Request {
+
+		final double x;
+		final double y;
+		final double xVelocity;
+		final double yVelocity;
+		final double radius;
+
+		Request(double x, double y, double xVelocity, double yVelocity, double radius) {
+			this.x = x;
+			this.y = y;
+			this.xVelocity = xVelocity;
+			this.yVelocity = yVelocity;
+			this.radius = radius;
+		}
+
+	}
+
+	private final int length;
+
+	// Runs the predictions one at a time, and is the only thread that touches the sources and the ephemeris
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Trajectory prediction");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Counts the requests, a prediction stops once it isn't the newest one
+	private final AtomicLong generation = new AtomicLong();
+
+	// The newest request, run again when the sources change, or null if there isn't one
+	private volatile Request request;
+
+	// The newest published points, or null if there aren't any yet
+	private volatile Prediction prediction;
+
+	// The sources and their state at the last step of the ephemeris
+	private int sourceCount;
+	private double timeStep;
+	private double[] sourceMass = new double[0];
+	private double[] sourceRadius = new double[0];
+	private double[] sourceXVelocity = new double[0];
+	private double[] sourceYVelocity = new double[0];
+	private double[] sourceXAcceleration = new double[0];
+	private double[] sourceYAcceleration = new double[0];
+
+	// The positions of the sources at each step, step * sourceCount + source
+	private double[] ephemerisX = new double[0];
+	private double[] ephemerisY = new double[0];
+	private int ephemerisSteps;
+
+	// The acceleration found by the last call to computeParticleAcceleration
+	private double particleXAcceleration;
+	private double particleYAcceleration;
+
+	public TrajectoryPredictor() {
+		this(DEFAULT_LENGTH);
+	}
+
+	/**
+	 * @param length the number of steps to predict ahead
+	 */
+	public TrajectoryPredictor(int length) {
+
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be at least 1: " + length);
+		}
+
+		this.length = length;
+
+	}
+
+	/**
+	 * Copies the massive bodies of a simulation to predict paths through. This should be called by the thread
+	 * stepping the simulation, and the simulation shouldn't be stepped while predictions are being shown.
+	 * The newest request is predicted again with the new sources.
+	 * @param simulation the simulation to copy the bodies of
+	 */
+	public void setSources(Simulation simulation) {
+
+		int massiveCount = simulation.massiveCount;
+		int count = Math.min(massiveCount, MAX_SOURCES);
+
+		Integer[] order = new Integer[massiveCount];
+		for (int i = 0; i < massiveCount; i++) {
+			order[i] = i;
+		}
+
+		if (massiveCount > count) {
+			Arrays.sort(order, Comparator.comparingDouble(i -> -simulation.mass[i]));
+		}
+
+		double[] x = new double[count];
+		double[] y = new double[count];
+		double[] xVelocity = new double[count];
+		double[] yVelocity = new double[count];
+		double[] mass = new double[count];
+		double[] radius = new double[count];
+
+		for (int k = 0; k < count; k++) {
+			int i = order[k];
+			x[k] = simulation.x[i];
+			y[k] = simulation.y[i];
+			xVelocity[k] = simulation.xVelocity[i];
+			yVelocity[k] = simulation.yVelocity[i];
+			mass[k] = simulation.mass[i];
+			radius[k] = simulation.radius[i];
+		}
+
+		double timeStep = simulation.getTimeStep();
+
+		cancel();
+
+		executor.execute(() -> resetEphemeris(x, y, xVelocity, yVelocity, mass, radius, timeStep));
+
+		Request request = this.request;
+		if (request != null) {
+			submit(request);
+		}
+
+	}
+
+	/**
+	 * Starts predicting the path of a body placed with a given position and velocity, cancelling any older prediction
+	 * @param x the x coordinate of the body's center
+	 * @param y the y coordinate of the body's center
+	 * @param xVelocity the x velocity of the body
+	 * @param yVelocity the y velocity of the body
+	 * @param radius the radius of the body, the path ends where it would hit a source
+	 */
+	public void predict(double x, double y, double xVelocity, double yVelocity, double radius) {
+
+		Request request = this.request;
+
+		// Mouse events that don't change the velocity don't need the prediction to start again
+		if (request != null && request.x == x && request.y == y && request.xVelocity == xVelocity && request.yVelocity == yVelocity
+				&& request.radius == radius) {
+			return;
+		}
+
+		request = new Request(x, y, xVelocity, yVelocity, radius);
+		this.request = request;
+
+		submit(request);
+
+	}
+
+	/**
+	 * Cancels any prediction being calculated and forgets the published one and the newest request
+	 */
+	public void clear() {
+		request = null;
+		cancel();
+	}
+
+	/**
+	 * @return the newest published points, or null if there aren't any
+	 */
+	public Prediction getPrediction() {
+		return prediction;
+	}
+
+	/**
+	 * Stops the prediction thread once it has finished its current step
+	 */
+	public void shutdown() {
+		clear();
+		executor.shutdown();
+	}
+
+	private synchronized long cancel() {
+		prediction = null;
+		return generation.incrementAndGet();
+	}
+
+	private void submit(Request request) {
+
+		long requestGeneration = cancel();
+
+		executor.execute(() -> run(request, requestGeneration));
+
+	}
+
+	/**
+	 * Publishes the points of a prediction unless a newer request was made while they were being calculated
+	 */
+	private synchronized void publish(long requestGeneration, Prediction newPrediction) {
+
+		if (generation.get() == requestGeneration) {
+			prediction = newPrediction;
+		}
+
+	}
+
+	private void resetEphemeris(double[] x, double[] y, double[] xVelocity, double[] yVelocity, double[] mass, double[] radius, double timeStep) {
+
+		sourceCount = mass.length;
+		this.timeStep = timeStep;
+		sourceMass = mass;
+		sourceRadius = radius;
+		sourceXVelocity = xVelocity;
+		sourceYVelocity = yVelocity;
+		sourceXAcceleration = new double[sourceCount];
+		sourceYAcceleration = new double[sourceCount];
+
+		ephemerisX = Arrays.copyOf(x, sourceCount * 64);
+		ephemerisY = Arrays.copyOf(y, sourceCount * 64);
+		ephemerisSteps = 1;
+
+		computeSourceAccelerations(0);
+
+	}
+
+	/**
+	 * Steps the path of a body through the ephemeris, publishing its points as they are calculated
+	 */
+	private void run(Request request, long requestGeneration) {
+
+		double[] x = new double[length + 1];
+		double[] y = new double[length + 1];
+
+		x[0] = request.x;
+		y[0] = request.y;
+
+		double xVelocity = request.xVelocity;
+		double yVelocity = request.yVelocity;
+
+		computeParticleAcceleration(0, x[0], y[0]);
+		double xAcceleration = particleXAcceleration;
+		double yAcceleration = particleYAcceleration;
+
+		boolean collided = false;
+		int count = 1;
+
+		for (int step = 0; step < length && !collided; step++) {
+
+			if (generation.get() != requestGeneration || !extendEphemeris(step + 1, requestGeneration)) {
+				return;
+			}
+
+			// Velocity Verlet, the same kick, drift and kick the sources were stepped with
+			xVelocity += xAcceleration * timeStep / 2;
+			yVelocity += yAcceleration * timeStep / 2;
+
+			x[step + 1] = x[step] + xVelocity * timeStep;
+			y[step + 1] = y[step] + yVelocity * timeStep;
+
+			computeParticleAcceleration(step + 1, x[step + 1], y[step + 1]);
+			xAcceleration = particleXAcceleration;
+			yAcceleration = particleYAcceleration;
+
+			xVelocity += xAcceleration * timeStep / 2;
+			yVelocity += yAcceleration * timeStep / 2;
+
+			count++;
+			collided = hitsSource(step + 1, x[step + 1], y[step + 1], request.radius);
+
+			if (count % PUBLISH_STEPS == 0) {
+				publish(requestGeneration, new Prediction(x, y, count, false));
+			}
+
+		}
+
+		publish(requestGeneration, new Prediction(x, y, count, collided));
+
+	}
+
+	/**
+	 * Sums the acceleration of a test particle at a given point caused by the sources at a step of the ephemeris,
+	 * storing it in particleXAcceleration and particleYAcceleration
+	 */
+	private void computeParticleAcceleration(int step, double x, double y) {
+
+		int offset = step * sourceCount;
+		double xSum = 0;
+		double ySum = 0;
+
+		for (int j = 0; j < sourceCount; j++) {
+
+			double dx = ephemerisX[offset + j] - x;
+			double dy = ephemerisY[offset + j] - y;
+			double distanceSquared = dx * dx + dy * dy;
+
+			if (distanceSquared > 0) {
+
+				double scale = Simulation.G * sourceMass[j] / (distanceSquared * Math.sqrt(distanceSquared));
+
+				xSum += dx * scale;
+				ySum += dy * scale;
+
+			}
+		}
+
+		particleXAcceleration = xSum;
+		particleYAcceleration = ySum;
+
+	}
+
+	/**
+	 * @return true if a body of a given radius at a point overlaps one of the sources at a step of the ephemeris
+	 */
+	private boolean hitsSource(int step, double x, double y, double radius) {
+
+		int offset = step * sourceCount;
+
+		for (int j = 0; j < sourceCount; j++) {
+
+			double dx = ephemerisX[offset + j] - x;
+			double dy = ephemerisY[offset + j] - y;
+			double reach = sourceRadius[j] + radius;
+
+			if (dx * dx + dy * dy < reach * reach) {
+				return true;
+			}
+
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Steps the sources until the ephemeris holds a given step
+	 * @return false if a newer request was made before it was done
+	 */
+	private boolean extendEphemeris(int step, long requestGeneration) {
+
+		while (ephemerisSteps <= step) {
+
+			if (generation.get() != requestGeneration) {
+				return false;
+			}
+
+			int capacity = (ephemerisSteps + 1) * sourceCount;
+			if (ephemerisX.length < capacity) {
+				ephemerisX = Arrays.copyOf(ephemerisX, Math.max(capacity, ephemerisX.length * 2));
+				ephemerisY = Arrays.copyOf(ephemerisY, Math.max(capacity, ephemerisY.length * 2));
+			}
+
+			int last = (ephemerisSteps - 1) * sourceCount;
+			int next = ephemerisSteps * sourceCount;
+
+			for (int j = 0; j < sourceCount; j++) {
+
+				sourceXVelocity[j] += sourceXAcceleration[j] * timeStep / 2;
+				sourceYVelocity[j] += sourceYAcceleration[j] * timeStep / 2;
+
+				ephemerisX[next + j] = ephemerisX[last + j] + sourceXVelocity[j] * timeStep;
+				ephemerisY[next + j] = ephemerisY[last + j] + sourceYVelocity[j] * timeStep;
+
+			}
+
+			computeSourceAccelerations(ephemerisSteps);
+
+			for (int j = 0; j < sourceCount; j++) {
+				sourceXVelocity[j] += sourceXAcceleration[j] * timeStep / 2;
+				sourceYVelocity[j] += sourceYAcceleration[j] * timeStep / 2;
+			}
+
+			ephemerisSteps++;
+
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Sums the attraction of the sources on each other at a step of the ephemeris
+	 */
+	private void computeSourceAccelerations(int step) {
+
+		int offset = step * sourceCount;
+
+		for (int i = 0; i < sourceCount; i++) {
+
+			double xSum = 0;
+			double ySum = 0;
+
+			for (int j = 0; j < sourceCount; j++) {
+
+				double dx = ephemerisX[offset + j] - ephemerisX[offset + i];
+				double dy = ephemerisY[offset + j] - ephemerisY[offset + i];
+				double distanceSquared = dx * dx + dy * dy;
+
+				if (j != i && distanceSquared > 0) {
+
+					double scale = Simulation.G * sourceMass[j] / (distanceSquared * Math.sqrt(distanceSquared));
+
+					xSum += dx * scale;
+					ySum += dy * scale;
+
+				}
+			}
+
+			sourceXAcceleration[i] = xSum;
+			sourceYAcceleration[i] = ySum;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+package orbitphysics;
+
+/**
+ * A Velocity Verlet(leapfrog, kick-drift-kick) integrator. Each step gives every body half of a velocity
+ * update, moves it by the new velocity, then gives it the other half of the velocity update using the
+ * acceleration at its new position.
+ *
+ * This is second order accurate and symplectic, so the energy of an orbit oscillates instead of drifting.
+ * The accelerations at the end of a step are kept for the start of the next one, so only one force
+ * calculation is needed per step.
+ */
+public class VelocityVerletIntegrator implements Integrator {
+
+	@Override
+	public void step(Simulation simulation, double timeStep) {
+
+		if (!simulation.accelerationsCurrent) {
+			simulation.computeAccelerations();
+		}
+
+		double[] x = simulation.x;
+		double[] y = simulation.y;
+		double[] xVelocity = simulation.xVelocity;
+		double[] yVelocity = simulation.yVelocity;
+		double[] xAcceleration = simulation.xAcceleration;
+		double[] yAcceleration = simulation.yAcceleration;
+
+		int count = simulation.count;
+		double halfStep = timeStep / 2;
+
+		for (int i = 0; i < count; i++) {
+
+			xVelocity[i] += xAcceleration[i] * halfStep;
+			yVelocity[i] += yAcceleration[i] * halfStep;
+
+			x[i] += xVelocity[i] * timeStep;
+			y[i] += yVelocity[i] * timeStep;
+
+		}
+
+		simulation.computeAccelerations();
+
+		for (int i = 0; i < count; i++) {
+
+			xVelocity[i] += xAcceleration[i] * halfStep;
+			yVelocity[i] += yAcceleration[i] * halfStep;
+
+		}
+
+	}
+
+	@Override
+	public String getName() {
+		return "Velocity Verlet";
+	}
+
+}
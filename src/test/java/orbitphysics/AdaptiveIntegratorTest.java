@@ -0,0 +1,73 @@
+package orbitphysics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveIntegratorTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	/**
+	 * Builds a light body in a circular orbit around a heavy one
+	 */
+	private static Simulation createOrbit() {
+
+		Simulation simulation = new Simulation();
+
+		simulation.addBody(0, 0, 0, 0, 1000, 5);
+		simulation.addBody(100, 0, 0, Math.sqrt(1000 / 100.0), 1, 1);
+
+		return simulation;
+
+	}
+
+	@Test
+	public void finishesWithToleranceBelowRoundOff() {
+
+		Simulation simulation = createOrbit();
+		simulation.setIntegrator(new AdaptiveIntegrator(1e-18));
+
+		assertTimeoutPreemptively(TIMEOUT, () -> simulation.step(10));
+
+		Simulation reference = createOrbit();
+		reference.setIntegrator(new AdaptiveIntegrator(1e-9));
+		reference.step(10);
+
+		// Every step must still be simulated in full, only with the smallest substeps
+		assertEquals(reference.getX(1), simulation.getX(1), 1e-3);
+		assertEquals(reference.getY(1), simulation.getY(1), 1e-3);
+
+	}
+
+	@Test
+	public void simulatesTheWholeStep() {
+
+		Simulation simulation = new Simulation();
+		simulation.addBody(0, 0, 3, -2, 1, 1);
+		simulation.setIntegrator(new AdaptiveIntegrator(1e-18));
+
+		assertTimeoutPreemptively(TIMEOUT, () -> simulation.step(5));
+
+		double time = 5 * simulation.getTimeStep();
+
+		assertEquals(3 * time, simulation.getX(0), 1e-9);
+		assertEquals(-2 * time, simulation.getY(0), 1e-9);
+
+	}
+
+	@Test
+	public void finishesWithNonFiniteState() {
+
+		Simulation simulation = createOrbit();
+		simulation.setIntegrator(new AdaptiveIntegrator());
+		simulation.setX(1, Double.NaN);
+
+		assertTimeoutPreemptively(TIMEOUT, () -> simulation.step(10));
+
+	}
+
+}
@@ -0,0 +1,79 @@
+package orbitphysics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchRunnerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void truncateRowsKeepsRowsUpToTheStep() throws IOException {
+
+		Path file = directory.resolve("snapshots.csv");
+		Files.writeString(file, "step,time\n0,0.0\n5,5.0\n5,5.0\n10,10.0\n15,15");
+
+		assertEquals(4, BatchRunner.truncateRows(file, 9));
+		assertEquals("step,time\n0,0.0\n5,5.0\n5,5.0\n", Files.readString(file));
+
+	}
+
+	@Test
+	public void truncateRowsDropsAPartlyWrittenRow() throws IOException {
+
+		Path file = directory.resolve("snapshots.csv");
+		Files.writeString(file, "step,time\n0,0.0\n10,10.0\n1");
+
+		assertEquals(3, BatchRunner.truncateRows(file, 100));
+		assertEquals("step,time\n0,0.0\n10,10.0\n", Files.readString(file));
+
+	}
+
+	@Test
+	public void resumedRunContinuesItsSnapshots() throws IOException {
+
+		PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+		Path snapshots = directory.resolve("snapshots.csv");
+		Path checkpoint = directory.resolve("run.ckpt");
+
+		String[] options = { "--scenario", "uniform", "--bodies", "20", "--collisions", "none", "--integrator", "verlet",
+				"--threads", "1", "--snapshot-every", "7", "--checkpoint-every", "10", "--no-energy", "--no-metrics" };
+
+		BatchRunner uninterrupted = BatchRunner.parse(join(options, "--steps", "40", "--snapshots", directory.resolve("full.csv").toString()));
+		uninterrupted.run(out);
+
+		BatchRunner first = BatchRunner.parse(join(options, "--steps", "20", "--snapshots", snapshots.toString(), "--checkpoint", checkpoint.toString()));
+		first.run(out);
+
+		BatchRunner resumed = BatchRunner.parse(join(options, "--steps", "40", "--snapshots", snapshots.toString(), "--checkpoint", checkpoint.toString(), "--resume"));
+		resumed.run(out);
+
+		// The first run's last snapshot at step 20 is kept, the rest match the uninterrupted run
+		String expected = Files.readString(directory.resolve("full.csv"));
+		String actual = Files.readString(snapshots);
+
+		assertEquals(expected, actual.replaceAll("(?m)^20,.*\\R", ""));
+
+	}
+
+	private static String[] join(String[] options, String... more) {
+
+		String[] all = Arrays.copyOf(options, options.length + more.length);
+		System.arraycopy(more, 0, all, options.length, more.length);
+
+		return all;
+
+	}
+
+}
@@ -0,0 +1,49 @@
+package orbitphysics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FastMultipoleSolverTest {
+
+	private static final int BODY_COUNT = 2000;
+
+	private static final int[] ORDERS = { 1, 2, 4, 8, 12 };
+
+	/**
+	 * Checks that the error of every order at the default opening angle is below theta^(order + 1),
+	 * which is how the error of each interaction falls
+	 */
+	private static void assertOrdersAccurate(int sourceCount) {
+
+		for (Scenarios.Distribution distribution : Scenarios.Distribution.values()) {
+
+			Simulation simulation = Scenarios.create(distribution, BODY_COUNT, 7);
+
+			for (int order : ORDERS) {
+
+				FastMultipoleSolver solver = new FastMultipoleSolver(order, FastMultipoleSolver.DEFAULT_THETA);
+				solver.setSoftening(SolverComparison.SOFTENING);
+
+				double error = SolverComparison.relativeError(solver, simulation, Math.min(sourceCount, simulation.count));
+				double bound = Math.pow(FastMultipoleSolver.DEFAULT_THETA, order + 1);
+
+				assertTrue(error < bound, distribution + " at order " + order + " has an error of " + error + ", over " + bound);
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void matchesDirectSummation() {
+		assertOrdersAccurate(BODY_COUNT);
+	}
+
+	@Test
+	public void matchesDirectSummationWithTestParticles() {
+		assertOrdersAccurate(BODY_COUNT * 2 / 3);
+	}
+
+}
@@ -0,0 +1,84 @@
+package orbitphysics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+public class ParticleMeshSolverTest {
+
+	private static final int BODY_COUNT = 2000;
+
+	// The largest relative error of the mesh force with the short range correction, which is limited by the mesh
+	private static final double MAX_ERROR = 2e-2;
+
+	private static final int[] GRID_SIZES = { 64, ParticleMeshSolver.DEFAULT_GRID_SIZE };
+
+	private static void assertShortRangeCorrectionAccurate(int sourceCount) {
+
+		for (Scenarios.Distribution distribution : Scenarios.Distribution.values()) {
+
+			Simulation simulation = Scenarios.create(distribution, BODY_COUNT, 7);
+
+			for (int gridSize : GRID_SIZES) {
+
+				ParticleMeshSolver solver = new ParticleMeshSolver(gridSize);
+				solver.setSoftening(SolverComparison.SOFTENING);
+				solver.setShortRangeCorrection(true);
+
+				double error = SolverComparison.relativeError(solver, simulation, Math.min(sourceCount, simulation.count));
+
+				assertTrue(error < MAX_ERROR, distribution + " on a " + gridSize + " mesh has an error of " + error);
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void matchesDirectSummation() {
+		assertShortRangeCorrectionAccurate(BODY_COUNT);
+	}
+
+	@Test
+	public void matchesDirectSummationWithTestParticles() {
+		assertShortRangeCorrectionAccurate(BODY_COUNT * 2 / 3);
+	}
+
+	@Test
+	public void resultsDontDependOnThreads() {
+
+		Simulation simulation = Scenarios.create(Scenarios.Distribution.CLUSTER, BODY_COUNT, 7);
+		int count = simulation.count;
+		int sourceCount = count * 2 / 3;
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+
+			double[][] results = new double[4][count];
+
+			for (ForkJoinPool solverPool : new ForkJoinPool[] { null, pool }) {
+
+				ParticleMeshSolver solver = new ParticleMeshSolver(128, solverPool);
+				solver.setSoftening(SolverComparison.SOFTENING);
+				solver.setShortRangeCorrection(true);
+
+				int result = solverPool == null ? 0 : 2;
+				solver.computeAccelerations(simulation.x, simulation.y, simulation.mass, sourceCount, count, results[result], results[result + 1]);
+
+			}
+
+			assertArrayEquals(results[0], results[2]);
+			assertArrayEquals(results[1], results[3]);
+
+		} finally {
+			pool.shutdown();
+		}
+
+	}
+
+}
@@ -0,0 +1,76 @@
+package orbitphysics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import orbitphysics.RecordingFormat.Encoding;
+
+public class RecordingWriterTest {
+
+	@TempDir
+	Path directory;
+
+	private static Simulation createOrbit() {
+
+		Simulation simulation = new Simulation();
+		simulation.setIntegrator(new VelocityVerletIntegrator());
+
+		simulation.addBody(0, 0, 0, 0, 1000, 5);
+		simulation.addBody(100, 0, 0, Math.sqrt(1000 / 100.0), 1, 1);
+
+		return simulation;
+
+	}
+
+	@Test
+	public void continuesAfterTheLastKeptFrame() throws IOException {
+
+		Path file = directory.resolve("orbit.rec");
+		Simulation simulation = createOrbit();
+
+		try (RecordingWriter writer = new RecordingWriter(file, Encoding.FLOAT_DELTA, 4, simulation.getTimeStep())) {
+			writer.writeFrame(simulation);
+			for (int step = 1; step <= 10; step++) {
+				simulation.step();
+				writer.writeFrame(simulation);
+			}
+		}
+
+		// Continue from step 6 as if the run had stopped there
+		Simulation resumed = createOrbit();
+		resumed.step(6);
+
+		try (RecordingWriter writer = new RecordingWriter(file, 6)) {
+
+			assertEquals(7, writer.getFrameCount());
+
+			for (int step = 7; step <= 12; step++) {
+				resumed.step();
+				writer.writeFrame(resumed);
+			}
+
+		}
+
+		try (RecordingReader reader = new RecordingReader(file)) {
+
+			assertEquals(13, reader.getFrameCount());
+			assertEquals(Encoding.FLOAT_DELTA, reader.getEncoding());
+
+			for (int frame = 0; frame < reader.getFrameCount(); frame++) {
+				reader.seek(frame);
+				assertEquals(frame, reader.getStepCount());
+			}
+
+			assertEquals(resumed.getX(1), reader.getX(1), 1e-3);
+			assertEquals(resumed.getY(1), reader.getY(1), 1e-3);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package orbitphysics;
+
+import java.util.Arrays;
+
+/**
+ * Compares the accelerations of an approximate {@link ForceSolver} with those of {@link DirectSumSolver}
+ */
+final class SolverComparison {
+
+	static final double SOFTENING = 1;
+
+	private SolverComparison() {
+	}
+
+	/**
+	 * Calculates the accelerations of the bodies of a simulation with a solver and with direct summation
+	 * @param sourceCount the number of bodies that attract the others, the rest are given no mass and only feel the sources
+	 * @return the root mean square of the difference in acceleration, relative to the root mean square acceleration
+	 */
+	static double relativeError(ForceSolver solver, Simulation simulation, int sourceCount) {
+
+		int count = simulation.count;
+
+		double[] mass = Arrays.copyOf(simulation.mass, count);
+		Arrays.fill(mass, sourceCount, count, 0);
+
+		DirectSumSolver direct = new DirectSumSolver();
+		direct.setSoftening(SOFTENING);
+
+		double[] xExpected = new double[count];
+		double[] yExpected = new double[count];
+		direct.computeAccelerations(simulation.x, simulation.y, mass, sourceCount, count, xExpected, yExpected);
+
+		double[] xActual = new double[count];
+		double[] yActual = new double[count];
+		solver.computeAccelerations(simulation.x, simulation.y, mass, sourceCount, count, xActual, yActual);
+
+		double error = 0;
+		double total = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			double xError = xActual[i] - xExpected[i];
+			double yError = yActual[i] - yExpected[i];
+
+			error += xError * xError + yError * yError;
+			total += xExpected[i] * xExpected[i] + yExpected[i] * yExpected[i];
+
+		}
+
+		return Math.sqrt(error / total);
+
+	}
+
+}
@@ -0,0 +1,86 @@
+package orbitphysics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link DirectSumKernel} that sums the attraction of as many sources at once as the CPU's vector registers
+ * hold doubles(4 with AVX2, 8 with AVX-512), using the incubating Vector API.
+ *
+ * This is only compiled by the vector profile, and only loads on a runtime started with
+ * --add-modules jdk.incubator.vector, so {@link DirectSumSolver} looks it up by name and falls back to its
+ * scalar loop when it is missing. Each lane sums every lane-th source and the lanes are added together at the
+ * end, so the results differ from the scalar loop in the last few bits, but they are still the same for any
+ * number of threads.
+ */
+class VectorDirectSumKernel implements DirectSumKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public void computeAccelerations(double[] x, double[] y, double[] mass, int sourceCount, double softeningSquared, double[] xAcceleration,
+			double[] yAcceleration, int start, int end) {
+
+		int vectorEnd = SPECIES.loopBound(sourceCount);
+
+		DoubleVector softening = DoubleVector.broadcast(SPECIES, softeningSquared);
+		DoubleVector zero = DoubleVector.zero(SPECIES);
+
+		for (int i = start; i < end; i++) {
+
+			double xi = x[i];
+			double yi = y[i];
+
+			DoubleVector xPosition = DoubleVector.broadcast(SPECIES, xi);
+			DoubleVector yPosition = DoubleVector.broadcast(SPECIES, yi);
+
+			DoubleVector xSums = zero;
+			DoubleVector ySums = zero;
+
+			for (int j = 0; j < vectorEnd; j += SPECIES.length()) {
+
+				DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(xPosition);
+				DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(yPosition);
+				DoubleVector distanceSquared = dx.fma(dx, dy.fma(dy, softening));
+
+				// The body itself and any body exactly on top of it are skipped, like in the scalar loop
+				VectorMask<Double> separated = distanceSquared.compare(VectorOperators.GT, 0);
+
+				// G m / r^3 for each source
+				DoubleVector scale = DoubleVector.fromArray(SPECIES, mass, j).mul(Simulation.G).div(distanceSquared.mul(distanceSquared.sqrt()));
+				scale = zero.blend(scale, separated);
+
+				xSums = dx.fma(scale, xSums);
+				ySums = dy.fma(scale, ySums);
+
+			}
+
+			double xSum = xSums.reduceLanes(VectorOperators.ADD);
+			double ySum = ySums.reduceLanes(VectorOperators.ADD);
+
+			for (int j = vectorEnd; j < sourceCount; j++) {
+
+				double dx = x[j] - xi;
+				double dy = y[j] - yi;
+				double distanceSquared = dx * dx + dy * dy + softeningSquared;
+
+				if (distanceSquared > 0) {
+
+					double scale = Simulation.G / (distanceSquared * Math.sqrt(distanceSquared));
+
+					xSum += dx * scale * mass[j];
+					ySum += dy * scale * mass[j];
+
+				}
+			}
+
+			xAcceleration[i] = xSum;
+			yAcceleration[i] = ySum;
+
+		}
+
+	}
+
+}